@@ -28,3 +28,14 @@
 
 # AccountInfo Class
 -keep class de.babixgo.monopolygo.AccountManager$AccountInfo { *; }
+
+# Strip debug/verbose logging when R8 is enabled (LogHelper gates it at runtime otherwise)
+-assumenosideeffects class de.babixgo.monopolygo.LogHelper {
+    public static void v(...);
+    public static void d(...);
+    public static boolean isDebugEnabled() return false;
+}
+-assumenosideeffects class android.util.Log {
+    public static int v(...);
+    public static int d(...);
+}
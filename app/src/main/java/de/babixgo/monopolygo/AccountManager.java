@@ -5,7 +5,12 @@ import android.os.Environment;
 import android.util.Log;
 import java.io.File;
 import com.opencsv.CSVReader;
+import de.babixgo.monopolygo.database.AccountCsvEngine;
+import de.babixgo.monopolygo.utils.DeviceIdCache;
+import de.babixgo.monopolygo.utils.Tracer;
 import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -14,39 +19,41 @@ import java.util.ArrayList;
  */
 public class AccountManager {
     private static final String TAG = "AccountManager";
-    private static final String PACKAGE_NAME = "com.scopely.monopolygo";
+    static final String PACKAGE_NAME = "com.scopely.monopolygo";
     private static final String BASE_PATH = "/storage/emulated/0/MonopolyGo/";
-    private static final String ACCOUNTS_EIGENE = BASE_PATH + "Accounts/Eigene/";
+    static final String ACCOUNTS_EIGENE = BASE_PATH + "Accounts/Eigene/";
     private static final String ACCOUNTS_KUNDEN = BASE_PATH + "Accounts/Kunden/";
     private static final String PARTNEREVENTS_PATH = BASE_PATH + "Partnerevents/";
     private static final String BACKUPS_PATH = BASE_PATH + "Backups/";
     
     private static final String TEMP_PATH = "/data/local/tmp/";
     
+    // Process state timeouts (polled, see ProcessWatcher)
+    private static final long STOP_TIMEOUT_MS = 5000;
+    private static final long START_TIMEOUT_MS = 20000;
+    
     // MonopolyGo Dateipfade
-    private static final String DATA_DIR = "/data/data/" + PACKAGE_NAME + "/";
+    static final String DATA_DIR = "/data/data/" + PACKAGE_NAME + "/";
     
     private static final String DATA_FILE_PATH = "/data/data/" + PACKAGE_NAME + 
         "/files/DiskBasedCacheDirectory/WithBuddies.Services.User.0Production.dat";
     
     // MUSS IMMER gesichert werden
-    private static final String REQUIRED_FILE = 
+    static final String REQUIRED_FILE = 
         DATA_DIR + "files/DiskBasedCacheDirectory/WithBuddies.Services.User.0Production.dat";
     
-    // Optional - nur wenn vorhanden
-    private static final String[] OPTIONAL_FILES = {
-        DATA_DIR + "files/device-id",
-        DATA_DIR + "files/internal-device-id",
-        DATA_DIR + "files/generatefid.lock",
-        DATA_DIR + "shared_prefs/com.scopely.monopolygo.v2.playerprefs.xml",
-        DATA_DIR + "shared_prefs/mys_mod_window_positions.xml",
-        DATA_DIR + "shared_prefs/mys_mod_feature_settings.xml"
+    // Archive entry name -> app data path of the optional files (fb_token only if requested)
+    // Backups select them through BackupRules.defaults()
+    static final String[][] OPTIONAL_FILE_MAPPINGS = {
+        {"device-id.txt", DATA_DIR + "files/device-id"},
+        {"internal-device-id.txt", DATA_DIR + "files/internal-device-id"},
+        {"generatefid.lock", DATA_DIR + "files/generatefid.lock"},
+        {"playerprefs.xml", DATA_DIR + "shared_prefs/com.scopely.monopolygo.v2.playerprefs.xml"},
+        {"window_positions.xml", DATA_DIR + "shared_prefs/mys_mod_window_positions.xml"},
+        {"feature_settings.xml", DATA_DIR + "shared_prefs/mys_mod_feature_settings.xml"},
+        {"fb_token.xml", DATA_DIR + "shared_prefs/com.facebook.AccessTokenManager.SharedPreferences.xml"}
     };
     
-    // FB-Token (nur auf Anfrage)
-    private static final String FB_TOKEN_FILE = 
-        DATA_DIR + "shared_prefs/com.facebook.AccessTokenManager.SharedPreferences.xml";
-    
     /**
      * Initialize the required directories on the device.
      */
@@ -64,6 +71,16 @@ public class AccountManager {
         RootManager.runRootCommand("am force-stop " + PACKAGE_NAME);
     }
     
+    /**
+     * Force stop the MonopolyGo app and wait until its process is gone.
+     * Replaces a fixed 1 s sleep: returns as soon as the process exited.
+     * @return false if it was still running after STOP_TIMEOUT_MS
+     */
+    public static boolean stopAppAndWait() {
+        forceStopApp();
+        return ProcessWatcher.awaitStopped(PACKAGE_NAME, STOP_TIMEOUT_MS);
+    }
+    
     /**
      * Start the MonopolyGo app.
      */
@@ -71,6 +88,15 @@ public class AccountManager {
         RootManager.runRootCommand("monkey -p " + PACKAGE_NAME + " 1");
     }
     
+    /**
+     * Start the MonopolyGo app and wait until its process is running.
+     * @return false if no process appeared within START_TIMEOUT_MS
+     */
+    public static boolean startAppAndWait() {
+        startApp();
+        return ProcessWatcher.awaitStarted(PACKAGE_NAME, START_TIMEOUT_MS);
+    }
+    
     /**
      * Restore an account from a backup.
      * @param sourceFile The source account file path
@@ -78,15 +104,12 @@ public class AccountManager {
      */
     public static boolean restoreAccount(String sourceFile) {
         // 1. Stop the app
-        forceStopApp();
-        
-        try {
-            Thread.sleep(1000); // Wait for app to fully stop
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (!stopAppAndWait()) {
+            Log.e(TAG, "MonopolyGo still running after force-stop - restore aborted");
+            return false;
         }
         
-        // 2. Copy the file with root privileges
+        // 2. Copy the file (account.dat is never hardlinked into a snapshot) with root privileges
         String command = "cp \"" + sourceFile + "\" \"" + DATA_FILE_PATH + "\"";
         String result = RootManager.runRootCommand(command);
         
@@ -112,12 +135,9 @@ public class AccountManager {
      */
     public static boolean backupAccount(String targetDirectory, String accountName) {
         // 1. Stop the app to ensure file consistency
-        forceStopApp();
-        
-        try {
-            Thread.sleep(1000); // Wait for app to fully stop
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (!stopAppAndWait()) {
+            Log.e(TAG, "MonopolyGo still running after force-stop - backup aborted");
+            return false;
         }
         
         // 2. Ensure target directory exists
@@ -178,12 +198,9 @@ public class AccountManager {
         }
         
         // 1. App stoppen
-        forceStopApp();
-        
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+        if (!stopAppAndWait()) {
+            Log.e(TAG, "MonopolyGo still running after force-stop - backup aborted");
+            return false;
         }
         
         // 2. Berechtigungen prüfen
@@ -213,11 +230,11 @@ public class AccountManager {
         String tempDir = TEMP_PATH + accountName + "/";
         File tempDirFile = new File(tempDir);
         
-        Log.d("BabixGO", "Erstelle Temp-Verzeichnis: " + tempDir);
+        LogHelper.d("BabixGO", () -> "Erstelle Temp-Verzeichnis: " + tempDir);
         
         // Altes Temp-Verzeichnis löschen falls vorhanden
         if (tempDirFile.exists()) {
-            Log.d("BabixGO", "Lösche altes Temp-Verzeichnis");
+            LogHelper.d("BabixGO", "Lösche altes Temp-Verzeichnis");
             deleteRecursive(tempDirFile);
         }
         
@@ -227,23 +244,21 @@ public class AccountManager {
             return false;
         }
         
-        Log.d("BabixGO", "Temp-Verzeichnis erstellt: " + tempDirFile.exists());
+        LogHelper.d("BabixGO", () -> "Temp-Verzeichnis erstellt: " + tempDirFile.exists());
         
-        // 4. REQUIRED FILE prüfen
-        String checkCommand = "[ -f " + escapeShellArg(REQUIRED_FILE) + " ] && echo 'exists' || echo 'not found'";
-        String checkResult = RootManager.runRootCommand(checkCommand);
+        // 4. Dateien nach BackupRules auswählen (ein find-Durchlauf)
+        BackupRules.Selection selection = BackupRules.defaults(includeFbToken).select();
         
-        if (!checkResult.contains("exists")) {
+        if (!selection.isComplete()) {
             Log.e("BabixGO", "FEHLER: Required File nicht gefunden: " + REQUIRED_FILE);
             deleteRecursive(tempDirFile);
             return false;
         }
         
-        Log.d("BabixGO", "Required File gefunden, kopiere...");
+        LogHelper.d("BabixGO", () -> "Required File gefunden, kopiere " + selection.getEntries().size() + " Dateien...");
         
-        // 5. REQUIRED FILE kopieren
-        String cpCommand = "cp " + escapeShellArg(REQUIRED_FILE) + " " + escapeShellArg(tempDir + "account.dat");
-        String cpResult = RootManager.runRootCommand(cpCommand);
+        // 5. Ausgewählte Dateien kopieren (ein Root-Batch)
+        String cpResult = RootManager.runRootCommands(selection.copyCommands("cp", tempDir, false));
         
         boolean success = new File(tempDir + "account.dat").exists() && new File(tempDir + "account.dat").length() > 0;
         
@@ -253,48 +268,13 @@ public class AccountManager {
             return false;
         }
         
-        Log.d("BabixGO", "Account-Datei kopiert");
+        LogHelper.d("BabixGO", "Account-Datei kopiert");
         
-        // 6. Optionale Dateien kopieren
+        // 6. Kopierte Dateien erfassen
         List<String> copiedFiles = new ArrayList<>();
-        copiedFiles.add("account.dat");
-        
-        for (int i = 0; i < OPTIONAL_FILES.length; i++) {
-            String sourceFile = OPTIONAL_FILES[i];
-            
-            // Check if file exists
-            String fileCheckCommand = "[ -f " + escapeShellArg(sourceFile) + " ] && echo 'exists' || echo 'not found'";
-            String fileCheckResult = RootManager.runRootCommand(fileCheckCommand);
-            
-            if (fileCheckResult.contains("exists")) {
-                String fileName = getFileName(sourceFile, i);
-                String fileCpCommand = "cp " + escapeShellArg(sourceFile) + " " + escapeShellArg(tempDir + fileName);
-                String fileCpResult = RootManager.runRootCommand(fileCpCommand);
-                
-                boolean copied = new File(tempDir + fileName).exists();
-                
-                if (copied) {
-                    copiedFiles.add(fileName);
-                    Log.d("BabixGO", "Optional kopiert: " + fileName);
-                }
-            }
-        }
-        
-        // 7. FB-Token kopieren (falls gewünscht)
-        if (includeFbToken) {
-            String fbCheckCommand = "[ -f " + escapeShellArg(FB_TOKEN_FILE) + " ] && echo 'exists' || echo 'not found'";
-            String fbCheckResult = RootManager.runRootCommand(fbCheckCommand);
-            
-            if (fbCheckResult.contains("exists")) {
-                String fbCpCommand = "cp " + escapeShellArg(FB_TOKEN_FILE) + " " + escapeShellArg(tempDir + "fb_token.xml");
-                String fbCpResult = RootManager.runRootCommand(fbCpCommand);
-                
-                boolean copied = new File(tempDir + "fb_token.xml").exists();
-                
-                if (copied) {
-                    copiedFiles.add("fb_token.xml");
-                    Log.d("BabixGO", "FB-Token kopiert");
-                }
+        for (BackupRules.Entry entry : selection.getEntries()) {
+            if (new File(tempDir + entry.entryName).exists()) {
+                copiedFiles.add(entry.entryName);
             }
         }
         
@@ -304,7 +284,7 @@ public class AccountManager {
         // 9. Berechtigungen für Temp-Dateien setzen (lesbar für App)
         RootManager.runRootCommand("chmod -R 777 \"" + tempDir + "\"");
         
-        Log.d("BabixGO", "Erstelle ZIP...");
+        LogHelper.d("BabixGO", "Erstelle ZIP...");
         
         // 10. ZIP erstellen (shell command)
         String zipFile = TEMP_PATH + accountName + ".zip";
@@ -319,7 +299,7 @@ public class AccountManager {
             return false;
         }
         
-        Log.d("BabixGO", "ZIP erstellt: " + zipFile);
+        LogHelper.d("BabixGO", () -> "ZIP erstellt: " + zipFile);
         
         // 11. Zielverzeichnis erstellen
         String targetDir = ACCOUNTS_EIGENE + accountName + "/";
@@ -340,7 +320,7 @@ public class AccountManager {
         
         boolean moved = zipFileObj.renameTo(finalZipObj);
         
-        Log.d("BabixGO", "ZIP verschoben: " + moved + " nach " + finalZip);
+        LogHelper.d("BabixGO", () -> "ZIP verschoben: " + moved + " nach " + finalZip);
         
         // 13. Aufräumen
         deleteRecursive(tempDirFile);
@@ -351,7 +331,7 @@ public class AccountManager {
         // 14. Erfolgsprüfung
         boolean finalSuccess = moved && finalZipObj.exists() && finalZipObj.length() > 0;
         
-        Log.d("BabixGO", "Backup erfolgreich: " + finalSuccess + 
+        LogHelper.d("BabixGO", () -> "Backup erfolgreich: " + finalSuccess + 
             " (Größe: " + finalZipObj.length() + " bytes)");
         
         return finalSuccess;
@@ -362,22 +342,37 @@ public class AccountManager {
      * Uses user-accessible storage for temp directory (no /data/local/tmp/ permission issues)
      */
     public static boolean restoreAccountExtended(String accountName) {
+        // Needs the finished ZIP, and copies over files a hardlinked snapshot may share
+        SnapshotStore.awaitArchived(accountName);
+        SnapshotStore.awaitInPlaceWriteSafe();
+        
+        try (Tracer.Span span = Tracer.start("restore")) {
+            boolean success = restoreAccountExtended(accountName, span);
+            if (!success) {
+                span.fail();
+            }
+            return success;
+        } finally {
+            // New prefs (also after a partial restore) - cached IDs are stale
+            DeviceIdCache.invalidate();
+        }
+    }
+
+    private static boolean restoreAccountExtended(String accountName, Tracer.Span span) {
         // Validate accountName to prevent command injection
         if (!isValidAccountName(accountName)) {
             Log.e(TAG, "Invalid account name: " + accountName);
             return false;
         }
 
-        Log.d(TAG, "=== RESTORE START ===");
-        Log.d(TAG, "Account: " + accountName);
+        LogHelper.d(TAG, "=== RESTORE START ===");
+        LogHelper.d(TAG, () -> "Account: " + accountName);
 
         // 1. App stoppen
-        forceStopApp();
-
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            Log.e(TAG, "Sleep interrupted during restore", e);
+        span.phase("stop_app");
+        if (!stopAppAndWait()) {
+            Log.e(TAG, "MonopolyGo still running after force-stop - restore aborted");
+            return false;
         }
 
         // 2. ZIP-Pfad finden
@@ -389,7 +384,7 @@ public class AccountManager {
             return false;
         }
 
-        Log.d(TAG, "Found ZIP file: " + zipPath);
+        LogHelper.d(TAG, () -> "Found ZIP file: " + zipPath);
 
         // 3. Temporäres Verzeichnis in user storage erstellen (no permission issues)
         String tempDir = ACCOUNTS_EIGENE + accountName + "/temp/";
@@ -397,16 +392,17 @@ public class AccountManager {
 
         // Altes Temp-Verzeichnis löschen falls vorhanden
         if (tempDirFile.exists()) {
-            Log.d(TAG, "Deleting old temp directory: " + tempDir);
+            LogHelper.d(TAG, () -> "Deleting old temp directory: " + tempDir);
             deleteRecursive(tempDirFile);
         }
 
         // Create temp directory with Java (no root needed)
         tempDirFile.mkdirs();
-        Log.d(TAG, "Temp directory created: " + tempDir);
+        LogHelper.d(TAG, () -> "Temp directory created: " + tempDir);
 
         // 4. ZIP entpacken - use Java implementation
-        Log.d(TAG, "Extracting ZIP archive...");
+        span.phase("extract");
+        LogHelper.d(TAG, "Extracting ZIP archive...");
         boolean unzipSuccess = ZipManager.unzipArchive(zipPath, tempDir);
 
         if (!unzipSuccess) {
@@ -415,21 +411,22 @@ public class AccountManager {
             return false;
         }
 
-        Log.d(TAG, "ZIP extracted successfully");
+        LogHelper.d(TAG, "ZIP extracted successfully");
 
         // 5. Dateien zurückkopieren mit Root
+        span.phase("copy");
         boolean success = true;
 
         // Required file
         File accountDatFile = new File(tempDir + "account.dat");
         if (accountDatFile.exists()) {
-            Log.d(TAG, "Copying account.dat to app directory...");
+            LogHelper.d(TAG, "Copying account.dat to app directory...");
             String cpCommand = "cp " + escapeShellArg(tempDir + "account.dat") + " " + escapeShellArg(REQUIRED_FILE);
             String cpResult = RootManager.runRootCommand(cpCommand);
             success = !cpResult.contains("Error") && !cpResult.contains("cannot");
 
             if (success) {
-                Log.d(TAG, "Account file restored successfully");
+                LogHelper.d(TAG, "Account file restored successfully");
             } else {
                 Log.e(TAG, "Failed to restore account file: " + cpResult);
             }
@@ -440,22 +437,24 @@ public class AccountManager {
 
         // Optionale Dateien
         if (success) {
+            span.phase("optional_files");
             restoreOptionalFiles(tempDir);
             setProperPermissions();
         }
 
         // 6. Aufräumen - use Java (no root needed)
-        Log.d(TAG, "Cleaning up temp directory");
+        span.phase("cleanup");
+        LogHelper.d(TAG, "Cleaning up temp directory");
         deleteRecursive(tempDirFile);
 
-        Log.d(TAG, success ? "=== RESTORE COMPLETE ===" : "=== RESTORE FAILED ===");
+        LogHelper.d(TAG, success ? "=== RESTORE COMPLETE ===" : "=== RESTORE FAILED ===");
         return success;
     }
     
     /**
      * Hilfsmethode: Rekursives Löschen von Verzeichnissen
      */
-    private static boolean deleteRecursive(File fileOrDirectory) {
+    static boolean deleteRecursive(File fileOrDirectory) {
         if (fileOrDirectory == null || !fileOrDirectory.exists()) {
             return false;
         }
@@ -472,26 +471,6 @@ public class AccountManager {
         return fileOrDirectory.delete();
     }
     
-    /**
-     * Hilfsmethode: Dateiname generieren
-     */
-    private static String getFileName(String fullPath, int index) {
-        if (fullPath.contains("device-id") && !fullPath.contains("internal")) {
-            return "device-id.txt";
-        } else if (fullPath.contains("internal-device-id")) {
-            return "internal-device-id.txt";
-        } else if (fullPath.contains("generatefid.lock")) {
-            return "generatefid.lock";
-        } else if (fullPath.contains("playerprefs.xml")) {
-            return "playerprefs.xml";
-        } else if (fullPath.contains("mys_mod_window_positions")) {
-            return "window_positions.xml";
-        } else if (fullPath.contains("mys_mod_feature_settings")) {
-            return "feature_settings.xml";
-        }
-        return "file_" + index;
-    }
-    
     /**
      * Hilfsmethode: Dateiliste erstellen
      */
@@ -518,7 +497,7 @@ public class AccountManager {
     /**
      * Hilfsmethode: Validate account name to prevent command injection
      */
-    private static boolean isValidAccountName(String accountName) {
+    static boolean isValidAccountName(String accountName) {
         if (accountName == null || accountName.isEmpty()) {
             return false;
         }
@@ -526,6 +505,10 @@ public class AccountManager {
         if (accountName.length() > 100) {
             return false;
         }
+        // "." and ".." pass the pattern below but address a parent directory
+        if (accountName.equals(".") || accountName.equals("..")) {
+            return false;
+        }
         // Only allow alphanumeric characters, underscores, hyphens, and dots
         // This prevents shell metacharacters from being injected
         return accountName.matches("^[a-zA-Z0-9._-]+$");
@@ -535,7 +518,7 @@ public class AccountManager {
      * Helper method: Escape shell argument to prevent injection
      * Uses single quotes and escapes any single quotes in the argument
      */
-    private static String escapeShellArg(String arg) {
+    public static String escapeShellArg(String arg) {
         if (arg == null) {
             return "''";
         }
@@ -547,17 +530,7 @@ public class AccountManager {
      * Hilfsmethode: Optionale Dateien wiederherstellen
      */
     private static void restoreOptionalFiles(String tempDir) {
-        String[][] fileMappings = {
-            {"device-id.txt", DATA_DIR + "files/device-id"},
-            {"internal-device-id.txt", DATA_DIR + "files/internal-device-id"},
-            {"generatefid.lock", DATA_DIR + "files/generatefid.lock"},
-            {"playerprefs.xml", DATA_DIR + "shared_prefs/com.scopely.monopolygo.v2.playerprefs.xml"},
-            {"window_positions.xml", DATA_DIR + "shared_prefs/mys_mod_window_positions.xml"},
-            {"feature_settings.xml", DATA_DIR + "shared_prefs/mys_mod_feature_settings.xml"},
-            {"fb_token.xml", DATA_DIR + "shared_prefs/com.facebook.AccessTokenManager.SharedPreferences.xml"}
-        };
-        
-        for (String[] mapping : fileMappings) {
+        for (String[] mapping : OPTIONAL_FILE_MAPPINGS) {
             String sourceFile = tempDir + mapping[0];
             String targetFile = mapping[1];
             
@@ -572,41 +545,6 @@ public class AccountManager {
         }
     }
     
-    /**
-     * Hilfsmethode: Optionale Dateien sichern (reverse of restoreOptionalFiles)
-     * Uses same file mappings and commands as restore but in reverse direction
-     */
-    private static void backupOptionalFiles(String tempDir, boolean includeFbToken) {
-        String[][] fileMappings = {
-            {"device-id.txt", DATA_DIR + "files/device-id"},
-            {"internal-device-id.txt", DATA_DIR + "files/internal-device-id"},
-            {"generatefid.lock", DATA_DIR + "files/generatefid.lock"},
-            {"playerprefs.xml", DATA_DIR + "shared_prefs/com.scopely.monopolygo.v2.playerprefs.xml"},
-            {"window_positions.xml", DATA_DIR + "shared_prefs/mys_mod_window_positions.xml"},
-            {"feature_settings.xml", DATA_DIR + "shared_prefs/mys_mod_feature_settings.xml"},
-            {"fb_token.xml", DATA_DIR + "shared_prefs/com.facebook.AccessTokenManager.SharedPreferences.xml"}
-        };
-        
-        for (String[] mapping : fileMappings) {
-            String targetFile = tempDir + mapping[0];
-            String sourceFile = mapping[1];
-            
-            // Skip fb_token if not requested
-            if (mapping[0].equals("fb_token.xml") && !includeFbToken) {
-                continue;
-            }
-            
-            // Check if source file exists using shell command (same test as restore)
-            String checkCommand = "[ -f " + escapeShellArg(sourceFile) + " ] && echo 'exists' || echo 'not found'";
-            String checkResult = RootManager.runRootCommand(checkCommand);
-            
-            if (checkResult.contains("exists")) {
-                String cpCommand = "cp " + escapeShellArg(sourceFile) + " " + escapeShellArg(targetFile);
-                RootManager.runRootCommand(cpCommand);
-            }
-        }
-    }
-    
     /**
      * Hilfsmethode: Berechtigungen setzen
      */
@@ -632,89 +570,56 @@ public class AccountManager {
     }
 
     /**
-     * Find the account file for backup by checking multiple possible locations.
-     * Returns the path to the file if found, null otherwise.
+     * Backup Account - Simplified version that copies files directly to target directory
+     * Avoids /data/local/tmp/ permission issues by working in user-accessible storage
      */
-    private static String findAccountFileForBackup() {
-        // Try standard location first (where restore writes to)
-        Log.d(TAG, "Checking standard location: " + REQUIRED_FILE);
-        String checkCommand = "[ -f " + escapeShellArg(REQUIRED_FILE) + " ] && echo 'exists' || echo 'not found'";
-        String checkResult = RootManager.runRootCommand(checkCommand);
-
-        if (checkResult.contains("exists")) {
-            return REQUIRED_FILE;
-        }
-
-        // Try alternative known locations
-        String[] alternativePaths = {
-            DATA_DIR + "files/WithBuddies.Services.User.0Production.dat",
-            "/data/user/0/" + PACKAGE_NAME + "/files/DiskBasedCacheDirectory/WithBuddies.Services.User.0Production.dat",
-            "/data/user/0/" + PACKAGE_NAME + "/files/WithBuddies.Services.User.0Production.dat"
-        };
-
-        for (String altPath : alternativePaths) {
-            Log.d(TAG, "Checking alternative location: " + altPath);
-            checkCommand = "[ -f " + escapeShellArg(altPath) + " ] && echo 'exists' || echo 'not found'";
-            checkResult = RootManager.runRootCommand(checkCommand);
-
-            if (checkResult.contains("exists")) {
-                return altPath;
-            }
-        }
-
-        // Last resort: use find command to search for the file
-        Log.d(TAG, "Searching for file with find command");
-        String findCommand = "find " + escapeShellArg(DATA_DIR) + " -name '*WithBuddies.Services.User*.dat' 2>/dev/null | head -n 1";
-        String findResult = RootManager.runRootCommand(findCommand);
-
-        if (findResult != null && !findResult.trim().isEmpty() &&
-            !findResult.contains("Error") && !findResult.contains("not found")) {
-            String foundPath = findResult.trim();
-            Log.d(TAG, "Found file via find command: " + foundPath);
-            // Verify it actually exists
-            checkCommand = "[ -f " + escapeShellArg(foundPath) + " ] && echo 'exists' || echo 'not found'";
-            checkResult = RootManager.runRootCommand(checkCommand);
-            if (checkResult.contains("exists")) {
-                return foundPath;
+    public static boolean backupAccountSimple(String accountName, boolean includeFbToken) {
+        try (Tracer.Span span = Tracer.start("backup")) {
+            boolean success = backupAccountSimple(accountName, includeFbToken, span);
+            if (!success) {
+                span.fail();
             }
+            return success;
         }
-
-        Log.e(TAG, "Account file not found in any location");
-        return null;
     }
 
-    /**
-     * Backup Account - Simplified version that copies files directly to target directory
-     * Avoids /data/local/tmp/ permission issues by working in user-accessible storage
-     */
-    public static boolean backupAccountSimple(String accountName, boolean includeFbToken) {
+    private static boolean backupAccountSimple(String accountName, boolean includeFbToken, Tracer.Span span) {
         // Validate accountName to prevent command injection
         if (!isValidAccountName(accountName)) {
             Log.e(TAG, "Invalid account name: " + accountName);
             return false;
         }
 
-        Log.d(TAG, "=== BACKUP START ===");
-        Log.d(TAG, "Account: " + accountName);
-        Log.d(TAG, "FB-Token: " + includeFbToken);
+        LogHelper.d(TAG, "=== BACKUP START ===");
+        LogHelper.d(TAG, () -> "Account: " + accountName);
+        LogHelper.d(TAG, () -> "FB-Token: " + includeFbToken);
 
         // 1. App stoppen
-        forceStopApp();
-
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            Log.e(TAG, "Sleep interrupted during backup", e);
+        span.phase("stop_app");
+        if (!stopAppAndWait()) {
+            Log.e(TAG, "MonopolyGo still running after force-stop - backup aborted");
+            return false;
         }
 
-        // 2. Find the account file first
-        String accountFilePath = findAccountFileForBackup();
-        if (accountFilePath == null) {
+        // 2. Select the files (one find pass, account file in its known locations)
+        span.phase("locate");
+        BackupRules.Selection selection = BackupRules.defaults(includeFbToken).select();
+        if (!selection.isComplete()) {
             Log.e(TAG, "Account file not found - game may not have been run yet");
             return false;
         }
 
-        Log.d(TAG, "Found account file at: " + accountFilePath);
+        LogHelper.d(TAG, () -> "Found account file at: " + selection.get("account.dat").path);
+
+        // Snapshot (reflink/hardlink) if the data volume supports it - the ZIP follows in the background
+        if (SnapshotStore.isSupported()) {
+            span.phase("snapshot");
+            if (SnapshotStore.snapshot(accountName, selection)) {
+                LogHelper.d(TAG, "=== BACKUP SNAPSHOT TAKEN, ZIP PENDING ===");
+                return true;
+            }
+            Log.w(TAG, "Snapshot failed, falling back to copy");
+        }
 
         // 3. Create target directory and temp subdirectory in user storage (no permission issues)
         String targetDir = ACCOUNTS_EIGENE + accountName + "/";
@@ -734,17 +639,15 @@ public class AccountManager {
 
         tempDirFile.mkdirs();
 
-        Log.d(TAG, "Temp directory: " + tempDir);
-
-        // 4. Copy files to temp directory using root
-        String accountDatDest = tempDir + "account.dat";
+        LogHelper.d(TAG, () -> "Temp directory: " + tempDir);
 
-        Log.d(TAG, "Copying account file...");
-        String cpCommand = "cp " + escapeShellArg(accountFilePath) + " " + escapeShellArg(accountDatDest);
-        String cpResult = RootManager.runRootCommand(cpCommand);
+        // 4. Copy the selected files to the temp directory using root (one batch)
+        span.phase("copy");
+        LogHelper.d(TAG, () -> "Copying " + selection.getEntries().size() + " files (" + selection.totalBytes() + " bytes)...");
+        String cpResult = RootManager.runRootCommands(selection.copyCommands("cp", tempDir, false));
 
-        // 5. Set permissions so Java can read the copied file
-        Log.d(TAG, "Setting permissions for copied files");
+        // 5. Set permissions so Java can read the copied account file
+        String accountDatDest = tempDir + "account.dat";
         RootManager.runRootCommand("chmod 666 " + escapeShellArg(accountDatDest));
 
         // Verify copy succeeded
@@ -755,17 +658,58 @@ public class AccountManager {
             return false;
         }
 
-        Log.d(TAG, "Account file copied successfully (" + accountDatFile.length() + " bytes)");
-
-        // 6. Copy optional files to temp directory
-        backupOptionalFiles(tempDir, includeFbToken);
+        LogHelper.d(TAG, () -> "Account file copied successfully (" + accountDatFile.length() + " bytes)");
 
-        // 7. Set permissions on all files in temp directory
-        Log.d(TAG, "Setting permissions on temp files");
+        // 6. Set permissions on all files in temp directory
+        LogHelper.d(TAG, "Setting permissions on temp files");
         RootManager.runRootCommand("chmod -R 666 " + escapeShellArg(tempDir) + "* 2>/dev/null || true");
 
-        // 8. Create ZIP archive from temp directory
-        String zipPath = targetDir + accountName + ".zip";
+        // 7. Create ZIP archive from temp directory
+        span.phase("zip");
+        if (!writeBackupZip(accountName, tempDir)) {
+            deleteRecursive(tempDirFile);
+            return false;
+        }
+
+        // 8. Clean up temp directory
+        span.phase("cleanup");
+        LogHelper.d(TAG, "Cleaning up temp directory");
+        deleteRecursive(tempDirFile);
+
+        LogHelper.d(TAG, "=== BACKUP COMPLETE ===");
+        return true;
+    }
+    
+    /**
+     * ZIP a snapshot taken by SnapshotStore - same archive as the copy path of backupAccountSimple
+     * @param snapshotDir Root-side snapshot directory holding the archive entries
+     */
+    static boolean archiveSnapshot(String accountName, String snapshotDir) {
+        String tempDir = ACCOUNTS_EIGENE + accountName + "/snapshot_temp/";
+        File tempDirFile = new File(tempDir);
+        deleteRecursive(tempDirFile);
+        tempDirFile.mkdirs();
+
+        // Plain cp reads the shared blocks once and writes independent files
+        RootManager.runRootCommand("cp " + escapeShellArg(snapshotDir) + "* " + escapeShellArg(tempDir)
+            + " && chmod -R 666 " + escapeShellArg(tempDir) + "*");
+
+        File accountDatFile = new File(tempDir + "account.dat");
+        boolean success = accountDatFile.exists() && accountDatFile.length() > 0
+            && writeBackupZip(accountName, tempDir);
+        if (!success) {
+            Log.e(TAG, "Failed to archive snapshot " + snapshotDir);
+        }
+
+        deleteRecursive(tempDirFile);
+        return success;
+    }
+
+    /**
+     * Replace {account}/{account}.zip with the contents of tempDir
+     */
+    private static boolean writeBackupZip(String accountName, String tempDir) {
+        String zipPath = ACCOUNTS_EIGENE + accountName + "/" + accountName + ".zip";
         File zipFile = new File(zipPath);
 
         // Delete old ZIP if exists
@@ -773,22 +717,13 @@ public class AccountManager {
             zipFile.delete();
         }
 
-        Log.d(TAG, "Creating ZIP archive: " + zipPath);
-        boolean zipSuccess = ZipManager.zipDirectory(tempDir, zipPath);
-
-        if (!zipSuccess) {
+        LogHelper.d(TAG, () -> "Creating ZIP archive: " + zipPath);
+        if (!ZipManager.zipDirectory(tempDir, zipPath)) {
             Log.e(TAG, "Failed to create ZIP archive");
-            deleteRecursive(tempDirFile);
             return false;
         }
 
-        Log.d(TAG, "ZIP created successfully (" + zipFile.length() + " bytes)");
-
-        // 9. Clean up temp directory
-        Log.d(TAG, "Cleaning up temp directory");
-        deleteRecursive(tempDirFile);
-
-        Log.d(TAG, "=== BACKUP COMPLETE ===");
+        LogHelper.d(TAG, () -> "ZIP created successfully (" + zipFile.length() + " bytes)");
         return true;
     }
     
@@ -840,33 +775,62 @@ public class AccountManager {
             ACCOUNTS_EIGENE + "Accountinfos.csv" : 
             ACCOUNTS_KUNDEN + "Kundeninfos.csv";
         
+        try (Reader reader = new FileReader(csvPath)) {
+            return readAccountInfos(reader, isOwnAccounts);
+        } catch (Exception e) {
+            Log.e(TAG, "Failed to read account info from CSV: " + csvPath, e);
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Stream Accountinfos.csv / Kundeninfos.csv into Firebase in batches.
+     * Blocks until all batches are written - call from a background thread.
+     * @param isOwnAccounts true for own accounts, false for customer accounts
+     * @return Number of imported and skipped rows
+     */
+    public static AccountCsvEngine.ImportResult importAccountInfos(boolean isOwnAccounts) throws IOException {
+        String csvPath = isOwnAccounts ? 
+            ACCOUNTS_EIGENE + "Accountinfos.csv" : 
+            ACCOUNTS_KUNDEN + "Kundeninfos.csv";
+        
+        AccountCsvEngine engine = new AccountCsvEngine();
+        try (Reader reader = new FileReader(csvPath)) {
+            return isOwnAccounts ? engine.importOwnAccounts(reader) : engine.importCustomerAccounts(reader);
+        }
+    }
+    
+    /**
+     * Parse account info CSV (with header line) from any Reader.
+     * @param reader CSV source, not closed by this method
+     * @param isOwnAccounts true for own accounts, false for customer accounts
+     * @return List of AccountInfo objects
+     */
+    public static List<AccountInfo> readAccountInfos(Reader reader, boolean isOwnAccounts) throws Exception {
         List<AccountInfo> accounts = new ArrayList<>();
         
-        try (CSVReader reader = new CSVReader(new FileReader(csvPath))) {
-            reader.skip(1); // Skip header
-            String[] line;
-            while ((line = reader.readNext()) != null) {
-                // Validate array has minimum required length
-                if (line == null || line.length == 0) {
-                    continue;
-                }
-                
-                AccountInfo info = new AccountInfo();
-                if (isOwnAccounts) {
-                    info.internalId = line[0];
-                    info.userId = line.length > 1 ? line[1] : "";
-                    info.date = line.length > 2 ? line[2] : "";
-                    info.shortLink = line.length > 3 ? line[3] : "";
-                    info.note = line.length > 4 ? line[4] : "";
-                } else {
-                    info.customerId = line[0];
-                    info.username = line.length > 1 ? line[1] : "";
-                    // Additional customer fields can be added here
-                }
-                accounts.add(info);
+        CSVReader csvReader = new CSVReader(reader);
+        csvReader.skip(1); // Skip header
+        String[] line;
+        while ((line = csvReader.readNext()) != null) {
+            // Validate array has minimum required length
+            if (line.length == 0) {
+                continue;
             }
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to read account info from CSV: " + csvPath, e);
+            
+            AccountInfo info = new AccountInfo();
+            if (isOwnAccounts) {
+                info.internalId = line[0];
+                info.userId = line.length > 1 ? line[1] : "";
+                info.date = line.length > 2 ? line[2] : "";
+                info.shortLink = line.length > 3 ? line[3] : "";
+                info.note = line.length > 4 ? line[4] : "";
+            } else {
+                info.customerId = line[0];
+                info.username = line.length > 1 ? line[1] : "";
+                // Additional customer fields can be added here
+            }
+            accounts.add(info);
         }
         
         return accounts;
@@ -0,0 +1,407 @@
+package de.babixgo.monopolygo;
+
+import android.util.Log;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Declarative selection of the app data files that go into a backup
+ *
+ * Rules are checked in order and the first matching rule decides (like rsync filters);
+ * files no rule matches stay out. Patterns are relative to the app data dir:
+ *   *   any characters except '/'
+ *   **  any characters including '/'
+ *   ?   one character except '/'
+ * An include rule names the file in flat archives (entry name, the first rule wins if
+ * several files map to the same name) and may limit its size.
+ *
+ * select() lists the candidates in one root-side find pass: the fixed directory
+ * prefixes of the include patterns are the search roots and the patterns are passed
+ * as -path filters, so only candidate files are stat'ed. select(baseDir) applies the
+ * same rules to a tree copy of the data dir (backup folder), so a restore puts back
+ * exactly what the backup took.
+ */
+public class BackupRules {
+    private static final String TAG = "BackupRules";
+
+    private static final long MAX_ACCOUNT_FILE_BYTES = 64L * 1024 * 1024;
+    private static final long MAX_SMALL_FILE_BYTES = 4L * 1024 * 1024;
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    /**
+     * One include or exclude rule
+     */
+    private static class Rule {
+        final boolean include;
+        final boolean required;
+        final String pattern;
+        final Pattern regex;
+        final String entryName;   // null = file name
+        final long maxBytes;      // 0 = no limit
+
+        Rule(boolean include, boolean required, String pattern, String entryName, long maxBytes) {
+            this.include = include;
+            this.required = required;
+            this.pattern = pattern;
+            this.regex = Pattern.compile(globToRegex(pattern));
+            this.entryName = entryName;
+            this.maxBytes = maxBytes;
+        }
+    }
+
+    /**
+     * One selected file
+     */
+    public static class Entry {
+        public final String path;           // Absolute, below the selected base dir
+        public final String relativePath;   // Below the base dir (= path below the app data dir)
+        public final String entryName;      // Name in flat archives
+        public final long size;
+        final int ruleIndex;
+
+        Entry(String path, String relativePath, String entryName, long size, int ruleIndex) {
+            this.path = path;
+            this.relativePath = relativePath;
+            this.entryName = entryName;
+            this.size = size;
+            this.ruleIndex = ruleIndex;
+        }
+    }
+
+    // ==================== Rule Set ====================
+
+    /**
+     * Rules of both backup flows: account file, device IDs and the game's own prefs -
+     * nothing of the re-downloadable cache
+     */
+    public static BackupRules defaults(boolean includeFbToken) {
+        BackupRules rules = new BackupRules()
+            // Account file - standard location (where restore writes to) first
+            .require(relative(AccountManager.REQUIRED_FILE), "account.dat", MAX_ACCOUNT_FILE_BYTES)
+            .include("files/WithBuddies.Services.User.0Production.dat", "account.dat", MAX_ACCOUNT_FILE_BYTES)
+            // Everything else in the cache directory is downloaded again by the game
+            .exclude("files/DiskBasedCacheDirectory/**")
+            .include("files/**/*WithBuddies.Services.User*.dat", "account.dat", MAX_ACCOUNT_FILE_BYTES);
+
+        for (String[] mapping : AccountManager.OPTIONAL_FILE_MAPPINGS) {
+            if (mapping[0].equals("fb_token.xml") && !includeFbToken) {
+                continue;
+            }
+            rules.include(relative(mapping[1]), mapping[0], MAX_SMALL_FILE_BYTES);
+        }
+        return rules;
+    }
+
+    public BackupRules include(String pattern, String entryName, long maxBytes) {
+        rules.add(new Rule(true, false, pattern, entryName, maxBytes));
+        return this;
+    }
+
+    /**
+     * Include rule whose entry must be part of every backup
+     */
+    public BackupRules require(String pattern, String entryName, long maxBytes) {
+        rules.add(new Rule(true, true, pattern, entryName, maxBytes));
+        return this;
+    }
+
+    public BackupRules exclude(String pattern) {
+        rules.add(new Rule(false, false, pattern, null, 0));
+        return this;
+    }
+
+    // ==================== Selection ====================
+
+    /**
+     * Evaluate the rules against the app data dir (root shell, one find pass)
+     */
+    public Selection select() {
+        return select(AccountManager.DATA_DIR);
+    }
+
+    /**
+     * Evaluate the rules against a directory laid out like the app data dir
+     *
+     * @param baseDir Absolute, with trailing '/' - patterns are relative to it
+     */
+    public Selection select(String baseDir) {
+        return evaluate(RootManager.runRootCommand(findCommand(baseDir)), baseDir);
+    }
+
+    /**
+     * find over the search roots, -path filters of the include rules, "size path" per file
+     */
+    String findCommand(String baseDir) {
+        StringBuilder command = new StringBuilder("find");
+        for (String root : searchRoots()) {
+            command.append(' ').append(AccountManager.escapeShellArg(baseDir + root));
+        }
+        command.append(" -type f \\(");
+        boolean first = true;
+        for (Rule rule : rules) {
+            if (!rule.include) {
+                continue;
+            }
+            if (!first) {
+                command.append(" -o");
+            }
+            // find's * also matches '/' - a superset of the rule, evaluate() decides
+            command.append(" -path ").append(AccountManager.escapeShellArg(
+                baseDir + rule.pattern.replace("**/", "*").replace("**", "*")));
+            first = false;
+        }
+        command.append(" \\) -exec stat -c '%s %n' {} + 2>/dev/null || true");
+        return command.toString();
+    }
+
+    /**
+     * Directories to search: the directory part of each include pattern up to the
+     * first wildcard, without roots nested in other roots
+     */
+    private Collection<String> searchRoots() {
+        TreeSet<String> candidates = new TreeSet<>();
+        for (Rule rule : rules) {
+            if (rule.include) {
+                candidates.add(fixedDirectory(rule.pattern));
+            }
+        }
+
+        // Sorted, so parents are added before their children
+        List<String> roots = new ArrayList<>();
+        for (String candidate : candidates) {
+            boolean nested = false;
+            for (String root : roots) {
+                if (root.isEmpty() || candidate.startsWith(root + "/")) {
+                    nested = true;
+                    break;
+                }
+            }
+            if (!nested) {
+                roots.add(candidate);
+            }
+        }
+        return roots;
+    }
+
+    private static String fixedDirectory(String pattern) {
+        int wildcard = pattern.length();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?') {
+                wildcard = i;
+                break;
+            }
+        }
+        int slash = pattern.lastIndexOf('/', wildcard - 1);
+        return slash < 0 ? "" : pattern.substring(0, slash);
+    }
+
+    /**
+     * Apply the rules to "size path" lines (output of findCommand(baseDir))
+     */
+    Selection evaluate(String findOutput, String baseDir) {
+        Map<String, Entry> chosen = new LinkedHashMap<>();
+        List<String> skipped = new ArrayList<>();
+
+        for (String line : findOutput.split("\n")) {
+            int space = line.indexOf(' ');
+            if (space <= 0) {
+                continue;
+            }
+            String path = line.substring(space + 1).trim();
+            if (!path.startsWith(baseDir)) {
+                continue;
+            }
+            long size;
+            try {
+                size = Long.parseLong(line.substring(0, space).trim());
+            } catch (NumberFormatException e) {
+                continue;
+            }
+
+            String relativePath = path.substring(baseDir.length());
+            int ruleIndex = firstMatch(relativePath);
+            if (ruleIndex < 0 || !rules.get(ruleIndex).include) {
+                continue;
+            }
+
+            Rule rule = rules.get(ruleIndex);
+            if (rule.maxBytes > 0 && size > rule.maxBytes) {
+                Log.w(TAG, "Skipping " + relativePath + ": " + size + " bytes exceeds limit of " + rule.maxBytes);
+                skipped.add(relativePath);
+                continue;
+            }
+
+            String entryName = rule.entryName != null
+                ? rule.entryName
+                : relativePath.substring(relativePath.lastIndexOf('/') + 1);
+            Entry existing = chosen.get(entryName);
+            if (existing == null || ruleIndex < existing.ruleIndex) {
+                chosen.put(entryName, new Entry(path, relativePath, entryName, size, ruleIndex));
+            }
+        }
+
+        List<Entry> entries = new ArrayList<>(chosen.values());
+        entries.sort((a, b) -> a.ruleIndex != b.ruleIndex
+            ? Integer.compare(a.ruleIndex, b.ruleIndex)
+            : a.relativePath.compareTo(b.relativePath));
+
+        Set<String> missing = new LinkedHashSet<>();
+        for (Rule rule : rules) {
+            if (rule.required && !chosen.containsKey(rule.entryName)) {
+                missing.add(rule.entryName);
+            }
+        }
+
+        LogHelper.d(TAG, () -> "Selected " + entries.size() + " files, missing " + missing
+            + ", skipped " + skipped.size());
+        return new Selection(entries, new ArrayList<>(missing), skipped);
+    }
+
+    private int firstMatch(String relativePath) {
+        for (int i = 0; i < rules.size(); i++) {
+            if (rules.get(i).regex.matcher(relativePath).matches()) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Result of select(): the files to back up, in rule order
+     */
+    public static class Selection {
+        private final List<Entry> entries;
+        private final List<String> missingRequired;
+        private final List<String> skipped;
+
+        Selection(List<Entry> entries, List<String> missingRequired, List<String> skipped) {
+            this.entries = Collections.unmodifiableList(entries);
+            this.missingRequired = Collections.unmodifiableList(missingRequired);
+            this.skipped = Collections.unmodifiableList(skipped);
+        }
+
+        public List<Entry> getEntries() {
+            return entries;
+        }
+
+        /**
+         * Entry names of required rules without a file
+         */
+        public List<String> getMissingRequired() {
+            return missingRequired;
+        }
+
+        /**
+         * Matched but over their size limit
+         */
+        public List<String> getSkipped() {
+            return skipped;
+        }
+
+        public boolean isComplete() {
+            return missingRequired.isEmpty();
+        }
+
+        public Entry get(String entryName) {
+            for (Entry entry : entries) {
+                if (entry.entryName.equals(entryName)) {
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        public long totalBytes() {
+            long total = 0;
+            for (Entry entry : entries) {
+                total += entry.size;
+            }
+            return total;
+        }
+
+        /**
+         * Root commands placing the selected files in targetDir
+         *
+         * @param copyCommand "cp", "ln", "cp --reflink=always" ...
+         * @param tree true: keep the path below the data dir, false: flat by entry name
+         */
+        public String[] copyCommands(String copyCommand, String targetDir, boolean tree) {
+            return copyCommands(entry -> copyCommand, targetDir, tree);
+        }
+
+        /**
+         * Like copyCommands(String, ...), with the copy command chosen per entry
+         */
+        public String[] copyCommands(Function<Entry, String> copyCommand, String targetDir, boolean tree) {
+            Set<String> directories = new LinkedHashSet<>();
+            List<String> copies = new ArrayList<>();
+            for (Entry entry : entries) {
+                String target = targetDir + (tree ? entry.relativePath : entry.entryName);
+                directories.add(target.substring(0, target.lastIndexOf('/')));
+                copies.add(copyCommand.apply(entry) + " " + AccountManager.escapeShellArg(entry.path)
+                    + " " + AccountManager.escapeShellArg(target));
+            }
+
+            List<String> commands = new ArrayList<>();
+            for (String directory : directories) {
+                commands.add("mkdir -p " + AccountManager.escapeShellArg(directory));
+            }
+            commands.addAll(copies);
+            return commands.toArray(new String[0]);
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private static String relative(String dataPath) {
+        return dataPath.substring(AccountManager.DATA_DIR.length());
+    }
+
+    /**
+     * "**" -> ".*", "*" -> "[^/]*", "?" -> "[^/]", everything else literal
+     */
+    static String globToRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (int i = 0; i < glob.length(); i++) {
+            char c = glob.charAt(i);
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) {
+                regex.append(Pattern.quote(literal.toString()));
+                literal.setLength(0);
+            }
+            if (c == '?') {
+                regex.append("[^/]");
+            } else if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+                // "**/" also matches no directory at all
+                if (i + 2 < glob.length() && glob.charAt(i + 2) == '/') {
+                    regex.append("(?:.*/)?");
+                    i += 2;
+                } else {
+                    regex.append(".*");
+                    i++;
+                }
+            } else {
+                regex.append("[^/]*");
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return regex.toString();
+    }
+}
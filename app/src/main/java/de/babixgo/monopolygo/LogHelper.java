@@ -4,18 +4,111 @@ import android.util.Log;
 
 /**
  * Helper class for consistent logging across the application.
+ *
+ * Debug and verbose output is level-gated: below the minimum level nothing is
+ * concatenated and nothing reaches logcat. On hot paths pass the message as a
+ * lambda - it is only built when the level is enabled:
+ *   LogHelper.d(TAG, () -> "Copied " + path + " (" + size + " bytes)");
+ *
+ * Release builds log INFO and above (init(BuildConfig.DEBUG) in MainActivity).
+ * Debug output can still be switched on per device:
+ *   adb shell setprop log.tag.BabixGO DEBUG
+ * minifyEnabled is off, so the runtime gate is all release builds get - debug
+ * calls with a computed message must use the lambda form. Should R8 be enabled,
+ * proguard-rules.pro strips the debug calls completely.
  */
 public class LogHelper {
     private static final String TAG = "BabixGO";
-    
+
+    // Without init() (JVM benchmarks) only what the platform allows for the tag
+    private static volatile int minLevel = Log.isLoggable(TAG, Log.DEBUG) ? Log.DEBUG : Log.INFO;
+
+    /**
+     * Log message built only if its level is enabled
+     */
+    public interface Message {
+        String get();
+    }
+
+    /**
+     * Set the level once at app start
+     * @param debugBuild BuildConfig.DEBUG - debug builds log everything from DEBUG up
+     */
+    public static void init(boolean debugBuild) {
+        minLevel = debugBuild || Log.isLoggable(TAG, Log.DEBUG) ? Log.DEBUG : Log.INFO;
+    }
+
+    public static void setMinLevel(int level) {
+        minLevel = level;
+    }
+
+    public static int getMinLevel() {
+        return minLevel;
+    }
+
+    public static boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    /**
+     * Guard for debug-only work beyond building the message (e.g. collecting a listing)
+     */
+    public static boolean isDebugEnabled() {
+        return Log.DEBUG >= minLevel;
+    }
+
+    // ==================== Verbose / Debug (gated) ====================
+
+    public static void v(String tag, Message message) {
+        if (Log.VERBOSE >= minLevel) {
+            Log.v(tag, message.get());
+        }
+    }
+
     public static void d(String message) {
-        Log.d(TAG, message);
+        if (Log.DEBUG >= minLevel) {
+            Log.d(TAG, message);
+        }
+    }
+
+    public static void d(Message message) {
+        if (Log.DEBUG >= minLevel) {
+            Log.d(TAG, message.get());
+        }
+    }
+
+    public static void d(String tag, String message) {
+        if (Log.DEBUG >= minLevel) {
+            Log.d(tag, message);
+        }
+    }
+
+    public static void d(String tag, Message message) {
+        if (Log.DEBUG >= minLevel) {
+            Log.d(tag, message.get());
+        }
+    }
+
+    // ==================== Info / Warn / Error ====================
+
+    public static void i(String tag, String message) {
+        if (Log.INFO >= minLevel) {
+            Log.i(tag, message);
+        }
+    }
+
+    public static void w(String tag, String message) {
+        Log.w(tag, message);
     }
-    
+
+    public static void w(String tag, String message, Throwable throwable) {
+        Log.w(tag, message, throwable);
+    }
+
     public static void e(String message) {
         Log.e(TAG, message);
     }
-    
+
     public static void e(String message, Exception e) {
         Log.e(TAG, message, e);
     }
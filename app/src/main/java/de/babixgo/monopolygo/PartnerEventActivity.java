@@ -1,15 +1,32 @@
 package de.babixgo.monopolygo;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.widget.Button;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
+import de.babixgo.monopolygo.database.AccountRepository;
+import de.babixgo.monopolygo.database.CustomerAccountRepository;
+import de.babixgo.monopolygo.database.EventRepository;
+import de.babixgo.monopolygo.database.TeamRepository;
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.models.CustomerAccount;
+import de.babixgo.monopolygo.models.Event;
+import de.babixgo.monopolygo.models.Team;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Activity for partner event management.
  */
 public class PartnerEventActivity extends AppCompatActivity {
+    private static final String TAG = "PartnerEventActivity";
+    
+    private final EventRepository eventRepository = new EventRepository();
+    private final AccountRepository accountRepository = new AccountRepository();
+    private final CustomerAccountRepository customerAccountRepository = new CustomerAccountRepository();
+    private final TeamRepository teamRepository = new TeamRepository();
     
     private TextView tvStatus;
     private Button btnAddCustomer, btnSelectAccounts, btnAssignment, btnTeamSetup;
@@ -39,14 +56,63 @@ public class PartnerEventActivity extends AppCompatActivity {
             tvStatus.setText("Funktion: Eigene Accounts wählen");
         });
         
-        btnAssignment.setOnClickListener(v -> {
-            Toast.makeText(this, "Zuweisung erstellen (In Entwicklung)", Toast.LENGTH_SHORT).show();
-            tvStatus.setText("Funktion: Zuweisung erstellen");
-        });
+        btnAssignment.setOnClickListener(v -> createAssignment());
         
         btnTeamSetup.setOnClickListener(v -> {
             Toast.makeText(this, "Team zusammenstellen (In Entwicklung)", Toast.LENGTH_SHORT).show();
             tvStatus.setText("Funktion: Team zusammenstellen");
         });
     }
+    
+    /**
+     * Assign own accounts to all partner bookings of the newest event and save the teams
+     */
+    private void createAssignment() {
+        btnAssignment.setEnabled(false);
+        tvStatus.setText("Zuweisung wird erstellt...");
+        
+        eventRepository.getAllEvents()
+            .thenCompose(events -> {
+                if (events.isEmpty()) {
+                    throw new IllegalStateException("Kein Event vorhanden");
+                }
+                Event event = events.get(0);
+                CompletableFuture<List<Account>> ownAccounts = accountRepository.getNonCustomerAccounts();
+                CompletableFuture<List<CustomerAccount>> bookings = customerAccountRepository.getPartnerServiceAccounts();
+                CompletableFuture<List<Team>> teams = teamRepository.getTeamsByEventId(event.getId());
+                return CompletableFuture.allOf(ownAccounts, bookings, teams)
+                    .thenApply(loaded -> new SlotAssignmentEngine().assign(
+                        event.getId(), ownAccounts.join(), bookings.join(), teams.join()))
+                    .thenCompose(allocation -> teamRepository.saveTeams(allocation.getChangedTeams())
+                        .thenApply(saved -> describe(event, allocation)));
+            })
+            .thenAccept(summary -> runOnUiThread(() -> {
+                tvStatus.setText(summary);
+                btnAssignment.setEnabled(true);
+                Toast.makeText(this, "Zuweisung gespeichert", Toast.LENGTH_SHORT).show();
+            }))
+            .exceptionally(throwable -> {
+                Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                Log.e(TAG, "Assignment failed", cause);
+                runOnUiThread(() -> {
+                    tvStatus.setText("Fehler bei der Zuweisung: " + cause.getMessage());
+                    btnAssignment.setEnabled(true);
+                });
+                return null;
+            });
+    }
+    
+    private static String describe(Event event, SlotAssignmentEngine.Allocation allocation) {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Zuweisung für ").append(event.getName()).append("\n\n");
+        summary.append("Teams: ").append(allocation.getTeams().size())
+            .append(" (").append(allocation.getChangedTeams().size()).append(" geändert)\n");
+        summary.append("Neu belegte Slots: ").append(allocation.getAssignedSlots()).append("\n");
+        summary.append("Freie Slots eigener Accounts: ").append(allocation.getFreeSlots()).append("\n");
+        if (!allocation.isComplete()) {
+            summary.append("\nNicht zugewiesen: ").append(allocation.getMissingSlots())
+                .append(" Slots - zu wenige eigene Accounts");
+        }
+        return summary.toString();
+    }
 }
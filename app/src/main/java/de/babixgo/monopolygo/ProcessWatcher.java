@@ -0,0 +1,151 @@
+package de.babixgo.monopolygo;
+
+import android.util.Log;
+import de.babixgo.monopolygo.utils.Tracer;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Waits for an app process to stop or start instead of sleeping a fixed time
+ *
+ * Polls "pidof <package>" through the root shell with exponential backoff
+ * (25 ms doubling up to 400 ms) until the state is reached or the timeout expires.
+ * Devices without pidof (toybox before Android 6) are checked by scanning
+ * /proc/<pid>/cmdline directly - readable there, hidepid came later.
+ */
+public class ProcessWatcher {
+    private static final String TAG = "ProcessWatcher";
+    private static final long INITIAL_DELAY_MS = 25;
+    private static final long MAX_DELAY_MS = 400;
+
+    // null = not probed yet
+    private static volatile Boolean pidofSupported;
+
+    /**
+     * Wait until no process of packageName is running
+     * @return true if stopped, false on timeout
+     */
+    public static boolean awaitStopped(String packageName, long timeoutMs) {
+        return await(packageName, false, timeoutMs);
+    }
+
+    /**
+     * Wait until a process of packageName is running
+     * @return true if started, false on timeout
+     */
+    public static boolean awaitStarted(String packageName, long timeoutMs) {
+        return await(packageName, true, timeoutMs);
+    }
+
+    private static boolean await(String packageName, boolean running, long timeoutMs) {
+        String name = running ? "process.await_started" : "process.await_stopped";
+        try (Tracer.Span span = Tracer.start(name)) {
+            long deadline = System.nanoTime() + timeoutMs * 1_000_000L;
+            long delay = INITIAL_DELAY_MS;
+            int polls = 0;
+
+            while (true) {
+                polls++;
+                if (isRunning(packageName) == running) {
+                    final int checks = polls;
+                    LogHelper.d(TAG, () -> packageName + (running ? " started" : " stopped") + " after " + checks + " checks");
+                    return true;
+                }
+
+                long remainingMs = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remainingMs <= 0) {
+                    Log.w(TAG, "Timeout after " + timeoutMs + " ms waiting for " + packageName
+                        + (running ? " to start" : " to stop"));
+                    span.fail();
+                    return false;
+                }
+
+                try {
+                    Thread.sleep(Math.min(delay, remainingMs));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    span.fail();
+                    return false;
+                }
+                delay = Math.min(delay * 2, MAX_DELAY_MS);
+            }
+        }
+    }
+
+    /**
+     * Is a process of packageName running right now?
+     */
+    public static boolean isRunning(String packageName) {
+        if (!Boolean.FALSE.equals(pidofSupported)) {
+            // pidof exits 1 if nothing matches - not an error here
+            String output = RootManager.runRootCommand("pidof " + packageName + " || true").trim();
+            if (output.isEmpty()) {
+                pidofSupported = true;
+                return false;
+            }
+            if (isPidList(output)) {
+                pidofSupported = true;
+                return true;
+            }
+            if (pidofSupported == null) {
+                // "pidof: not found" or similar - fall back to /proc from now on
+                Log.w(TAG, "pidof unavailable (" + output + "), scanning /proc instead");
+                pidofSupported = false;
+            } else {
+                Log.w(TAG, "Unexpected pidof output, checking /proc: " + output);
+            }
+        }
+        return isRunningInProc(packageName);
+    }
+
+    private static boolean isPidList(String output) {
+        for (String token : output.split("\\s+")) {
+            for (int i = 0; i < token.length(); i++) {
+                if (!Character.isDigit(token.charAt(i))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compare /proc/<pid>/cmdline up to the first NUL with packageName
+     */
+    private static boolean isRunningInProc(String packageName) {
+        File[] entries = new File("/proc").listFiles();
+        if (entries == null) {
+            return false;
+        }
+
+        byte[] expected = packageName.getBytes(StandardCharsets.UTF_8);
+        byte[] buffer = new byte[expected.length + 1];
+        for (File entry : entries) {
+            String pid = entry.getName();
+            if (pid.isEmpty() || !Character.isDigit(pid.charAt(0))) {
+                continue;
+            }
+            try (InputStream in = new FileInputStream(new File(entry, "cmdline"))) {
+                int length = in.read(buffer);
+                if (length >= expected.length && matches(buffer, length, expected)) {
+                    return true;
+                }
+            } catch (IOException e) {
+                // Process exited or is not readable - skip
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(byte[] buffer, int length, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer[i] != expected[i]) {
+                return false;
+            }
+        }
+        return length == expected.length || buffer[expected.length] == 0;
+    }
+}
@@ -0,0 +1,341 @@
+package de.babixgo.monopolygo;
+
+import android.util.Log;
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.DeviceIdCache;
+import de.babixgo.monopolygo.utils.Tracer;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hot account switching with pre-staged restore slots
+ *
+ * restoreAccountExtended() does stop, unzip, copy and chmod one after another while
+ * the game is down. prestage() does everything except the stop ahead of time for the
+ * next accounts of the rotation: the ZIP is verified and unpacked in the background
+ * and its files are placed - already owned by the app and labeled - in a staging
+ * directory inside the app data dir:
+ *
+ *   /data/data/com.scopely.monopolygo/.babix_staging/{account}/files/...
+ *                                                    /shared_prefs/...
+ *
+ * The switch is then force-stop + one "mv" per file (rename on the same filesystem,
+ * atomic per file, ownership and SELinux label stay) + optional start.
+ * Inside the data dir rather than next to it: a sibling of /data/data/{package}
+ * would get a different SELinux label, which rename keeps.
+ *
+ * A slot is dropped if its ZIP changed after staging; switchTo() then falls back
+ * to the full restore.
+ */
+public class RestoreStager {
+    private static final String TAG = "RestoreStager";
+    private static final String STAGING_DIR = AccountManager.DATA_DIR + ".babix_staging/";
+    private static final String ACCOUNT_FILE = "account.dat";
+
+    /** Slots kept at most - each holds one unpacked account */
+    public static final int MAX_SLOTS = 2;
+
+    // Account name -> staging job (result null = staging failed)
+    private static final Map<String, CompletableFuture<Slot>> SLOTS = new ConcurrentHashMap<>();
+
+    /**
+     * One staged account
+     */
+    private static class Slot {
+        final String accountName;
+        final long zipModified;
+        final long zipLength;
+        final List<String> relativePaths;   // Below the slot dir and DATA_DIR alike
+
+        Slot(String accountName, long zipModified, long zipLength, List<String> relativePaths) {
+            this.accountName = accountName;
+            this.zipModified = zipModified;
+            this.zipLength = zipLength;
+            this.relativePaths = relativePaths;
+        }
+    }
+
+    // ==================== Staging ====================
+
+    /**
+     * Stage the given accounts (first MAX_SLOTS, in order) in the background
+     * Slots of accounts no longer in the list are removed.
+     *
+     * @return Completes when all requested slots are staged (or failed)
+     */
+    public static synchronized CompletableFuture<Void> prestage(List<String> accountNames) {
+        List<String> wanted = new ArrayList<>();
+        for (String name : accountNames) {
+            if (wanted.size() == MAX_SLOTS) {
+                break;
+            }
+            if (AccountManager.isValidAccountName(name) && !wanted.contains(name)) {
+                wanted.add(name);
+            }
+        }
+
+        for (String staged : new ArrayList<>(SLOTS.keySet())) {
+            if (!wanted.contains(staged)) {
+                discard(staged);
+            }
+        }
+
+        List<CompletableFuture<Slot>> jobs = new ArrayList<>();
+        for (String name : wanted) {
+            jobs.add(SLOTS.computeIfAbsent(name, key ->
+                CompletableFuture.supplyAsync(() -> stage(key), AppExecutors.io())));
+        }
+        return CompletableFuture.allOf(jobs.toArray(new CompletableFuture[0]));
+    }
+
+    /**
+     * Next accounts of the rotation: usable own accounts, least recently played first
+     */
+    public static List<String> nextInRotation(List<Account> accounts, String currentName, int count) {
+        List<Account> candidates = new ArrayList<>();
+        for (Account account : accounts) {
+            if (TeamCompositionSolver.isAvailable(account) && account.getName() != null
+                && !account.getName().equals(currentName)) {
+                candidates.add(account);
+            }
+        }
+        candidates.sort(Comparator.comparingLong(Account::getLastPlayedTimestamp));
+
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < candidates.size() && names.size() < count; i++) {
+            names.add(candidates.get(i).getName());
+        }
+        return names;
+    }
+
+    public static boolean isStaged(String accountName) {
+        CompletableFuture<Slot> job = SLOTS.get(accountName);
+        return job != null && job.isDone() && job.join() != null;
+    }
+
+    /**
+     * Verify and unpack one account into its slot - null if it cannot be staged
+     */
+    private static Slot stage(String accountName) {
+        // A backup snapshot of this account may still be on its way into the ZIP
+        SnapshotStore.awaitArchived(accountName);
+        
+        String accountDir = AccountManager.ACCOUNTS_EIGENE + accountName + "/";
+        File zipFile = new File(accountDir + accountName + ".zip");
+        if (!zipFile.exists()) {
+            LogHelper.d(TAG, () -> "No backup to stage for " + accountName);
+            return null;
+        }
+        long zipModified = zipFile.lastModified();
+        long zipLength = zipFile.length();
+
+        try (Tracer.Span span = Tracer.start("stage")) {
+            // 1. Unpack in user storage and verify
+            span.phase("extract");
+            File tempDir = new File(accountDir + "stage_tmp/");
+            AccountManager.deleteRecursive(tempDir);
+            tempDir.mkdirs();
+            try {
+                File accountFile = new File(tempDir, ACCOUNT_FILE);
+                if (!ZipManager.unzipArchive(zipFile.getPath(), tempDir.getPath())
+                    || !accountFile.exists() || accountFile.length() == 0) {
+                    Log.w(TAG, "Backup of " + accountName + " is incomplete, not staged");
+                    span.fail();
+                    return null;
+                }
+
+                // 2. Copy into the slot as root, with the app's owner and label
+                span.phase("copy");
+                String slotDir = slotDir(accountName);
+                List<String> relativePaths = new ArrayList<>();
+                List<String> commands = new ArrayList<>();
+                commands.add("rm -rf " + AccountManager.escapeShellArg(slotDir));
+
+                addFile(commands, relativePaths, accountFile, relativeToData(AccountManager.REQUIRED_FILE), slotDir);
+                for (String[] mapping : AccountManager.OPTIONAL_FILE_MAPPINGS) {
+                    File source = new File(tempDir, mapping[0]);
+                    if (source.exists()) {
+                        addFile(commands, relativePaths, source, relativeToData(mapping[1]), slotDir);
+                    }
+                }
+
+                String slot = AccountManager.escapeShellArg(slotDir);
+                String dataDir = AccountManager.escapeShellArg(AccountManager.DATA_DIR);
+                commands.add("chown -R $(stat -c %u:%g " + dataDir + ") " + slot);
+                commands.add("chmod -R u+rwX,g+rwX,o-rwx " + slot);
+                commands.add("restorecon -R " + slot + " 2>/dev/null || true");
+                commands.add("[ -s " + AccountManager.escapeShellArg(slotDir + relativePaths.get(0))
+                    + " ] && echo STAGED");
+
+                String output = RootManager.runRootCommands(commands.toArray(new String[0]));
+                if (!output.contains("STAGED")) {
+                    Log.w(TAG, "Staging " + accountName + " failed: " + output.trim());
+                    span.fail();
+                    RootManager.runRootCommand("rm -rf " + slot);
+                    return null;
+                }
+
+                LogHelper.d(TAG, () -> "Staged " + accountName + " (" + relativePaths.size() + " files)");
+                return new Slot(accountName, zipModified, zipLength, relativePaths);
+            } finally {
+                AccountManager.deleteRecursive(tempDir);
+            }
+        }
+    }
+
+    private static void addFile(List<String> commands, List<String> relativePaths, File source,
+                                String relativePath, String slotDir) {
+        String target = slotDir + relativePath;
+        String parent = target.substring(0, target.lastIndexOf('/'));
+        commands.add("mkdir -p " + AccountManager.escapeShellArg(parent)
+            + " && cp " + AccountManager.escapeShellArg(source.getPath()) + " " + AccountManager.escapeShellArg(target));
+        relativePaths.add(relativePath);
+    }
+
+    // ==================== Switch ====================
+
+    /**
+     * Switch to accountName: renames from its slot when staged, full restore otherwise
+     *
+     * @param startApp Start the game afterwards (and wait for its process)
+     * @return true if the account is in place
+     */
+    public static boolean switchTo(String accountName, boolean startApp) {
+        if (!AccountManager.isValidAccountName(accountName)) {
+            Log.e(TAG, "Invalid account name: " + accountName);
+            return false;
+        }
+
+        Slot slot = takeSlot(accountName);
+        boolean success;
+        if (slot != null) {
+            Tracer.count("switch.staged");
+            success = switchStaged(slot);
+            if (!success) {
+                Log.w(TAG, "Staged switch to " + accountName + " failed, falling back to full restore");
+                success = AccountManager.restoreAccountExtended(accountName);
+            }
+        } else {
+            Tracer.count("switch.unstaged");
+            success = AccountManager.restoreAccountExtended(accountName);
+        }
+
+        if (success && startApp) {
+            AccountManager.startAppAndWait();
+        }
+        return success;
+    }
+
+    /**
+     * Remove the slot of accountName from the table, waiting for a running staging job
+     * null if not staged or stale
+     */
+    private static Slot takeSlot(String accountName) {
+        CompletableFuture<Slot> job;
+        synchronized (RestoreStager.class) {
+            job = SLOTS.remove(accountName);
+        }
+        if (job == null) {
+            return null;
+        }
+
+        Slot slot;
+        try {
+            slot = job.join();
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Staging job of " + accountName + " failed", e);
+            return null;
+        }
+        if (slot == null) {
+            return null;
+        }
+
+        File zipFile = new File(AccountManager.ACCOUNTS_EIGENE + accountName + "/" + accountName + ".zip");
+        if (zipFile.lastModified() != slot.zipModified || zipFile.length() != slot.zipLength) {
+            LogHelper.d(TAG, () -> "Backup of " + accountName + " changed after staging, slot dropped");
+            removeSlotDir(accountName);
+            return null;
+        }
+        return slot;
+    }
+
+    private static boolean switchStaged(Slot slot) {
+        try (Tracer.Span span = Tracer.start("switch")) {
+            span.phase("stop_app");
+            if (!AccountManager.stopAppAndWait()) {
+                // Slot stays staged - moving files under the running game would corrupt them
+                Log.e(TAG, "MonopolyGo still running after force-stop, staged switch aborted");
+                span.fail();
+                return false;
+            }
+
+            // account.dat first - the batch stops at the first failing mv
+            span.phase("rename");
+            String slotDir = slotDir(slot.accountName);
+            StringBuilder command = new StringBuilder();
+            for (String relativePath : slot.relativePaths) {
+                if (command.length() > 0) {
+                    command.append(" && ");
+                }
+                command.append("mv -f ")
+                    .append(AccountManager.escapeShellArg(slotDir + relativePath)).append(' ')
+                    .append(AccountManager.escapeShellArg(AccountManager.DATA_DIR + relativePath));
+            }
+            command.append(" && echo SWITCHED");
+            String output = RootManager.runRootCommand(command.toString());
+            DeviceIdCache.invalidate();
+
+            removeSlotDir(slot.accountName);
+            if (!output.contains("SWITCHED")) {
+                Log.e(TAG, "Rename from slot failed: " + output.trim());
+                span.fail();
+                return false;
+            }
+            LogHelper.d(TAG, () -> "Switched to " + slot.accountName + " from staging slot");
+            return true;
+        }
+    }
+
+    // ==================== Cleanup ====================
+
+    /**
+     * Drop all slots (e.g. after backups were edited or deleted)
+     */
+    public static synchronized void clear() {
+        for (String name : new ArrayList<>(SLOTS.keySet())) {
+            discard(name);
+        }
+        RootManager.runRootCommand("rm -rf " + AccountManager.escapeShellArg(STAGING_DIR));
+    }
+
+    private static void discard(String accountName) {
+        CompletableFuture<Slot> job = SLOTS.remove(accountName);
+        if (job != null) {
+            // Remove the directory once a running job has finished writing it,
+            // unless the account was queued again in the meantime
+            job.whenCompleteAsync((slot, error) -> {
+                if (!SLOTS.containsKey(accountName)) {
+                    removeSlotDir(accountName);
+                }
+            }, AppExecutors.io());
+        }
+    }
+
+    private static void removeSlotDir(String accountName) {
+        RootManager.runRootCommand("rm -rf " + AccountManager.escapeShellArg(slotDir(accountName)));
+    }
+
+    private static String slotDir(String accountName) {
+        return STAGING_DIR + accountName + "/";
+    }
+
+    private static String relativeToData(String dataPath) {
+        return dataPath.substring(AccountManager.DATA_DIR.length());
+    }
+}
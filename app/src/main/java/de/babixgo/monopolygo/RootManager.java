@@ -1,6 +1,7 @@
 package de.babixgo.monopolygo;
 
 import com.topjohnwu.superuser.Shell;
+import de.babixgo.monopolygo.utils.Tracer;
 import java.util.List;
 
 /**
@@ -69,7 +70,7 @@ public class RootManager {
             hasRootAccess = shell.isRoot();
             rootChecked = true;
             
-            android.util.Log.d("BabixGO", "Root access: " + (hasRootAccess ? "granted" : "denied"));
+            LogHelper.d(() -> "Root access: " + (hasRootAccess ? "granted" : "denied"));
             return hasRootAccess;
         } catch (Exception e) {
             android.util.Log.e("BabixGO", "Root request error: " + e.getMessage());
@@ -114,8 +115,9 @@ public class RootManager {
             return "Error: Command validation failed";
         }
         
-        android.util.Log.d("BabixGO", "Executing root command: " + command);
+        LogHelper.d(() -> "Executing root command: " + command);
         
+        Tracer.Span span = Tracer.start(traceName(command));
         try {
             // libsu automatically provides proper shell context
             // No need for manual sh -c wrapping - libsu handles this internally
@@ -140,19 +142,36 @@ public class RootManager {
             // Check if command succeeded
             if (!result.isSuccess()) {
                 android.util.Log.e("BabixGO", "Command failed with code: " + result.getCode());
+                span.fail();
             }
             
             String outputStr = output.toString();
-            android.util.Log.d("BabixGO", "Command output: '" + outputStr.trim() + "'");
+            LogHelper.d(() -> "Command output: '" + outputStr.trim() + "'");
             
             return outputStr;
             
         } catch (Exception e) {
+            span.fail();
             android.util.Log.e("BabixGO", "Command error: " + e.getMessage());
             e.printStackTrace();
             return "Error: " + e.getMessage();
+        } finally {
+            span.close();
         }
     }
+    
+    /**
+     * Span name per command verb ("root.cp", "root.chmod", ...) - shows which
+     * kind of root call the time goes to
+     */
+    private static String traceName(String command) {
+        String trimmed = command.trim();
+        int end = 0;
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+        return end > 0 ? "root." + trimmed.substring(0, end) : "root.cmd";
+    }
 
     /**
      * Execute multiple commands with root privileges.
@@ -161,12 +180,14 @@ public class RootManager {
     public static String runRootCommands(String[] commands) {
         StringBuilder output = new StringBuilder();
         
+        Tracer.Span span = Tracer.start("root.batch");
         try {
             // Validate commands first
             for (String command : commands) {
                 if (!isCommandSafe(command)) {
                     android.util.Log.e("BabixGO", "Command validation failed: " + command);
                     output.append("Error: Command validation failed for: ").append(command).append("\n");
+                    span.fail();
                     return output.toString();
                 }
             }
@@ -187,11 +208,15 @@ public class RootManager {
             
             if (!result.isSuccess()) {
                 android.util.Log.e("BabixGO", "Commands failed with code: " + result.getCode());
+                span.fail();
             }
             
         } catch (Exception e) {
+            span.fail();
             android.util.Log.e("BabixGO", "Commands error: " + e.getMessage());
             return "Error: " + e.getMessage();
+        } finally {
+            span.close();
         }
         
         return output.toString();
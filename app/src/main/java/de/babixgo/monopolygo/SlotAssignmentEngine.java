@@ -0,0 +1,245 @@
+package de.babixgo.monopolygo;
+
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.models.CustomerAccount;
+import de.babixgo.monopolygo.models.Team;
+import de.babixgo.monopolygo.utils.IdHelper;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partner event slot assignment (replaces 3_Zuweisung.sh)
+ *
+ * Every customer account booked for the partner service gets one team per event
+ * holding partnerCount own accounts (Team slots 1-4). Every own account can be the
+ * partner of at most CUSTOMERS_PER_ACCOUNT customers per event, like the four slot
+ * columns of Einteilung.csv.
+ *
+ * Existing teams of the event are kept: their accounts count against the capacity
+ * and only missing slots are filled, so running the assignment again after new
+ * bookings is incremental. Accounts are filled first-fit in the given order, as the
+ * script did. All bookkeeping runs on primitive arrays indexed by account position:
+ * one pass over the customers, no per-slot lookups in lists.
+ */
+public class SlotAssignmentEngine {
+    public static final int CUSTOMERS_PER_ACCOUNT = 4;
+
+    /**
+     * Result of one assignment run
+     */
+    public static class Allocation {
+        private final List<Team> teams;
+        private final List<Team> changedTeams;
+        private final int assignedSlots;
+        private final int missingSlots;
+        private final int freeSlots;
+
+        Allocation(List<Team> teams, List<Team> changedTeams, int assignedSlots, int missingSlots, int freeSlots) {
+            this.teams = teams;
+            this.changedTeams = changedTeams;
+            this.assignedSlots = assignedSlots;
+            this.missingSlots = missingSlots;
+            this.freeSlots = freeSlots;
+        }
+
+        /**
+         * All partner teams of the event after the assignment
+         */
+        public List<Team> getTeams() { return teams; }
+
+        /**
+         * New or modified teams - only these need to be saved
+         */
+        public List<Team> getChangedTeams() { return changedTeams; }
+
+        /**
+         * Slots filled by this run
+         */
+        public int getAssignedSlots() { return assignedSlots; }
+
+        /**
+         * Booked slots that could not be filled (not enough own accounts)
+         */
+        public int getMissingSlots() { return missingSlots; }
+
+        /**
+         * Remaining capacity of the own accounts
+         */
+        public int getFreeSlots() { return freeSlots; }
+
+        public boolean isComplete() { return missingSlots == 0; }
+    }
+
+    /**
+     * Compute the assignment for one event - pure, nothing is saved
+     *
+     * @param ownAccounts Own accounts in fill order (unavailable accounts are skipped,
+     *                    see TeamCompositionSolver.isAvailable)
+     * @param customerAccounts Customer accounts in booking order (only partner service is used)
+     * @param existingTeams Teams already stored (teams of other events are ignored)
+     */
+    public Allocation assign(long eventId, List<Account> ownAccounts, List<CustomerAccount> customerAccounts,
+                             List<Team> existingTeams) {
+        int accountCount = ownAccounts.size();
+        long[] accountIds = new long[accountCount];
+        int[] free = new int[accountCount];
+        int[] memberOf = new int[accountCount]; // Number of the customer whose team holds the account
+        Map<Long, Integer> indexById = new HashMap<>(accountCount * 2);
+
+        for (int i = 0; i < accountCount; i++) {
+            Account account = ownAccounts.get(i);
+            accountIds[i] = account.getId();
+            free[i] = TeamCompositionSolver.isAvailable(account) ? CUSTOMERS_PER_ACCOUNT : 0;
+            indexById.put(account.getId(), i);
+        }
+
+        // Existing teams keep their accounts and use up capacity
+        List<Team> teams = new ArrayList<>();
+        Map<Long, List<Team>> teamsByCustomer = new HashMap<>();
+        for (Team team : existingTeams) {
+            if (team.getEventId() != eventId) {
+                continue;
+            }
+            teams.add(team);
+            if (team.getCustomerId() != null) {
+                teamsByCustomer.computeIfAbsent(team.getCustomerId(), key -> new ArrayList<>()).add(team);
+            }
+            for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+                Integer index = indexOf(indexById, team.getSlotAccountId(slot));
+                if (index != null && free[index] > 0) {
+                    free[index]--;
+                }
+            }
+        }
+
+        List<Team> changedTeams = new ArrayList<>();
+        int assigned = 0;
+        int missing = 0;
+        int firstFree = 0; // All accounts before this index are full
+        int customerNumber = 0;
+
+        for (CustomerAccount customerAccount : customerAccounts) {
+            if (!customerAccount.isServicePartner()) {
+                continue;
+            }
+            customerNumber++;
+
+            Team team = findTeam(teamsByCustomer, eventId, customerAccount);
+            boolean created = team == null;
+            if (created) {
+                team = newTeam(eventId, customerAccount);
+                teams.add(team);
+            }
+
+            int filled = 0;
+            for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+                Long accountId = team.getSlotAccountId(slot);
+                if (accountId != null) {
+                    filled++;
+                    Integer index = indexOf(indexById, accountId);
+                    if (index != null) {
+                        memberOf[index] = customerNumber;
+                    }
+                }
+            }
+
+            int wanted = wantedSlots(customerAccount);
+            int need = wanted - filled;
+            if (need <= 0) {
+                continue;
+            }
+
+            while (firstFree < accountCount && free[firstFree] == 0) {
+                firstFree++;
+            }
+            int slot = 1;
+            for (int i = firstFree; i < accountCount && need > 0; i++) {
+                if (free[i] == 0 || memberOf[i] == customerNumber) {
+                    continue;
+                }
+                while (team.getSlotAccountId(slot) != null) {
+                    slot++;
+                }
+                team.setSlotAccountId(slot, accountIds[i]);
+                free[i]--;
+                memberOf[i] = customerNumber;
+                need--;
+                assigned++;
+            }
+            missing += need;
+
+            if (created || need < wanted - filled) {
+                changedTeams.add(team);
+            }
+        }
+
+        int freeSlots = 0;
+        for (int i = 0; i < accountCount; i++) {
+            freeSlots += free[i];
+        }
+        return new Allocation(teams, changedTeams, assigned, missing, freeSlots);
+    }
+
+    /**
+     * Take the team of the customer account in this event out of the candidates
+     * Matched by the stable team ID (see teamId), then by name; a single remaining team
+     * of the customer is taken as is (teams created by hand carry no such ID)
+     */
+    private static Team findTeam(Map<Long, List<Team>> teamsByCustomer, long eventId, CustomerAccount customerAccount) {
+        List<Team> candidates = teamsByCustomer.get(customerAccount.getCustomerId());
+        if (candidates == null || candidates.isEmpty()) {
+            return null;
+        }
+        long teamId = teamId(eventId, customerAccount);
+        for (int i = 0; i < candidates.size(); i++) {
+            if (candidates.get(i).getId() == teamId) {
+                return candidates.remove(i);
+            }
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            Team team = candidates.get(i);
+            if (team.getName() != null && team.getName().equalsIgnoreCase(customerAccount.getIngameName())) {
+                return candidates.remove(i);
+            }
+        }
+        return candidates.size() == 1 ? candidates.remove(0) : null;
+    }
+
+    private static Team newTeam(long eventId, CustomerAccount customerAccount) {
+        Team team = new Team(eventId, customerAccount.getIngameName());
+        team.setId(teamId(eventId, customerAccount));
+        team.setCustomerId(customerAccount.getCustomerId());
+        return team;
+    }
+
+    /**
+     * Booked slots of every partner service account of the event, keyed by the ID of
+     * its team - the demand TeamCompositionSolver fills, same team model as assign()
+     */
+    public static Map<Long, Integer> bookedSlotsByTeam(long eventId, List<CustomerAccount> customerAccounts) {
+        Map<Long, Integer> bookedSlots = new HashMap<>();
+        for (CustomerAccount customerAccount : customerAccounts) {
+            if (customerAccount.isServicePartner()) {
+                bookedSlots.put(teamId(eventId, customerAccount), wantedSlots(customerAccount));
+            }
+        }
+        return bookedSlots;
+    }
+
+    private static int wantedSlots(CustomerAccount customerAccount) {
+        return Math.max(1, Math.min(Team.SLOT_COUNT, customerAccount.getPartnerCount()));
+    }
+
+    /**
+     * Stable ID: re-running the assignment can never create a second team for the account
+     */
+    private static long teamId(long eventId, CustomerAccount customerAccount) {
+        return IdHelper.stableId("teams", eventId + "/" + customerAccount.getId());
+    }
+
+    private static Integer indexOf(Map<Long, Integer> indexById, Long accountId) {
+        return accountId != null ? indexById.get(accountId) : null;
+    }
+}
@@ -0,0 +1,196 @@
+package de.babixgo.monopolygo;
+
+import android.util.Log;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.Tracer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Copy-on-write snapshot backend for backups
+ *
+ * Instead of copying the account files byte by byte to external storage while the
+ * game is stopped, a snapshot links them into a root-side store on the same volume:
+ *
+ *   /data/data/com.scopely.monopolygo/.babix_snapshots/{account}/{timestamp}/account.dat
+ *                                                                            /playerprefs.xml ...
+ *
+ * (entry names as in the backup ZIP). The ZIP on external storage is written later
+ * on the io pool, then the snapshot is deleted.
+ *
+ * Modes, probed once per process in the store directory:
+ * - REFLINK:  cp --reflink=always - real copy-on-write, safe against any later write
+ * - HARDLINK: ln - shares the inode. Safe against replace-by-rename (SharedPreferences,
+ *             RestoreStager), but an in-place write would change the snapshot. Only
+ *             shared_prefs/ is linked; everything under files/ (account.dat, device
+ *             IDs), which the game rewrites in place while running, is copied, so
+ *             starting the game never waits for an archive. awaitInPlaceWriteSafe()
+ *             still blocks the cp restores, which overwrite prefs in place.
+ * - COPY:     neither works - backupAccountSimple keeps its copy path
+ */
+public class SnapshotStore {
+    private static final String TAG = "SnapshotStore";
+    private static final String STORE_DIR = AccountManager.DATA_DIR + ".babix_snapshots/";
+    // Only replaced by rename (SharedPreferences) - safe to hardlink
+    private static final String LINKABLE_DIR = "shared_prefs/";
+
+    public enum Mode { REFLINK, HARDLINK, COPY }
+
+    private static volatile Mode mode;
+    private static volatile boolean leftoversQueued = false;
+
+    // Account name -> tail of its archive chain (archives of one account run in order)
+    private static final Map<String, CompletableFuture<Boolean>> PENDING = new ConcurrentHashMap<>();
+
+    /**
+     * Snapshot mode of the data volume - probed on first call (root shell)
+     */
+    public static Mode getMode() {
+        if (mode == null) {
+            synchronized (SnapshotStore.class) {
+                if (mode == null) {
+                    mode = probe();
+                    Log.i(TAG, "Snapshot mode: " + mode);
+                }
+            }
+        }
+        return mode;
+    }
+
+    public static boolean isSupported() {
+        return getMode() != Mode.COPY;
+    }
+
+    private static Mode probe() {
+        String store = AccountManager.escapeShellArg(STORE_DIR);
+        String probe = AccountManager.escapeShellArg(STORE_DIR + ".probe");
+        String output = RootManager.runRootCommand(
+            "mkdir -p " + store + " && echo probe > " + probe
+            + " && { cp --reflink=always " + probe + " " + probe + "_reflink 2>/dev/null && echo MODE_REFLINK"
+            + " || { ln " + probe + " " + probe + "_link 2>/dev/null && echo MODE_HARDLINK; }; };"
+            + " rm -f " + probe + " " + probe + "_reflink " + probe + "_link");
+        if (output.contains("MODE_REFLINK")) {
+            return Mode.REFLINK;
+        }
+        if (output.contains("MODE_HARDLINK")) {
+            return Mode.HARDLINK;
+        }
+        return Mode.COPY;
+    }
+
+    // ==================== Snapshot ====================
+
+    /**
+     * Snapshot the account files of a stopped game and queue the ZIP archival
+     *
+     * @param selection Files to back up (BackupRules), placed under their entry names
+     * @return false if no snapshot could be taken - the caller copies instead
+     */
+    public static boolean snapshot(String accountName, BackupRules.Selection selection) {
+        if (!isSupported()) {
+            return false;
+        }
+        queueLeftovers();
+
+        String snapshotDir = STORE_DIR + accountName + "/" + System.currentTimeMillis() + "/";
+        Function<BackupRules.Entry, String> link = getMode() == Mode.REFLINK
+            ? entry -> "cp --reflink=always"
+            : entry -> entry.relativePath.startsWith(LINKABLE_DIR) ? "ln" : "cp";
+
+        List<String> commands = new ArrayList<>(Arrays.asList(selection.copyCommands(link, snapshotDir, false)));
+        commands.add("[ -s " + AccountManager.escapeShellArg(snapshotDir + "account.dat") + " ] && echo SNAPSHOT_OK");
+
+        String output = RootManager.runRootCommands(commands.toArray(new String[0]));
+        if (!output.contains("SNAPSHOT_OK")) {
+            Log.w(TAG, "Snapshot of " + accountName + " failed: " + output.trim());
+            RootManager.runRootCommand("rm -rf " + AccountManager.escapeShellArg(snapshotDir));
+            return false;
+        }
+
+        LogHelper.d(TAG, () -> "Snapshot of " + accountName + " taken (" + mode + ")");
+        queueArchive(accountName, snapshotDir);
+        return true;
+    }
+
+    /**
+     * Archive to ZIP on the io pool after the previous archive of the same account
+     */
+    private static void queueArchive(String accountName, String snapshotDir) {
+        Tracer.count("snapshot.queued");
+        CompletableFuture<Boolean> next = PENDING.compute(accountName, (name, previous) ->
+            (previous != null ? previous : CompletableFuture.completedFuture(true))
+                .handleAsync((ignored, error) -> archive(name, snapshotDir), AppExecutors.io()));
+        // Drop the entry once the chain is drained - unless a newer archive was queued
+        next.whenComplete((archived, error) -> PENDING.remove(accountName, next));
+    }
+
+    private static boolean archive(String accountName, String snapshotDir) {
+        try (Tracer.Span span = Tracer.start("snapshot.archive")) {
+            boolean archived = AccountManager.archiveSnapshot(accountName, snapshotDir);
+            if (archived) {
+                RootManager.runRootCommand("rm -rf " + AccountManager.escapeShellArg(snapshotDir));
+            } else {
+                // Kept in the store - retried by the next process (queueLeftovers)
+                Log.e(TAG, "Archiving snapshot " + snapshotDir + " failed, kept for retry");
+                span.fail();
+            }
+            return archived;
+        }
+    }
+
+    /**
+     * Re-queue snapshots a previous process did not archive (killed, failed)
+     */
+    private static void queueLeftovers() {
+        if (leftoversQueued) {
+            return;
+        }
+        leftoversQueued = true;
+
+        String output = RootManager.runRootCommand(
+            "ls -d " + AccountManager.escapeShellArg(STORE_DIR) + "*/*/ 2>/dev/null || true");
+        for (String line : output.split("\n")) {
+            String snapshotDir = line.trim();
+            if (!snapshotDir.startsWith(STORE_DIR)) {
+                continue;
+            }
+            String[] parts = snapshotDir.substring(STORE_DIR.length()).split("/");
+            if (parts.length >= 2 && AccountManager.isValidAccountName(parts[0])) {
+                Log.i(TAG, "Re-queueing unarchived snapshot " + snapshotDir);
+                queueArchive(parts[0], snapshotDir.endsWith("/") ? snapshotDir : snapshotDir + "/");
+            }
+        }
+    }
+
+    // ==================== Barriers ====================
+
+    /**
+     * Block until the ZIP of accountName is written (restore and staging read it)
+     */
+    public static void awaitArchived(String accountName) {
+        CompletableFuture<Boolean> pending = PENDING.get(accountName);
+        if (pending != null) {
+            pending.join();
+        }
+    }
+
+    /**
+     * Block in-place writers of app data (cp restores) while hardlinked
+     * snapshots are still being archived - no-op with reflinks
+     */
+    public static void awaitInPlaceWriteSafe() {
+        if (mode != Mode.HARDLINK || PENDING.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        for (CompletableFuture<Boolean> pending : new ArrayList<>(PENDING.values())) {
+            pending.join();
+        }
+        Tracer.record("snapshot.await_archives", System.nanoTime() - start, false);
+    }
+}
@@ -0,0 +1,241 @@
+package de.babixgo.monopolygo;
+
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.models.Team;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Fills the account slots of all teams of an event at once (replaces the manual
+ * spinner selection and 4_Teamzusammenstellung.sh)
+ *
+ * Rules:
+ * - Only available own accounts are used: not deleted, not suspended, no error flag,
+ *   not a customer account. Slots holding an unavailable account are cleared and refilled.
+ * - Available accounts already in a team stay where they are (manual choices win).
+ * - A team gets as many accounts as its customer account booked (max. 4), teams
+ *   without known booking (e.g. created by hand) get all 4 slots.
+ * - An account joins at most CUSTOMERS_PER_ACCOUNT teams per event and never the same team twice.
+ *
+ * Since every account may join every team, this is a bipartite b-matching on a
+ * complete graph. Greedy phase: teams with the largest open demand first, each takes
+ * the accounts with the most remaining capacity - this keeps the load even and is
+ * optimal in most cases. Local search phase: a team that is still short although
+ * accounts have capacity left (all of them already in that team) takes a member b
+ * of another team u and u gets a free account f in exchange (augmenting path of
+ * length two). All bookkeeping runs on primitive arrays.
+ */
+public class TeamCompositionSolver {
+    public static final int CUSTOMERS_PER_ACCOUNT = SlotAssignmentEngine.CUSTOMERS_PER_ACCOUNT;
+
+    /**
+     * Result of one solver run
+     */
+    public static class Solution {
+        private final List<Team> changedTeams;
+        private final int assignedSlots;
+        private final int clearedSlots;
+        private final int missingSlots;
+
+        Solution(List<Team> changedTeams, int assignedSlots, int clearedSlots, int missingSlots) {
+            this.changedTeams = changedTeams;
+            this.assignedSlots = assignedSlots;
+            this.clearedSlots = clearedSlots;
+            this.missingSlots = missingSlots;
+        }
+
+        /**
+         * Teams whose slots changed - only these need to be saved
+         */
+        public List<Team> getChangedTeams() { return changedTeams; }
+
+        /**
+         * Slots filled by this run
+         */
+        public int getAssignedSlots() { return assignedSlots; }
+
+        /**
+         * Slots freed because their account is no longer available
+         */
+        public int getClearedSlots() { return clearedSlots; }
+
+        /**
+         * Wanted slots that could not be filled (not enough available accounts)
+         */
+        public int getMissingSlots() { return missingSlots; }
+
+        public boolean isComplete() { return missingSlots == 0; }
+    }
+
+    /**
+     * Compute slot assignments for the teams of one event - the teams are modified in place, nothing is saved
+     *
+     * @param teams All teams of the event
+     * @param accounts Own accounts (unavailable ones are filtered here), ties are broken by list order
+     * @param bookedSlots Booked partner slots per team ID (see SlotAssignmentEngine.bookedSlotsByTeam)
+     */
+    public Solution solve(List<Team> teams, List<Account> accounts, Map<Long, Integer> bookedSlots) {
+        // Index available accounts
+        List<Account> available = new ArrayList<>();
+        for (Account account : accounts) {
+            if (isAvailable(account)) {
+                available.add(account);
+            }
+        }
+        int accountCount = available.size();
+        int teamCount = teams.size();
+        long[] accountIds = new long[accountCount];
+        int[] capacity = new int[accountCount];
+        Map<Long, Integer> indexById = new HashMap<>(accountCount * 2);
+        for (int a = 0; a < accountCount; a++) {
+            accountIds[a] = available.get(a).getId();
+            capacity[a] = CUSTOMERS_PER_ACCOUNT;
+            indexById.put(accountIds[a], a);
+        }
+
+        // members[t][s] = account index in slot s+1 of team t (-1 = empty)
+        int[][] members = new int[teamCount][Team.SLOT_COUNT];
+        boolean[][] inTeam = new boolean[teamCount][accountCount];
+        int[] demand = new int[teamCount];
+        boolean[] changed = new boolean[teamCount];
+        int cleared = 0;
+
+        for (int t = 0; t < teamCount; t++) {
+            Team team = teams.get(t);
+            int filled = 0;
+            for (int s = 0; s < Team.SLOT_COUNT; s++) {
+                members[t][s] = -1;
+                Long accountId = team.getSlotAccountId(s + 1);
+                if (accountId == null) {
+                    continue;
+                }
+                Integer a = indexById.get(accountId);
+                if (a == null || inTeam[t][a] || capacity[a] == 0) {
+                    // Unavailable, duplicate or over capacity: free the slot
+                    cleared++;
+                    changed[t] = true;
+                    continue;
+                }
+                members[t][s] = a;
+                inTeam[t][a] = true;
+                capacity[a]--;
+                filled++;
+            }
+            demand[t] = Math.max(0, wantedSlots(team, bookedSlots) - filled);
+        }
+
+        // Greedy: largest open demand first, each team takes the accounts with most capacity left
+        Integer[] order = new Integer[teamCount];
+        for (int t = 0; t < teamCount; t++) {
+            order[t] = t;
+        }
+        Arrays.sort(order, (x, y) -> Integer.compare(demand[y], demand[x]));
+
+        int assigned = 0;
+        for (int t : order) {
+            for (int level = CUSTOMERS_PER_ACCOUNT; level > 0 && demand[t] > 0; level--) {
+                for (int a = 0; a < accountCount && demand[t] > 0; a++) {
+                    if (capacity[a] == level && !inTeam[t][a]) {
+                        put(members[t], inTeam[t], a);
+                        capacity[a]--;
+                        demand[t]--;
+                        changed[t] = true;
+                        assigned++;
+                    }
+                }
+            }
+        }
+
+        // Local search: team t short, free account f already in t -> t takes b from team u, u takes f instead
+        for (int t = 0; t < teamCount; t++) {
+            while (demand[t] > 0 && swapIntoTeam(t, members, inTeam, capacity, changed)) {
+                demand[t]--;
+                changed[t] = true;
+                assigned++;
+            }
+        }
+
+        // Write back
+        List<Team> changedTeams = new ArrayList<>();
+        int missing = 0;
+        for (int t = 0; t < teamCount; t++) {
+            missing += demand[t];
+            if (!changed[t]) {
+                continue;
+            }
+            Team team = teams.get(t);
+            for (int s = 0; s < Team.SLOT_COUNT; s++) {
+                int a = members[t][s];
+                team.setSlotAccountId(s + 1, a >= 0 ? accountIds[a] : null);
+            }
+            changedTeams.add(team);
+        }
+
+        return new Solution(changedTeams, assigned, cleared, missing);
+    }
+
+    /**
+     * Account may be used for teams
+     */
+    public static boolean isAvailable(Account account) {
+        return (account.getDeletedAt() == null || account.getDeletedAt().isEmpty())
+            && !account.isSuspended()
+            && !account.isHasError()
+            && !account.isCustomerAccount();
+    }
+
+    private static int wantedSlots(Team team, Map<Long, Integer> bookedSlots) {
+        Integer booked = bookedSlots.get(team.getId());
+        return booked != null ? Math.max(0, Math.min(Team.SLOT_COUNT, booked)) : Team.SLOT_COUNT;
+    }
+
+    /**
+     * One augmenting step for team t, true if t got one more member
+     */
+    private static boolean swapIntoTeam(int t, int[][] members, boolean[][] inTeam, int[] capacity, boolean[] changed) {
+        int accountCount = capacity.length;
+        for (int f = 0; f < accountCount; f++) {
+            if (capacity[f] == 0) {
+                continue;
+            }
+            if (!inTeam[t][f]) {
+                // Not possible after the greedy phase, handled for safety
+                put(members[t], inTeam[t], f);
+                capacity[f]--;
+                return true;
+            }
+            // f has capacity, but t already holds it - find a team u that can take f and gives away b
+            for (int u = 0; u < members.length; u++) {
+                if (u == t || inTeam[u][f]) {
+                    continue;
+                }
+                for (int s = 0; s < Team.SLOT_COUNT; s++) {
+                    int b = members[u][s];
+                    if (b >= 0 && !inTeam[t][b]) {
+                        members[u][s] = f;
+                        inTeam[u][b] = false;
+                        inTeam[u][f] = true;
+                        capacity[f]--;
+                        changed[u] = true;
+                        put(members[t], inTeam[t], b);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void put(int[] teamMembers, boolean[] teamInTeam, int a) {
+        for (int s = 0; s < teamMembers.length; s++) {
+            if (teamMembers[s] < 0) {
+                teamMembers[s] = a;
+                teamInTeam[a] = true;
+                return;
+            }
+        }
+    }
+}
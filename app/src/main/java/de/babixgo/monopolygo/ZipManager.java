@@ -1,5 +1,6 @@
 package de.babixgo.monopolygo;
 
+import de.babixgo.monopolygo.utils.Tracer;
 import java.io.*;
 import java.util.zip.*;
 
@@ -15,9 +16,11 @@ public class ZipManager {
      * @return true if successful
      */
     public static boolean zipDirectory(String sourceDir, String zipFilePath) {
+        Tracer.Span span = Tracer.start("zip.create");
         try {
             File sourceDirFile = new File(sourceDir);
             if (!sourceDirFile.exists() || !sourceDirFile.isDirectory()) {
+                span.fail();
                 return false;
             }
             
@@ -28,8 +31,11 @@ public class ZipManager {
             
             return true;
         } catch (Exception e) {
+            span.fail();
             e.printStackTrace();
             return false;
+        } finally {
+            span.close();
         }
     }
     
@@ -88,6 +94,7 @@ public class ZipManager {
      * @return true if successful
      */
     public static boolean unzipArchive(String zipFilePath, String destDir) {
+        Tracer.Span span = Tracer.start("zip.extract");
         try {
             File destDirFile = new File(destDir);
             if (!destDirFile.exists()) {
@@ -142,8 +149,11 @@ public class ZipManager {
             
             return true;
         } catch (Exception e) {
+            span.fail();
             e.printStackTrace();
             return false;
+        } finally {
+            span.close();
         }
     }
     
@@ -152,36 +162,47 @@ public class ZipManager {
      * VERBESSERT: Besseres Error Handling
      */
     public static boolean copyFileWithRoot(String source, String dest) {
-        android.util.Log.d("BabixGO", "Kopiere mit Root: " + source + " -> " + dest);
+        LogHelper.d(() -> "Kopiere mit Root: " + source + " -> " + dest);
         
+        try (Tracer.Span span = Tracer.start("zip.copy_root")) {
+            boolean copied = copyFileWithRootFallbacks(source, dest);
+            if (!copied) {
+                span.fail();
+            }
+            return copied;
+        }
+    }
+    
+    /**
+     * cat, then dd, then cp - each fallback is counted, they cost a full extra root round trip
+     */
+    private static boolean copyFileWithRootFallbacks(String source, String dest) {
         // Methode 1: cat mit Umleitung
-        String command = "cat \"" + source + "\" > \"" + dest + "\" 2>&1";
-        String result = RootManager.runRootCommand(command);
-        
-        android.util.Log.d("BabixGO", "cat result: " + result);
+        String catResult = RootManager.runRootCommand("cat \"" + source + "\" > \"" + dest + "\" 2>&1");
+        LogHelper.d(() -> "cat result: " + catResult);
         
         // Prüfe Ziel mit Root-Zugriff
         boolean destExists = checkFileExistsAfterCopy(dest);
         
         if (!destExists) {
             // Fallback: dd (Block-Kopie)
-            android.util.Log.d("BabixGO", "Fallback: Versuche dd");
-            command = "dd if=\"" + source + "\" of=\"" + dest + "\" 2>&1";
-            result = RootManager.runRootCommand(command);
-            android.util.Log.d("BabixGO", "dd result: " + result);
+            LogHelper.d("Fallback: Versuche dd");
+            Tracer.count("zip.copy_root.fallback_dd");
+            String ddResult = RootManager.runRootCommand("dd if=\"" + source + "\" of=\"" + dest + "\" 2>&1");
+            LogHelper.d(() -> "dd result: " + ddResult);
             destExists = checkFileExistsAfterCopy(dest);
         }
         
         if (!destExists) {
             // Fallback 2: cp
-            android.util.Log.d("BabixGO", "Fallback 2: Versuche cp");
-            command = "cp -f \"" + source + "\" \"" + dest + "\" 2>&1";
-            result = RootManager.runRootCommand(command);
-            android.util.Log.d("BabixGO", "cp result: " + result);
+            LogHelper.d("Fallback 2: Versuche cp");
+            Tracer.count("zip.copy_root.fallback_cp");
+            String cpResult = RootManager.runRootCommand("cp -f \"" + source + "\" \"" + dest + "\" 2>&1");
+            LogHelper.d(() -> "cp result: " + cpResult);
             destExists = checkFileExistsAfterCopy(dest);
         }
         
-        android.util.Log.d("BabixGO", "Datei kopiert: " + destExists);
+        LogHelper.d(destExists ? "Datei kopiert" : "Datei nicht kopiert");
         return destExists;
     }
     
@@ -205,22 +226,22 @@ public class ZipManager {
      * VERBESSERT: Nutzt [ ] statt test (robuster)
      */
     public static boolean fileExistsWithRoot(String path) {
-        android.util.Log.d("BabixGO", "Prüfe Datei mit Root: " + path);
+        LogHelper.d(() -> "Prüfe Datei mit Root: " + path);
         
         // Methode 1: [ -f ] (POSIX-kompatibel, funktioniert überall)
         String result1 = RootManager.runRootCommand(
             "[ -f \"" + path + "\" ] && echo 'EXISTS' || echo 'NOT_FOUND'"
         );
-        android.util.Log.d("BabixGO", "[ -f ] result: '" + result1 + "'");
+        LogHelper.d(() -> "[ -f ] result: '" + result1 + "'");
         
         if (result1 != null && result1.trim().contains("EXISTS")) {
-            android.util.Log.d("BabixGO", "✓ Datei existiert ([ -f ])");
+            LogHelper.d("✓ Datei existiert ([ -f ])");
             return true;
         }
         
         // Methode 2: ls als Fallback
         String result2 = RootManager.runRootCommand("ls -la \"" + path + "\" 2>&1");
-        android.util.Log.d("BabixGO", "ls result: " + result2);
+        LogHelper.d(() -> "ls result: " + result2);
         
         boolean exists = result2 != null && 
                         !result2.contains("No such file") && 
@@ -228,7 +249,7 @@ public class ZipManager {
                         !result2.contains("cannot access") &&
                         result2.trim().length() > 0;
         
-        android.util.Log.d("BabixGO", exists ? "✓ Datei existiert (ls)" : "✗ Datei nicht gefunden");
+        LogHelper.d(() -> exists ? "✓ Datei existiert (ls)" : "✗ Datei nicht gefunden");
         return exists;
     }
 }
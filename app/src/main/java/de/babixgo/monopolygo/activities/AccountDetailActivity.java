@@ -2,6 +2,7 @@
 package de.babixgo.monopolygo.activities;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.AutoCompleteTextView;
@@ -16,10 +17,15 @@ import com.google.android.material.textfield.TextInputLayout;
 import com.google.android.material.switchmaterial.SwitchMaterial;
 import de.babixgo.monopolygo.AccountManager;
 import de.babixgo.monopolygo.R;
+import de.babixgo.monopolygo.RestoreStager;
 import de.babixgo.monopolygo.database.AccountRepository;
+import de.babixgo.monopolygo.database.TeamRepository;
 import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 
 public class AccountDetailActivity extends AppCompatActivity {
+    private static final String TAG = "AccountDetailActivity";
     
     private Account account;
     private AccountRepository repository;
@@ -170,18 +176,21 @@ public class AccountDetailActivity extends AppCompatActivity {
         
         Toast.makeText(this, "Wiederherstelle " + account.getName() + "...", Toast.LENGTH_SHORT).show();
         
-        new Thread(() -> {
-            boolean success = AccountManager.restoreAccountExtended(account.getName());
+        AppExecutors.swap().execute(() -> {
+            // Renames from a pre-staged slot if available, full restore otherwise
+            boolean success = RestoreStager.switchTo(account.getName(), false);
+            if (success) {
+                prestageNextAccounts(account.getName());
+            }
             
             runOnUiThread(() -> {
                 if (success) {
                     Toast.makeText(this, "Account wiederhergestellt", Toast.LENGTH_SHORT).show();
                     
                     // Update last_played in database with proper ISO format
-                    java.text.SimpleDateFormat sdf = new java.text.SimpleDateFormat(
-                        "yyyy-MM-dd'T'HH:mm:ss", java.util.Locale.getDefault());
-                    String currentTimestamp = sdf.format(new java.util.Date());
-                    account.setLastPlayed(currentTimestamp);
+                    long now = TimestampHelper.now();
+                    account.setLastPlayed(TimestampHelper.formatIso(now));
+                    account.setLastPlayedTimestamp(now);
                     repository.updateLastPlayed(account.getId());
                     
                     // Ask to start app
@@ -189,8 +198,13 @@ public class AccountDetailActivity extends AppCompatActivity {
                         .setTitle("App starten?")
                         .setMessage("Möchten Sie MonopolyGo jetzt starten?")
                         .setPositiveButton("Ja", (d, w) -> {
-                            AccountManager.startApp();
                             Toast.makeText(this, "App wird gestartet...", Toast.LENGTH_SHORT).show();
+                            AppExecutors.swap().execute(() -> {
+                                if (!AccountManager.startAppAndWait()) {
+                                    runOnUiThread(() -> Toast.makeText(this,
+                                        "MonopolyGo wurde nicht gestartet", Toast.LENGTH_LONG).show());
+                                }
+                            });
                         })
                         .setNegativeButton("Nein", null)
                         .show();
@@ -198,7 +212,20 @@ public class AccountDetailActivity extends AppCompatActivity {
                     Toast.makeText(this, "Fehler beim Wiederherstellen", Toast.LENGTH_LONG).show();
                 }
             });
-        }).start();
+        });
+    }
+    
+    /**
+     * Unpack the next accounts of the rotation in the background for a fast next switch
+     */
+    private void prestageNextAccounts(String currentName) {
+        repository.getNonCustomerAccounts()
+            .thenCompose(accounts -> RestoreStager.prestage(
+                RestoreStager.nextInRotation(accounts, currentName, RestoreStager.MAX_SLOTS)))
+            .exceptionally(throwable -> {
+                Log.w(TAG, "Pre-staging failed", throwable);
+                return null;
+            });
     }
     
     private void toggleEditMode() {
@@ -251,6 +278,7 @@ public class AccountDetailActivity extends AppCompatActivity {
         
         btnSave.setOnClickListener(v -> {
             // Update account object
+            String previousName = account.getName();
             account.setName(etName.getText().toString().trim());
             account.setUserId(etUserId.getText().toString().trim());
             account.setFriendCode(etFriendCode.getText().toString().trim());
@@ -274,15 +302,25 @@ public class AccountDetailActivity extends AppCompatActivity {
             account.setNote(etNote.getText().toString().trim());
             
             // Save to database
-            saveAccount();
+            saveAccount(!account.getName().equals(previousName));
             dialog.dismiss();
         });
         
         dialog.show();
     }
     
-    private void saveAccount() {
+    private void saveAccount(boolean renamed) {
         repository.updateAccount(account)
+            .thenRun(() -> {
+                if (renamed) {
+                    // Team slots store the account name denormalized
+                    new TeamRepository().syncAccountName(account.getId(), account.getName())
+                        .exceptionally(throwable -> {
+                            Log.e(TAG, "Failed to sync team slot names", throwable);
+                            return null;
+                        });
+                }
+            })
             .thenRun(() -> runOnUiThread(() -> {
                 Toast.makeText(this, "Änderungen gespeichert", Toast.LENGTH_SHORT).show();
                 displayAccount(); // Refresh UI
@@ -0,0 +1,99 @@
+package de.babixgo.monopolygo.activities;
+
+import android.graphics.Typeface;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.LinearLayout;
+import android.widget.ScrollView;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.appcompat.app.AppCompatActivity;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.Tracer;
+import java.io.File;
+
+/**
+ * Diagnostics Activity - latency histograms, counters and executor load from Tracer
+ */
+public class DiagnosticsActivity extends AppCompatActivity {
+    private static final String TAG = "DiagnosticsActivity";
+
+    private TextView tvStats;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        // Create simple layout programmatically
+        Button btnRefresh = new Button(this);
+        btnRefresh.setText("Aktualisieren");
+        btnRefresh.setOnClickListener(v -> refresh());
+
+        Button btnExport = new Button(this);
+        btnExport.setText("Als JSON exportieren");
+        btnExport.setOnClickListener(v -> exportJson());
+
+        Button btnReset = new Button(this);
+        btnReset.setText("Zurücksetzen");
+        btnReset.setOnClickListener(v -> {
+            Tracer.reset();
+            refresh();
+        });
+
+        // Monospace so the columns of Tracer.summary() line up
+        tvStats = new TextView(this);
+        tvStats.setTypeface(Typeface.MONOSPACE);
+        tvStats.setTextSize(11);
+        tvStats.setPadding(16, 16, 16, 16);
+        tvStats.setTextIsSelectable(true);
+
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.addView(btnRefresh);
+        layout.addView(btnExport);
+        layout.addView(btnReset);
+        layout.addView(tvStats);
+
+        ScrollView scrollView = new ScrollView(this);
+        scrollView.addView(layout);
+        setContentView(scrollView);
+
+        // Set title
+        if (getSupportActionBar() != null) {
+            getSupportActionBar().setTitle("Diagnose");
+            getSupportActionBar().setDisplayHomeAsUpEnabled(true);
+        }
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        refresh();
+    }
+
+    private void refresh() {
+        tvStats.setText("Zeiten in ms\n\n" + Tracer.summary());
+    }
+
+    private void exportJson() {
+        File dir = getExternalFilesDir(null) != null ? getExternalFilesDir(null) : getFilesDir();
+        AppExecutors.io().execute(() -> {
+            try {
+                File file = Tracer.exportJson(dir);
+                runOnUiThread(() -> Toast.makeText(this, "Exportiert: " + file.getAbsolutePath(),
+                    Toast.LENGTH_LONG).show());
+            } catch (Exception e) {
+                Log.e(TAG, "Diagnostics export failed", e);
+                runOnUiThread(() -> Toast.makeText(this, "Export fehlgeschlagen: " + e.getMessage(),
+                    Toast.LENGTH_LONG).show());
+            }
+        });
+    }
+
+    @Override
+    public boolean onSupportNavigateUp() {
+        finish();
+        return true;
+    }
+}
@@ -15,17 +15,24 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.textfield.TextInputEditText;
 import de.babixgo.monopolygo.R;
+import de.babixgo.monopolygo.SlotAssignmentEngine;
+import de.babixgo.monopolygo.TeamCompositionSolver;
 import de.babixgo.monopolygo.adapters.TeamListAdapter;
 import de.babixgo.monopolygo.database.AccountRepository;
+import de.babixgo.monopolygo.database.CustomerAccountRepository;
 import de.babixgo.monopolygo.database.EventRepository;
 import de.babixgo.monopolygo.database.TeamRepository;
+import de.babixgo.monopolygo.database.TeamSlotIndex;
 import de.babixgo.monopolygo.database.CustomerRepository;
 import de.babixgo.monopolygo.models.Account;
 import de.babixgo.monopolygo.models.Event;
 import de.babixgo.monopolygo.models.Team;
 import de.babixgo.monopolygo.models.Customer;
+import de.babixgo.monopolygo.models.CustomerAccount;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class EventDetailActivity extends AppCompatActivity {
     
@@ -35,9 +42,10 @@ public class EventDetailActivity extends AppCompatActivity {
     private CustomerRepository customerRepository;
     
     private TextView tvEventTitle;
-    private Button btnAddTeam, btnAddCustomer;
+    private Button btnAddTeam, btnAddCustomer, btnAutoFill;
     private RecyclerView rvTeams;
     private TeamListAdapter adapter;
+    private volatile TeamSlotIndex slotIndex; // Reverse index account -> slots of this event
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -56,10 +64,12 @@ public class EventDetailActivity extends AppCompatActivity {
         tvEventTitle = findViewById(R.id.tv_event_title);
         btnAddTeam = findViewById(R.id.btn_add_team);
         btnAddCustomer = findViewById(R.id.btn_add_customer);
+        btnAutoFill = findViewById(R.id.btn_auto_fill);
         rvTeams = findViewById(R.id.rv_teams);
         
         btnAddTeam.setOnClickListener(v -> showAddTeamDialog());
         btnAddCustomer.setOnClickListener(v -> showAddCustomerDialog());
+        btnAutoFill.setOnClickListener(v -> autoFillTeams());
         
         setupRecyclerView();
     }
@@ -96,7 +106,11 @@ public class EventDetailActivity extends AppCompatActivity {
     }
     
     private void loadTeams() {
-        teamRepository.getTeamsByEventId(event.getId())
+        teamRepository.getSlotIndex(event.getId())
+            .thenAccept(index -> slotIndex = index)
+            .exceptionally(throwable -> null); // Validation falls back to the save result
+        
+        teamRepository.getTeamsWithSlotNames(event.getId())
             .thenAccept(teams -> runOnUiThread(() -> {
                 adapter.setTeams(teams);
             }))
@@ -110,6 +124,51 @@ public class EventDetailActivity extends AppCompatActivity {
             });
     }
     
+    /**
+     * Fill the slots of all teams with TeamCompositionSolver and save them in one batch write
+     */
+    private void autoFillTeams() {
+        if (event == null) {
+            return;
+        }
+        btnAutoFill.setEnabled(false);
+        
+        CompletableFuture<List<Team>> teams = teamRepository.getTeamsByEventId(event.getId());
+        CompletableFuture<List<Account>> accounts = new AccountRepository().getNonCustomerAccounts();
+        CompletableFuture<List<CustomerAccount>> bookings = new CustomerAccountRepository().getPartnerServiceAccounts();
+        
+        CompletableFuture.allOf(teams, accounts, bookings)
+            .thenCompose(loaded -> {
+                Map<Long, Integer> bookedSlots =
+                    SlotAssignmentEngine.bookedSlotsByTeam(event.getId(), bookings.join());
+                TeamCompositionSolver.Solution solution =
+                    new TeamCompositionSolver().solve(teams.join(), accounts.join(), bookedSlots);
+                return teamRepository.saveTeams(solution.getChangedTeams())
+                    .thenApply(saved -> solution);
+            })
+            .thenAccept(solution -> runOnUiThread(() -> {
+                btnAutoFill.setEnabled(true);
+                String message = solution.getAssignedSlots() + " Slots belegt";
+                if (solution.getClearedSlots() > 0) {
+                    message += ", " + solution.getClearedSlots() + " nicht verfügbare Accounts entfernt";
+                }
+                if (!solution.isComplete()) {
+                    message += ", " + solution.getMissingSlots() + " Slots offen (zu wenige Accounts)";
+                }
+                Toast.makeText(this, message, Toast.LENGTH_LONG).show();
+                loadTeams(); // Refresh
+            }))
+            .exceptionally(throwable -> {
+                runOnUiThread(() -> {
+                    btnAutoFill.setEnabled(true);
+                    Toast.makeText(this, 
+                        "Fehler beim Füllen der Teams: " + throwable.getMessage(), 
+                        Toast.LENGTH_LONG).show();
+                });
+                return null;
+            });
+    }
+    
     private void showAddTeamDialog() {
         View dialogView = LayoutInflater.from(this).inflate(R.layout.dialog_add_team, null);
         EditText etTeamName = dialogView.findViewById(R.id.et_team_name);
@@ -228,6 +287,7 @@ public class EventDetailActivity extends AppCompatActivity {
         
         // Load accounts for slot spinners
         loadAccountsIntoSlotSpinners(
+            team.getId(),
             spinnerSlot1, spinnerSlot2, spinnerSlot3, spinnerSlot4,
             team.getSlot1AccountId(), team.getSlot2AccountId(), 
             team.getSlot3AccountId(), team.getSlot4AccountId()
@@ -259,6 +319,12 @@ public class EventDetailActivity extends AppCompatActivity {
             AccountSpinnerItem slot3 = (AccountSpinnerItem) spinnerSlot3.getSelectedItem();
             AccountSpinnerItem slot4 = (AccountSpinnerItem) spinnerSlot4.getSelectedItem();
             
+            String conflict = findSlotConflict(team.getId(), slot1, slot2, slot3, slot4);
+            if (conflict != null) {
+                Toast.makeText(this, conflict, Toast.LENGTH_LONG).show();
+                return;
+            }
+            
             team.setSlot1AccountId(slot1 != null && slot1.id != -1 ? slot1.id : null);
             team.setSlot2AccountId(slot2 != null && slot2.id != -1 ? slot2.id : null);
             team.setSlot3AccountId(slot3 != null && slot3.id != -1 ? slot3.id : null);
@@ -277,6 +343,29 @@ public class EventDetailActivity extends AppCompatActivity {
         dialog.show();
     }
     
+    /**
+     * Check the selected slot accounts against the event's slot index
+     * @return Error message, null if the selection is valid
+     */
+    private String findSlotConflict(long teamId, AccountSpinnerItem... slots) {
+        for (int i = 0; i < slots.length; i++) {
+            AccountSpinnerItem slot = slots[i];
+            if (slot == null || slot.id == -1) {
+                continue;
+            }
+            for (int j = 0; j < i; j++) {
+                if (slots[j] != null && slots[j].id == slot.id) {
+                    return "Account " + slot.name + " ist mehrfach im Team";
+                }
+            }
+            if (slotIndex != null && !slotIndex.isAccountFree(slot.id, teamId)) {
+                return "Account " + slot.name + " ist bereits in "
+                    + TeamSlotIndex.CUSTOMERS_PER_ACCOUNT + " Teams dieses Events";
+            }
+        }
+        return null;
+    }
+    
     // Spinner Item Classes
     private static class CustomerSpinnerItem {
         long id;
@@ -296,15 +385,21 @@ public class EventDetailActivity extends AppCompatActivity {
     private static class AccountSpinnerItem {
         long id;
         String name;
+        boolean full; // Already in the maximum number of teams of this event
         
         AccountSpinnerItem(long id, String name) {
+            this(id, name, false);
+        }
+        
+        AccountSpinnerItem(long id, String name, boolean full) {
             this.id = id;
             this.name = name;
+            this.full = full;
         }
         
         @Override
         public String toString() {
-            return name;
+            return full ? name + " (voll)" : name;
         }
     }
     
@@ -340,6 +435,7 @@ public class EventDetailActivity extends AppCompatActivity {
     }
     
     private void loadAccountsIntoSlotSpinners(
+        long teamId,
         Spinner slot1, Spinner slot2, Spinner slot3, Spinner slot4,
         Long selectedId1, Long selectedId2, Long selectedId3, Long selectedId4
     ) {
@@ -350,7 +446,9 @@ public class EventDetailActivity extends AppCompatActivity {
                 items.add(new AccountSpinnerItem(-1, "-- Leer --"));
                 
                 for (Account account : accounts) {
-                    items.add(new AccountSpinnerItem(account.getId(), account.getName()));
+                    // O(1) per account: mark accounts already used by the maximum number of teams
+                    boolean full = slotIndex != null && !slotIndex.isAccountFree(account.getId(), teamId);
+                    items.add(new AccountSpinnerItem(account.getId(), account.getName(), full));
                 }
                 
                 // Setup each spinner
@@ -1,6 +1,7 @@
 package de.babixgo.monopolygo.activities;
 
 import android.os.Bundle;
+import android.util.Log;
 import android.view.MenuItem;
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.ActionBarDrawerToggle;
@@ -10,12 +11,25 @@ import androidx.core.view.GravityCompat;
 import androidx.drawerlayout.widget.DrawerLayout;
 import androidx.fragment.app.Fragment;
 import com.google.android.material.navigation.NavigationView;
+import de.babixgo.monopolygo.BuildConfig;
+import de.babixgo.monopolygo.LogHelper;
 import de.babixgo.monopolygo.R;
+import de.babixgo.monopolygo.database.AccountStats;
+import de.babixgo.monopolygo.database.CustomerAccountRepository;
+import de.babixgo.monopolygo.database.MutationJournal;
+import de.babixgo.monopolygo.database.WriteBehindQueue;
 import de.babixgo.monopolygo.fragments.AccountListFragment;
+import de.babixgo.monopolygo.fragments.AccountStatsFragment;
 import de.babixgo.monopolygo.fragments.TycoonRacersFragment;
 import de.babixgo.monopolygo.fragments.CustomerManagementFragment;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.DeviceIdCache;
+import java.io.File;
 
 public class MainActivity extends AppCompatActivity {
+    private static final String TAG = "MainActivity";
+    private static final int PASSWORD_MIGRATION_BATCH_SIZE = 50;
+
     private DrawerLayout drawerLayout;
     private NavigationView navigationView;
     private ActionBarDrawerToggle toggle;
@@ -24,8 +38,24 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        // Release builds: debug logging off (see LogHelper)
+        LogHelper.init(BuildConfig.DEBUG);
         setContentView(R.layout.activity_main);
 
+        // Persisted state is read on the io pool, off the first frame - each attach()
+        // merges what was written in memory before it ran
+        File filesDir = getFilesDir();
+        AppExecutors.io().execute(() -> {
+            // Offline-Journal laden - Replay startet, sobald das Backend erreichbar ist
+            MutationJournal.getInstance().attach(filesDir);
+            // Replay write-behind updates left over from the last run
+            WriteBehindQueue.getInstance().attachJournal(filesDir);
+            // Cached device/account IDs from earlier backups
+            DeviceIdCache.attach(filesDir);
+            // Account statistics of the last run, kept current from account events
+            AccountStats.getInstance().attach(filesDir);
+        });
+
         // Setup Toolbar
         toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
@@ -48,6 +78,7 @@ public class MainActivity extends AppCompatActivity {
 
         // Load default fragment (AccountListFragment)
         if (savedInstanceState == null) {
+            migrateLegacyPasswords();
             loadFragment(new AccountListFragment());
             navigationView.setCheckedItem(R.id.nav_accounts);
             if (getSupportActionBar() != null) {
@@ -56,6 +87,18 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Re-encrypt customer passwords in the old CBC format or bound to the device Keystore
+     * (background, once per launch)
+     */
+    private void migrateLegacyPasswords() {
+        new CustomerAccountRepository().reencryptLegacyPasswords(PASSWORD_MIGRATION_BATCH_SIZE)
+            .exceptionally(e -> {
+                Log.w(TAG, "Password re-encryption failed, retried on next start", e);
+                return 0;
+            });
+    }
+
     private boolean onNavigationItemSelected(@NonNull MenuItem item) {
         Fragment fragment = null;
         String title = "";
@@ -69,6 +112,9 @@ public class MainActivity extends AppCompatActivity {
         } else if (item.getItemId() == R.id.nav_customers) {
             fragment = new CustomerManagementFragment();
             title = "Kunden";
+        } else if (item.getItemId() == R.id.nav_account_stats) {
+            fragment = new AccountStatsFragment();
+            title = "Statistik";
         }
 
         if (fragment != null) {
@@ -89,6 +135,13 @@ public class MainActivity extends AppCompatActivity {
             .commit();
     }
 
+    @Override
+    protected void onStop() {
+        super.onStop();
+        // App goes to background - don't leave updates waiting in the queue
+        WriteBehindQueue.getInstance().flush();
+    }
+
     @Override
     public void onBackPressed() {
         if (drawerLayout.isDrawerOpen(GravityCompat.START)) {
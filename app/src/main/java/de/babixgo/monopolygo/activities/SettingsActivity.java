@@ -1,14 +1,24 @@
 package de.babixgo.monopolygo.activities;
 
+import android.content.Intent;
 import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.appcompat.app.AppCompatActivity;
 import de.babixgo.monopolygo.R;
+import de.babixgo.monopolygo.database.LegacyMigrator;
+import de.babixgo.monopolygo.utils.AppExecutors;
 
 /**
  * Settings Activity - manages app settings and configuration
  */
 public class SettingsActivity extends AppCompatActivity {
+    private static final String TAG = "SettingsActivity";
+    
+    private TextView tvMigrationStatus;
+    private Button btnMigrate;
     
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -21,7 +31,29 @@ public class SettingsActivity extends AppCompatActivity {
         textView.setPadding(32, 32, 32, 32);
         textView.setGravity(android.view.Gravity.CENTER);
         
-        setContentView(textView);
+        // Legacy CSV migration (resumes automatically after an interruption)
+        LegacyMigrator migrator = new LegacyMigrator(getFilesDir());
+        btnMigrate = new Button(this);
+        btnMigrate.setText("Alte CSV-Daten migrieren");
+        btnMigrate.setOnClickListener(v -> runMigration(migrator));
+        
+        tvMigrationStatus = new TextView(this);
+        tvMigrationStatus.setPadding(32, 16, 32, 16);
+        tvMigrationStatus.setText(migrator.isFinished() ? "Migration abgeschlossen" : "");
+        
+        // Latency histograms of backup/restore/data calls
+        Button btnDiagnostics = new Button(this);
+        btnDiagnostics.setText("Diagnose");
+        btnDiagnostics.setOnClickListener(v -> startActivity(new Intent(this, DiagnosticsActivity.class)));
+        
+        LinearLayout layout = new LinearLayout(this);
+        layout.setOrientation(LinearLayout.VERTICAL);
+        layout.addView(textView);
+        layout.addView(btnMigrate);
+        layout.addView(tvMigrationStatus);
+        layout.addView(btnDiagnostics);
+        
+        setContentView(layout);
         
         // Set title
         if (getSupportActionBar() != null) {
@@ -30,6 +62,27 @@ public class SettingsActivity extends AppCompatActivity {
         }
     }
     
+    private void runMigration(LegacyMigrator migrator) {
+        btnMigrate.setEnabled(false);
+        tvMigrationStatus.setText("Migration läuft...");
+        
+        AppExecutors.io().execute(() -> {
+            try {
+                LegacyMigrator.Result result = migrator.run((step, imported) -> runOnUiThread(() ->
+                    tvMigrationStatus.setText("Migration läuft: " + step + " (" + imported + ")")));
+                runOnUiThread(() -> tvMigrationStatus.setText("Migration abgeschlossen: "
+                    + result.imported + " Datensätze, " + result.skipped + " übersprungen"
+                    + (result.resumed ? " (fortgesetzt)" : "")));
+            } catch (Exception e) {
+                Log.e(TAG, "Legacy migration failed", e);
+                runOnUiThread(() -> tvMigrationStatus.setText("Migration unterbrochen: " + e.getMessage()
+                    + "\nErneut starten setzt an dieser Stelle fort."));
+            } finally {
+                runOnUiThread(() -> btnMigrate.setEnabled(true));
+            }
+        });
+    }
+    
     @Override
     public boolean onSupportNavigateUp() {
         finish();
@@ -10,11 +10,9 @@ import androidx.core.content.ContextCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import de.babixgo.monopolygo.R;
 import de.babixgo.monopolygo.models.Account;
-import java.text.SimpleDateFormat;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.Locale;
 
 public class AccountListAdapter extends RecyclerView.Adapter<AccountListAdapter.ViewHolder> {
     
@@ -73,7 +71,7 @@ public class AccountListAdapter extends RecyclerView.Adapter<AccountListAdapter.
         
         void bind(Account account) {
             tvName.setText(account.getName());
-            tvLastPlayed.setText(formatDate(account.getLastPlayed()));
+            tvLastPlayed.setText(formatDate(account));
             tvSuspension.setText(account.getSuspensionSummary());
             tvError.setText(account.getErrorStatusText());
             
@@ -85,25 +83,22 @@ public class AccountListAdapter extends RecyclerView.Adapter<AccountListAdapter.
             }
         }
         
-        private String formatDate(String timestamp) {
+        private String formatDate(Account account) {
+            String timestamp = account.getLastPlayed();
             if (timestamp == null || timestamp.isEmpty() || timestamp.equals("0")) {
                 return "0";
             }
             
-            try {
-                SimpleDateFormat inputFormat = new SimpleDateFormat(
-                    "yyyy-MM-dd'T'HH:mm:ss", Locale.GERMAN);
-                SimpleDateFormat outputFormat = new SimpleDateFormat(
-                    "dd.MM.yyyy", Locale.GERMAN);
-                Date date = inputFormat.parse(timestamp);
-                return outputFormat.format(date);
-            } catch (Exception e) {
-                // If parsing fails, try to return first 10 chars or "0"
-                if (timestamp.length() >= 10) {
-                    return timestamp.substring(0, 10);
-                }
-                return "0";
+            long epochMillis = account.getLastPlayedTimestamp();
+            if (epochMillis > 0) {
+                return TimestampHelper.formatDisplayDate(epochMillis);
+            }
+            
+            // If parsing fails, try to return first 10 chars or "0"
+            if (timestamp.length() >= 10) {
+                return timestamp.substring(0, 10);
             }
+            return "0";
         }
     }
 }
@@ -0,0 +1,551 @@
+package de.babixgo.monopolygo.database;
+
+import android.util.Log;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import de.babixgo.monopolygo.LogHelper;
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.models.Customer;
+import de.babixgo.monopolygo.models.CustomerAccount;
+import de.babixgo.monopolygo.utils.IdHelper;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Streaming import of the legacy account CSV files into the DataStore
+ *
+ * Import reads one line at a time into a reused CsvRow, maps it to a model object
+ * and writes batches of DEFAULT_BATCH_SIZE rows with one multi-path update.
+ * The next batch is only read after the previous one was acknowledged, so memory
+ * stays bounded by the batch size plus the match index of the existing records.
+ *
+ * Rows are matched against the records already in the collection first (by name,
+ * UserID, credentials ...) - a match is updated field by field with only the values
+ * the CSV owns, so lastPlayed, device IDs, status, notes and everything else
+ * maintained in the app survive a re-import. Rows without a match get a stable ID
+ * (IdHelper) derived from their natural key (InterneID / KundenID plus account), so
+ * importing the same file twice updates instead of duplicating. A row whose match
+ * key fits several existing records is skipped rather than guessed.
+ *
+ * WICHTIG: Alle Methoden blockieren - nur aus einem Hintergrund-Thread aufrufen
+ */
+public class AccountCsvEngine {
+    private static final String TAG = "AccountCsvEngine";
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final DataStore store;
+    private final int batchSize;
+
+    /**
+     * Maps the rows of one CSV format to model objects and back
+     */
+    public interface Mapping<T> {
+        String getCollection();
+        Class<T> getType();
+
+        /**
+         * Load what fromRow() needs from other collections - called once per import
+         */
+        default void prepare(DataStore store) throws IOException {}
+
+        /**
+         * Object for one row, null to skip the row
+         */
+        T fromRow(CsvRow row);
+
+        /**
+         * Key a new object is stored under
+         */
+        String keyOf(T item);
+
+        /**
+         * Keys an object is recognised by, most specific first - used for the rows and
+         * for the existing records alike (empty = never matched)
+         */
+        List<String> matchKeys(T item);
+
+        /**
+         * Fields the CSV owns, written per path onto an existing record
+         */
+        Map<String, Object> importedFields(T item);
+    }
+
+    /**
+     * Called after every written batch - lets callers persist a checkpoint
+     */
+    public interface BatchListener {
+        void onBatchWritten(long lastLine, ImportResult progress);
+    }
+
+    /**
+     * Outcome of an import
+     */
+    public static class ImportResult {
+        public long imported;
+        public long skipped;
+        public long lastLine; // Last file line covered by a written batch
+    }
+
+    public AccountCsvEngine() {
+        this(FirebaseManager.getInstance(), DEFAULT_BATCH_SIZE);
+    }
+
+    public AccountCsvEngine(DataStore store, int batchSize) {
+        this.store = store;
+        this.batchSize = batchSize;
+    }
+
+    // ==================== Import ====================
+
+    /**
+     * Import Accountinfos.csv into "accounts"
+     */
+    public ImportResult importOwnAccounts(Reader reader) throws IOException {
+        return importRows(reader, ownAccounts(), 0, null);
+    }
+
+    /**
+     * Import Kundeninfos.csv into "customer_accounts" (passwords are encrypted)
+     */
+    public ImportResult importCustomerAccounts(Reader reader) throws IOException {
+        return importRows(reader, customerAccounts(), 0, null);
+    }
+
+    /**
+     * Stream a CSV file (with header line) into the DataStore
+     *
+     * @param reader CSV source, not closed by this method
+     * @param mapping Row format
+     * @param skipThroughLine Lines up to and including this one are skipped (0 = none) - for resuming
+     * @param listener Called after each written batch (may be null)
+     */
+    public <T> ImportResult importRows(Reader reader, Mapping<T> mapping, long skipThroughLine,
+                                       BatchListener listener) throws IOException {
+        ImportResult result = new ImportResult();
+        result.lastLine = skipThroughLine;
+
+        CSVReader csvReader = new CSVReader(reader);
+        String[] header = readLine(csvReader);
+        if (header == null) {
+            return result;
+        }
+        mapping.prepare(store);
+        MatchIndex index = loadMatchIndex(store, mapping);
+        CsvRow row = new CsvRow(header);
+        Batch batch = new Batch();
+
+        String[] line;
+        while ((line = readLine(csvReader)) != null) {
+            long lineNumber = csvReader.getLinesRead();
+            if (lineNumber <= skipThroughLine) {
+                continue;
+            }
+            row.reset(line, lineNumber);
+
+            T item = row.isBlank() ? null : mapping.fromRow(row);
+            if (item == null || !addRow(batch, index, mapping, item)) {
+                result.skipped++;
+            }
+
+            if (batch.rows >= batchSize) {
+                writeBatch(batch, result, lineNumber, listener);
+            }
+        }
+        writeBatch(batch, result, csvReader.getLinesRead(), listener);
+
+        LogHelper.d(TAG, () -> "Imported " + result.imported + " rows into " + mapping.getCollection()
+            + " (" + result.skipped + " skipped)");
+        return result;
+    }
+
+    /**
+     * Add one row to the batch - a new record as a whole, an existing one per field
+     * @return false if the row matches several existing records
+     */
+    private <T> boolean addRow(Batch batch, MatchIndex index, Mapping<T> mapping, T item) {
+        List<String> matchKeys = mapping.matchKeys(item);
+        String key = index.find(matchKeys);
+        if (MatchIndex.AMBIGUOUS.equals(key)) {
+            Log.w(TAG, "Skipped " + matchKeys + ": matches several records in " + mapping.getCollection());
+            return false;
+        }
+
+        String path;
+        if (key == null) {
+            key = mapping.keyOf(item);
+            path = mapping.getCollection() + "/" + key;
+            if (!index.keys.contains(key)) {
+                // New record - later rows with the same natural key update it
+                index.add(matchKeys, key);
+                batch.updates.put(path, item);
+                batch.rows++;
+                return true;
+            }
+        } else {
+            path = mapping.getCollection() + "/" + key;
+        }
+
+        if (batch.updates.containsKey(path)) {
+            // Created in this batch - a path and its children must not share one update
+            batch.updates.put(path, item);
+        } else {
+            for (Map.Entry<String, Object> field : mapping.importedFields(item).entrySet()) {
+                batch.updates.put(path + "/" + field.getKey(), field.getValue());
+            }
+        }
+        batch.rows++;
+        return true;
+    }
+
+    private void writeBatch(Batch batch, ImportResult result, long lastLine,
+                            BatchListener listener) throws IOException {
+        if (!batch.updates.isEmpty()) {
+            await(store.updatePaths(batch.updates));
+        }
+        result.imported += batch.rows;
+        batch.updates.clear();
+        batch.rows = 0;
+        result.lastLine = Math.max(result.lastLine, lastLine);
+        if (listener != null) {
+            listener.onBatchWritten(result.lastLine, result);
+        }
+    }
+
+    /**
+     * Match keys of the records already in the collection
+     */
+    static <T> MatchIndex loadMatchIndex(DataStore store, Mapping<T> mapping) throws IOException {
+        MatchIndex index = new MatchIndex();
+        Map<String, T> existing = await(store.getAllKeyed(mapping.getCollection(), mapping.getType()));
+        for (Map.Entry<String, T> entry : existing.entrySet()) {
+            index.keys.add(entry.getKey());
+            index.add(mapping.matchKeys(entry.getValue()), entry.getKey());
+        }
+        return index;
+    }
+
+    /**
+     * Pending multi-path update of one batch
+     */
+    private static final class Batch {
+        final Map<String, Object> updates = new LinkedHashMap<>();
+        int rows;
+    }
+
+    /**
+     * Match key → stored key of the existing (and already imported) records
+     */
+    static final class MatchIndex {
+        // Never a stored key - Firebase keys cannot contain control characters
+        static final String AMBIGUOUS = "\u0000ambiguous";
+
+        final Set<String> keys = new HashSet<>();
+        private final Map<String, String> byMatchKey = new HashMap<>();
+
+        void add(List<String> matchKeys, String key) {
+            for (String matchKey : matchKeys) {
+                String known = byMatchKey.putIfAbsent(matchKey, key);
+                if (known != null && !known.equals(key)) {
+                    byMatchKey.put(matchKey, AMBIGUOUS);
+                }
+            }
+        }
+
+        /**
+         * Stored key of the first unique match, AMBIGUOUS if the keys only match
+         * several records, null if nothing matches
+         */
+        String find(List<String> matchKeys) {
+            boolean ambiguous = false;
+            for (String matchKey : matchKeys) {
+                String key = byMatchKey.get(matchKey);
+                if (AMBIGUOUS.equals(key)) {
+                    ambiguous = true;
+                } else if (key != null) {
+                    return key;
+                }
+            }
+            return ambiguous ? AMBIGUOUS : null;
+        }
+    }
+
+    // ==================== Mappings ====================
+
+    /**
+     * Accountinfos.csv: InterneID,UserID,Datum,Shortlink,Notiz
+     * Matched by name (InterneID), then UserID - customer and deleted accounts never match
+     */
+    public static Mapping<Account> ownAccounts() {
+        return new Mapping<Account>() {
+            @Override public String getCollection() { return "accounts"; }
+            @Override public Class<Account> getType() { return Account.class; }
+
+            @Override
+            public Account fromRow(CsvRow row) {
+                String internalId = row.get("InterneID");
+                if (internalId.isEmpty()) {
+                    return null;
+                }
+
+                Account account = new Account(internalId, emptyToNull(row.get("UserID")));
+                account.setId(IdHelper.stableId(getCollection(), internalId));
+                account.setShortLink(emptyToNull(row.get("Shortlink")));
+                account.setNote(emptyToNull(row.get("Notiz")));
+
+                long now = TimestampHelper.now();
+                long created = TimestampHelper.toEpochMillis(row.get("Datum"));
+                if (created <= 0) {
+                    created = now;
+                }
+                account.setCreatedAt(TimestampHelper.formatIso(created));
+                account.setCreatedAtTimestamp(created);
+                account.setUpdatedAt(TimestampHelper.formatIso(now));
+                account.setUpdatedAtTimestamp(now);
+                return account;
+            }
+
+            @Override
+            public String keyOf(Account account) {
+                return String.valueOf(account.getId());
+            }
+
+            @Override
+            public List<String> matchKeys(Account account) {
+                if (account.isCustomerAccount() || (account.getDeletedAt() != null && !account.getDeletedAt().isEmpty())) {
+                    return Collections.emptyList();
+                }
+                return ownAccountMatchKeys(account.getName(), account.getUserId());
+            }
+
+            @Override
+            public Map<String, Object> importedFields(Account account) {
+                // The name stays as it is - a match by UserID must not rename the account
+                Map<String, Object> fields = new LinkedHashMap<>();
+                putIfNotNull(fields, "userId", account.getUserId());
+                putIfNotNull(fields, "shortLink", account.getShortLink());
+                putIfNotNull(fields, "note", account.getNote());
+                fields.put("updatedAt", account.getUpdatedAt());
+                fields.put("updatedAtTimestamp", account.getUpdatedAtTimestamp());
+                return fields;
+            }
+        };
+    }
+
+    /**
+     * Kundeninfos.csv: KundenID,Nutzername,Passwort,AuTok,Freundschaftslink,Code,UserID,Notiz
+     *
+     * The customer is referenced by IdHelper.stableId("customers", KundenID). A customer can have
+     * several rows, so the account itself is keyed by KundenID plus the first non-empty
+     * of UserID, Nutzername, Code, Freundschaftslink (see customerAccountKey). AuTok,
+     * UserID and Notiz have no CustomerAccount field and are not imported.
+     *
+     * An existing customer with the same name keeps its ID; existing accounts of a
+     * customer are matched by Nutzername, Code or Freundschaftslink. Passwords are
+     * always stored encrypted.
+     */
+    public static Mapping<CustomerAccount> customerAccounts() {
+        return new Mapping<CustomerAccount>() {
+            // Customer name → ID of the customer already in the DataStore
+            private Map<String, Long> customerIds = Collections.emptyMap();
+
+            @Override public String getCollection() { return "customer_accounts"; }
+            @Override public Class<CustomerAccount> getType() { return CustomerAccount.class; }
+
+            @Override
+            public void prepare(DataStore store) throws IOException {
+                customerIds = existingCustomerIds(store);
+            }
+
+            @Override
+            public CustomerAccount fromRow(CsvRow row) {
+                String customerKey = row.get("KundenID");
+                if (customerKey.isEmpty()) {
+                    return null;
+                }
+
+                CustomerAccount account = new CustomerAccount();
+                account.setId(IdHelper.stableId(getCollection(), customerAccountKey(customerKey,
+                    row.get("UserID"), row.get("Nutzername"), row.get("Code"), row.get("Freundschaftslink"))));
+                Long customerId = customerIds.get(customerKey);
+                account.setCustomerId(customerId != null ? customerId : IdHelper.stableId("customers", customerKey));
+                account.setIngameName(customerKey);
+                account.setFriendLink(emptyToNull(row.get("Freundschaftslink")));
+                account.setFriendCode(emptyToNull(row.get("Code")));
+                account.setCredentialsUsername(emptyToNull(row.get("Nutzername")));
+                if (!row.get("Passwort").isEmpty()) {
+                    account.updateCredentialsPassword(row.get("Passwort"));
+                }
+                account.setServiceBoost(account.getCredentialsUsername() != null || account.hasCredentialsPassword());
+
+                long now = TimestampHelper.now();
+                account.setCreatedAt(TimestampHelper.formatIso(now));
+                account.setCreatedAtTimestamp(now);
+                account.setUpdatedAt(TimestampHelper.formatIso(now));
+                account.setUpdatedAtTimestamp(now);
+                return account;
+            }
+
+            @Override
+            public String keyOf(CustomerAccount account) {
+                return String.valueOf(account.getId());
+            }
+
+            @Override
+            public List<String> matchKeys(CustomerAccount account) {
+                List<String> keys = new ArrayList<>();
+                String customer = account.getCustomerId() + "/";
+                addIfNotEmpty(keys, customer + "user:", account.getCredentialsUsername());
+                addIfNotEmpty(keys, customer + "code:", account.getFriendCode());
+                addIfNotEmpty(keys, customer + "link:", account.getFriendLink());
+                return keys;
+            }
+
+            @Override
+            public Map<String, Object> importedFields(CustomerAccount account) {
+                Map<String, Object> fields = new LinkedHashMap<>();
+                putIfNotNull(fields, "friendLink", account.getFriendLink());
+                putIfNotNull(fields, "friendCode", account.getFriendCode());
+                putIfNotNull(fields, "credentialsUsername", account.getCredentialsUsername());
+                putIfNotNull(fields, "credentialsPassword", account.getCredentialsPassword());
+                if (account.isServiceBoost()) {
+                    fields.put("serviceBoost", true);
+                }
+                fields.put("updatedAt", account.getUpdatedAt());
+                fields.put("updatedAtTimestamp", account.getUpdatedAtTimestamp());
+                return fields;
+            }
+        };
+    }
+
+    /**
+     * Customers referenced by Kundeninfos.csv (one per KundenID)
+     * A customer with the same name is kept as it is
+     */
+    public static Mapping<Customer> customers() {
+        return new Mapping<Customer>() {
+            @Override public String getCollection() { return "customers"; }
+            @Override public Class<Customer> getType() { return Customer.class; }
+
+            @Override
+            public Customer fromRow(CsvRow row) {
+                String customerKey = row.get("KundenID");
+                if (customerKey.isEmpty()) {
+                    return null;
+                }
+
+                Customer customer = new Customer(customerKey);
+                customer.setId(IdHelper.stableId(getCollection(), customerKey));
+                long now = TimestampHelper.now();
+                customer.setCreatedAt(TimestampHelper.formatIso(now));
+                customer.setCreatedAtTimestamp(now);
+                customer.setUpdatedAt(TimestampHelper.formatIso(now));
+                customer.setUpdatedAtTimestamp(now);
+                return customer;
+            }
+
+            @Override
+            public String keyOf(Customer customer) {
+                return String.valueOf(customer.getId());
+            }
+
+            @Override
+            public List<String> matchKeys(Customer customer) {
+                return customer.getName() != null ? Collections.singletonList(customer.getName()) : Collections.emptyList();
+            }
+
+            @Override
+            public Map<String, Object> importedFields(Customer customer) {
+                // The CSV has nothing but the name
+                return Collections.emptyMap();
+            }
+        };
+    }
+
+    // ==================== Helper ====================
+
+    /**
+     * Match keys of an own account: name (ignoring case) first, then UserID
+     */
+    static List<String> ownAccountMatchKeys(String name, String userId) {
+        List<String> keys = new ArrayList<>(2);
+        addIfNotEmpty(keys, "name:", name != null ? name.trim().toLowerCase(Locale.ROOT) : null);
+        addIfNotEmpty(keys, "userId:", userId);
+        return keys;
+    }
+
+    /**
+     * Customer name → ID of the customers in the DataStore - names used by several
+     * customers are left out, their rows fall back to the stable ID
+     */
+    static Map<String, Long> existingCustomerIds(DataStore store) throws IOException {
+        Map<String, Long> ids = new HashMap<>();
+        Set<String> duplicates = new HashSet<>();
+        for (Customer customer : await(store.getAll("customers", Customer.class))) {
+            if (customer.getName() != null && ids.put(customer.getName(), customer.getId()) != null) {
+                duplicates.add(customer.getName());
+            }
+        }
+        ids.keySet().removeAll(duplicates);
+        return ids;
+    }
+
+    /**
+     * Natural key of one customer account: customer plus the first non-empty account
+     * identity, the customer alone if the row has none
+     */
+    static String customerAccountKey(String customerKey, String... accountIdentities) {
+        for (String identity : accountIdentities) {
+            if (identity != null && !identity.isEmpty()) {
+                return customerKey + "/" + identity;
+            }
+        }
+        return customerKey;
+    }
+
+    private static String[] readLine(CSVReader csvReader) throws IOException {
+        try {
+            return csvReader.readNext();
+        } catch (CsvValidationException e) {
+            throw new IOException("Invalid CSV in line " + csvReader.getLinesRead() + ": " + e.getMessage(), e);
+        }
+    }
+
+    static <V> V await(CompletableFuture<V> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e);
+        }
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static void putIfNotNull(Map<String, Object> fields, String name, Object value) {
+        if (value != null) {
+            fields.put(name, value);
+        }
+    }
+
+    private static void addIfNotEmpty(List<String> keys, String prefix, String value) {
+        if (value != null && !value.isEmpty()) {
+            keys.add(prefix + value);
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package de.babixgo.monopolygo.database;
 
 import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.HashMap;
 import java.util.Map;
@@ -15,18 +13,38 @@ import java.util.Map;
  * Provides async operations using CompletableFuture
  */
 public class AccountRepository {
-    private final FirebaseManager firebase;
+    private final DataStore store;
+    private final WriteBehindQueue writeBehind;
+    private final MutationJournal journal;
     private static final String COLLECTION = "accounts";
     
     public AccountRepository() {
-        this.firebase = FirebaseManager.getInstance();
+        this(FirebaseManager.getInstance(), MutationJournal.getInstance(), WriteBehindQueue.getInstance());
+    }
+    
+    /**
+     * Repository on any DataStore (e.g. InMemoryDataStore for JVM tests and benchmarks)
+     */
+    public AccountRepository(DataStore store) {
+        this(store, new MutationJournal(store));
+    }
+    
+    private AccountRepository(DataStore store, MutationJournal journal) {
+        this(store, journal, new WriteBehindQueue(store, journal));
+    }
+    
+    public AccountRepository(DataStore store, MutationJournal journal, WriteBehindQueue writeBehind) {
+        this.store = store;
+        this.journal = journal;
+        this.writeBehind = writeBehind;
     }
     
     /**
      * Alle Accounts laden (nicht gelöscht)
      */
     public CompletableFuture<List<Account>> getAllAccounts() {
-        return firebase.getAll(COLLECTION, Account.class)
+        return store.getAll(COLLECTION, Account.class)
+            .thenApply(this::withPending)
             .thenApply(accounts -> accounts.stream()
                 .filter(account -> account.getDeletedAt() == null || account.getDeletedAt().isEmpty())
                 .sorted((a, b) -> {
@@ -42,7 +60,8 @@ public class AccountRepository {
      * (für AccountListFragment)
      */
     public CompletableFuture<List<Account>> getNonCustomerAccounts() {
-        return firebase.getAll(COLLECTION, Account.class)
+        return store.getAll(COLLECTION, Account.class)
+            .thenApply(this::withPending)
             .thenApply(accounts -> accounts.stream()
                 .filter(account -> (account.getDeletedAt() == null || account.getDeletedAt().isEmpty()) &&
                                  !account.isCustomerAccount())
@@ -59,14 +78,16 @@ public class AccountRepository {
      */
     public CompletableFuture<Account> getAccountById(long id) {
         // Try direct ID query first
-        return firebase.getById(COLLECTION, String.valueOf(id), Account.class)
+        return store.getById(COLLECTION, String.valueOf(id), Account.class)
+            .thenApply(account -> journal.overlay(COLLECTION, String.valueOf(id), Account.class, account))
             .thenCompose(account -> {
                 if (account != null) {
                     return CompletableFuture.completedFuture(account);
                 }
                 
                 // Fallback: Search in all accounts by ID
-                return firebase.getAll(COLLECTION, Account.class)
+                return store.getAll(COLLECTION, Account.class)
+                    .thenApply(this::withPending)
                     .thenApply(accounts -> accounts.stream()
                         .filter(a -> a.getId() == id)
                         .findFirst()
@@ -78,8 +99,18 @@ public class AccountRepository {
      * Account nach Name laden
      */
     public CompletableFuture<Account> getAccountByName(String name) {
-        return firebase.getByField(COLLECTION, "name", name, Account.class)
+        return store.getByField(COLLECTION, "name", name, Account.class)
             .thenApply(account -> {
+                if (account != null) {
+                    account = journal.overlay(COLLECTION, keyOf(account), Account.class, account);
+                }
+                // Offline gespeicherte Accounts sind noch nicht auf dem Server
+                if (account == null || !name.equals(account.getName())) {
+                    account = journal.pendingSaves(COLLECTION, Account.class).stream()
+                        .filter(pending -> name.equals(pending.getName()))
+                        .reduce((first, second) -> second)
+                        .orElse(null);
+                }
                 // Filter out deleted accounts
                 if (account != null && (account.getDeletedAt() == null || account.getDeletedAt().isEmpty())) {
                     return account;
@@ -92,7 +123,8 @@ public class AccountRepository {
      * Account nach Firebase Key laden
      */
     public CompletableFuture<Account> getAccountByFirebaseKey(String firebaseKey) {
-        return firebase.getById(COLLECTION, firebaseKey, Account.class)
+        return store.getById(COLLECTION, firebaseKey, Account.class)
+            .thenApply(account -> journal.overlay(COLLECTION, firebaseKey, Account.class, account))
             .thenApply(account -> {
                 // Filter out deleted accounts
                 if (account != null && (account.getDeletedAt() == null || account.getDeletedAt().isEmpty())) {
@@ -104,33 +136,52 @@ public class AccountRepository {
     
     /**
      * Neuen Account erstellen
+     * Offline wird der Account im MutationJournal gesichert und später synchronisiert
      */
     public CompletableFuture<Account> createAccount(Account account) {
-        if (!firebase.isConfigured()) {
+        if (!store.isConfigured()) {
             return CompletableFuture.failedFuture(
                 new RuntimeException("Firebase ist nicht konfiguriert. Account wurde lokal gesichert, aber nicht in der Datenbank gespeichert.")
             );
         }
         
         // Set timestamps
-        String now = getCurrentTimestamp();
-        account.setCreatedAt(now);
-        account.setUpdatedAt(now);
+        long now = TimestampHelper.now();
+        account.setCreatedAt(TimestampHelper.formatIso(now));
+        account.setCreatedAtTimestamp(now);
+        account.setUpdatedAt(TimestampHelper.formatIso(now));
+        account.setUpdatedAtTimestamp(now);
         
         // Generate ID if not set
         String id = account.getId() != 0 ? String.valueOf(account.getId()) : null;
         
-        return firebase.save(COLLECTION, account, id);
+        return journal.save(COLLECTION, id, account, 0);
     }
     
     /**
      * Account aktualisieren
      */
     public CompletableFuture<Account> updateAccount(Account account) {
+        // Stand, auf dem die Änderung basiert - für die Konflikterkennung beim Replay
+        // (Millisekunden aus updatedAtTimestamp, nur Altdaten ohne das Feld sekundengenau)
+        long baseUpdatedAt = account.getUpdatedAtTimestamp();
+        
         // Set updated timestamp
-        account.setUpdatedAt(getCurrentTimestamp());
+        long now = TimestampHelper.now();
+        account.setUpdatedAt(TimestampHelper.formatIso(now));
+        account.setUpdatedAtTimestamp(now);
         
-        return firebase.save(COLLECTION, account, String.valueOf(account.getId()));
+        // Noch gepufferte Feld-Updates dürfen nicht nach dem vollständigen Objekt landen
+        String id = String.valueOf(account.getId());
+        CompletableFuture<Void> superseded = writeBehind.supersede(COLLECTION + "/" + id);
+        return journal.save(COLLECTION, id, account, baseUpdatedAt)
+            .whenComplete((saved, error) -> {
+                if (error != null) {
+                    superseded.completeExceptionally(error);
+                } else {
+                    superseded.complete(null);
+                }
+            });
     }
     
     /**
@@ -138,20 +189,27 @@ public class AccountRepository {
      */
     public CompletableFuture<Void> deleteAccount(long id) {
         Map<String, Object> updates = new HashMap<>();
-        updates.put("deletedAt", getCurrentTimestamp());
+        long now = TimestampHelper.now();
+        updates.put("deletedAt", TimestampHelper.formatIso(now));
+        updates.put("deletedAtTimestamp", now);
         
-        return firebase.updateFields(COLLECTION, String.valueOf(id), updates);
+        return journal.update(COLLECTION, String.valueOf(id), updates, 0);
     }
     
+    // ==================== Write-Behind Updates ====================
+    // Häufige Feld-Updates werden pro Account gesammelt und gebündelt geschrieben
+    
     /**
      * Last Played Timestamp aktualisieren
      */
     public CompletableFuture<Void> updateLastPlayed(long id) {
         Map<String, Object> updates = new HashMap<>();
-        updates.put("lastPlayed", getCurrentTimestamp());
-        updates.put("updatedAt", getCurrentTimestamp());
+        long now = TimestampHelper.now();
+        updates.put("lastPlayed", TimestampHelper.formatIso(now));
+        updates.put("lastPlayedTimestamp", now);
+        putUpdatedAt(updates, now);
         
-        return firebase.updateFields(COLLECTION, String.valueOf(id), updates);
+        return writeBehind.enqueue(COLLECTION + "/" + id, updates);
     }
     
     /**
@@ -160,9 +218,9 @@ public class AccountRepository {
     public CompletableFuture<Void> updateAccountStatus(long id, String status) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("accountStatus", status);
-        updates.put("updatedAt", getCurrentTimestamp());
+        putUpdatedAt(updates, TimestampHelper.now());
         
-        return firebase.updateFields(COLLECTION, String.valueOf(id), updates);
+        return writeBehind.enqueue(COLLECTION + "/" + id, updates);
     }
     
     /**
@@ -173,9 +231,9 @@ public class AccountRepository {
         updates.put("ssaid", ssaid);
         updates.put("gaid", gaid);
         updates.put("deviceId", deviceId);
-        updates.put("updatedAt", getCurrentTimestamp());
+        putUpdatedAt(updates, TimestampHelper.now());
         
-        return firebase.updateFields(COLLECTION, String.valueOf(id), updates);
+        return writeBehind.enqueue(COLLECTION + "/" + id, updates);
     }
     
     /**
@@ -184,9 +242,9 @@ public class AccountRepository {
     public CompletableFuture<Void> updateSuspensionStatus(long id, String status) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("suspensionStatus", status);
-        updates.put("updatedAt", getCurrentTimestamp());
+        putUpdatedAt(updates, TimestampHelper.now());
         
-        return firebase.updateFields(COLLECTION, String.valueOf(id), updates);
+        return writeBehind.enqueue(COLLECTION + "/" + id, updates);
     }
     
     /**
@@ -195,24 +253,34 @@ public class AccountRepository {
     public CompletableFuture<Void> updateNote(long id, String note) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("note", note);
-        updates.put("updatedAt", getCurrentTimestamp());
+        putUpdatedAt(updates, TimestampHelper.now());
         
-        return firebase.updateFields(COLLECTION, String.valueOf(id), updates);
+        return writeBehind.enqueue(COLLECTION + "/" + id, updates);
     }
     
     /**
-     * Hilfsmethode für aktuellen Timestamp im ISO 8601 Format
-     * Creates a new SimpleDateFormat instance for thread safety
+     * Stamp updatedAt as ISO text and epoch millis into an update map
      */
-    private String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        return sdf.format(new Date());
+    private void putUpdatedAt(Map<String, Object> updates, long now) {
+        updates.put("updatedAt", TimestampHelper.formatIso(now));
+        updates.put("updatedAtTimestamp", now);
     }
     
     /**
      * Check if Firebase is configured
      */
+    /**
+     * Offline-Änderungen aus dem MutationJournal über die gelesenen Accounts legen
+     */
+    private List<Account> withPending(List<Account> accounts) {
+        return journal.overlay(COLLECTION, Account.class, accounts, AccountRepository::keyOf);
+    }
+    
+    private static String keyOf(Account account) {
+        return account.getFirebaseKey() != null ? account.getFirebaseKey() : String.valueOf(account.getId());
+    }
+    
     public boolean isFirebaseConfigured() {
-        return firebase.isConfigured();
+        return store.isConfigured();
     }
 }
@@ -0,0 +1,393 @@
+package de.babixgo.monopolygo.database;
+
+import android.util.Log;
+import com.google.gson.Gson;
+import de.babixgo.monopolygo.LogHelper;
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.utils.Tracer;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Account statistics maintained incrementally from child events of "accounts"
+ *
+ * Every account contributes one Record (the few fields the statistics need). A child
+ * event subtracts the old record of its key from the counters and adds the new one,
+ * so no event ever scans the fleet. The counters:
+ *   total, active, error, customer
+ *   suspension histogram: "0", "3", "7", "perm", other values
+ *   lastPlayed histogram by epoch day, plus never played
+ * "Stale for n days" sums the day buckets of the last n days - cost depends on n,
+ * not on the number of accounts. Soft-deleted accounts (deletedAt set) are not counted.
+ *
+ * Records and counters are persisted in the files dir, so the dashboard has numbers
+ * before the backend delivered anything. The initial sync of a new process re-delivers
+ * every account as onChildAdded; keys not delivered by then were removed while the app
+ * was not running and are dropped.
+ */
+public class AccountStats {
+    private static final String TAG = "AccountStats";
+    private static final String COLLECTION = "accounts";
+    private static final String STATS_FILE = "account_stats.json";
+    private static final long SAVE_DELAY_MS = 1000;
+
+    public static final String[] SUSPENSION_LEVELS = {"0", "3", "7", "perm"};
+    public static final String SUSPENSION_OTHER = "other";
+
+    private static AccountStats instance;
+
+    private final DataStore store;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Gson gson = new Gson();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private State state = new State();
+    private Set<String> seenDuringSync;   // null once the initial sync is complete
+    private File statsFile;
+    private boolean registered = false;
+    private boolean saveScheduled = false;
+
+    /**
+     * The fields of one account the statistics depend on
+     */
+    private static class Record {
+        boolean active;
+        String suspension;
+        boolean error;
+        boolean customer;
+        long lastPlayedDay;   // Epoch day, -1 = never played
+
+        static Record of(Account account) {
+            Record record = new Record();
+            record.active = "active".equalsIgnoreCase(account.getAccountStatus());
+            record.suspension = suspensionBucket(account.getSuspensionStatus());
+            record.error = account.isHasError();
+            record.customer = account.isCustomerAccount();
+            long lastPlayed = account.getLastPlayedTimestamp();
+            record.lastPlayedDay = lastPlayed > 0 ? TimeUnit.MILLISECONDS.toDays(lastPlayed) : -1;
+            return record;
+        }
+    }
+
+    /**
+     * Counters and records as persisted
+     */
+    private static class State {
+        int total;
+        int active;
+        int error;
+        int customer;
+        int neverPlayed;
+        Map<String, Integer> suspension = new HashMap<>();
+        Map<Long, Integer> lastPlayedDays = new HashMap<>();
+        Map<String, Record> records = new HashMap<>();
+    }
+
+    public static synchronized AccountStats getInstance() {
+        if (instance == null) {
+            instance = new AccountStats(FirebaseManager.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Statistics over any DataStore (e.g. InMemoryDataStore for JVM tests and benchmarks)
+     */
+    public AccountStats(DataStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Load the persisted statistics and start following the accounts
+     * Call once from the first Activity with context.getFilesDir(), on the io pool
+     */
+    public void attach(File filesDir) {
+        synchronized (this) {
+            if (statsFile == null) {
+                statsFile = new File(filesDir, STATS_FILE);
+                load();
+            }
+        }
+        // A screen opened before attach() shows the loaded counters right away
+        notifyListeners();
+        start();
+    }
+
+    /**
+     * Follow the accounts collection - without attach() the statistics only live in memory
+     */
+    public void start() {
+        synchronized (this) {
+            if (registered) {
+                return;
+            }
+            registered = true;
+            seenDuringSync = new HashSet<>();
+        }
+        store.addChildListener(COLLECTION, Account.class, new DataStore.ChildListener<Account>() {
+            @Override
+            public void onChildAdded(String key, Account account) {
+                apply(key, account);
+            }
+
+            @Override
+            public void onChildChanged(String key, Account account) {
+                apply(key, account);
+            }
+
+            @Override
+            public void onChildRemoved(String key) {
+                apply(key, null);
+            }
+
+            @Override
+            public void onInitialDataLoaded() {
+                finishSync();
+            }
+
+            @Override
+            public void onError(Exception e) {
+                Log.w(TAG, "Account events cancelled, statistics may be outdated", e);
+            }
+        });
+    }
+
+    // ==================== Deltas ====================
+
+    /**
+     * Replace the record of key (account == null or soft-deleted: remove it)
+     */
+    private void apply(String key, Account account) {
+        synchronized (this) {
+            if (seenDuringSync != null) {
+                seenDuringSync.add(key);
+            }
+            Record previous = state.records.remove(key);
+            if (previous != null) {
+                count(previous, -1);
+            }
+            if (account != null && (account.getDeletedAt() == null || account.getDeletedAt().isEmpty())) {
+                Record record = Record.of(account);
+                state.records.put(key, record);
+                count(record, 1);
+            }
+            scheduleSave();
+        }
+        Tracer.count("stats.delta");
+        notifyListeners();
+    }
+
+    /**
+     * Initial sync done - drop records of accounts removed while the app was not running
+     */
+    private void finishSync() {
+        int dropped = 0;
+        synchronized (this) {
+            if (seenDuringSync == null) {
+                return;
+            }
+            for (String key : new HashSet<>(state.records.keySet())) {
+                if (!seenDuringSync.contains(key)) {
+                    count(state.records.remove(key), -1);
+                    dropped++;
+                }
+            }
+            seenDuringSync = null;
+            scheduleSave();
+        }
+        if (dropped > 0) {
+            int droppedRecords = dropped;
+            LogHelper.d(TAG, () -> "Dropped " + droppedRecords + " accounts removed since the last run");
+        }
+        notifyListeners();
+    }
+
+    private void count(Record record, int delta) {
+        state.total += delta;
+        if (record.active) {
+            state.active += delta;
+        }
+        if (record.error) {
+            state.error += delta;
+        }
+        if (record.customer) {
+            state.customer += delta;
+        }
+        state.suspension.merge(record.suspension, delta, Integer::sum);
+        state.suspension.remove(record.suspension, 0);
+        if (record.lastPlayedDay < 0) {
+            state.neverPlayed += delta;
+        } else {
+            state.lastPlayedDays.merge(record.lastPlayedDay, delta, Integer::sum);
+            // Keep the histogram as small as the set of days accounts were last played on
+            state.lastPlayedDays.remove(record.lastPlayedDay, 0);
+        }
+    }
+
+    private static String suspensionBucket(String suspension) {
+        for (String level : SUSPENSION_LEVELS) {
+            if (level.equals(suspension)) {
+                return level;
+            }
+        }
+        return SUSPENSION_OTHER;
+    }
+
+    // ==================== Reads ====================
+
+    /**
+     * Current counters - constant size, independent of the number of accounts
+     *
+     * @param staleDays Accounts not played within this many days (or never) count as stale
+     */
+    public synchronized Snapshot getSnapshot(int staleDays) {
+        long today = TimeUnit.MILLISECONDS.toDays(System.currentTimeMillis());
+        int recent = 0;
+        for (long day = today - staleDays + 1; day <= today; day++) {
+            Integer count = state.lastPlayedDays.get(day);
+            if (count != null) {
+                recent += count;
+            }
+        }
+
+        Map<String, Integer> suspension = new HashMap<>();
+        for (String level : SUSPENSION_LEVELS) {
+            suspension.put(level, state.suspension.getOrDefault(level, 0));
+        }
+        suspension.put(SUSPENSION_OTHER, state.suspension.getOrDefault(SUSPENSION_OTHER, 0));
+
+        return new Snapshot(state.total, state.active, state.error, state.customer,
+            state.total - recent, state.neverPlayed, staleDays, suspension, seenDuringSync == null);
+    }
+
+    /**
+     * Counters at one point in time
+     */
+    public static class Snapshot {
+        private final int total;
+        private final int active;
+        private final int error;
+        private final int customer;
+        private final int stale;
+        private final int neverPlayed;
+        private final int staleDays;
+        private final Map<String, Integer> suspension;
+        private final boolean synced;
+
+        Snapshot(int total, int active, int error, int customer, int stale, int neverPlayed,
+                 int staleDays, Map<String, Integer> suspension, boolean synced) {
+            this.total = total;
+            this.active = active;
+            this.error = error;
+            this.customer = customer;
+            this.stale = stale;
+            this.neverPlayed = neverPlayed;
+            this.staleDays = staleDays;
+            this.suspension = suspension;
+            this.synced = synced;
+        }
+
+        public int getTotal() { return total; }
+        public int getActive() { return active; }
+        public int getError() { return error; }
+        public int getCustomer() { return customer; }
+        public int getOwn() { return total - customer; }
+        public int getStale() { return stale; }
+        public int getNeverPlayed() { return neverPlayed; }
+        public int getStaleDays() { return staleDays; }
+
+        /**
+         * Accounts with suspensionStatus level ("0", "3", "7", "perm" or SUSPENSION_OTHER)
+         */
+        public int getSuspension(String level) { return suspension.getOrDefault(level, 0); }
+
+        /**
+         * Accounts with any suspension ("3", "7", "perm" and other non-zero values)
+         */
+        public int getSuspended() { return total - getSuspension("0"); }
+
+        /**
+         * false while the numbers still come from the last run (initial sync pending)
+         */
+        public boolean isSynced() { return synced; }
+    }
+
+    /**
+     * Called on the thread of the event after every change of the counters
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            listener.run();
+        }
+    }
+
+    // ==================== Persistence ====================
+
+    private void load() {
+        if (!statsFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader(statsFile))) {
+            State loaded = gson.fromJson(reader, State.class);
+            if (loaded != null && loaded.records != null && loaded.suspension != null
+                && loaded.lastPlayedDays != null) {
+                state = loaded;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not load " + statsFile + ", starting empty", e);
+        }
+    }
+
+    /**
+     * Write at most once per SAVE_DELAY_MS - the initial sync alone is one event per account
+     */
+    private void scheduleSave() {
+        if (statsFile == null || saveScheduled) {
+            return;
+        }
+        saveScheduled = true;
+        scheduler.schedule(this::save, SAVE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void save() {
+        String json;
+        synchronized (this) {
+            saveScheduled = false;
+            json = gson.toJson(state);
+        }
+        File temp = new File(statsFile.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(temp)) {
+            writer.write(json);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + temp, e);
+            return;
+        }
+        if (!temp.renameTo(statsFile)) {
+            Log.w(TAG, "Could not replace " + statsFile);
+        }
+    }
+}
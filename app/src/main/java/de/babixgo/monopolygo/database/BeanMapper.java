@@ -0,0 +1,425 @@
+package de.babixgo.monopolygo.database;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Object ↔ tree mapping for the local DataStore implementations
+ *
+ * Follows the Firebase bean rules, so data looks the same in every backend:
+ * - every public getX()/isX() becomes property "x" (leading capitals lowercased, getSSAID → "ssaid")
+ * - on read, setX() is called for every stored property, unknown keys are ignored
+ * - null properties are not stored, lists are stored as maps with index keys
+ * - integral numbers are Long, floating point numbers Double
+ *
+ * Tree nodes are TreeMaps ordered by KEY_ORDER, leaves are String, Long, Double or Boolean.
+ */
+final class BeanMapper {
+
+    /**
+     * Firebase key order: 32-bit integer keys numerically first, then all other keys lexicographically
+     */
+    static final Comparator<String> KEY_ORDER = (a, b) -> {
+        Integer ia = parseIntKey(a);
+        Integer ib = parseIntKey(b);
+        if (ia != null && ib != null) {
+            return Integer.compare(ia, ib);
+        }
+        if (ia != null) {
+            return -1;
+        }
+        if (ib != null) {
+            return 1;
+        }
+        return a.compareTo(b);
+    };
+
+    /**
+     * Firebase value order: null < false < true < numbers < strings < objects
+     */
+    static final Comparator<Object> VALUE_ORDER = (a, b) -> {
+        int ra = valueRank(a);
+        int rb = valueRank(b);
+        if (ra != rb) {
+            return Integer.compare(ra, rb);
+        }
+        if (ra == 3) {
+            return Double.compare(((Number) a).doubleValue(), ((Number) b).doubleValue());
+        }
+        if (ra == 4) {
+            return ((String) a).compareTo((String) b);
+        }
+        return 0;
+    };
+
+    /**
+     * Cached accessors of one class
+     */
+    private static final class ClassInfo {
+        final Map<String, Method> getters = new TreeMap<>();
+        final Map<String, Method> setters = new HashMap<>();
+    }
+
+    private static final Map<Class<?>, ClassInfo> CLASS_INFO = new ConcurrentHashMap<>();
+
+    private BeanMapper() {}
+
+    // ==================== Object → Tree ====================
+
+    /**
+     * Convert a value or bean into tree form
+     */
+    static Object toTree(Object value) {
+        if (value == null || value instanceof String || value instanceof Boolean) {
+            return value;
+        }
+        if (value instanceof Double || value instanceof Float) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Character || value instanceof Enum) {
+            return value.toString();
+        }
+        if (value instanceof Map) {
+            TreeMap<String, Object> node = newNode();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                putIfNotNull(node, String.valueOf(entry.getKey()), toTree(entry.getValue()));
+            }
+            return node.isEmpty() ? null : node;
+        }
+        if (value instanceof Collection) {
+            TreeMap<String, Object> node = newNode();
+            int index = 0;
+            for (Object item : (Collection<?>) value) {
+                putIfNotNull(node, String.valueOf(index++), toTree(item));
+            }
+            return node.isEmpty() ? null : node;
+        }
+
+        TreeMap<String, Object> node = newNode();
+        for (Map.Entry<String, Method> getter : classInfo(value.getClass()).getters.entrySet()) {
+            try {
+                putIfNotNull(node, getter.getKey(), toTree(getter.getValue().invoke(value)));
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Getter " + getter.getValue().getName() + " failed", e);
+            }
+        }
+        return node;
+    }
+
+    // ==================== Tree → Object ====================
+
+    /**
+     * Convert a tree node into the requested type
+     */
+    @SuppressWarnings("unchecked")
+    static <T> T fromTree(Object node, Class<T> clazz) {
+        return (T) fromTree(node, (Type) clazz);
+    }
+
+    static Object fromTree(Object node, Type type) {
+        if (node == null) {
+            return null;
+        }
+
+        Class<?> raw = rawClass(type);
+
+        if (raw == Object.class) {
+            return copy(node);
+        }
+        if (raw == String.class) {
+            return node instanceof Map ? null : node.toString();
+        }
+        if (raw == Boolean.class || raw == boolean.class) {
+            return node instanceof Boolean ? node : Boolean.valueOf(node.toString());
+        }
+        if (Number.class.isAssignableFrom(raw) || raw.isPrimitive()) {
+            return toNumber(node, raw);
+        }
+        if (raw.isEnum()) {
+            return enumValue(raw, node.toString());
+        }
+        if (!(node instanceof Map)) {
+            throw new IllegalArgumentException("Cannot convert " + node.getClass().getSimpleName() + " to " + raw.getSimpleName());
+        }
+
+        Map<String, Object> map = (Map<String, Object>) node;
+
+        if (Map.class.isAssignableFrom(raw)) {
+            Type valueType = typeArgument(type, 1);
+            Map<String, Object> result = new HashMap<>();
+            for (Map.Entry<String, Object> entry : map.entrySet()) {
+                result.put(entry.getKey(), fromTree(entry.getValue(), valueType));
+            }
+            return result;
+        }
+        if (Collection.class.isAssignableFrom(raw)) {
+            Type itemType = typeArgument(type, 0);
+            List<Object> result = new ArrayList<>();
+            for (Object value : map.values()) {
+                result.add(fromTree(value, itemType));
+            }
+            return result;
+        }
+
+        return toBean(map, raw);
+    }
+
+    private static Object toBean(Map<String, Object> map, Class<?> clazz) {
+        Object bean;
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            bean = constructor.newInstance();
+        } catch (Exception e) {
+            throw new IllegalArgumentException(clazz.getSimpleName() + " needs a no-arg constructor", e);
+        }
+
+        // Alphabetical key order like the Firebase mapper
+        for (Map.Entry<String, Object> entry : new TreeMap<>(map).entrySet()) {
+            Method setter = classInfo(clazz).setters.get(entry.getKey());
+            if (setter == null || entry.getValue() == null) {
+                continue;
+            }
+            try {
+                setter.invoke(bean, fromTree(entry.getValue(), setter.getGenericParameterTypes()[0]));
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Setter " + setter.getName() + " failed", e);
+            }
+        }
+        return bean;
+    }
+
+    /**
+     * Set ID on an object from its key - same rules as FirebaseManager.setIdFromKey()
+     * setFirebaseKey()/setIdFromString() first, setId(long) as fallback
+     */
+    static void applyKey(Object item, String key) {
+        if (item == null || key == null) {
+            return;
+        }
+        Class<?> clazz = item.getClass();
+        try {
+            Method setFirebaseKey = clazz.getMethod("setFirebaseKey", String.class);
+            Method setIdFromString = clazz.getMethod("setIdFromString", String.class);
+            setFirebaseKey.invoke(item, key);
+            setIdFromString.invoke(item, key);
+            return;
+        } catch (NoSuchMethodException e) {
+            // Fallback below
+        } catch (Exception e) {
+            return;
+        }
+        try {
+            Method setId = clazz.getMethod("setId", long.class);
+            long id;
+            try {
+                id = Long.parseLong(key);
+            } catch (NumberFormatException e) {
+                id = Math.abs(key.hashCode());
+            }
+            setId.invoke(item, id);
+        } catch (Exception e) {
+            // Object has no ID
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    static TreeMap<String, Object> newNode() {
+        return new TreeMap<>(KEY_ORDER);
+    }
+
+    /**
+     * Deep copy of a tree node - callers never see the store's own maps
+     */
+    @SuppressWarnings("unchecked")
+    static Object copy(Object node) {
+        if (!(node instanceof Map)) {
+            return node;
+        }
+        TreeMap<String, Object> copy = newNode();
+        for (Map.Entry<String, Object> entry : ((Map<String, Object>) node).entrySet()) {
+            copy.put(entry.getKey(), copy(entry.getValue()));
+        }
+        return copy;
+    }
+
+    /**
+     * Gson reads every JSON number as Double - restore integral values as Long
+     * and all maps as key-ordered tree nodes
+     */
+    @SuppressWarnings("unchecked")
+    static Object normalize(Object value) {
+        if (value instanceof Map) {
+            TreeMap<String, Object> node = newNode();
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                putIfNotNull(node, entry.getKey(), normalize(entry.getValue()));
+            }
+            return node.isEmpty() ? null : node;
+        }
+        if (value instanceof Double) {
+            double d = (Double) value;
+            if (d == Math.rint(d) && Math.abs(d) < 9.0E15) {
+                return (long) d;
+            }
+        }
+        return value;
+    }
+
+    private static void putIfNotNull(Map<String, Object> node, String key, Object value) {
+        if (value != null) {
+            node.put(key, value);
+        }
+    }
+
+    private static ClassInfo classInfo(Class<?> clazz) {
+        ClassInfo info = CLASS_INFO.get(clazz);
+        if (info != null) {
+            return info;
+        }
+
+        info = new ClassInfo();
+        List<Method> candidates = new ArrayList<>();
+        for (Method method : clazz.getMethods()) {
+            if (!Modifier.isStatic(method.getModifiers()) && method.getDeclaringClass() != Object.class) {
+                candidates.add(method);
+            }
+        }
+
+        // Getters first - the setter overload choice depends on them
+        for (Method method : candidates) {
+            String name = method.getName();
+            if (method.getParameterTypes().length != 0 || method.getReturnType() == void.class) {
+                continue;
+            }
+            if (name.startsWith("get") && name.length() > 3) {
+                info.getters.put(propertyName(name, 3), method);
+            } else if (name.startsWith("is") && name.length() > 2
+                    && (method.getReturnType() == boolean.class || method.getReturnType() == Boolean.class)) {
+                info.getters.put(propertyName(name, 2), method);
+            }
+        }
+
+        for (Method method : candidates) {
+            String name = method.getName();
+            if (method.getParameterTypes().length == 1 && name.startsWith("set") && name.length() > 3) {
+                String property = propertyName(name, 3);
+                Method existing = info.setters.get(property);
+                // Overloads (e.g. setId(long) vs setId(String)): prefer the getter's type
+                Method getter = info.getters.get(property);
+                if (existing == null || (getter != null && method.getParameterTypes()[0] == getter.getReturnType())) {
+                    info.setters.put(property, method);
+                }
+            }
+        }
+        CLASS_INFO.put(clazz, info);
+        return info;
+    }
+
+    private static String propertyName(String methodName, int prefixLength) {
+        char[] chars = methodName.substring(prefixLength).toCharArray();
+        for (int i = 0; i < chars.length && Character.isUpperCase(chars[i]); i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    private static Object toNumber(Object node, Class<?> raw) {
+        Number number;
+        if (node instanceof Number) {
+            number = (Number) node;
+        } else {
+            try {
+                number = Double.valueOf(node.toString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        if (raw == long.class || raw == Long.class) {
+            return number.longValue();
+        }
+        if (raw == int.class || raw == Integer.class) {
+            return number.intValue();
+        }
+        if (raw == double.class || raw == Double.class) {
+            return number.doubleValue();
+        }
+        if (raw == float.class || raw == Float.class) {
+            return number.floatValue();
+        }
+        if (raw == short.class || raw == Short.class) {
+            return number.shortValue();
+        }
+        if (raw == byte.class || raw == Byte.class) {
+            return number.byteValue();
+        }
+        return number;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> raw, String name) {
+        return Enum.valueOf((Class<? extends Enum>) raw, name);
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return Object.class;
+    }
+
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    private static Integer parseIntKey(String key) {
+        if (key.isEmpty() || key.length() > 11 || key.charAt(0) == '+'
+                || (key.length() > 1 && key.charAt(0) == '0')) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(key);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static int valueRank(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 2 : 1;
+        }
+        if (value instanceof Number) {
+            return 3;
+        }
+        if (value instanceof String) {
+            return 4;
+        }
+        return 5;
+    }
+}
@@ -0,0 +1,83 @@
+package de.babixgo.monopolygo.database;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * One CSV line, reused for every line of a file
+ *
+ * Values are looked up by column name from the header line, so mappings do not
+ * depend on column positions. Missing columns and the legacy placeholder "N/A"
+ * read as "".
+ */
+public final class CsvRow {
+    private final Map<String, Integer> columns = new HashMap<>();
+    private String[] values = new String[0];
+    private long lineNumber;
+
+    /**
+     * @param header Header line of the file
+     */
+    public CsvRow(String[] header) {
+        for (int i = 0; i < header.length; i++) {
+            // Excel adds a BOM in front of the first column name
+            String name = i == 0 ? header[i].replace("\uFEFF", "") : header[i];
+            columns.put(name.trim(), i);
+        }
+    }
+
+    /**
+     * Point this row at the next line
+     */
+    void reset(String[] values, long lineNumber) {
+        this.values = values;
+        this.lineNumber = lineNumber;
+    }
+
+    /**
+     * Trimmed value of a column, "" if absent or "N/A"
+     */
+    public String get(String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.length || values[index] == null) {
+            return "";
+        }
+        String value = values[index].trim();
+        return "N/A".equals(value) ? "" : value;
+    }
+
+    /**
+     * Value of a column as long, fallback if empty or not a number
+     */
+    public long getLong(String column, long fallback) {
+        String value = get(column);
+        try {
+            return value.isEmpty() ? fallback : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return fallback;
+        }
+    }
+
+    public boolean hasColumn(String column) {
+        return columns.containsKey(column);
+    }
+
+    /**
+     * True for empty lines (no value in any column)
+     */
+    public boolean isBlank() {
+        for (String value : values) {
+            if (value != null && !value.trim().isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 1-based line number in the file (the header is line 1)
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
@@ -2,30 +2,39 @@ package de.babixgo.monopolygo.database;
 
 import android.util.Log;
 import com.google.gson.JsonObject;
+import de.babixgo.monopolygo.LogHelper;
 import de.babixgo.monopolygo.models.CustomerAccount;
+import de.babixgo.monopolygo.utils.AppExecutors;
 import de.babixgo.monopolygo.utils.EncryptionHelper;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Repository for managing CustomerAccount data in Firebase Realtime Database
- * Handles encryption/decryption of passwords
+ * Passwords stay encrypted on every read path - CustomerAccount decrypts on demand
  * Provides async operations using CompletableFuture
  */
 public class CustomerAccountRepository {
     private static final String TAG = "CustomerAccountRepository";
-    private final FirebaseManager firebase;
+    private final DataStore store;
     private CustomerActivityRepository activityRepository;
     private static final String COLLECTION = "customer_accounts";
 
     public CustomerAccountRepository() {
-        this.firebase = FirebaseManager.getInstance();
+        this(FirebaseManager.getInstance());
+    }
+    
+    /**
+     * Repository on any DataStore (e.g. InMemoryDataStore for JVM tests and benchmarks)
+     */
+    public CustomerAccountRepository(DataStore store) {
+        this.store = store;
     }
     
     /**
@@ -33,7 +42,9 @@ public class CustomerAccountRepository {
      */
     private CustomerActivityRepository getActivityRepository() {
         if (activityRepository == null) {
-            activityRepository = new CustomerActivityRepository();
+            activityRepository = store instanceof FirebaseManager
+                ? new CustomerActivityRepository()
+                : new CustomerActivityRepository(store);
         }
         return activityRepository;
     }
@@ -42,32 +53,22 @@ public class CustomerAccountRepository {
     
     /**
      * Create new customer account with activity logging
-     * Automatically encrypts password before storing
+     * The password is already encrypted by CustomerAccount.updateCredentialsPassword()
      */
     public CompletableFuture<CustomerAccount> createCustomerAccount(CustomerAccount account) {
-        Log.d(TAG, "Creating customer account for customer: " + account.getCustomerId());
-        
-        String now = getCurrentTimestamp();
-        account.setCreatedAt(now);
-        account.setUpdatedAt(now);
+        LogHelper.d(TAG, () -> "Creating customer account for customer: " + account.getCustomerId());
         
-        // Encrypt password if present
-        if (account.getCredentialsPassword() != null && !account.getCredentialsPassword().isEmpty()) {
-            String encrypted = EncryptionHelper.encrypt(account.getCredentialsPassword());
-            account.setCredentialsPassword(encrypted);
-        }
+        long now = TimestampHelper.now();
+        account.setCreatedAt(TimestampHelper.formatIso(now));
+        account.setCreatedAtTimestamp(now);
+        account.setUpdatedAt(TimestampHelper.formatIso(now));
+        account.setUpdatedAtTimestamp(now);
         
         // Generate ID if not set
         String id = account.getId() != 0 ? String.valueOf(account.getId()) : null;
         
-        return firebase.save(COLLECTION, account, id)
+        return store.save(COLLECTION, account, id)
             .thenApply(created -> {
-                // Decrypt password for returning to caller
-                if (created.getCredentialsPassword() != null && !created.getCredentialsPassword().isEmpty()) {
-                    String decrypted = EncryptionHelper.decrypt(created.getCredentialsPassword());
-                    created.setCredentialsPassword(decrypted);
-                }
-                
                 // Log activity with customer_account_id
                 getActivityRepository().logActivity(
                     created.getCustomerId(),
@@ -80,7 +81,7 @@ public class CustomerAccountRepository {
                     return null;
                 });
                 
-                Log.d(TAG, "Customer account created with ID: " + created.getId());
+                LogHelper.d(TAG, () -> "Customer account created with ID: " + created.getId());
                 return created;
             });
     }
@@ -89,46 +90,44 @@ public class CustomerAccountRepository {
     
     /**
      * Get all accounts for a specific customer
-     * Automatically decrypts passwords
+     * Passwords are not decrypted (see CustomerAccount.revealCredentialsPassword())
      */
     public CompletableFuture<List<CustomerAccount>> getAccountsByCustomerId(long customerId) {
-        return firebase.getAll(COLLECTION, CustomerAccount.class)
+        return store.getAll(COLLECTION, CustomerAccount.class)
             .thenApply(accounts -> {
-                Log.d(TAG, "Loading accounts for customer: " + customerId);
+                LogHelper.d(TAG, () -> "Loading accounts for customer: " + customerId);
                 
                 // Filter by customer_id client-side
                 List<CustomerAccount> filtered = accounts.stream()
                     .filter(account -> account.getCustomerId() == customerId)
                     .collect(Collectors.toList());
                 
-                // Decrypt passwords
-                for (CustomerAccount account : filtered) {
-                    if (account.getCredentialsPassword() != null && !account.getCredentialsPassword().isEmpty()) {
-                        String decrypted = EncryptionHelper.decrypt(account.getCredentialsPassword());
-                        account.setCredentialsPassword(decrypted);
-                    }
-                }
-                
-                Log.d(TAG, "Loaded " + filtered.size() + " accounts");
+                LogHelper.d(TAG, () -> "Loaded " + filtered.size() + " accounts");
                 return filtered;
             });
     }
     
+    /**
+     * Get all accounts booked for the partner service, in booking order
+     * (input of the slot assignment, see SlotAssignmentEngine)
+     */
+    public CompletableFuture<List<CustomerAccount>> getPartnerServiceAccounts() {
+        return store.getAll(COLLECTION, CustomerAccount.class)
+            .thenApply(accounts -> accounts.stream()
+                .filter(CustomerAccount::isServicePartner)
+                .sorted(Comparator.comparingLong(CustomerAccount::getCreatedAtTimestamp)
+                    .thenComparingLong(CustomerAccount::getId))
+                .collect(Collectors.toList()));
+    }
+    
     /**
      * Get single customer account by ID
-     * Automatically decrypts password
+     * Password is decrypted on demand (see CustomerAccount.revealCredentialsPassword())
      */
     public CompletableFuture<CustomerAccount> getAccountById(long id) {
-        return firebase.getById(COLLECTION, String.valueOf(id), CustomerAccount.class)
+        return store.getById(COLLECTION, String.valueOf(id), CustomerAccount.class)
             .thenApply(account -> {
-                Log.d(TAG, "Loading customer account: " + id);
-                
-                // Decrypt password
-                if (account != null && account.getCredentialsPassword() != null && !account.getCredentialsPassword().isEmpty()) {
-                    String decrypted = EncryptionHelper.decrypt(account.getCredentialsPassword());
-                    account.setCredentialsPassword(decrypted);
-                }
-                
+                LogHelper.d(TAG, () -> "Loading customer account: " + id);
                 return account;
             });
     }
@@ -137,15 +136,15 @@ public class CustomerAccountRepository {
     
     /**
      * Update customer account with activity logging
-     * Automatically encrypts password if changed
+     * The stored (encrypted) password is written as is
      */
     public CompletableFuture<Void> updateCustomerAccount(CustomerAccount account) {
-        Log.d(TAG, "Updating customer account: " + account.getId());
+        LogHelper.d(TAG, () -> "Updating customer account: " + account.getId());
         
         Map<String, Object> updates = buildUpdateMap(account);
-        updates.put("updatedAt", getCurrentTimestamp());
+        putUpdatedAt(updates, TimestampHelper.now());
         
-        return firebase.updateFields(COLLECTION, String.valueOf(account.getId()), updates)
+        return store.updateFields(COLLECTION, String.valueOf(account.getId()), updates)
             .thenRun(() -> {
                 // Log activity with customer_account_id
                 getActivityRepository().logActivity(
@@ -159,7 +158,7 @@ public class CustomerAccountRepository {
                     return null;
                 });
                 
-                Log.d(TAG, "Customer account updated successfully");
+                LogHelper.d(TAG, "Customer account updated successfully");
             });
     }
     
@@ -169,10 +168,12 @@ public class CustomerAccountRepository {
     public CompletableFuture<Void> updateBackupReference(long customerAccountId, long accountId) {
         Map<String, Object> updates = new HashMap<>();
         updates.put("backupAccountId", accountId);
-        updates.put("backupCreatedAt", getCurrentTimestamp());
-        updates.put("updatedAt", getCurrentTimestamp());
+        long now = TimestampHelper.now();
+        updates.put("backupCreatedAt", TimestampHelper.formatIso(now));
+        updates.put("backupCreatedAtTimestamp", now);
+        putUpdatedAt(updates, now);
         
-        return firebase.updateFields(COLLECTION, String.valueOf(customerAccountId), updates);
+        return store.updateFields(COLLECTION, String.valueOf(customerAccountId), updates);
     }
 
     // ==================== DELETE ====================
@@ -181,10 +182,10 @@ public class CustomerAccountRepository {
      * Delete customer account with activity logging
      */
     public CompletableFuture<Void> deleteCustomerAccount(long id) {
-        Log.d(TAG, "Deleting customer account: " + id);
+        LogHelper.d(TAG, () -> "Deleting customer account: " + id);
         
         // Get account info before deleting for activity log
-        return firebase.getById(COLLECTION, String.valueOf(id), CustomerAccount.class)
+        return store.getById(COLLECTION, String.valueOf(id), CustomerAccount.class)
             .thenCompose(account -> {
                 if (account != null) {
                     // Log activity before deletion with customer_account_id
@@ -200,9 +201,89 @@ public class CustomerAccountRepository {
                     });
                 }
                 
-                return firebase.delete(COLLECTION, String.valueOf(id));
+                return store.delete(COLLECTION, String.valueOf(id));
             })
-            .thenRun(() -> Log.d(TAG, "Customer account deleted successfully"));
+            .thenRun(() -> LogHelper.d(TAG, "Customer account deleted successfully"));
+    }
+
+    // ==================== MIGRATION ====================
+    
+    /**
+     * Re-encrypt passwords still stored in the legacy CBC format or with the
+     * device-bound Keystore key into the current AES-GCM envelope, which every
+     * device can read. Runs off the caller's thread in batches: each batch is
+     * encrypted in the background, then every password is written with
+     * compareAndSet against the ciphertext that was read - a password changed
+     * (or already migrated by another device) in between is left alone.
+     * Accounts whose password cannot be decrypted are skipped and logged.
+     * 
+     * @param batchSize Accounts per batch
+     * @return Number of migrated accounts
+     */
+    public CompletableFuture<Integer> reencryptLegacyPasswords(int batchSize) {
+        return store.getAll(COLLECTION, CustomerAccount.class)
+            .thenCompose(accounts -> {
+                List<CustomerAccount> legacy = accounts.stream()
+                    .filter(account -> EncryptionHelper.isLegacy(account.getCredentialsPassword()))
+                    .collect(Collectors.toList());
+                if (legacy.isEmpty()) {
+                    return CompletableFuture.completedFuture(0);
+                }
+                LogHelper.d(TAG, () -> "Re-encrypting " + legacy.size() + " legacy passwords");
+                
+                CompletableFuture<Integer> chain = CompletableFuture.completedFuture(0);
+                for (int start = 0; start < legacy.size(); start += batchSize) {
+                    List<CustomerAccount> batch = legacy.subList(start, Math.min(start + batchSize, legacy.size()));
+                    chain = chain.thenCompose(done -> CompletableFuture
+                        .supplyAsync(() -> buildReencryptionUpdates(batch), AppExecutors.cpu())
+                        .thenCompose(updates -> writeReencrypted(updates).thenApply(written -> done + written)));
+                }
+                return chain;
+            })
+            .thenApply(migrated -> {
+                if (migrated > 0) {
+                    LogHelper.d(TAG, () -> "Re-encrypted " + migrated + " passwords");
+                }
+                return migrated;
+            });
+    }
+    
+    /**
+     * "customer_accounts/{id}/credentialsPassword" -> {legacy ciphertext, new envelope} for one batch
+     */
+    private Map<String, String[]> buildReencryptionUpdates(List<CustomerAccount> batch) {
+        Map<String, String[]> updates = new HashMap<>();
+        for (CustomerAccount account : batch) {
+            try {
+                String legacy = account.getCredentialsPassword();
+                updates.put(COLLECTION + "/" + account.getId() + "/credentialsPassword",
+                    new String[] {legacy, EncryptionHelper.reencrypt(legacy)});
+            } catch (RuntimeException e) {
+                Log.w(TAG, "Skipping password of customer account " + account.getId(), e);
+            }
+        }
+        return updates;
+    }
+    
+    /**
+     * One conditional write per password - a password changed since the read is kept
+     *
+     * @return number of passwords actually replaced
+     */
+    private CompletableFuture<Integer> writeReencrypted(Map<String, String[]> updates) {
+        List<CompletableFuture<Boolean>> writes = new ArrayList<>();
+        for (Map.Entry<String, String[]> update : updates.entrySet()) {
+            String path = update.getKey();
+            writes.add(store.compareAndSet(path, update.getValue()[0], update.getValue()[1])
+                .thenApply(written -> {
+                    if (!written) {
+                        LogHelper.d(TAG, () -> "Password at " + path + " changed meanwhile, skipped");
+                    }
+                    return written;
+                }));
+        }
+        return CompletableFuture.allOf(writes.toArray(new CompletableFuture[0]))
+            .thenApply(v -> (int) writes.stream().filter(CompletableFuture::join).count());
     }
 
     // ==================== HELPER ====================
@@ -242,13 +323,13 @@ public class CustomerAccountRepository {
             }
             if (account.getBackupCreatedAt() != null) {
                 updates.put("backupCreatedAt", account.getBackupCreatedAt());
+                updates.put("backupCreatedAtTimestamp", account.getBackupCreatedAtTimestamp());
             }
             if (account.getCredentialsUsername() != null) {
                 updates.put("credentialsUsername", account.getCredentialsUsername());
             }
-            if (account.getCredentialsPassword() != null && !account.getCredentialsPassword().isEmpty()) {
-                String encrypted = EncryptionHelper.encrypt(account.getCredentialsPassword());
-                updates.put("credentialsPassword", encrypted);
+            if (account.hasCredentialsPassword()) {
+                updates.put("credentialsPassword", account.getCredentialsPassword());
             }
         }
         
@@ -256,19 +337,17 @@ public class CustomerAccountRepository {
     }
     
     /**
-     * Helper method for current timestamp in ISO 8601 format
-     * Uses system default locale for consistency with CustomerRepository
-     * Creates a new SimpleDateFormat instance for thread safety
+     * Stamp updatedAt as ISO text and epoch millis into an update map
      */
-    private String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        return sdf.format(new Date());
+    private void putUpdatedAt(Map<String, Object> updates, long now) {
+        updates.put("updatedAt", TimestampHelper.formatIso(now));
+        updates.put("updatedAtTimestamp", now);
     }
     
     /**
      * Check if Firebase is configured
      */
     public boolean isFirebaseConfigured() {
-        return firebase.isConfigured();
+        return store.isConfigured();
     }
 }
@@ -1,11 +1,18 @@
 package de.babixgo.monopolygo.database;
 
 import android.util.Log;
+import de.babixgo.monopolygo.LogHelper;
+import de.babixgo.monopolygo.models.CustomerAccount;
 import de.babixgo.monopolygo.models.CustomerActivity;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.concurrent.CompletableFuture;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.Comparator;
@@ -13,36 +20,73 @@ import java.util.Comparator;
 /**
  * Repository for managing CustomerActivity data in Firebase Realtime Database
  * Provides async operations for activity tracking and audit trail
+ * 
+ * Activities are bucketed per customer and month so that reading one customer's
+ * history never downloads the global log. The old flat collection is migrated lazily.
  */
 public class CustomerActivityRepository {
     private static final String TAG = "CustomerActivityRepository";
-    private final FirebaseManager firebase;
+    private final DataStore store;
+    private final MutationJournal journal;
+    
+    // Legacy flat layout - only read by the migration
     private static final String COLLECTION = "customer_activities";
     
+    // Bucketed layout: customer_activity_log/{customerId}/{yyyy-MM}/{entryKey}
+    private static final String LOG_COLLECTION = "customer_activity_log";
+    private static final String CUSTOMER_ACCOUNTS_COLLECTION = "customer_accounts";
+    private static final int DEFAULT_HISTORY_MONTHS = 12;
+    private static final int MIGRATION_BATCH_PATHS = 500;
+    
+    private static final SecureRandom RANDOM = new SecureRandom();
+    // One migration run per store and process
+    private static final Map<DataStore, CompletableFuture<Void>> MIGRATIONS = new WeakHashMap<>();
+    
     public CustomerActivityRepository() {
-        this.firebase = FirebaseManager.getInstance();
+        this(FirebaseManager.getInstance(), MutationJournal.getInstance());
+    }
+    
+    /**
+     * Repository on any DataStore (e.g. InMemoryDataStore for JVM tests and benchmarks)
+     */
+    public CustomerActivityRepository(DataStore store) {
+        this(store, new MutationJournal(store));
+    }
+    
+    public CustomerActivityRepository(DataStore store, MutationJournal journal) {
+        this.store = store;
+        this.journal = journal;
     }
     
     /**
      * Log a new customer activity
+     * Stored in the customer's month bucket under a time-sortable key
      */
     public CompletableFuture<CustomerActivity> logActivity(CustomerActivity activity) {
-        if (!firebase.isConfigured()) {
+        if (!store.isConfigured()) {
             Log.w(TAG, "Firebase not configured, skipping activity log");
             return CompletableFuture.completedFuture(activity);
         }
         
         // Set created_at if not already set
         if (activity.getCreatedAt() == null) {
-            activity.setCreatedAt(getCurrentTimestamp());
+            long now = TimestampHelper.now();
+            activity.setCreatedAt(TimestampHelper.formatIso(now));
+            activity.setCreatedAtTimestamp(now);
         }
         
-        // Generate ID if not set
-        String id = activity.getId() != 0 ? String.valueOf(activity.getId()) : null;
+        // Bucket and entry key from the same timestamp, so explicit or older
+        // created_at values sort into the right place
+        long createdAt = activity.getCreatedAtTimestamp();
+        if (createdAt <= 0) {
+            createdAt = TimestampHelper.now();
+        }
+        String bucketPath = getBucketPath(activity.getCustomerId(), getMonthKey(createdAt));
         
-        return firebase.save(COLLECTION, activity, id)
+        // Offline landet der Eintrag im MutationJournal statt verworfen zu werden
+        return journal.save(bucketPath, newEntryKey(createdAt), activity, 0)
             .thenApply(created -> {
-                Log.d(TAG, "Activity logged: " + activity.getActivityType() + " for customer " + activity.getCustomerId());
+                LogHelper.d(TAG, () -> "Activity logged: " + activity.getActivityType() + " for customer " + activity.getCustomerId());
                 return created;
             });
     }
@@ -69,97 +113,89 @@ public class CustomerActivityRepository {
     
     /**
      * Get all activities for a specific customer (ordered by most recent)
+     * Reads only the newest DEFAULT_HISTORY_MONTHS buckets of this customer
      */
     public CompletableFuture<List<CustomerActivity>> getActivitiesByCustomerId(long customerId) {
-        return firebase.getAll(COLLECTION, CustomerActivity.class)
+        return getActivitiesByCustomerId(customerId, DEFAULT_HISTORY_MONTHS);
+    }
+    
+    /**
+     * Get activities for a specific customer from the newest N month buckets
+     * Bucket and entry keys sort by time, so no client-side sorting is needed
+     */
+    public CompletableFuture<List<CustomerActivity>> getActivitiesByCustomerId(long customerId, int months) {
+        return ensureMigrated()
+            .thenCompose(v -> store.getLatestBuckets(getCustomerPath(customerId), months, CustomerActivity.class))
             .thenApply(activities -> {
-                Log.d(TAG, "Loading activities for customer: " + customerId);
-                
-                // Filter by customer_id and sort by created_at desc client-side
-                List<CustomerActivity> filtered = activities.stream()
-                    .filter(activity -> activity.getCustomerId() == customerId)
-                    .sorted(Comparator.comparing(CustomerActivity::getCreatedAt, 
-                        Comparator.nullsLast(Comparator.reverseOrder())))
-                    .collect(Collectors.toList());
-                
-                Log.d(TAG, "Loaded " + filtered.size() + " activities");
-                return filtered;
+                // Entries logged offline are still in the journal - they are the newest
+                activities.addAll(journal.pendingSaves(getCustomerPath(customerId), CustomerActivity.class));
+                // Firebase delivers ascending key order - newest first for the UI
+                Collections.reverse(activities);
+                LogHelper.d(TAG, () -> "Loaded " + activities.size() + " activities for customer: " + customerId);
+                return activities;
             });
     }
     
     /**
      * Get activities for a specific customer account
+     * Resolves the owning customer first, then reads only that customer's buckets
      */
     public CompletableFuture<List<CustomerActivity>> getActivitiesByCustomerAccountId(long customerAccountId) {
-        return firebase.getAll(COLLECTION, CustomerActivity.class)
-            .thenApply(activities -> {
-                Log.d(TAG, "Loading activities for customer account: " + customerAccountId);
-                
-                // Filter by customer_account_id and sort by created_at desc client-side
-                List<CustomerActivity> filtered = activities.stream()
-                    .filter(activity -> activity.getCustomerAccountId() != null && 
-                                       activity.getCustomerAccountId() == customerAccountId)
-                    .sorted(Comparator.comparing(CustomerActivity::getCreatedAt, 
-                        Comparator.nullsLast(Comparator.reverseOrder())))
-                    .collect(Collectors.toList());
-                
-                Log.d(TAG, "Loaded " + filtered.size() + " activities");
-                return filtered;
+        return store.getById(CUSTOMER_ACCOUNTS_COLLECTION, String.valueOf(customerAccountId), CustomerAccount.class)
+            .thenCompose(account -> {
+                if (account == null) {
+                    Log.w(TAG, "Customer account not found: " + customerAccountId);
+                    return CompletableFuture.completedFuture(new ArrayList<CustomerActivity>());
+                }
+                return getActivitiesByCustomerAccountId(account.getCustomerId(), customerAccountId);
             });
     }
     
+    /**
+     * Get activities for a specific customer account of a known customer
+     */
+    public CompletableFuture<List<CustomerActivity>> getActivitiesByCustomerAccountId(long customerId, long customerAccountId) {
+        return getActivitiesByCustomerId(customerId)
+            .thenApply(activities -> activities.stream()
+                .filter(activity -> activity.getCustomerAccountId() != null && 
+                                   activity.getCustomerAccountId() == customerAccountId)
+                .collect(Collectors.toList()));
+    }
+    
     /**
      * Get activities by type for a customer
      */
     public CompletableFuture<List<CustomerActivity>> getActivitiesByType(long customerId, String activityType) {
-        return firebase.getAll(COLLECTION, CustomerActivity.class)
-            .thenApply(activities -> {
-                Log.d(TAG, "Loading activities of type " + activityType + " for customer: " + customerId);
-                
-                // Filter by customer_id and activity_type, then sort by created_at desc client-side
-                List<CustomerActivity> filtered = activities.stream()
-                    .filter(activity -> activity.getCustomerId() == customerId && 
-                                       activityType.equals(activity.getActivityType()))
-                    .sorted(Comparator.comparing(CustomerActivity::getCreatedAt, 
-                        Comparator.nullsLast(Comparator.reverseOrder())))
-                    .collect(Collectors.toList());
-                
-                return filtered;
-            });
+        return getActivitiesByCustomerId(customerId)
+            .thenApply(activities -> activities.stream()
+                .filter(activity -> activityType.equals(activity.getActivityType()))
+                .collect(Collectors.toList()));
     }
     
     /**
      * Get activities by category for a customer
      */
     public CompletableFuture<List<CustomerActivity>> getActivitiesByCategory(long customerId, String activityCategory) {
-        return firebase.getAll(COLLECTION, CustomerActivity.class)
-            .thenApply(activities -> {
-                Log.d(TAG, "Loading activities of category " + activityCategory + " for customer: " + customerId);
-                
-                // Filter by customer_id and activity_category, then sort by created_at desc client-side
-                List<CustomerActivity> filtered = activities.stream()
-                    .filter(activity -> activity.getCustomerId() == customerId && 
-                                       activityCategory.equals(activity.getActivityCategory()))
-                    .sorted(Comparator.comparing(CustomerActivity::getCreatedAt, 
-                        Comparator.nullsLast(Comparator.reverseOrder())))
-                    .collect(Collectors.toList());
-                
-                return filtered;
-            });
+        return getActivitiesByCustomerId(customerId)
+            .thenApply(activities -> activities.stream()
+                .filter(activity -> activityCategory.equals(activity.getActivityCategory()))
+                .collect(Collectors.toList()));
     }
     
     /**
      * Get recent activities across all customers (limit to last N)
+     * Global view - this is the only query that reads every customer's log
      */
     public CompletableFuture<List<CustomerActivity>> getRecentActivities(int limit) {
-        return firebase.getAll(COLLECTION, CustomerActivity.class)
+        return ensureMigrated()
+            .thenCompose(v -> store.getAllNested(LOG_COLLECTION, 3, CustomerActivity.class))
             .thenApply(activities -> {
-                Log.d(TAG, "Loading recent activities (limit: " + limit + ")");
+                LogHelper.d(TAG, () -> "Loading recent activities (limit: " + limit + ")");
+                activities.addAll(journal.pendingSaves(LOG_COLLECTION, CustomerActivity.class));
                 
-                // Sort by created_at desc and limit client-side
+                // Sort by created_at desc and limit client-side (entries span several customers)
                 List<CustomerActivity> sorted = activities.stream()
-                    .sorted(Comparator.comparing(CustomerActivity::getCreatedAt, 
-                        Comparator.nullsLast(Comparator.reverseOrder())))
+                    .sorted(Comparator.comparingLong(CustomerActivity::getCreatedAtTimestamp).reversed())
                     .limit(limit)
                     .collect(Collectors.toList());
                 
@@ -169,24 +205,86 @@ public class CustomerActivityRepository {
     
     /**
      * Delete all activities for a customer
-     * Usually not needed as Firebase handles cascades differently
+     * Removes the customer's whole bucket tree in one operation
+     * Runs after the migration, which would otherwise re-create flat entries of this customer
      */
     public CompletableFuture<Void> deleteActivitiesByCustomerId(long customerId) {
-        return firebase.getAll(COLLECTION, CustomerActivity.class)
-            .thenCompose(activities -> {
-                Log.d(TAG, "Deleting all activities for customer: " + customerId);
+        LogHelper.d(TAG, () -> "Deleting all activities for customer: " + customerId);
+        return ensureMigrated()
+            .thenCompose(v -> store.delete(LOG_COLLECTION, String.valueOf(customerId)));
+    }
+    
+    // ==================== MIGRATION ====================
+    
+    /**
+     * Run the flat-layout migration once per process and store
+     * After the first successful run the flat collection is empty and the check is a trivial read
+     */
+    private static synchronized CompletableFuture<Void> runMigrationOnce(CustomerActivityRepository repository) {
+        CompletableFuture<Void> migration = MIGRATIONS.get(repository.store);
+        if (migration == null || migration.isCompletedExceptionally()) {
+            migration = repository.migrateFlatLayout()
+                .thenAccept(count -> {
+                    if (count > 0) {
+                        LogHelper.d(TAG, () -> "Migrated " + count + " activities to bucketed layout");
+                    }
+                });
+            MIGRATIONS.put(repository.store, migration);
+        }
+        return migration;
+    }
+    
+    private CompletableFuture<Void> ensureMigrated() {
+        if (!store.isConfigured()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return runMigrationOnce(this)
+            .exceptionally(e -> {
+                // Reading must keep working even if the migration failed - retried on next call
+                Log.e(TAG, "Activity migration failed", e);
+                return null;
+            });
+    }
+    
+    /**
+     * Move all entries of the flat customer_activities collection into the bucketed layout
+     * Each batch copies the entries and deletes the flat originals in one atomic multi-path update
+     *
+     * @return CompletableFuture with number of migrated activities
+     */
+    public CompletableFuture<Integer> migrateFlatLayout() {
+        return store.getAllKeyed(COLLECTION, CustomerActivity.class)
+            .thenCompose(flat -> {
+                if (flat.isEmpty()) {
+                    return CompletableFuture.completedFuture(0);
+                }
                 
-                // Filter activities for this customer
-                List<CustomerActivity> toDelete = activities.stream()
-                    .filter(activity -> activity.getCustomerId() == customerId)
-                    .collect(Collectors.toList());
+                LogHelper.d(TAG, () -> "Migrating " + flat.size() + " flat activities");
                 
-                // Delete each activity
-                List<CompletableFuture<Void>> deleteFutures = toDelete.stream()
-                    .map(activity -> firebase.delete(COLLECTION, String.valueOf(activity.getId())))
-                    .collect(Collectors.toList());
+                List<CompletableFuture<Void>> batches = new ArrayList<>();
+                Map<String, Object> batch = new HashMap<>();
                 
-                return CompletableFuture.allOf(deleteFutures.toArray(new CompletableFuture[0]));
+                for (Map.Entry<String, CustomerActivity> entry : flat.entrySet()) {
+                    CustomerActivity activity = entry.getValue();
+                    long createdAt = activity.getCreatedAtTimestamp();
+                    String bucketPath = getBucketPath(activity.getCustomerId(), getMonthKey(createdAt));
+                    
+                    // Old key as suffix keeps the migration idempotent if a batch is retried
+                    batch.put(bucketPath + "/" + formatEntryKey(createdAt, entry.getKey()), activity);
+                    batch.put(COLLECTION + "/" + entry.getKey(), null);
+                    
+                    if (batch.size() >= MIGRATION_BATCH_PATHS) {
+                        batches.add(store.updatePaths(batch));
+                        batch = new HashMap<>();
+                    }
+                }
+                
+                if (!batch.isEmpty()) {
+                    batches.add(store.updatePaths(batch));
+                }
+                
+                return CompletableFuture.allOf(batches.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> flat.size());
             });
     }
     
@@ -194,15 +292,41 @@ public class CustomerActivityRepository {
      * Check if Firebase is configured
      */
     public boolean isFirebaseConfigured() {
-        return firebase.isConfigured();
+        return store.isConfigured();
     }
     
     /**
-     * Helper method for current timestamp in ISO 8601 format
-     * Creates a new SimpleDateFormat instance for thread safety
+     * Path of one customer's bucket tree
      */
-    private String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        return sdf.format(new Date());
+    private static String getCustomerPath(long customerId) {
+        return LOG_COLLECTION + "/" + customerId;
     }
+    
+    /**
+     * Path of one month bucket of a customer
+     */
+    private static String getBucketPath(long customerId, String monthKey) {
+        return getCustomerPath(customerId) + "/" + monthKey;
+    }
+    
+    /**
+     * Month bucket key "yyyy-MM" - sorts lexicographically by time
+     * Taken from the created_at timestamp, current month as fallback
+     */
+    private static String getMonthKey(long createdAt) {
+        return (createdAt > 0 ? TimestampHelper.formatIso(createdAt) : TimestampHelper.nowIso()).substring(0, 7);
+    }
+    
+    /**
+     * New entry key: zero-padded epoch millis plus random suffix
+     * Fixed width keeps lexicographic order equal to time order
+     */
+    private static String newEntryKey(long epochMillis) {
+        return formatEntryKey(epochMillis, Long.toHexString(RANDOM.nextLong() & 0xFFFFFFFFFFFFL));
+    }
+    
+    private static String formatEntryKey(long epochMillis, String suffix) {
+        return String.format(Locale.US, "%013d_%s", epochMillis, suffix);
+    }
+    
 }
@@ -2,12 +2,10 @@ package de.babixgo.monopolygo.database;
 
 import android.util.Log;
 import de.babixgo.monopolygo.models.Customer;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 import java.util.stream.Collectors;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,23 +16,32 @@ import java.util.Map;
  */
 public class CustomerRepository {
     private static final String TAG = "CustomerRepository";
-    private final FirebaseManager firebase;
+    private final DataStore store;
     private final CustomerAccountRepository accountRepository;
     private final CustomerActivityRepository activityRepository;
     private static final String COLLECTION = "customers";
     
     public CustomerRepository() {
-        this.firebase = FirebaseManager.getInstance();
+        this.store = FirebaseManager.getInstance();
         this.accountRepository = new CustomerAccountRepository();
         this.activityRepository = new CustomerActivityRepository();
     }
     
+    /**
+     * Repository on any DataStore (e.g. InMemoryDataStore for JVM tests and benchmarks)
+     */
+    public CustomerRepository(DataStore store) {
+        this.store = store;
+        this.accountRepository = new CustomerAccountRepository(store);
+        this.activityRepository = new CustomerActivityRepository(store);
+    }
+    
     /**
      * Get all customers ordered by name
      * @param loadAccounts If true, loads accounts for each customer
      */
     public CompletableFuture<List<Customer>> getAllCustomers(boolean loadAccounts) {
-        return firebase.getAll(COLLECTION, Customer.class)
+        return store.getAll(COLLECTION, Customer.class)
             .thenCompose(customers -> {
                 // Sort by name client-side
                 List<Customer> sortedCustomers = customers.stream()
@@ -88,7 +95,7 @@ public class CustomerRepository {
      * @param loadAccounts If true, loads accounts for the customer
      */
     public CompletableFuture<Customer> getCustomerById(long id, boolean loadAccounts) {
-        return firebase.getById(COLLECTION, String.valueOf(id), Customer.class)
+        return store.getById(COLLECTION, String.valueOf(id), Customer.class)
             .thenCompose(customer -> {
                 if (loadAccounts && customer != null) {
                     return accountRepository.getAccountsByCustomerId(customer.getId())
@@ -118,21 +125,23 @@ public class CustomerRepository {
      * Create new customer with activity logging
      */
     public CompletableFuture<Customer> createCustomer(Customer customer) {
-        if (!firebase.isConfigured()) {
+        if (!store.isConfigured()) {
             return CompletableFuture.failedFuture(
                 new RuntimeException("Firebase ist nicht konfiguriert.")
             );
         }
         
         // Set timestamps
-        String now = getCurrentTimestamp();
-        customer.setCreatedAt(now);
-        customer.setUpdatedAt(now);
+        long now = TimestampHelper.now();
+        customer.setCreatedAt(TimestampHelper.formatIso(now));
+        customer.setCreatedAtTimestamp(now);
+        customer.setUpdatedAt(TimestampHelper.formatIso(now));
+        customer.setUpdatedAtTimestamp(now);
         
         // Generate ID if not set
         String id = customer.getId() != 0 ? String.valueOf(customer.getId()) : null;
         
-        return firebase.save(COLLECTION, customer, id)
+        return store.save(COLLECTION, customer, id)
             .thenCompose(created -> {
                 // Log activity
                 return activityRepository.logActivity(
@@ -153,9 +162,11 @@ public class CustomerRepository {
      */
     public CompletableFuture<Customer> updateCustomer(Customer customer) {
         // Set updated timestamp
-        customer.setUpdatedAt(getCurrentTimestamp());
+        long now = TimestampHelper.now();
+        customer.setUpdatedAt(TimestampHelper.formatIso(now));
+        customer.setUpdatedAtTimestamp(now);
         
-        return firebase.save(COLLECTION, customer, String.valueOf(customer.getId()))
+        return store.save(COLLECTION, customer, String.valueOf(customer.getId()))
             .thenCompose(updated -> {
                 // Log activity
                 return activityRepository.logActivity(
@@ -176,7 +187,7 @@ public class CustomerRepository {
      * Note: Associated customer_accounts will also be deleted by Firebase cascading rules
      */
     public CompletableFuture<Void> deleteCustomer(long id) {
-        return firebase.getById(COLLECTION, String.valueOf(id), Customer.class)
+        return store.getById(COLLECTION, String.valueOf(id), Customer.class)
             .thenCompose(customer -> {
                 String customerName = customer != null ? customer.getName() : "Unbekannt";
                 
@@ -189,7 +200,7 @@ public class CustomerRepository {
                 ).exceptionally(e -> {
                     Log.e(TAG, "Failed to log customer deletion activity", (Throwable) e);
                     return null;
-                }).thenCompose(v -> firebase.delete(COLLECTION, String.valueOf(id)));
+                }).thenCompose(v -> store.delete(COLLECTION, String.valueOf(id)));
             });
     }
     
@@ -197,15 +208,7 @@ public class CustomerRepository {
      * Check if Firebase is configured
      */
     public boolean isFirebaseConfigured() {
-        return firebase.isConfigured();
+        return store.isConfigured();
     }
     
-    /**
-     * Helper method for current timestamp in ISO 8601 format
-     * Creates a new SimpleDateFormat instance for thread safety
-     */
-    private String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        return sdf.format(new Date());
-    }
 }
@@ -0,0 +1,206 @@
+package de.babixgo.monopolygo.database;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Storage backend used by all repositories
+ *
+ * Data is a tree of collections addressed by "/"-separated paths (e.g. "accounts/12"),
+ * objects are mapped through their public getters/setters like Firebase does.
+ *
+ * Implementierungen:
+ * - FirebaseManager: Firebase Realtime Database (App)
+ * - InMemoryDataStore: concurrent in-process tree (JVM tests, benchmarks)
+ * - FileDataStore: InMemoryDataStore persisted to a JSON file
+ */
+public interface DataStore {
+
+    /**
+     * False if the backend cannot be used at all (e.g. Firebase not initialized)
+     */
+    boolean isConfigured();
+
+    // ==================== Read ====================
+
+    /**
+     * Get all items from collection
+     */
+    <T> CompletableFuture<List<T>> getAll(String collection, Class<T> clazz);
+
+    /**
+     * Get all items from collection together with their keys (in key order)
+     */
+    <T> CompletableFuture<Map<String, T>> getAllKeyed(String collection, Class<T> clazz);
+
+    /**
+     * Get up to limit items with keys after afterKey (null = from the start), in key order
+     * Used to stream large collections page by page
+     */
+    <T> CompletableFuture<Map<String, T>> getPage(String collection, String afterKey, int limit, Class<T> clazz);
+
+    /**
+     * Get items with query/filter
+     */
+    <T> CompletableFuture<List<T>> query(String collection, Class<T> clazz, QueryBuilder queryBuilder);
+
+    /**
+     * Query with simple orderBy
+     */
+    <T> CompletableFuture<List<T>> query(String collection, String orderBy, Class<T> clazz);
+
+    /**
+     * Get single object by ID (null if not found)
+     */
+    <T> CompletableFuture<T> getById(String collection, String id, Class<T> clazz);
+
+    /**
+     * Get first object whose field equals value (null if not found)
+     */
+    <T> CompletableFuture<T> getByField(String collection, String field, Object value, Class<T> clazz);
+
+    /**
+     * Read a single value at an arbitrary path (null if the path does not exist)
+     */
+    <T> CompletableFuture<T> getValue(String path, Class<T> clazz);
+
+    /**
+     * Read the newest bucketCount buckets below collection and flatten their entries
+     * Layout: collection/{bucketKey}/{entryKey}
+     */
+    <T> CompletableFuture<List<T>> getLatestBuckets(String collection, int bucketCount, Class<T> clazz);
+
+    /**
+     * Flatten all entries depth key levels below collection
+     */
+    <T> CompletableFuture<List<T>> getAllNested(String collection, int depth, Class<T> clazz);
+
+    // ==================== Write ====================
+
+    /**
+     * Save or replace object at collection/id (null id = new key)
+     */
+    <T> CompletableFuture<T> save(String collection, T object, String id);
+
+    /**
+     * Update specific fields of collection/id, null values delete the field
+     */
+    CompletableFuture<Void> updateFields(String collection, String id, Map<String, Object> updates);
+
+    /**
+     * Atomic multi-path update relative to the root, null values delete the path
+     */
+    CompletableFuture<Void> updatePaths(Map<String, Object> updates);
+
+    /**
+     * Write a leaf value to path only if it still holds expected (Firebase: transaction)
+     *
+     * @return true if written, false if the stored value had changed
+     */
+    CompletableFuture<Boolean> compareAndSet(String path, Object expected, Object value);
+
+    /**
+     * Delete collection/id
+     */
+    CompletableFuture<Void> delete(String collection, String id);
+
+    /**
+     * Generate a new, time-ordered key for collection without writing anything
+     */
+    String newKey(String collection);
+
+    // ==================== Listeners ====================
+
+    /**
+     * Listen to all items of collection - called once immediately and after every change
+     */
+    <T> void addRealtimeListener(String collection, Class<T> clazz, RealtimeListener<T> listener);
+
+    /**
+     * Listen to single items of collection - onChildAdded for every existing item,
+     * then onInitialDataLoaded, then one call per added, changed or removed item
+     */
+    <T> void addChildListener(String collection, Class<T> clazz, ChildListener<T> listener);
+
+    /**
+     * Listen to the backend connection state
+     */
+    void addConnectionListener(ConnectionListener listener);
+
+    /**
+     * Interface for realtime data updates
+     */
+    interface RealtimeListener<T> {
+        void onDataChanged(List<T> items);
+        void onError(Exception e);
+    }
+
+    /**
+     * Interface for per-item deltas (keys are the child keys below the collection)
+     */
+    interface ChildListener<T> {
+        void onChildAdded(String key, T item);
+        void onChildChanged(String key, T item);
+        void onChildRemoved(String key);
+        void onInitialDataLoaded();
+        void onError(Exception e);
+    }
+
+    /**
+     * Interface for backend connection changes
+     */
+    interface ConnectionListener {
+        void onConnectionChanged(boolean connected);
+    }
+
+    /**
+     * Backend-independent query description
+     * FirebaseManager translates it into a Firebase Query, InMemoryDataStore evaluates it directly
+     */
+    class QueryBuilder {
+        private String orderByField;
+        private Object equalToValue;
+        private Object startAtValue;
+        private Object endAtValue;
+        private Integer limitFirst;
+        private Integer limitLast;
+
+        public QueryBuilder orderByChild(String field) {
+            this.orderByField = field;
+            return this;
+        }
+
+        public QueryBuilder equalTo(Object value) {
+            this.equalToValue = value;
+            return this;
+        }
+
+        public QueryBuilder startAt(Object value) {
+            this.startAtValue = value;
+            return this;
+        }
+
+        public QueryBuilder endAt(Object value) {
+            this.endAtValue = value;
+            return this;
+        }
+
+        public QueryBuilder limitToFirst(int limit) {
+            this.limitFirst = limit;
+            return this;
+        }
+
+        public QueryBuilder limitToLast(int limit) {
+            this.limitLast = limit;
+            return this;
+        }
+
+        public String getOrderByField() { return orderByField; }
+        public Object getEqualToValue() { return equalToValue; }
+        public Object getStartAtValue() { return startAtValue; }
+        public Object getEndAtValue() { return endAtValue; }
+        public Integer getLimitFirst() { return limitFirst; }
+        public Integer getLimitLast() { return limitLast; }
+    }
+}
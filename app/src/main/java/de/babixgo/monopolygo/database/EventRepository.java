@@ -1,11 +1,10 @@
 package de.babixgo.monopolygo.database;
 
 import de.babixgo.monopolygo.models.Event;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 import java.util.stream.Collectors;
 
 /**
@@ -13,24 +12,27 @@ import java.util.stream.Collectors;
  * Provides async operations using CompletableFuture
  */
 public class EventRepository {
-    private final FirebaseManager firebase;
+    private final DataStore store;
     private static final String COLLECTION = "events";
     
     public EventRepository() {
-        this.firebase = FirebaseManager.getInstance();
+        this(FirebaseManager.getInstance());
+    }
+    
+    /**
+     * Repository on any DataStore (e.g. InMemoryDataStore for JVM tests and benchmarks)
+     */
+    public EventRepository(DataStore store) {
+        this.store = store;
     }
     
     /**
      * Get all events ordered by start date descending
      */
     public CompletableFuture<List<Event>> getAllEvents() {
-        return firebase.getAll(COLLECTION, Event.class)
+        return store.getAll(COLLECTION, Event.class)
             .thenApply(events -> events.stream()
-                .sorted((a, b) -> {
-                    String dateA = a.getStartDate() != null ? a.getStartDate() : "";
-                    String dateB = b.getStartDate() != null ? b.getStartDate() : "";
-                    return dateB.compareTo(dateA); // Descending order
-                })
+                .sorted(Comparator.comparingLong(Event::getStartDateTimestamp).reversed()) // Descending order
                 .collect(Collectors.toList()));
     }
     
@@ -38,56 +40,54 @@ public class EventRepository {
      * Get event by ID
      */
     public CompletableFuture<Event> getEventById(long id) {
-        return firebase.getById(COLLECTION, String.valueOf(id), Event.class);
+        return store.getById(COLLECTION, String.valueOf(id), Event.class);
     }
     
     /**
      * Create new event
      */
     public CompletableFuture<Event> createEvent(Event event) {
-        if (!firebase.isConfigured()) {
+        if (!store.isConfigured()) {
             return CompletableFuture.failedFuture(
                 new RuntimeException("Firebase ist nicht konfiguriert.")
             );
         }
         
-        String now = getCurrentTimestamp();
-        event.setCreatedAt(now);
-        event.setUpdatedAt(now);
+        long now = TimestampHelper.now();
+        event.setCreatedAt(TimestampHelper.formatIso(now));
+        event.setCreatedAtTimestamp(now);
+        event.setUpdatedAt(TimestampHelper.formatIso(now));
+        event.setUpdatedAtTimestamp(now);
+        event.setStartDateTimestamp(TimestampHelper.toEpochMillis(event.getStartDate()));
         
         String id = event.getId() != 0 ? String.valueOf(event.getId()) : null;
         
-        return firebase.save(COLLECTION, event, id);
+        return store.save(COLLECTION, event, id);
     }
     
     /**
      * Update event
      */
     public CompletableFuture<Event> updateEvent(Event event) {
-        event.setUpdatedAt(getCurrentTimestamp());
+        long now = TimestampHelper.now();
+        event.setUpdatedAt(TimestampHelper.formatIso(now));
+        event.setUpdatedAtTimestamp(now);
+        event.setStartDateTimestamp(TimestampHelper.toEpochMillis(event.getStartDate()));
         
-        return firebase.save(COLLECTION, event, String.valueOf(event.getId()));
+        return store.save(COLLECTION, event, String.valueOf(event.getId()));
     }
     
     /**
      * Delete event
      */
     public CompletableFuture<Void> deleteEvent(long id) {
-        return firebase.delete(COLLECTION, String.valueOf(id));
-    }
-    
-    /**
-     * Helper method for current timestamp in ISO 8601 format
-     */
-    private String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        return sdf.format(new Date());
+        return store.delete(COLLECTION, String.valueOf(id));
     }
     
     /**
      * Check if Firebase is configured
      */
     public boolean isFirebaseConfigured() {
-        return firebase.isConfigured();
+        return store.isConfigured();
     }
 }
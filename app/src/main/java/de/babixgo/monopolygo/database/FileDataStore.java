@@ -0,0 +1,130 @@
+package de.babixgo.monopolygo.database;
+
+import android.os.Build;
+import android.util.Log;
+import com.google.gson.Gson;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * File-backed local DataStore
+ *
+ * Same semantics as InMemoryDataStore, the tree is loaded from a JSON file on
+ * construction and written back after changes. Writes are coalesced: a burst of
+ * updates produces one file write on a background thread. The file is written as
+ * UTF-8 to a temp file that then atomically replaces it, so a crash leaves the
+ * previous state: Files.move(ATOMIC_MOVE) from API 26, rename(2) before that -
+ * File.renameTo on Android, which replaces the target atomically on Linux.
+ */
+public class FileDataStore extends InMemoryDataStore {
+    private static final String TAG = "FileDataStore";
+
+    private final File file;
+    private final Gson gson = new Gson();
+    private final AtomicBoolean persistPending = new AtomicBoolean(false);
+    private final ExecutorService persistExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "FileDataStore");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * @param file JSON file holding the whole tree (created on first write)
+     * @throws IOException if an existing file cannot be read
+     */
+    @SuppressWarnings("unchecked")
+    public FileDataStore(File file) throws IOException {
+        this.file = file;
+
+        if (file.exists() && file.length() > 0) {
+            try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                Map<String, Object> tree = gson.fromJson(reader, Map.class);
+                if (tree != null) {
+                    loadTree(tree);
+                }
+            } catch (RuntimeException e) {
+                throw new IOException("Corrupt data file " + file.getName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    protected void onChanged(Iterable<String> paths) {
+        // One pending write covers all changes made until it runs
+        if (persistPending.compareAndSet(false, true)) {
+            persistExecutor.execute(() -> {
+                try {
+                    persistNow();
+                } catch (IOException e) {
+                    // The next change or flush() writes the whole tree again
+                    Log.e(TAG, "Background write failed", e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Block until all changes made so far are on disk
+     *
+     * @throws IOException if the file could not be written or replaced
+     */
+    public void flush() throws IOException {
+        Future<?> done = persistExecutor.submit(() -> {
+            persistNow();
+            return null;
+        });
+        try {
+            done.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof IOException
+                ? (IOException) cause
+                : new IOException("Flush failed: " + cause.getMessage(), cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Flush interrupted", e);
+        }
+    }
+
+    private void persistNow() throws IOException {
+        persistPending.set(false);
+        Map<String, Object> tree = snapshotTree();
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Cannot create " + parent);
+        }
+
+        File tmp = new File(file.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp, false), StandardCharsets.UTF_8)) {
+            gson.toJson(tree, writer);
+        }
+        replaceAtomically(tmp);
+    }
+
+    /**
+     * Move the temp file over the data file - never a window without a data file
+     */
+    private void replaceAtomically(File tmp) throws IOException {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } else if (!tmp.renameTo(file)) {
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+}
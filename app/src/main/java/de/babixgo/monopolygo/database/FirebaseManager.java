@@ -1,25 +1,36 @@
 package de.babixgo.monopolygo.database;
 
 import android.util.Log;
+import com.google.firebase.database.ChildEventListener;
 import com.google.firebase.database.DatabaseReference;
 import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.MutableData;
+import com.google.firebase.database.Transaction;
 import com.google.firebase.database.ValueEventListener;
 import com.google.firebase.database.DataSnapshot;
 import com.google.firebase.database.DatabaseError;
 import com.google.firebase.database.Query;
+import de.babixgo.monopolygo.LogHelper;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.Tracer;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.lang.reflect.Method;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Firebase Realtime Database Manager
  * Ersetzt SupabaseManager.java
  * 
+ * DataStore-Implementierung der App - Repositories können für JVM-Tests
+ * stattdessen InMemoryDataStore/FileDataStore bekommen
+ * 
  * WICHTIG: Singleton Pattern beibehalten für Konsistenz
  */
-public class FirebaseManager {
+public class FirebaseManager implements DataStore {
     private static final String TAG = "FirebaseManager";
     private static FirebaseManager instance;
     
@@ -33,7 +44,7 @@ public class FirebaseManager {
         try {
             database.setPersistenceEnabled(true);
             configured = true;
-            Log.d(TAG, "Firebase initialized with offline persistence");
+            LogHelper.d(TAG, "Firebase initialized with offline persistence");
         } catch (Exception e) {
             Log.e(TAG, "Firebase initialization failed", e);
         }
@@ -46,6 +57,7 @@ public class FirebaseManager {
         return instance;
     }
     
+    @Override
     public boolean isConfigured() {
         return configured;
     }
@@ -60,73 +72,71 @@ public class FirebaseManager {
     
     /**
      * Helper method to set ID on an object from Firebase key
-     * Uses reflection to call setFirebaseKey() and setIdFromString() methods
-     * Falls back to setId(long) for backward compatibility
+     * setFirebaseKey()/setIdFromString() first, setId(long) as fallback -
+     * same rules as the local DataStores (see BeanMapper.applyKey)
      * 
      * @param item Object to set ID on
      * @param key Firebase key to use as ID
      * @param <T> Object type
      */
     private <T> void setIdFromKey(T item, String key) {
-        if (item == null || key == null) {
-            return;
-        }
-        
-        try {
-            // Try setFirebaseKey() method first
-            Method setFirebaseKeyMethod = item.getClass().getMethod("setFirebaseKey", String.class);
-            setFirebaseKeyMethod.invoke(item, key);
-            
-            // Try setIdFromString() for intelligent conversion
-            Method setIdFromStringMethod = item.getClass().getMethod("setIdFromString", String.class);
-            setIdFromStringMethod.invoke(item, key);
-            
-            Log.d(TAG, "Set Firebase key on object: " + key);
-        } catch (NoSuchMethodException e) {
-            // Fallback: Try old setId(long) method with numeric conversion
+        BeanMapper.applyKey(item, key);
+    }
+    
+    /**
+     * Firebase calls back on the main thread - snapshot parsing and every repository
+     * continuation (thenApply/thenCompose) would run there too. Run the completion
+     * on the CPU pool instead; a mapping error fails the future instead of the app.
+     * 
+     * @param future Future completed by body
+     * @param body Parses the snapshot and completes the future
+     */
+    private static void deliver(CompletableFuture<?> future, Runnable body) {
+        AppExecutors.cpu().execute(() -> {
             try {
-                Method setIdMethod = item.getClass().getMethod("setId", long.class);
-                setIdMethod.invoke(item, Long.parseLong(key));
-            } catch (NumberFormatException ex) {
-                Log.w(TAG, "Firebase key is not a valid number, using hashCode: " + key);
-                try {
-                    Method setIdMethod = item.getClass().getMethod("setId", long.class);
-                    setIdMethod.invoke(item, Math.abs(key.hashCode()));
-                } catch (Exception ex2) {
-                    Log.w(TAG, "Failed to set ID from key", ex2);
-                }
-            } catch (Exception ex) {
-                Log.w(TAG, "Failed to set ID on object", ex);
+                body.run();
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Result mapping failed", e);
+                future.completeExceptionally(e);
             }
-        } catch (Exception e) {
-            Log.w(TAG, "Failed to set Firebase key on object", e);
-        }
+        });
+    }
+
+    /**
+     * Fail the future on the CPU pool as well, so success and failure continuations
+     * never run on the main thread (Firebase reports errors there too)
+     */
+    private static void fail(CompletableFuture<?> future, Throwable error) {
+        AppExecutors.cpu().execute(() -> future.completeExceptionally(error));
     }
     
     /**
      * Get all items from collection
      * KOMPATIBEL mit alten Repository-Methoden
      */
+    @Override
     public <T> CompletableFuture<List<T>> getAll(String collection, Class<T> clazz) {
-        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        CompletableFuture<List<T>> future = Tracer.newFuture("firebase.getAll");
         
         getReference(collection).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot snapshot) {
-                List<T> items = new ArrayList<>();
-                for (DataSnapshot child : snapshot.getChildren()) {
-                    T item = child.getValue(clazz);
-                    if (item != null) {
-                        setIdFromKey(item, child.getKey());
-                        items.add(item);
+                deliver(future, () -> {
+                    List<T> items = new ArrayList<>();
+                    for (DataSnapshot child : snapshot.getChildren()) {
+                        T item = child.getValue(clazz);
+                        if (item != null) {
+                            setIdFromKey(item, child.getKey());
+                            items.add(item);
+                        }
                     }
-                }
-                future.complete(items);
+                    future.complete(items);
+                });
             }
             
             @Override
             public void onCancelled(DatabaseError error) {
-                future.completeExceptionally(
+                fail(future,
                     new RuntimeException("Firebase read failed: " + error.getMessage())
                 );
             }
@@ -139,28 +149,31 @@ public class FirebaseManager {
      * Get items with query/filter
      * Supports ordering and filtering
      */
+    @Override
     public <T> CompletableFuture<List<T>> query(String collection, Class<T> clazz, QueryBuilder queryBuilder) {
-        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        CompletableFuture<List<T>> future = Tracer.newFuture("firebase.query");
         
-        Query query = queryBuilder.build(getReference(collection));
+        Query query = buildQuery(getReference(collection), queryBuilder);
         
         query.addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot snapshot) {
-                List<T> items = new ArrayList<>();
-                for (DataSnapshot child : snapshot.getChildren()) {
-                    T item = child.getValue(clazz);
-                    if (item != null) {
-                        setIdFromKey(item, child.getKey());
-                        items.add(item);
+                deliver(future, () -> {
+                    List<T> items = new ArrayList<>();
+                    for (DataSnapshot child : snapshot.getChildren()) {
+                        T item = child.getValue(clazz);
+                        if (item != null) {
+                            setIdFromKey(item, child.getKey());
+                            items.add(item);
+                        }
                     }
-                }
-                future.complete(items);
+                    future.complete(items);
+                });
             }
             
             @Override
             public void onCancelled(DatabaseError error) {
-                future.completeExceptionally(
+                fail(future,
                     new RuntimeException("Firebase query failed: " + error.getMessage())
                 );
             }
@@ -177,8 +190,9 @@ public class FirebaseManager {
      * @param clazz Class type for deserialization
      * @return CompletableFuture with object or null if not found
      */
+    @Override
     public <T> CompletableFuture<T> getById(String collection, String id, Class<T> clazz) {
-        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> future = Tracer.newFuture("firebase.getById");
         
         if (!configured) {
             future.completeExceptionally(
@@ -190,20 +204,22 @@ public class FirebaseManager {
         getReference(collection).child(id).addListenerForSingleValueEvent(new ValueEventListener() {
             @Override
             public void onDataChange(DataSnapshot snapshot) {
-                T item = snapshot.getValue(clazz);
-                if (item != null) {
-                    setIdFromKey(item, snapshot.getKey());
-                    Log.d(TAG, "Found object in " + collection + "/" + id);
-                } else {
-                    Log.d(TAG, "No object found in " + collection + "/" + id);
-                }
-                future.complete(item);
+                deliver(future, () -> {
+                    T item = snapshot.getValue(clazz);
+                    if (item != null) {
+                        setIdFromKey(item, snapshot.getKey());
+                        LogHelper.d(TAG, () -> "Found object in " + collection + "/" + id);
+                    } else {
+                        LogHelper.d(TAG, () -> "No object found in " + collection + "/" + id);
+                    }
+                    future.complete(item);
+                });
             }
             
             @Override
             public void onCancelled(DatabaseError error) {
                 Log.e(TAG, "getById failed: " + error.getMessage());
-                future.completeExceptionally(
+                fail(future,
                     new RuntimeException("Firebase read failed: " + error.getMessage())
                 );
             }
@@ -222,8 +238,9 @@ public class FirebaseManager {
      * @param clazz Class type for deserialization
      * @return CompletableFuture with object or null if not found
      */
+    @Override
     public <T> CompletableFuture<T> getByField(String collection, String field, Object value, Class<T> clazz) {
-        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> future = Tracer.newFuture("firebase.getByField");
         
         if (!configured) {
             future.completeExceptionally(
@@ -250,23 +267,25 @@ public class FirebaseManager {
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot snapshot) {
-                    for (DataSnapshot child : snapshot.getChildren()) {
-                        T item = child.getValue(clazz);
-                        if (item != null) {
-                            setIdFromKey(item, child.getKey());
-                            Log.d(TAG, "Found object by " + field + "=" + value);
+                    deliver(future, () -> {
+                        for (DataSnapshot child : snapshot.getChildren()) {
+                            T item = child.getValue(clazz);
+                            if (item != null) {
+                                setIdFromKey(item, child.getKey());
+                                LogHelper.d(TAG, () -> "Found object by " + field + "=" + value);
+                            }
+                            future.complete(item);
+                            return;
                         }
-                        future.complete(item);
-                        return;
-                    }
-                    Log.d(TAG, "No object found by " + field + "=" + value);
-                    future.complete(null);
+                        LogHelper.d(TAG, () -> "No object found by " + field + "=" + value);
+                        future.complete(null);
+                    });
                 }
                 
                 @Override
                 public void onCancelled(DatabaseError error) {
                     Log.e(TAG, "getByField failed: " + error.getMessage());
-                    future.completeExceptionally(
+                    fail(future,
                         new RuntimeException("Firebase query failed: " + error.getMessage())
                     );
                 }
@@ -284,8 +303,9 @@ public class FirebaseManager {
      * @param id Optional ID (null for auto-generate)
      * @return CompletableFuture with saved object (including generated ID)
      */
+    @Override
     public <T> CompletableFuture<T> save(String collection, T object, String id) {
-        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> future = Tracer.newFuture("firebase.save");
         
         if (!configured) {
             future.completeExceptionally(
@@ -304,15 +324,15 @@ public class FirebaseManager {
                     String generatedId = itemRef.getKey();
                     Method setIdMethod = object.getClass().getMethod("setId", long.class);
                     setIdMethod.invoke(object, Long.parseLong(generatedId));
-                    Log.d(TAG, "Saved object to " + collection + "/" + generatedId);
+                    LogHelper.d(TAG, () -> "Saved object to " + collection + "/" + generatedId);
                 } catch (Exception e) {
                     Log.w(TAG, "Could not set ID on object", e);
                 }
-                future.complete(object);
+                deliver(future, () -> future.complete(object));
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "Save failed: " + e.getMessage());
-                future.completeExceptionally(
+                fail(future,
                     new RuntimeException("Firebase save failed: " + e.getMessage())
                 );
             });
@@ -329,8 +349,9 @@ public class FirebaseManager {
      * @param updates Map of field names to new values
      * @return CompletableFuture that completes when update is done
      */
+    @Override
     public CompletableFuture<Void> updateFields(String collection, String id, Map<String, Object> updates) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> future = Tracer.newFuture("firebase.updateFields");
         
         if (!configured) {
             future.completeExceptionally(
@@ -341,12 +362,12 @@ public class FirebaseManager {
         
         getReference(collection).child(id).updateChildren(updates)
             .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "Updated " + updates.size() + " fields in " + collection + "/" + id);
-                future.complete(null);
+                LogHelper.d(TAG, () -> "Updated " + updates.size() + " fields in " + collection + "/" + id);
+                deliver(future, () -> future.complete(null));
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "updateFields failed: " + e.getMessage());
-                future.completeExceptionally(
+                fail(future,
                     new RuntimeException("Firebase update failed: " + e.getMessage())
                 );
             });
@@ -361,8 +382,9 @@ public class FirebaseManager {
      * @param id Object ID
      * @return CompletableFuture that completes when deletion is done
      */
+    @Override
     public CompletableFuture<Void> delete(String collection, String id) {
-        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> future = Tracer.newFuture("firebase.delete");
         
         if (!configured) {
             future.completeExceptionally(
@@ -373,12 +395,12 @@ public class FirebaseManager {
         
         getReference(collection).child(id).removeValue()
             .addOnSuccessListener(aVoid -> {
-                Log.d(TAG, "Deleted object from " + collection + "/" + id);
-                future.complete(null);
+                LogHelper.d(TAG, () -> "Deleted object from " + collection + "/" + id);
+                deliver(future, () -> future.complete(null));
             })
             .addOnFailureListener(e -> {
                 Log.e(TAG, "delete failed: " + e.getMessage());
-                future.completeExceptionally(
+                fail(future,
                     new RuntimeException("Firebase delete failed: " + e.getMessage())
                 );
             });
@@ -390,35 +412,380 @@ public class FirebaseManager {
      * Query with simple orderBy (basic example)
      * Für komplexere Queries: QueryBuilder verwenden
      */
+    @Override
     public <T> CompletableFuture<List<T>> query(String collection, String orderBy, Class<T> clazz) {
-        CompletableFuture<List<T>> future = new CompletableFuture<>();
+        CompletableFuture<List<T>> future = Tracer.newFuture("firebase.query");
         
         getReference(collection)
             .orderByChild(orderBy)
             .addListenerForSingleValueEvent(new ValueEventListener() {
                 @Override
                 public void onDataChange(DataSnapshot snapshot) {
-                    List<T> items = new ArrayList<>();
+                    deliver(future, () -> {
+                        List<T> items = new ArrayList<>();
+                        for (DataSnapshot child : snapshot.getChildren()) {
+                            T item = child.getValue(clazz);
+                            if (item != null) {
+                                items.add(item);
+                            }
+                        }
+                        future.complete(items);
+                    });
+                }
+                
+                @Override
+                public void onCancelled(DatabaseError error) {
+                    fail(future,
+                        new RuntimeException("Firebase query failed: " + error.getMessage())
+                    );
+                }
+            });
+        
+        return future;
+    }
+    
+    /**
+     * Get all items from collection together with their Firebase keys
+     * Keys are returned in Firebase key order (insertion order of the map)
+     *
+     * @param collection Collection path
+     * @param clazz Class type for deserialization
+     * @return CompletableFuture with key → object map
+     */
+    @Override
+    public <T> CompletableFuture<Map<String, T>> getAllKeyed(String collection, Class<T> clazz) {
+        CompletableFuture<Map<String, T>> future = Tracer.newFuture("firebase.getAllKeyed");
+
+        getReference(collection).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                deliver(future, () -> {
+                    Map<String, T> items = new LinkedHashMap<>();
                     for (DataSnapshot child : snapshot.getChildren()) {
                         T item = child.getValue(clazz);
                         if (item != null) {
-                            items.add(item);
+                            setIdFromKey(item, child.getKey());
+                            items.put(child.getKey(), item);
+                        }
+                    }
+                    future.complete(items);
+                });
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                fail(future,
+                    new RuntimeException("Firebase read failed: " + error.getMessage())
+                );
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Get one page of a collection in key order
+     * Only the requested page is transferred - used to stream large collections
+     * 
+     * @param collection Collection name
+     * @param afterKey Last key of the previous page (null = first page)
+     * @param limit Maximum number of items
+     * @param clazz Class type for deserialization
+     * @return CompletableFuture with key -> item in key order
+     */
+    @Override
+    public <T> CompletableFuture<Map<String, T>> getPage(String collection, String afterKey, int limit, Class<T> clazz) {
+        CompletableFuture<Map<String, T>> future = Tracer.newFuture("firebase.getPage");
+
+        if (!configured) {
+            future.completeExceptionally(
+                new RuntimeException("Firebase ist nicht konfiguriert")
+            );
+            return future;
+        }
+
+        Query query = getReference(collection).orderByKey();
+        if (afterKey != null) {
+            query = query.startAfter(afterKey);
+        }
+
+        query.limitToFirst(limit).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                deliver(future, () -> {
+                    Map<String, T> items = new LinkedHashMap<>();
+                    for (DataSnapshot child : snapshot.getChildren()) {
+                        T item = child.getValue(clazz);
+                        if (item != null) {
+                            setIdFromKey(item, child.getKey());
+                            items.put(child.getKey(), item);
                         }
                     }
                     future.complete(items);
+                });
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                fail(future,
+                    new RuntimeException("Firebase read failed: " + error.getMessage())
+                );
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Read the newest buckets below a path and flatten their entries
+     * Layout: collection/{bucketKey}/{entryKey} - bucket keys must sort by time
+     * Only the last bucketCount buckets are transferred
+     *
+     * @param collection Path containing the buckets (e.g. "customer_activity_log/42")
+     * @param bucketCount Number of newest buckets to read
+     * @param clazz Class type for deserialization
+     * @return CompletableFuture with entries in ascending key order
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> getLatestBuckets(String collection, int bucketCount, Class<T> clazz) {
+        CompletableFuture<List<T>> future = Tracer.newFuture("firebase.getLatestBuckets");
+
+        getReference(collection).orderByKey().limitToLast(bucketCount)
+            .addListenerForSingleValueEvent(new ValueEventListener() {
+                @Override
+                public void onDataChange(DataSnapshot snapshot) {
+                    deliver(future, () -> {
+                        List<T> items = new ArrayList<>();
+                        collectLeaves(snapshot, 2, clazz, items);
+                        future.complete(items);
+                    });
                 }
-                
+
                 @Override
                 public void onCancelled(DatabaseError error) {
-                    future.completeExceptionally(
-                        new RuntimeException("Firebase query failed: " + error.getMessage())
+                    fail(future,
+                        new RuntimeException("Firebase read failed: " + error.getMessage())
                     );
                 }
             });
-        
+
         return future;
     }
-    
+
+    /**
+     * Read a nested collection and flatten all entries at the given depth
+     * Example: depth 3 for "customer_activity_log" → customer / month / entry
+     *
+     * @param collection Root path of the nested collection
+     * @param depth Number of key levels down to the entries
+     * @param clazz Class type for deserialization
+     * @return CompletableFuture with entries in ascending key order
+     */
+    @Override
+    public <T> CompletableFuture<List<T>> getAllNested(String collection, int depth, Class<T> clazz) {
+        CompletableFuture<List<T>> future = Tracer.newFuture("firebase.getAllNested");
+
+        getReference(collection).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                deliver(future, () -> {
+                    List<T> items = new ArrayList<>();
+                    collectLeaves(snapshot, depth, clazz, items);
+                    future.complete(items);
+                });
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                fail(future,
+                    new RuntimeException("Firebase read failed: " + error.getMessage())
+                );
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Recursive helper: deserialize all nodes exactly depth levels below snapshot
+     */
+    private <T> void collectLeaves(DataSnapshot snapshot, int depth, Class<T> clazz, List<T> out) {
+        for (DataSnapshot child : snapshot.getChildren()) {
+            if (depth > 1) {
+                collectLeaves(child, depth - 1, clazz, out);
+                continue;
+            }
+            T item = child.getValue(clazz);
+            if (item != null) {
+                setIdFromKey(item, child.getKey());
+                out.add(item);
+            }
+        }
+    }
+
+    /**
+     * Atomic multi-path update relative to the database root
+     * Keys are full paths (e.g. "accounts/12/note"), null values delete the path
+     *
+     * @param updates Map of paths to new values
+     * @return CompletableFuture that completes when all paths are written
+     */
+    @Override
+    public CompletableFuture<Void> updatePaths(Map<String, Object> updates) {
+        CompletableFuture<Void> future = Tracer.newFuture("firebase.updatePaths");
+
+        if (!configured) {
+            future.completeExceptionally(
+                new RuntimeException("Firebase ist nicht konfiguriert")
+            );
+            return future;
+        }
+
+        if (updates.isEmpty()) {
+            future.complete(null);
+            return future;
+        }
+
+        try {
+            database.getReference().updateChildren(updates)
+                .addOnSuccessListener(aVoid -> {
+                    LogHelper.d(TAG, () -> "Multi-path update wrote " + updates.size() + " paths");
+                    deliver(future, () -> future.complete(null));
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "updatePaths failed: " + e.getMessage());
+                    // Cause kept - callers tell a rules denial from a network error
+                    fail(future,
+                        new RuntimeException("Firebase update failed: " + e.getMessage(), e)
+                    );
+                });
+        } catch (RuntimeException e) {
+            // Invalid path or value - thrown by the client before anything is sent
+            Log.e(TAG, "updatePaths rejected: " + e.getMessage());
+            future.completeExceptionally(new IllegalArgumentException("Firebase update rejected: " + e.getMessage(), e));
+        }
+
+        return future;
+    }
+
+    /**
+     * Conditional leaf write as a transaction
+     * The first attempt may see the local cache (null when not cached) - the guess is
+     * left unchanged, the server rejects it and reruns doTransaction with its value
+     */
+    @Override
+    public CompletableFuture<Boolean> compareAndSet(String path, Object expected, Object value) {
+        CompletableFuture<Boolean> future = Tracer.newFuture("firebase.compareAndSet");
+
+        if (!configured) {
+            future.completeExceptionally(
+                new RuntimeException("Firebase ist nicht konfiguriert")
+            );
+            return future;
+        }
+
+        getReference(path).runTransaction(new Transaction.Handler() {
+            @Override
+            public Transaction.Result doTransaction(MutableData current) {
+                Object stored = current.getValue();
+                if (stored == null && expected != null) {
+                    return Transaction.success(current);
+                }
+                if (!Objects.equals(stored, expected)) {
+                    return Transaction.abort();
+                }
+                current.setValue(value);
+                return Transaction.success(current);
+            }
+
+            @Override
+            public void onComplete(DatabaseError error, boolean committed, DataSnapshot snapshot) {
+                if (error != null) {
+                    Log.e(TAG, "compareAndSet failed: " + error.getMessage());
+                    fail(future,
+                        new RuntimeException("Firebase transaction failed: " + error.getMessage())
+                    );
+                    return;
+                }
+                // Committed without our value: the path really was empty
+                boolean written = committed && snapshot != null && Objects.equals(snapshot.getValue(), value);
+                deliver(future, () -> future.complete(written));
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Read a single value at an arbitrary path (e.g. "accounts/12/updatedAtTimestamp")
+     *
+     * @return CompletableFuture with the value or null if the path does not exist
+     */
+    @Override
+    public <T> CompletableFuture<T> getValue(String path, Class<T> clazz) {
+        CompletableFuture<T> future = Tracer.newFuture("firebase.getValue");
+
+        if (!configured) {
+            future.completeExceptionally(
+                new RuntimeException("Firebase ist nicht konfiguriert")
+            );
+            return future;
+        }
+
+        getReference(path).addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                deliver(future, () -> {
+                    future.complete(snapshot.getValue(clazz));
+                });
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                Log.e(TAG, "getValue failed: " + error.getMessage());
+                fail(future,
+                    new RuntimeException("Firebase read failed: " + error.getMessage())
+                );
+            }
+        });
+
+        return future;
+    }
+
+    /**
+     * Generate a new push key for a collection without writing anything
+     * Push keys are created locally, so this also works offline
+     */
+    @Override
+    public String newKey(String collection) {
+        return getReference(collection).push().getKey();
+    }
+
+    /**
+     * Listen to the backend connection state (".info/connected")
+     * Reports false immediately if Firebase is not configured
+     */
+    @Override
+    public void addConnectionListener(ConnectionListener listener) {
+        if (!configured) {
+            listener.onConnectionChanged(false);
+            return;
+        }
+
+        database.getReference(".info/connected").addValueEventListener(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                Boolean connected = snapshot.getValue(Boolean.class);
+                listener.onConnectionChanged(Boolean.TRUE.equals(connected));
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                Log.w(TAG, "Connection listener cancelled: " + error.getMessage());
+            }
+        });
+    }
+
     /**
      * Realtime Listener (NEU - nicht in Supabase!)
      * Updates werden automatisch gepusht
@@ -439,6 +806,7 @@ public class FirebaseManager {
      *     }
      * });
      */
+    @Override
     public <T> void addRealtimeListener(String collection, Class<T> clazz, 
                                         RealtimeListener<T> listener) {
         getReference(collection).addValueEventListener(new ValueEventListener() {
@@ -462,96 +830,102 @@ public class FirebaseManager {
     }
     
     /**
-     * Interface for realtime data updates
+     * Per-item deltas of a collection - Firebase delivers the existing children as
+     * onChildAdded first, a single value event after them marks the initial load
      */
-    public interface RealtimeListener<T> {
-        void onDataChanged(List<T> items);
-        void onError(Exception e);
+    @Override
+    public <T> void addChildListener(String collection, Class<T> clazz, ChildListener<T> listener) {
+        DatabaseReference ref = getReference(collection);
+        ref.addChildEventListener(new ChildEventListener() {
+            @Override
+            public void onChildAdded(DataSnapshot snapshot, String previousChildName) {
+                T item = snapshot.getValue(clazz);
+                if (item != null) {
+                    listener.onChildAdded(snapshot.getKey(), item);
+                }
+            }
+
+            @Override
+            public void onChildChanged(DataSnapshot snapshot, String previousChildName) {
+                T item = snapshot.getValue(clazz);
+                if (item != null) {
+                    listener.onChildChanged(snapshot.getKey(), item);
+                }
+            }
+
+            @Override
+            public void onChildRemoved(DataSnapshot snapshot) {
+                listener.onChildRemoved(snapshot.getKey());
+            }
+
+            @Override
+            public void onChildMoved(DataSnapshot snapshot, String previousChildName) {
+                // Order is irrelevant for deltas
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                listener.onError(error.toException());
+            }
+        });
+        // Value events fire after the child events of the same data
+        ref.addListenerForSingleValueEvent(new ValueEventListener() {
+            @Override
+            public void onDataChange(DataSnapshot snapshot) {
+                listener.onInitialDataLoaded();
+            }
+
+            @Override
+            public void onCancelled(DatabaseError error) {
+                listener.onError(error.toException());
+            }
+        });
     }
     
     /**
-     * Query Builder for constructing Firebase queries
+     * Translate a QueryBuilder into a Firebase Query
      */
-    public static class QueryBuilder {
-        private String orderByField;
-        private Object equalToValue;
-        private Object startAtValue;
-        private Object endAtValue;
-        private Integer limitFirst;
-        private Integer limitLast;
-        
-        public QueryBuilder orderByChild(String field) {
-            this.orderByField = field;
-            return this;
-        }
+    private Query buildQuery(DatabaseReference ref, QueryBuilder queryBuilder) {
+        Query query = ref;
         
-        public QueryBuilder equalTo(Object value) {
-            this.equalToValue = value;
-            return this;
+        if (queryBuilder.getOrderByField() != null) {
+            query = query.orderByChild(queryBuilder.getOrderByField());
         }
         
-        public QueryBuilder startAt(Object value) {
-            this.startAtValue = value;
-            return this;
+        if (queryBuilder.getEqualToValue() != null) {
+            if (queryBuilder.getEqualToValue() instanceof String) {
+                query = query.equalTo((String) queryBuilder.getEqualToValue());
+            } else if (queryBuilder.getEqualToValue() instanceof Number) {
+                query = query.equalTo(((Number) queryBuilder.getEqualToValue()).doubleValue());
+            } else if (queryBuilder.getEqualToValue() instanceof Boolean) {
+                query = query.equalTo((Boolean) queryBuilder.getEqualToValue());
+            }
         }
         
-        public QueryBuilder endAt(Object value) {
-            this.endAtValue = value;
-            return this;
+        if (queryBuilder.getStartAtValue() != null) {
+            if (queryBuilder.getStartAtValue() instanceof String) {
+                query = query.startAt((String) queryBuilder.getStartAtValue());
+            } else if (queryBuilder.getStartAtValue() instanceof Number) {
+                query = query.startAt(((Number) queryBuilder.getStartAtValue()).doubleValue());
+            }
         }
         
-        public QueryBuilder limitToFirst(int limit) {
-            this.limitFirst = limit;
-            return this;
+        if (queryBuilder.getEndAtValue() != null) {
+            if (queryBuilder.getEndAtValue() instanceof String) {
+                query = query.endAt((String) queryBuilder.getEndAtValue());
+            } else if (queryBuilder.getEndAtValue() instanceof Number) {
+                query = query.endAt(((Number) queryBuilder.getEndAtValue()).doubleValue());
+            }
         }
         
-        public QueryBuilder limitToLast(int limit) {
-            this.limitLast = limit;
-            return this;
+        if (queryBuilder.getLimitFirst() != null) {
+            query = query.limitToFirst(queryBuilder.getLimitFirst());
         }
         
-        public Query build(DatabaseReference ref) {
-            Query query = ref;
-            
-            if (orderByField != null) {
-                query = query.orderByChild(orderByField);
-            }
-            
-            if (equalToValue != null) {
-                if (equalToValue instanceof String) {
-                    query = query.equalTo((String) equalToValue);
-                } else if (equalToValue instanceof Number) {
-                    query = query.equalTo(((Number) equalToValue).doubleValue());
-                } else if (equalToValue instanceof Boolean) {
-                    query = query.equalTo((Boolean) equalToValue);
-                }
-            }
-            
-            if (startAtValue != null) {
-                if (startAtValue instanceof String) {
-                    query = query.startAt((String) startAtValue);
-                } else if (startAtValue instanceof Number) {
-                    query = query.startAt(((Number) startAtValue).doubleValue());
-                }
-            }
-            
-            if (endAtValue != null) {
-                if (endAtValue instanceof String) {
-                    query = query.endAt((String) endAtValue);
-                } else if (endAtValue instanceof Number) {
-                    query = query.endAt(((Number) endAtValue).doubleValue());
-                }
-            }
-            
-            if (limitFirst != null) {
-                query = query.limitToFirst(limitFirst);
-            }
-            
-            if (limitLast != null) {
-                query = query.limitToLast(limitLast);
-            }
-            
-            return query;
+        if (queryBuilder.getLimitLast() != null) {
+            query = query.limitToLast(queryBuilder.getLimitLast());
         }
+        
+        return query;
     }
 }
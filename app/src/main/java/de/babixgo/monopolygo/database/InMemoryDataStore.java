@@ -0,0 +1,594 @@
+package de.babixgo.monopolygo.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Concurrent in-process DataStore
+ *
+ * Holds the same tree Firebase would hold (objects mapped by BeanMapper), so
+ * repositories behave identically on a plain JVM: for load tests, benchmarks
+ * and running the data layer without a live service.
+ *
+ * - Reads share a read lock, writes (incl. multi-path updates) are atomic under a write lock
+ * - Futures are already completed when returned
+ * - Listeners are called synchronously after the write, outside the lock
+ * - Always "connected"
+ */
+public class InMemoryDataStore implements DataStore {
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Object> root = BeanMapper.newNode();
+    private final List<PathListener> listeners = new CopyOnWriteArrayList<>();
+    private final List<ChildTracker<?>> childListeners = new CopyOnWriteArrayList<>();
+    private final AtomicLong lastKeyTime = new AtomicLong();
+
+    /**
+     * Realtime listener bound to a collection path
+     */
+    private static final class PathListener {
+        final String path;
+        final Runnable notify;
+
+        PathListener(String path, Runnable notify) {
+            this.path = path;
+            this.notify = notify;
+        }
+    }
+
+    @Override
+    public boolean isConfigured() {
+        return true;
+    }
+
+    // ==================== Read ====================
+
+    @Override
+    public <T> CompletableFuture<List<T>> getAll(String collection, Class<T> clazz) {
+        return read(() -> new ArrayList<>(children(collection, clazz).values()));
+    }
+
+    @Override
+    public <T> CompletableFuture<Map<String, T>> getAllKeyed(String collection, Class<T> clazz) {
+        return read(() -> children(collection, clazz));
+    }
+
+    @Override
+    public <T> CompletableFuture<Map<String, T>> getPage(String collection, String afterKey, int limit, Class<T> clazz) {
+        return read(() -> {
+            Map<String, T> items = new LinkedHashMap<>();
+            Object node = nodeAt(collection);
+            if (!(node instanceof TreeMap)) {
+                return items;
+            }
+            TreeMap<String, Object> children = asNode(node);
+            for (Map.Entry<String, Object> child : (afterKey != null ? children.tailMap(afterKey, false) : children).entrySet()) {
+                if (items.size() >= limit) {
+                    break;
+                }
+                T item = BeanMapper.fromTree(child.getValue(), clazz);
+                if (item != null) {
+                    BeanMapper.applyKey(item, child.getKey());
+                    items.put(child.getKey(), item);
+                }
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> query(String collection, Class<T> clazz, QueryBuilder queryBuilder) {
+        return read(() -> runQuery(collection, clazz, queryBuilder));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> query(String collection, String orderBy, Class<T> clazz) {
+        return query(collection, clazz, new QueryBuilder().orderByChild(orderBy));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getById(String collection, String id, Class<T> clazz) {
+        return read(() -> {
+            T item = BeanMapper.fromTree(nodeAt(collection + "/" + id), clazz);
+            BeanMapper.applyKey(item, id);
+            return item;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getByField(String collection, String field, Object value, Class<T> clazz) {
+        return read(() -> {
+            List<T> items = runQuery(collection, clazz, new QueryBuilder().orderByChild(field).equalTo(value).limitToFirst(1));
+            return items.isEmpty() ? null : items.get(0);
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<T> getValue(String path, Class<T> clazz) {
+        return read(() -> BeanMapper.fromTree(nodeAt(path), clazz));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> getLatestBuckets(String collection, int bucketCount, Class<T> clazz) {
+        return read(() -> {
+            List<T> items = new ArrayList<>();
+            Object node = nodeAt(collection);
+            if (node instanceof TreeMap) {
+                List<Object> buckets = new ArrayList<>(asNode(node).values());
+                collectLeaves(buckets.subList(Math.max(0, buckets.size() - bucketCount), buckets.size()), 1, clazz, items);
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public <T> CompletableFuture<List<T>> getAllNested(String collection, int depth, Class<T> clazz) {
+        return read(() -> {
+            List<T> items = new ArrayList<>();
+            Object node = nodeAt(collection);
+            if (node instanceof TreeMap) {
+                collectLeaves(Collections.singletonList(node), depth, clazz, items);
+            }
+            return items;
+        });
+    }
+
+    // ==================== Write ====================
+
+    @Override
+    public <T> CompletableFuture<T> save(String collection, T object, String id) {
+        String key = id != null ? id : newKey(collection);
+        Map<String, Object> update = new LinkedHashMap<>();
+        update.put(collection + "/" + key, object);
+
+        return write(update).thenApply(v -> {
+            BeanMapper.applyKey(object, key);
+            return object;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> updateFields(String collection, String id, Map<String, Object> updates) {
+        Map<String, Object> paths = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            paths.put(collection + "/" + id + "/" + entry.getKey(), entry.getValue());
+        }
+        return write(paths);
+    }
+
+    @Override
+    public CompletableFuture<Void> updatePaths(Map<String, Object> updates) {
+        return write(updates);
+    }
+
+    @Override
+    public CompletableFuture<Boolean> compareAndSet(String path, Object expected, Object value) {
+        return write(Collections.singletonMap(path, value), path, expected);
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(String collection, String id) {
+        return write(Collections.singletonMap(collection + "/" + id, null));
+    }
+
+    /**
+     * Time-ordered key: "-" + (epoch millis * 1000 + sequence), strictly increasing per store
+     */
+    @Override
+    public String newKey(String collection) {
+        long now = System.currentTimeMillis() * 1000;
+        long key = lastKeyTime.updateAndGet(last -> Math.max(last + 1, now));
+        return String.format(Locale.US, "-%016d", key);
+    }
+
+    // ==================== Listeners ====================
+
+    @Override
+    public <T> void addRealtimeListener(String collection, Class<T> clazz, RealtimeListener<T> listener) {
+        Runnable notify = () -> getAll(collection, clazz).whenComplete((items, error) -> {
+            if (error != null) {
+                listener.onError(error instanceof Exception ? (Exception) error : new RuntimeException(error));
+            } else {
+                listener.onDataChanged(items);
+            }
+        });
+        listeners.add(new PathListener(normalizePath(collection), notify));
+        notify.run();
+    }
+
+    @Override
+    public <T> void addChildListener(String collection, Class<T> clazz, ChildListener<T> listener) {
+        ChildTracker<T> tracker = new ChildTracker<>(normalizePath(collection), clazz, listener);
+        childListeners.add(tracker);
+        tracker.update(null);
+        listener.onInitialDataLoaded();
+    }
+
+    @Override
+    public void addConnectionListener(ConnectionListener listener) {
+        listener.onConnectionChanged(true);
+    }
+
+    /**
+     * Child listener bound to a collection path - remembers the node last delivered
+     * per key and reports only the keys a write touched
+     */
+    private final class ChildTracker<T> {
+        final String path;
+        final Class<T> clazz;
+        final ChildListener<T> listener;
+        final Map<String, Object> known = new HashMap<>();
+
+        ChildTracker(String path, Class<T> clazz, ChildListener<T> listener) {
+            this.path = path;
+            this.clazz = clazz;
+            this.listener = listener;
+        }
+
+        /**
+         * Child keys touched by a written path, null = all (collection or a parent written)
+         */
+        Set<String> touchedKeys(List<String> writtenPaths) {
+            Set<String> keys = new HashSet<>();
+            for (String written : writtenPaths) {
+                if (path.isEmpty() || written.equals(path) || path.startsWith(written + "/")) {
+                    return null;
+                }
+                if (written.startsWith(path + "/")) {
+                    keys.add(segments(written.substring(path.length() + 1)).get(0));
+                }
+            }
+            return keys;
+        }
+
+        /**
+         * Compare the given keys (null = all) with the last delivered state and report deltas
+         */
+        synchronized void update(Set<String> keys) {
+            Map<String, Object> current = new HashMap<>();
+            lock.readLock().lock();
+            try {
+                Object node = nodeAt(path);
+                Map<String, Object> children = node instanceof TreeMap ? asNode(node) : Collections.emptyMap();
+                if (keys == null) {
+                    for (Map.Entry<String, Object> child : children.entrySet()) {
+                        current.put(child.getKey(), BeanMapper.copy(child.getValue()));
+                    }
+                } else {
+                    for (String key : keys) {
+                        Object child = children.get(key);
+                        if (child != null) {
+                            current.put(key, BeanMapper.copy(child));
+                        }
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            Set<String> checked = new TreeSet<>(BeanMapper.KEY_ORDER);
+            checked.addAll(keys != null ? keys : known.keySet());
+            checked.addAll(current.keySet());
+            for (String key : checked) {
+                Object before = known.get(key);
+                Object after = current.get(key);
+                if (after == null) {
+                    if (before != null) {
+                        known.remove(key);
+                        listener.onChildRemoved(key);
+                    }
+                } else if (!after.equals(before)) {
+                    known.put(key, after);
+                    T item = BeanMapper.fromTree(after, clazz);
+                    if (item == null) {
+                        continue;
+                    }
+                    BeanMapper.applyKey(item, key);
+                    if (before == null) {
+                        listener.onChildAdded(key, item);
+                    } else {
+                        listener.onChildChanged(key, item);
+                    }
+                }
+            }
+        }
+    }
+
+    // ==================== Tree Access (for subclasses) ====================
+
+    /**
+     * Called after every successful write with the written root-relative paths
+     */
+    protected void onChanged(Iterable<String> paths) {
+    }
+
+    /**
+     * Deep copy of the whole tree
+     */
+    protected Map<String, Object> snapshotTree() {
+        lock.readLock().lock();
+        try {
+            return asNode(BeanMapper.copy(root));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Replace the whole tree (values must already be tree nodes/leaves)
+     */
+    protected void loadTree(Map<String, Object> tree) {
+        lock.writeLock().lock();
+        try {
+            root.clear();
+            for (Map.Entry<String, Object> entry : tree.entrySet()) {
+                Object value = BeanMapper.normalize(entry.getValue());
+                if (value != null) {
+                    root.put(entry.getKey(), value);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ==================== Internals ====================
+
+    private interface Reader<R> {
+        R read() throws Exception;
+    }
+
+    private <R> CompletableFuture<R> read(Reader<R> reader) {
+        lock.readLock().lock();
+        try {
+            return CompletableFuture.completedFuture(reader.read());
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("DataStore read failed: " + e.getMessage(), e));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Apply all path → value updates atomically and notify listeners
+     */
+    private CompletableFuture<Void> write(Map<String, Object> updates) {
+        return write(updates, null, null).thenApply(written -> null);
+    }
+
+    /**
+     * write(updates), applied only if checkPath (if set) still holds expected
+     */
+    private CompletableFuture<Boolean> write(Map<String, Object> updates, String checkPath, Object expected) {
+        List<String> paths = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            if (checkPath != null
+                    && !Objects.equals(nodeAt(checkPath), BeanMapper.toTree(expected))) {
+                return CompletableFuture.completedFuture(false);
+            }
+            // Convert first, so a failing bean does not leave a half-applied update
+            Map<String, Object> converted = new LinkedHashMap<>();
+            for (Map.Entry<String, Object> entry : updates.entrySet()) {
+                String path = normalizePath(entry.getKey());
+                if (path.isEmpty()) {
+                    throw new IllegalArgumentException("Cannot write to the root");
+                }
+                Object value = BeanMapper.toTree(entry.getValue());
+                // An object without properties is no value, like in Firebase
+                converted.put(path, value instanceof Map && ((Map<?, ?>) value).isEmpty() ? null : value);
+            }
+            for (Map.Entry<String, Object> entry : converted.entrySet()) {
+                setAt(entry.getKey(), entry.getValue());
+                paths.add(entry.getKey());
+            }
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(new RuntimeException("DataStore write failed: " + e.getMessage(), e));
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        onChanged(paths);
+        for (PathListener listener : listeners) {
+            for (String path : paths) {
+                if (isRelated(listener.path, path)) {
+                    listener.notify.run();
+                    break;
+                }
+            }
+        }
+        for (ChildTracker<?> tracker : childListeners) {
+            Set<String> keys = tracker.touchedKeys(paths);
+            if (keys == null || !keys.isEmpty()) {
+                tracker.update(keys);
+            }
+        }
+        return CompletableFuture.completedFuture(true);
+    }
+
+    private Object nodeAt(String path) {
+        Object node = root;
+        for (String segment : segments(path)) {
+            if (!(node instanceof TreeMap)) {
+                return null;
+            }
+            node = asNode(node).get(segment);
+        }
+        return node;
+    }
+
+    /**
+     * Set or (value == null) remove a node, creating parents and pruning empty ones
+     */
+    private void setAt(String path, Object value) {
+        List<String> segments = segments(path);
+        List<TreeMap<String, Object>> parents = new ArrayList<>();
+        TreeMap<String, Object> node = root;
+
+        for (int i = 0; i < segments.size() - 1; i++) {
+            parents.add(node);
+            Object child = node.get(segments.get(i));
+            if (!(child instanceof TreeMap)) {
+                if (value == null) {
+                    return;
+                }
+                child = BeanMapper.newNode();
+                node.put(segments.get(i), child);
+            }
+            node = asNode(child);
+        }
+
+        String last = segments.get(segments.size() - 1);
+        if (value != null) {
+            node.put(last, value);
+            return;
+        }
+
+        node.remove(last);
+        // Firebase keeps no empty objects
+        for (int i = parents.size() - 1; i >= 0 && node.isEmpty(); i--) {
+            parents.get(i).remove(segments.get(i));
+            node = parents.get(i);
+        }
+    }
+
+    private <T> Map<String, T> children(String collection, Class<T> clazz) {
+        Map<String, T> items = new LinkedHashMap<>();
+        Object node = nodeAt(collection);
+        if (node instanceof TreeMap) {
+            for (Map.Entry<String, Object> child : asNode(node).entrySet()) {
+                T item = BeanMapper.fromTree(child.getValue(), clazz);
+                if (item != null) {
+                    BeanMapper.applyKey(item, child.getKey());
+                    items.put(child.getKey(), item);
+                }
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Evaluate a QueryBuilder with Firebase semantics: order by child (then key),
+     * filter equalTo/startAt/endAt inclusive, then apply the limit
+     */
+    private <T> List<T> runQuery(String collection, Class<T> clazz, QueryBuilder queryBuilder) {
+        Object node = nodeAt(collection);
+        if (!(node instanceof TreeMap)) {
+            return new ArrayList<>();
+        }
+
+        String field = queryBuilder.getOrderByField();
+        List<Map.Entry<String, Object>> entries = new ArrayList<>(asNode(node).entrySet());
+        if (field != null) {
+            // Stable sort keeps key order for equal values
+            entries.sort((a, b) -> BeanMapper.VALUE_ORDER.compare(orderValue(a, field), orderValue(b, field)));
+        }
+
+        List<Map.Entry<String, Object>> matching = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : entries) {
+            Object value = orderValue(entry, field);
+            Object equalTo = queryBuilder.getEqualToValue();
+            Object startAt = queryBuilder.getStartAtValue();
+            Object endAt = queryBuilder.getEndAtValue();
+
+            if (equalTo != null && BeanMapper.VALUE_ORDER.compare(value, BeanMapper.toTree(equalTo)) != 0) {
+                continue;
+            }
+            if (startAt != null && BeanMapper.VALUE_ORDER.compare(value, BeanMapper.toTree(startAt)) < 0) {
+                continue;
+            }
+            if (endAt != null && BeanMapper.VALUE_ORDER.compare(value, BeanMapper.toTree(endAt)) > 0) {
+                continue;
+            }
+            matching.add(entry);
+        }
+
+        if (queryBuilder.getLimitFirst() != null && matching.size() > queryBuilder.getLimitFirst()) {
+            matching = matching.subList(0, queryBuilder.getLimitFirst());
+        }
+        if (queryBuilder.getLimitLast() != null && matching.size() > queryBuilder.getLimitLast()) {
+            matching = matching.subList(matching.size() - queryBuilder.getLimitLast(), matching.size());
+        }
+
+        List<T> items = new ArrayList<>();
+        for (Map.Entry<String, Object> entry : matching) {
+            T item = BeanMapper.fromTree(entry.getValue(), clazz);
+            if (item != null) {
+                BeanMapper.applyKey(item, entry.getKey());
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Value a child is ordered by: the field value, or the key if no field is given
+     */
+    private static Object orderValue(Map.Entry<String, Object> entry, String field) {
+        if (field == null) {
+            return entry.getKey();
+        }
+        Object value = entry.getValue() instanceof TreeMap ? asNode(entry.getValue()).get(field) : null;
+        return value instanceof TreeMap ? null : value;
+    }
+
+    private <T> void collectLeaves(Iterable<Object> nodes, int depth, Class<T> clazz, List<T> out) {
+        for (Object node : nodes) {
+            if (!(node instanceof TreeMap)) {
+                continue;
+            }
+            for (Map.Entry<String, Object> child : asNode(node).entrySet()) {
+                if (depth > 1) {
+                    collectLeaves(Collections.singletonList(child.getValue()), depth - 1, clazz, out);
+                    continue;
+                }
+                T item = BeanMapper.fromTree(child.getValue(), clazz);
+                if (item != null) {
+                    BeanMapper.applyKey(item, child.getKey());
+                    out.add(item);
+                }
+            }
+        }
+    }
+
+    private static boolean isRelated(String listenerPath, String writtenPath) {
+        return listenerPath.isEmpty()
+            || writtenPath.equals(listenerPath)
+            || writtenPath.startsWith(listenerPath + "/")
+            || listenerPath.startsWith(writtenPath + "/");
+    }
+
+    private static String normalizePath(String path) {
+        return String.join("/", segments(path));
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        return segments;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static TreeMap<String, Object> asNode(Object node) {
+        return (TreeMap<String, Object>) node;
+    }
+}
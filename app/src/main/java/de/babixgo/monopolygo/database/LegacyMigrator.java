@@ -0,0 +1,604 @@
+package de.babixgo.monopolygo.database;
+
+import android.util.Log;
+import com.google.gson.Gson;
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+import de.babixgo.monopolygo.AccountManager;
+import de.babixgo.monopolygo.LogHelper;
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.models.CustomerAccount;
+import de.babixgo.monopolygo.models.Event;
+import de.babixgo.monopolygo.models.Team;
+import de.babixgo.monopolygo.utils.IdHelper;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * One-shot migration of the legacy Bash-script CSV files into the DataStore
+ *
+ * Sources (below /storage/emulated/0/MonopolyGo/):
+ * - Accounts/Eigene/Accountinfos.csv      -> accounts
+ * - Accounts/Kunden/Kundeninfos.csv       -> customers, customer_accounts
+ * - Partnerevents/<event>/Kunden.csv      -> customers, customer_accounts, events,
+ *                                            teams (one team per booked customer account)
+ * - Partnerevents/<event>/Einteilung.csv  -> the own accounts in those teams,
+ *                                            team_slots (see TeamSlotIndex)
+ *
+ * Everything is streamed and written in batches of multi-path updates. Records that
+ * already exist (created in the app or by an earlier import) are matched first, see
+ * AccountCsvEngine; only new records get stable IDs from their natural keys
+ * (IdHelper.stableId), so re-writing a batch is harmless. Event data is merged field by
+ * field and never replaces what the account files wrote; own accounts named in
+ * Einteilung.csv are looked up among the existing accounts - unknown names and names
+ * shared by several accounts are counted as skipped instead of guessed.
+ *
+ * All files are read and written as UTF-8.
+ *
+ * A checkpoint file records the finished steps and, for the account files, the last
+ * written line after every batch: an interrupted run (app killed, no network)
+ * continues where it stopped. An event folder is one step without inner checkpoint -
+ * an interrupted event is written again as a whole. Once all steps are done, run()
+ * does nothing until reset().
+ *
+ * WICHTIG: run() blockiert - nur aus einem Hintergrund-Thread aufrufen
+ */
+public class LegacyMigrator {
+    private static final String TAG = "LegacyMigrator";
+    private static final String STEP_OWN_ACCOUNTS = "own_accounts";
+    private static final String STEP_CUSTOMERS = "customers";
+    private static final String STEP_CUSTOMER_ACCOUNTS = "customer_accounts";
+    private static final String STEP_EVENT_PREFIX = "event:";
+
+    private final DataStore store;
+    private final AccountCsvEngine engine;
+    private final File legacyRoot;
+    private final File checkpointFile;
+    private final int batchSize;
+    private final Gson gson = new Gson();
+    // Loaded by the first event step, then kept up to date by the event steps
+    private Map<String, Long> ownAccountIds;
+    private Set<String> ambiguousOwnAccounts;
+    private Map<String, Long> customerIds;
+    private AccountCsvEngine.MatchIndex customerAccountIndex;
+
+    /**
+     * Persisted progress
+     */
+    private static class Checkpoint {
+        List<String> completedSteps = new ArrayList<>();
+        String currentStep;
+        long lastLine;       // Last line of currentStep covered by a written batch
+        boolean finished;
+    }
+
+    /**
+     * One unit of work - resumeAfterLine is only used by line-based steps
+     */
+    private interface Step {
+        AccountCsvEngine.ImportResult run(long resumeAfterLine, AccountCsvEngine.BatchListener listener) throws IOException;
+    }
+
+    /**
+     * Progress callback for the UI (called on the migration thread)
+     */
+    public interface ProgressListener {
+        void onProgress(String step, long imported);
+    }
+
+    /**
+     * Outcome of run()
+     */
+    public static class Result {
+        public int stepsRun;
+        public long imported;
+        public long skipped;
+        public boolean resumed;
+    }
+
+    /**
+     * Migrator for the default legacy folder into Firebase
+     * @param filesDir App files dir for the checkpoint
+     */
+    public LegacyMigrator(File filesDir) {
+        this(FirebaseManager.getInstance(),
+            new File(AccountManager.getAccountsEigenePath()).getParentFile().getParentFile(),
+            new File(filesDir, "legacy_migration.checkpoint"),
+            AccountCsvEngine.DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param legacyRoot Folder containing "Accounts" and "Partnerevents"
+     * @param checkpointFile Where progress is stored
+     */
+    public LegacyMigrator(DataStore store, File legacyRoot, File checkpointFile, int batchSize) {
+        this.store = store;
+        this.engine = new AccountCsvEngine(store, batchSize);
+        this.legacyRoot = legacyRoot;
+        this.checkpointFile = checkpointFile;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * True once a run completed all steps
+     */
+    public boolean isFinished() {
+        return loadCheckpoint().finished;
+    }
+
+    /**
+     * Forget all progress - the next run() starts from the beginning
+     */
+    public void reset() {
+        if (checkpointFile.exists() && !checkpointFile.delete()) {
+            Log.w(TAG, "Could not delete " + checkpointFile);
+        }
+    }
+
+    /**
+     * Run (or continue) the migration
+     * @param listener Progress callback (may be null)
+     */
+    public Result run(ProgressListener listener) throws IOException {
+        Checkpoint checkpoint = loadCheckpoint();
+        Result result = new Result();
+        if (checkpoint.finished) {
+            LogHelper.d(TAG, "Migration already finished");
+            return result;
+        }
+        result.resumed = !checkpoint.completedSteps.isEmpty() || checkpoint.currentStep != null;
+
+        for (Map.Entry<String, Step> entry : planSteps().entrySet()) {
+            String name = entry.getKey();
+            if (checkpoint.completedSteps.contains(name)) {
+                continue;
+            }
+
+            long resumeAfter = name.equals(checkpoint.currentStep) ? checkpoint.lastLine : 0;
+            if (resumeAfter > 0) {
+                LogHelper.d(TAG, () -> "Resuming " + name + " after line " + resumeAfter);
+            }
+            checkpoint.currentStep = name;
+            checkpoint.lastLine = resumeAfter;
+
+            AccountCsvEngine.ImportResult stepResult = entry.getValue().run(resumeAfter, (lastLine, progress) -> {
+                checkpoint.lastLine = lastLine;
+                saveCheckpoint(checkpoint);
+                if (listener != null) {
+                    listener.onProgress(name, progress.imported);
+                }
+            });
+
+            checkpoint.completedSteps.add(name);
+            checkpoint.currentStep = null;
+            checkpoint.lastLine = 0;
+            saveCheckpoint(checkpoint);
+
+            result.stepsRun++;
+            result.imported += stepResult.imported;
+            result.skipped += stepResult.skipped;
+        }
+
+        checkpoint.finished = true;
+        saveCheckpoint(checkpoint);
+        LogHelper.d(TAG, () -> "Migration finished: " + result.imported + " records in " + result.stepsRun + " steps");
+        return result;
+    }
+
+    // ==================== Steps ====================
+
+    /**
+     * All steps in execution order - account files first, so the event merges win
+     */
+    private Map<String, Step> planSteps() {
+        Map<String, Step> steps = new LinkedHashMap<>();
+        File ownAccounts = new File(legacyRoot, "Accounts/Eigene/Accountinfos.csv");
+        File customerAccounts = new File(legacyRoot, "Accounts/Kunden/Kundeninfos.csv");
+
+        steps.put(STEP_OWN_ACCOUNTS, (resume, listener) ->
+            importFile(ownAccounts, AccountCsvEngine.ownAccounts(), resume, listener));
+        steps.put(STEP_CUSTOMERS, (resume, listener) ->
+            importFile(customerAccounts, AccountCsvEngine.customers(), resume, listener));
+        steps.put(STEP_CUSTOMER_ACCOUNTS, (resume, listener) ->
+            importFile(customerAccounts, AccountCsvEngine.customerAccounts(), resume, listener));
+
+        File[] eventDirs = new File(legacyRoot, "Partnerevents").listFiles(File::isDirectory);
+        if (eventDirs != null) {
+            Arrays.sort(eventDirs);
+            for (File eventDir : eventDirs) {
+                steps.put(STEP_EVENT_PREFIX + eventDir.getName(), (resume, listener) -> migrateEvent(eventDir, listener));
+            }
+        }
+        return steps;
+    }
+
+    private <T> AccountCsvEngine.ImportResult importFile(File file, AccountCsvEngine.Mapping<T> mapping, long resumeAfter,
+                                                         AccountCsvEngine.BatchListener listener) throws IOException {
+        if (!file.isFile()) {
+            LogHelper.d(TAG, () -> "No legacy file " + file + ", skipped");
+            return new AccountCsvEngine.ImportResult();
+        }
+        try (Reader reader = newReader(file)) {
+            return engine.importRows(reader, mapping, resumeAfter, listener);
+        }
+    }
+
+    /**
+     * One partner event folder: the event, its customers and their teams
+     * Event files are small, the whole event is written as one unit (idempotent)
+     *
+     * Every row of Kunden.csv is one booked customer account. The account record only
+     * gets what identifies it (name, friend link, code); the booking of this event is
+     * its team, keyed like SlotAssignmentEngine keys it (event + customer account),
+     * so other events never overwrite it and a later assignment run continues it.
+     */
+    private AccountCsvEngine.ImportResult migrateEvent(File eventDir, AccountCsvEngine.BatchListener listener) throws IOException {
+        AccountCsvEngine.ImportResult result = new AccountCsvEngine.ImportResult();
+        Map<String, Object> updates = new LinkedHashMap<>();
+        String eventName = eventDir.getName();
+        long eventId = IdHelper.stableId("events", eventName);
+        long now = TimestampHelper.now();
+
+        // The scripts keep no dates - the folder date is the best guess for the start
+        Event event = new Event(eventName, TimestampHelper.formatIso(eventDir.lastModified()), null);
+        event.setId(eventId);
+        event.setStartDateTimestamp(eventDir.lastModified());
+        stamp(event, now);
+        updates.put("events/" + eventId, event);
+
+        // Kunden.csv: Name,Accountname,Slots,Slots_übrig,Freundschaftslink,UserID,Code
+        Map<String, List<Team>> teamsByCustomer = new LinkedHashMap<>();
+        Map<String, Team> teamsByAccountName = new HashMap<>();
+        loadExistingCustomers();
+        readCsv(new File(eventDir, "Kunden.csv"), row -> {
+            String name = row.get("Name");
+            if (name.isEmpty()) {
+                result.skipped++;
+                return;
+            }
+            long customerId = putCustomer(updates, name);
+
+            // An existing account of the customer (same code or friend link) is continued,
+            // otherwise the same key as the Kundeninfos.csv import
+            String accountName = row.get("Accountname");
+            long accountId = customerAccountId(customerId, name, row);
+            if (accountId == 0) {
+                Log.w(TAG, eventName + ": " + name + " matches several customer accounts, skipped");
+                result.skipped++;
+                return;
+            }
+            String accountPath = "customer_accounts/" + accountId + "/";
+            updates.put(accountPath + "id", accountId);
+            updates.put(accountPath + "customerId", customerId);
+            putIfPresent(updates, accountPath + "ingameName", accountName);
+            putIfPresent(updates, accountPath + "friendLink", row.get("Freundschaftslink"));
+            putIfPresent(updates, accountPath + "friendCode", row.get("Code"));
+
+            Team team = buildTeam(eventId, accountId, customerId, accountName.isEmpty() ? name : accountName, now);
+            teamsByCustomer.computeIfAbsent(key(name), k -> new ArrayList<>()).add(team);
+            if (!accountName.isEmpty()) {
+                teamsByAccountName.put(key(accountName), team);
+            }
+            result.imported++;
+        });
+
+        // Einteilung.csv: own account -> customers (or their account names) in its slots
+        Map<String, Long> ownAccountIds = ownAccountIds();
+        readCsv(new File(eventDir, "Einteilung.csv"), row -> {
+            String ownAccount = row.get("Eigener Account Name");
+            if (ownAccount.isEmpty()) {
+                return;
+            }
+            Long ownAccountId = ownAccountIds.get(key(ownAccount));
+            if (ownAccountId == null) {
+                Log.w(TAG, eventName + ": " + (ambiguousOwnAccounts.contains(key(ownAccount)) ? "several own accounts named "
+                    : "unknown own account ") + ownAccount + ", assignment skipped");
+                result.skipped++;
+                return;
+            }
+            for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+                String customer = row.get("Slot " + slot);
+                if (customer.isEmpty()) {
+                    continue;
+                }
+                Team team = teamWithFreeSlot(customer, ownAccountId, teamsByAccountName, teamsByCustomer);
+                if (team == null) {
+                    // Customer not in Kunden.csv: one team for the customer as a whole
+                    long customerId = putCustomer(updates, customer);
+                    team = buildTeam(eventId, IdHelper.stableId("customer_accounts", customer), customerId, customer, now);
+                    teamsByCustomer.computeIfAbsent(key(customer), k -> new ArrayList<>()).add(team);
+                }
+                if (!addToFreeSlot(team, ownAccountId)) {
+                    Log.w(TAG, eventName + ": more than " + Team.SLOT_COUNT + " accounts for " + customer + ", "
+                        + ownAccount + " skipped");
+                    result.skipped++;
+                }
+            }
+        });
+
+        for (List<Team> teams : teamsByCustomer.values()) {
+            for (Team team : teams) {
+                updates.put("teams/" + team.getId(), team);
+                updates.putAll(TeamSlotIndex.slotPaths(team));
+                result.imported++;
+            }
+        }
+
+        writeInBatches(updates);
+        result.imported++; // The event itself
+        // Event steps are checkpointed as a whole: one progress call once the event is written
+        listener.onBatchWritten(0, result);
+        return result;
+    }
+
+    /**
+     * Customer of that name - the existing one, otherwise a new one with a stable ID
+     */
+    private long putCustomer(Map<String, Object> updates, String name) {
+        Long existing = customerIds.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        long customerId = IdHelper.stableId("customers", name);
+        String customerPath = "customers/" + customerId + "/";
+        updates.put(customerPath + "id", customerId);
+        updates.put(customerPath + "name", name);
+        customerIds.put(name, customerId);
+        return customerId;
+    }
+
+    /**
+     * ID of the customer account a Kunden.csv row books, 0 if the row matches several
+     */
+    private long customerAccountId(long customerId, String name, CsvRow row) {
+        CustomerAccount probe = new CustomerAccount();
+        probe.setCustomerId(customerId);
+        probe.setFriendCode(row.get("Code").isEmpty() ? null : row.get("Code"));
+        probe.setFriendLink(row.get("Freundschaftslink").isEmpty() ? null : row.get("Freundschaftslink"));
+        List<String> matchKeys = AccountCsvEngine.customerAccounts().matchKeys(probe);
+
+        String existing = customerAccountIndex.find(matchKeys);
+        if (AccountCsvEngine.MatchIndex.AMBIGUOUS.equals(existing)) {
+            return 0;
+        }
+        if (existing != null) {
+            return Long.parseLong(existing);
+        }
+        long accountId = IdHelper.stableId("customer_accounts", AccountCsvEngine.customerAccountKey(name,
+            row.get("UserID"), row.get("Accountname"), row.get("Code"), row.get("Freundschaftslink")));
+        customerAccountIndex.add(matchKeys, String.valueOf(accountId));
+        return accountId;
+    }
+
+    /**
+     * Customers and customer accounts written by the account steps or created in the app
+     * Loaded once per run, event steps add what they create
+     */
+    private void loadExistingCustomers() throws IOException {
+        if (customerIds == null) {
+            customerIds = AccountCsvEngine.existingCustomerIds(store);
+            customerAccountIndex = AccountCsvEngine.loadMatchIndex(store, AccountCsvEngine.customerAccounts());
+        }
+    }
+
+    private static Team buildTeam(long eventId, long customerAccountId, long customerId, String name, long now) {
+        Team team = new Team(eventId, name);
+        team.setId(IdHelper.stableId("teams", eventId + "/" + customerAccountId));
+        team.setCustomerId(customerId);
+        team.setCreatedAt(TimestampHelper.formatIso(now));
+        team.setCreatedAtTimestamp(now);
+        team.setUpdatedAt(TimestampHelper.formatIso(now));
+        team.setUpdatedAtTimestamp(now);
+        return team;
+    }
+
+    /**
+     * Team a slot entry refers to: the account with that name, otherwise the first
+     * account of the customer with that name that still has room and does not hold
+     * the own account yet. null if the name matches no booking.
+     */
+    private static Team teamWithFreeSlot(String reference, long ownAccountId, Map<String, Team> teamsByAccountName,
+                                         Map<String, List<Team>> teamsByCustomer) {
+        Team byAccount = teamsByAccountName.get(key(reference));
+        if (byAccount != null) {
+            return byAccount;
+        }
+        List<Team> teams = teamsByCustomer.get(key(reference));
+        if (teams == null) {
+            return null;
+        }
+        for (Team team : teams) {
+            if (!holds(team, ownAccountId) && freeSlot(team) > 0) {
+                return team;
+            }
+        }
+        return teams.get(teams.size() - 1);
+    }
+
+    private static boolean addToFreeSlot(Team team, long ownAccountId) {
+        if (holds(team, ownAccountId)) {
+            return true;
+        }
+        int slot = freeSlot(team);
+        if (slot == 0) {
+            return false;
+        }
+        team.setSlotAccountId(slot, ownAccountId);
+        return true;
+    }
+
+    private static boolean holds(Team team, long accountId) {
+        for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+            Long id = team.getSlotAccountId(slot);
+            if (id != null && id == accountId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * First empty slot (1-4), 0 if the team is full
+     */
+    private static int freeSlot(Team team) {
+        for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+            if (team.getSlotAccountId(slot) == null) {
+                return slot;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Own accounts (not deleted) by name (InterneID)
+     * Loaded once per run - Einteilung.csv references accounts by name only. A name
+     * used by several accounts maps to none of them (see ambiguousOwnAccounts).
+     */
+    private Map<String, Long> ownAccountIds() throws IOException {
+        if (ownAccountIds == null) {
+            Map<String, Long> ids = new HashMap<>();
+            Set<String> duplicates = new HashSet<>();
+            for (Account account : await(store.getAll("accounts", Account.class))) {
+                if (account.getName() == null || account.isCustomerAccount()
+                        || (account.getDeletedAt() != null && !account.getDeletedAt().isEmpty())) {
+                    continue;
+                }
+                Long known = ids.put(key(account.getName()), account.getId());
+                if (known != null && known != account.getId()) {
+                    duplicates.add(key(account.getName()));
+                }
+            }
+            ids.keySet().removeAll(duplicates);
+            ownAccountIds = ids;
+            ambiguousOwnAccounts = duplicates;
+        }
+        return ownAccountIds;
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // ==================== Helper ====================
+
+    private interface RowHandler {
+        void handle(CsvRow row);
+    }
+
+    /**
+     * Stream a CSV file with header line, a missing file counts as empty
+     */
+    private void readCsv(File file, RowHandler handler) throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        try (CSVReader csvReader = new CSVReader(newReader(file))) {
+            String[] header = csvReader.readNext();
+            if (header == null) {
+                return;
+            }
+            CsvRow row = new CsvRow(header);
+            String[] line;
+            while ((line = csvReader.readNext()) != null) {
+                row.reset(line, csvReader.getLinesRead());
+                if (!row.isBlank()) {
+                    handler.handle(row);
+                }
+            }
+        } catch (CsvValidationException e) {
+            throw new IOException("Invalid CSV " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    private static Reader newReader(File file) throws IOException {
+        return new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8);
+    }
+
+    private void writeInBatches(Map<String, Object> updates) throws IOException {
+        Map<String, Object> batch = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : updates.entrySet()) {
+            batch.put(entry.getKey(), entry.getValue());
+            if (batch.size() >= batchSize) {
+                await(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            await(batch);
+        }
+    }
+
+    private void await(Map<String, Object> batch) throws IOException {
+        await(store.updatePaths(batch));
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause() != null ? e.getCause().getMessage() : e.getMessage(), e);
+        }
+    }
+
+    private static void putIfPresent(Map<String, Object> updates, String path, String value) {
+        if (!value.isEmpty()) {
+            updates.put(path, value);
+        }
+    }
+
+    private static void stamp(Event event, long now) {
+        event.setCreatedAt(TimestampHelper.formatIso(now));
+        event.setCreatedAtTimestamp(now);
+        event.setUpdatedAt(TimestampHelper.formatIso(now));
+        event.setUpdatedAtTimestamp(now);
+    }
+
+    private Checkpoint loadCheckpoint() {
+        if (!checkpointFile.exists()) {
+            return new Checkpoint();
+        }
+        try (Reader reader = newReader(checkpointFile)) {
+            Checkpoint checkpoint = gson.fromJson(reader, Checkpoint.class);
+            return checkpoint != null ? checkpoint : new Checkpoint();
+        } catch (Exception e) {
+            // A broken checkpoint only costs a re-run - all writes are idempotent
+            Log.w(TAG, "Unreadable checkpoint, starting over", e);
+            return new Checkpoint();
+        }
+    }
+
+    private void saveCheckpoint(Checkpoint checkpoint) {
+        File tmp = new File(checkpointFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp, false), StandardCharsets.UTF_8)) {
+            gson.toJson(checkpoint, writer);
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write checkpoint", e);
+            return;
+        }
+        if (!tmp.renameTo(checkpointFile)) {
+            Log.e(TAG, "Failed to replace checkpoint file");
+        }
+    }
+}
@@ -0,0 +1,660 @@
+package de.babixgo.monopolygo.database;
+
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import de.babixgo.monopolygo.LogHelper;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Offline-first mutation journal for repository writes
+ *
+ * While the backend is reachable and nothing is queued, writes go straight to
+ * the DataStore. Otherwise they are appended to a local journal file and the
+ * caller gets a completed future right away, so rotations in a dead zone are not
+ * slowed down by writes that cannot be acknowledged yet. The file itself is written
+ * on AppExecutors.io(), never on the calling (UI) thread.
+ *
+ * Journaled writes bypass Firebase's own offline cache, so repositories pass their
+ * reads through overlay()/pendingSaves() - the user sees their own offline edits.
+ *
+ * When ".info/connected" reports true, the journal is replayed strictly in order.
+ * Before a write is replayed, the entity's updatedAt on the server is compared to
+ * the updatedAt the change was based on: if someone else wrote the entity in the
+ * meantime, the mutation is not applied (lost update) but moved to a conflict
+ * file for manual review. Nothing is ever silently dropped.
+ *
+ * WICHTIG: Singleton - attach() einmal beim App-Start aufrufen
+ */
+public class MutationJournal {
+    private static final String TAG = "MutationJournal";
+    private static final String OP_SAVE = "save";
+    private static final String OP_UPDATE = "update";
+    private static final String OP_DELETE = "delete";
+    // A replay read or write that takes longer is treated as failed
+    private static final long REPLAY_TIMEOUT_MS = 30_000;
+    private static MutationJournal instance;
+
+    private final DataStore store;
+    private final ExecutorService replayExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Nulls in update fields are deletions and must survive the journal
+    private final Gson gson = new GsonBuilder().serializeNulls().create();
+
+    // Pending mutations, oldest first - the journal file follows asynchronously
+    private final List<Mutation> entries = new ArrayList<>();
+    // Appended but not yet written to the journal / conflict file
+    private final List<Mutation> unwritten = new ArrayList<>();
+    private final List<Mutation> unwrittenConflicts = new ArrayList<>();
+    // Serializes file writes - taken before the journal lock, never inside it
+    private final Object fileLock = new Object();
+    private File journalFile;
+    private File conflictFile;
+    private volatile boolean connected = false;
+    private boolean replaying = false;
+    private boolean writeScheduled = false;
+    private boolean compactPending = false;
+    private int conflictCount = 0;
+
+    /**
+     * One journaled write
+     */
+    private static class Mutation {
+        String op;
+        String collection;
+        String id;
+        String type;                 // Class name of the saved object (save only)
+        String payload;              // Saved object as JSON (save only)
+        Map<String, Object> fields;  // Changed fields (update only)
+        long baseUpdatedAt;          // Server updatedAt this change was based on (0 = no check)
+        long mutatedAt;
+
+        String getPath() {
+            return collection + "/" + id;
+        }
+    }
+
+    /**
+     * Journal in front of any DataStore - without attach() it only lives in memory
+     */
+    public MutationJournal(DataStore store) {
+        this.store = store;
+
+        store.addConnectionListener(isConnected -> {
+            connected = isConnected;
+            LogHelper.d(TAG, () -> "Backend " + (isConnected ? "connected" : "disconnected") + ", " + getPendingCount() + " mutations pending");
+            if (isConnected) {
+                replay();
+            }
+        });
+    }
+
+    /**
+     * App-wide journal in front of Firebase
+     */
+    public static synchronized MutationJournal getInstance() {
+        if (instance == null) {
+            instance = new MutationJournal(FirebaseManager.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Load the journal from the app files dir, replayed as soon as the backend is connected
+     */
+    public void attach(File filesDir) {
+        synchronized (this) {
+            if (journalFile != null) {
+                return;
+            }
+        }
+        File file = new File(filesDir, "mutation.journal");
+        List<Mutation> loaded = load(file);
+
+        synchronized (this) {
+            if (journalFile != null) {
+                return;
+            }
+            journalFile = file;
+            conflictFile = new File(filesDir, "mutation_conflicts.journal");
+            // Loaded entries go before mutations queued in memory before attach()
+            entries.addAll(0, loaded);
+            unwritten.clear();
+            if (entries.size() > loaded.size()) {
+                compactPending = true;
+                scheduleWrite();
+            }
+        }
+
+        if (connected) {
+            replay();
+        }
+    }
+
+    // ==================== Mutations ====================
+
+    /**
+     * Save a whole object to collection/id
+     *
+     * @param id Object key (null = new push key)
+     * @param baseUpdatedAt updatedAt of the object as it was loaded (0 for new objects)
+     */
+    public <T> CompletableFuture<T> save(String collection, String id, T object, long baseUpdatedAt) {
+        synchronized (this) {
+            if (!isWriteThrough()) {
+                String key = id;
+                if (key == null) {
+                    // Same as a direct save: the caller gets the object with its new key
+                    key = store.newKey(collection);
+                    BeanMapper.applyKey(object, key);
+                }
+                Mutation mutation = newMutation(OP_SAVE, collection, key, baseUpdatedAt);
+                mutation.type = object.getClass().getName();
+                mutation.payload = gson.toJson(object);
+                append(mutation);
+                return CompletableFuture.completedFuture(object);
+            }
+        }
+        return store.save(collection, object, id);
+    }
+
+    /**
+     * Update single fields of collection/id
+     *
+     * @param baseUpdatedAt updatedAt the change was based on (0 = use the mutation time)
+     */
+    public CompletableFuture<Void> update(String collection, String id, Map<String, Object> fields, long baseUpdatedAt) {
+        synchronized (this) {
+            if (!isWriteThrough()) {
+                Mutation mutation = newMutation(OP_UPDATE, collection, id, baseUpdatedAt);
+                mutation.fields = new HashMap<>(fields);
+                append(mutation);
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        return store.updateFields(collection, id, fields);
+    }
+
+    /**
+     * Delete collection/id
+     */
+    public CompletableFuture<Void> delete(String collection, String id) {
+        synchronized (this) {
+            if (!isWriteThrough()) {
+                append(newMutation(OP_DELETE, collection, id, 0));
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        return store.delete(collection, id);
+    }
+
+    /**
+     * Writes may bypass the journal only when online and nothing older is queued
+     * Without a configured backend nothing would ever be replayed - writes go to the
+     * store and fail there instead of being journaled forever
+     */
+    public synchronized boolean isWriteThrough() {
+        return !store.isConfigured() || (connected && entries.isEmpty());
+    }
+
+    public synchronized int getPendingCount() {
+        return entries.size();
+    }
+
+    /**
+     * Number of mutations moved to the conflict file since app start
+     */
+    public synchronized int getConflictCount() {
+        return conflictCount;
+    }
+
+    // ==================== Read Overlay ====================
+
+    /**
+     * Apply pending mutations of a collection to a list read from the store
+     * Saves replace or add items, updates patch them, deletes remove them
+     *
+     * @param keyOf Key of an item in the collection
+     */
+    public <T> List<T> overlay(String collection, Class<T> clazz, List<T> items, Function<T, String> keyOf) {
+        List<Mutation> pending = pendingFor(collection, null);
+        if (pending.isEmpty()) {
+            return items;
+        }
+
+        Map<String, T> byKey = new LinkedHashMap<>();
+        for (T item : items) {
+            byKey.put(keyOf.apply(item), item);
+        }
+        for (Mutation mutation : pending) {
+            byKey.put(mutation.id, applyTo(mutation, byKey.get(mutation.id), clazz));
+        }
+        byKey.values().removeIf(item -> item == null);
+        return new ArrayList<>(byKey.values());
+    }
+
+    /**
+     * Apply pending mutations of collection/id to a single item read from the store
+     *
+     * @return The item as the user last wrote it, null if deleted (or never existed)
+     */
+    public <T> T overlay(String collection, String id, Class<T> clazz, T item) {
+        for (Mutation mutation : pendingFor(collection, id)) {
+            item = applyTo(mutation, item, clazz);
+        }
+        return item;
+    }
+
+    /**
+     * Objects of pending saves below a path (e.g. the activity buckets of one customer)
+     */
+    public <T> List<T> pendingSaves(String pathPrefix, Class<T> clazz) {
+        List<Mutation> saves = new ArrayList<>();
+        synchronized (this) {
+            for (Mutation mutation : entries) {
+                if (OP_SAVE.equals(mutation.op)
+                        && (mutation.collection.equals(pathPrefix) || mutation.collection.startsWith(pathPrefix + "/"))) {
+                    saves.add(mutation);
+                }
+            }
+        }
+
+        List<T> objects = new ArrayList<>();
+        for (Mutation mutation : saves) {
+            objects.add(applyTo(mutation, null, clazz));
+        }
+        return objects;
+    }
+
+    private synchronized List<Mutation> pendingFor(String collection, String id) {
+        if (entries.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Mutation> pending = new ArrayList<>();
+        for (Mutation mutation : entries) {
+            if (mutation.collection.equals(collection) && (id == null || id.equals(mutation.id))) {
+                pending.add(mutation);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * State of an item after one mutation - field paths are applied like updateFields()
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T applyTo(Mutation mutation, T item, Class<T> clazz) {
+        T result;
+        switch (mutation.op) {
+            case OP_SAVE:
+                result = gson.fromJson(mutation.payload, clazz);
+                break;
+            case OP_UPDATE:
+                if (item == null) {
+                    return null;
+                }
+                Map<String, Object> node = (Map<String, Object>) BeanMapper.toTree(item);
+                for (Map.Entry<String, Object> field : mutation.fields.entrySet()) {
+                    setPath(node, field.getKey(), BeanMapper.toTree(field.getValue()));
+                }
+                result = BeanMapper.fromTree(node, clazz);
+                break;
+            default:
+                return null;
+        }
+        BeanMapper.applyKey(result, mutation.id);
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void setPath(Map<String, Object> node, String path, Object value) {
+        String[] segments = path.split("/");
+        for (int i = 0; i < segments.length - 1; i++) {
+            Object child = node.get(segments[i]);
+            if (!(child instanceof Map)) {
+                if (value == null) {
+                    return;
+                }
+                child = BeanMapper.newNode();
+                node.put(segments[i], child);
+            }
+            node = (Map<String, Object>) child;
+        }
+        if (value == null) {
+            node.remove(segments[segments.length - 1]);
+        } else {
+            node.put(segments[segments.length - 1], value);
+        }
+    }
+
+    // ==================== Replay ====================
+
+    /**
+     * Replay journaled mutations in order on the background executor
+     */
+    public void replay() {
+        synchronized (this) {
+            if (replaying || entries.isEmpty()) {
+                return;
+            }
+            replaying = true;
+        }
+        try {
+            replayExecutor.execute(this::replayLoop);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not start replay", e);
+            synchronized (this) {
+                replaying = false;
+            }
+        }
+    }
+
+    private void replayLoop() {
+        // Entities already written by this run passed the check on their first mutation,
+        // their newer updatedAt is our own and no conflict
+        Set<String> ownWrites = new HashSet<>();
+        int applied = 0;
+        int conflicts = 0;
+        boolean failed = false;
+
+        try {
+            while (connected) {
+                Mutation mutation;
+                synchronized (this) {
+                    if (entries.isEmpty()) {
+                        break;
+                    }
+                    mutation = entries.get(0);
+                }
+
+                if (isConflict(mutation, ownWrites)) {
+                    Log.w(TAG, "Conflict on " + mutation.getPath() + ", mutation moved to conflict journal");
+                    synchronized (this) {
+                        entries.remove(0);
+                        conflictCount++;
+                        unwrittenConflicts.add(mutation);
+                    }
+                    conflicts++;
+                    continue;
+                }
+
+                apply(mutation).get(REPLAY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                ownWrites.add(mutation.getPath());
+
+                synchronized (this) {
+                    entries.remove(0);
+                }
+                applied++;
+            }
+        } catch (Exception e) {
+            // Keep the failed (or timed out) mutation at the head - retried on the next
+            // connect or journaled write
+            Log.e(TAG, "Replay stopped after " + applied + " mutations", e);
+            failed = true;
+        } finally {
+            synchronized (this) {
+                replaying = false;
+                // The journal file is compacted once per run, not after every mutation
+                if (applied > 0 || conflicts > 0) {
+                    compactPending = true;
+                    scheduleWrite();
+                }
+            }
+        }
+
+        if (applied > 0) {
+            int count = applied;
+            LogHelper.d(TAG, () -> "Replayed " + count + " mutations, " + getPendingCount() + " pending");
+        }
+
+        // An append may have raced with the end of this run
+        if (!failed && connected) {
+            replay();
+        }
+    }
+
+    /**
+     * Lost-update check: has the entity been written after the state this change was based on?
+     *
+     * Both sides are compared at the precision they are known with: a base or server
+     * value that only came from the ISO text (yyyy-MM-dd'T'HH:mm:ss) is compared by the
+     * second, otherwise by the millisecond.
+     */
+    private boolean isConflict(Mutation mutation, Set<String> ownWrites) throws Exception {
+        if (OP_DELETE.equals(mutation.op) || ownWrites.contains(mutation.getPath())) {
+            return false;
+        }
+        long written = writtenUpdatedAt(mutation);
+        long expected = mutation.baseUpdatedAt > 0 ? mutation.baseUpdatedAt : written;
+        if (expected <= 0) {
+            return false;
+        }
+
+        String path = mutation.getPath();
+        Long serverTimestamp = store.getValue(path + "/updatedAtTimestamp", Long.class)
+            .get(REPLAY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        boolean serverMillis = serverTimestamp != null && serverTimestamp > 0;
+        long server = serverMillis
+            ? serverTimestamp
+            : TimestampHelper.toEpochMillis(store.getValue(path + "/updatedAt", String.class)
+                .get(REPLAY_TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        // Already written by a run that stopped before the journal was compacted
+        if (written > 0 && server == written) {
+            return false;
+        }
+        if (!serverMillis || expected % 1000 == 0) {
+            return server / 1000 > expected / 1000;
+        }
+        return server > expected;
+    }
+
+    private CompletableFuture<?> apply(Mutation mutation) throws ClassNotFoundException {
+        switch (mutation.op) {
+            case OP_SAVE:
+                Object object = gson.fromJson(mutation.payload, Class.forName(mutation.type));
+                return store.save(mutation.collection, object, mutation.id);
+            case OP_UPDATE:
+                return store.updateFields(mutation.collection, mutation.id, mutation.fields);
+            case OP_DELETE:
+                return store.delete(mutation.collection, mutation.id);
+            default:
+                Log.w(TAG, "Unknown journal op: " + mutation.op);
+                return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * updatedAt stamped by the mutation itself, 0 if it does not set one
+     * Blind field updates are checked against their own time: a newer server write wins
+     */
+    private long writtenUpdatedAt(Mutation mutation) {
+        if (OP_UPDATE.equals(mutation.op)) {
+            Object value = mutation.fields.get("updatedAtTimestamp");
+            return value instanceof Number ? ((Number) value).longValue() : 0;
+        }
+        if (OP_SAVE.equals(mutation.op)) {
+            try {
+                JsonElement value = gson.fromJson(mutation.payload, JsonObject.class).get("updatedAtTimestamp");
+                return value != null && value.isJsonPrimitive() ? value.getAsLong() : 0;
+            } catch (RuntimeException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    // ==================== Journal File ====================
+
+    private Mutation newMutation(String op, String collection, String id, long baseUpdatedAt) {
+        Mutation mutation = new Mutation();
+        mutation.op = op;
+        mutation.collection = collection;
+        mutation.id = id;
+        mutation.baseUpdatedAt = baseUpdatedAt;
+        mutation.mutatedAt = TimestampHelper.now();
+        return mutation;
+    }
+
+    private void append(Mutation mutation) {
+        entries.add(mutation);
+        unwritten.add(mutation);
+        scheduleWrite();
+        LogHelper.d(TAG, () -> "Journaled " + mutation.op + " " + mutation.getPath() + " (" + entries.size() + " pending)");
+        if (connected) {
+            replay();
+        }
+    }
+
+    /**
+     * Write appended mutations on the io executor - called with the journal lock held
+     */
+    private void scheduleWrite() {
+        if (journalFile == null) {
+            // Not attached - attach() writes whatever is still pending then
+            unwritten.clear();
+            unwrittenConflicts.clear();
+            compactPending = false;
+            return;
+        }
+        if (writeScheduled) {
+            return;
+        }
+        writeScheduled = true;
+        AppExecutors.io().execute(this::writeFiles);
+    }
+
+    private void writeFiles() {
+        synchronized (fileLock) {
+            List<Mutation> lines;
+            List<Mutation> conflicts;
+            boolean compact;
+            synchronized (this) {
+                writeScheduled = false;
+                compact = compactPending;
+                compactPending = false;
+                lines = new ArrayList<>(compact ? entries : unwritten);
+                conflicts = new ArrayList<>(unwrittenConflicts);
+                unwritten.clear();
+                unwrittenConflicts.clear();
+            }
+
+            if (!conflicts.isEmpty()) {
+                appendLines(conflictFile, conflicts);
+            }
+            if (compact) {
+                rewriteJournal(lines);
+            } else if (!lines.isEmpty()) {
+                appendLines(journalFile, lines);
+            }
+        }
+    }
+
+    private List<Mutation> load(File file) {
+        List<Mutation> loaded = new ArrayList<>();
+        if (!file.exists()) {
+            return loaded;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                Mutation mutation = gson.fromJson(line, Mutation.class);
+                if (mutation != null && mutation.op != null) {
+                    if (mutation.fields != null) {
+                        mutation.fields = normalizeNumbers(mutation.fields);
+                    }
+                    loaded.add(mutation);
+                }
+            }
+        } catch (Exception e) {
+            // A torn last line after a crash is expected - keep what was read
+            Log.w(TAG, "Journal load stopped early", e);
+        }
+        LogHelper.d(TAG, () -> "Loaded " + loaded.size() + " journaled mutations");
+        return loaded;
+    }
+
+    private void appendLines(File file, List<Mutation> mutations) {
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8)) {
+            for (Mutation mutation : mutations) {
+                writer.write(gson.toJson(mutation));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to append to " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Rewrite the journal to exactly the given pending entries
+     */
+    private void rewriteJournal(List<Mutation> pending) {
+        if (pending.isEmpty()) {
+            journalFile.delete();
+            return;
+        }
+
+        File tmp = new File(journalFile.getPath() + ".tmp");
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(tmp, false), StandardCharsets.UTF_8)) {
+            for (Mutation mutation : pending) {
+                writer.write(gson.toJson(mutation));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to rewrite journal", e);
+            return;
+        }
+        if (!tmp.renameTo(journalFile)) {
+            Log.e(TAG, "Failed to replace journal file");
+        }
+    }
+
+    /**
+     * Gson reads every JSON number as Double - restore integral values as Long
+     */
+    static Map<String, Object> normalizeNumbers(Map<String, Object> fields) {
+        Map<String, Object> normalized = new HashMap<>();
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = field.getValue();
+            if (value instanceof Double) {
+                double d = (Double) value;
+                if (d == Math.rint(d) && Math.abs(d) < 9.0E15) {
+                    value = (long) d;
+                }
+            }
+            normalized.put(field.getKey(), value);
+        }
+        return normalized;
+    }
+}
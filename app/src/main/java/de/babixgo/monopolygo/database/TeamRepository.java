@@ -1,11 +1,16 @@
 package de.babixgo.monopolygo.database;
 
+import de.babixgo.monopolygo.models.Account;
 import de.babixgo.monopolygo.models.Team;
+import de.babixgo.monopolygo.utils.IdHelper;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
 import java.util.stream.Collectors;
 
 /**
@@ -13,20 +18,28 @@ import java.util.stream.Collectors;
  * Provides async operations using CompletableFuture
  */
 public class TeamRepository {
-    private final FirebaseManager firebase;
+    private final DataStore store;
     private static final String COLLECTION = "teams";
+    private static final String ACCOUNTS = "accounts";
     
     public TeamRepository() {
-        this.firebase = FirebaseManager.getInstance();
+        this(FirebaseManager.getInstance());
+    }
+    
+    /**
+     * Repository on any DataStore (e.g. InMemoryDataStore for JVM tests and benchmarks)
+     */
+    public TeamRepository(DataStore store) {
+        this.store = store;
     }
     
     /**
      * Get all teams for a specific event
+     * Queried by eventId (indexed), teams of other events are not downloaded
      */
     public CompletableFuture<List<Team>> getTeamsByEventId(long eventId) {
-        return firebase.getAll(COLLECTION, Team.class)
+        return store.query(COLLECTION, Team.class, new DataStore.QueryBuilder().orderByChild("eventId").equalTo(eventId))
             .thenApply(teams -> teams.stream()
-                .filter(team -> team.getEventId() == eventId)
                 .sorted((a, b) -> {
                     String nameA = a.getName() != null ? a.getName() : "";
                     String nameB = b.getName() != null ? b.getName() : "";
@@ -35,60 +48,213 @@ public class TeamRepository {
                 .collect(Collectors.toList()));
     }
     
+    /**
+     * Get all teams for a specific event with slot names filled in
+     * Constant number of reads regardless of the team count (see resolveSlotNames)
+     */
+    public CompletableFuture<List<Team>> getTeamsWithSlotNames(long eventId) {
+        return getTeamsByEventId(eventId).thenCompose(this::resolveSlotNames);
+    }
+    
     /**
      * Get team by ID
      */
     public CompletableFuture<Team> getTeamById(long id) {
-        return firebase.getById(COLLECTION, String.valueOf(id), Team.class);
+        return store.getById(COLLECTION, String.valueOf(id), Team.class);
     }
     
     /**
      * Create new team
      */
     public CompletableFuture<Team> createTeam(Team team) {
-        if (!firebase.isConfigured()) {
+        if (!store.isConfigured()) {
             return CompletableFuture.failedFuture(
                 new RuntimeException("Firebase ist nicht konfiguriert.")
             );
         }
         
-        String now = getCurrentTimestamp();
-        team.setCreatedAt(now);
-        team.setUpdatedAt(now);
+        long now = TimestampHelper.now();
+        team.setCreatedAt(TimestampHelper.formatIso(now));
+        team.setCreatedAtTimestamp(now);
+        team.setUpdatedAt(TimestampHelper.formatIso(now));
+        team.setUpdatedAtTimestamp(now);
         
-        String id = team.getId() != 0 ? String.valueOf(team.getId()) : null;
+        // The slot index needs the ID before the write: numeric ID derived from a new push key
+        if (team.getId() == 0) {
+            team.setId(IdHelper.stableId(COLLECTION, store.newKey(COLLECTION)));
+        }
         
-        return firebase.save(COLLECTION, team, id);
+        return writeWithIndex(team.getEventId(), Collections.singletonList(team), Collections.emptyList())
+            .thenApply(written -> team);
     }
     
     /**
      * Update team
      */
     public CompletableFuture<Team> updateTeam(Team team) {
-        team.setUpdatedAt(getCurrentTimestamp());
+        long now = TimestampHelper.now();
+        team.setUpdatedAt(TimestampHelper.formatIso(now));
+        team.setUpdatedAtTimestamp(now);
         
-        return firebase.save(COLLECTION, team, String.valueOf(team.getId()));
+        return writeWithIndex(team.getEventId(), Collections.singletonList(team), Collections.emptyList())
+            .thenApply(written -> team);
+    }
+    
+    /**
+     * Save several teams of one event in one atomic multi-path write (e.g. a slot assignment)
+     * Teams need an ID, teams without createdAt are stamped as new
+     */
+    public CompletableFuture<Void> saveTeams(List<Team> teams) {
+        if (!store.isConfigured()) {
+            return CompletableFuture.failedFuture(
+                new RuntimeException("Firebase ist nicht konfiguriert.")
+            );
+        }
+        if (teams.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        
+        long now = TimestampHelper.now();
+        for (Team team : teams) {
+            if (team.getCreatedAt() == null) {
+                team.setCreatedAt(TimestampHelper.formatIso(now));
+                team.setCreatedAtTimestamp(now);
+            }
+            team.setUpdatedAt(TimestampHelper.formatIso(now));
+            team.setUpdatedAtTimestamp(now);
+        }
+        
+        return writeWithIndex(teams.get(0).getEventId(), teams, Collections.emptyList());
     }
     
     /**
      * Delete team
      */
     public CompletableFuture<Void> deleteTeam(long id) {
-        return firebase.delete(COLLECTION, String.valueOf(id));
+        return getTeamById(id)
+            .thenCompose(team -> team != null
+                ? writeWithIndex(team.getEventId(), Collections.emptyList(), Collections.singletonList(id))
+                : store.delete(COLLECTION, String.valueOf(id)));
+    }
+    
+    // ==================== Slot Index ====================
+    
+    /**
+     * Reverse index account -> team slots of one event (one read)
+     */
+    public CompletableFuture<TeamSlotIndex> getSlotIndex(long eventId) {
+        return store.getValue(TeamSlotIndex.COLLECTION + "/" + eventId, Object.class)
+            .thenApply(node -> TeamSlotIndex.fromNode(eventId, node));
+    }
+    
+    /**
+     * O(1) check: can the account join one more team of the event?
+     * Reads only team_slots/{eventId}/{accountId}
+     */
+    public CompletableFuture<Boolean> isAccountFree(long eventId, long accountId) {
+        return store.getValue(TeamSlotIndex.COLLECTION + "/" + eventId + "/" + accountId, Object.class)
+            .thenApply(TeamSlotIndex::isFree);
+    }
+    
+    /**
+     * Rebuild the index of an event from its teams
+     * For teams written without index (e.g. before the index existed)
+     */
+    public CompletableFuture<TeamSlotIndex> rebuildSlotIndex(long eventId) {
+        String eventPath = TeamSlotIndex.COLLECTION + "/" + eventId;
+        return getTeamsByEventId(eventId).thenCompose(teams -> {
+            TeamSlotIndex index = TeamSlotIndex.fromTeams(eventId, teams);
+            // The event node is replaced as one value: readers never see it cleared but not yet rewritten
+            return store.updatePaths(Collections.singletonMap(eventPath, index.toNode()))
+                .thenApply(written -> index);
+        });
+    }
+    
+    /**
+     * Write teams and delete team IDs of one event together with their index entries
+     * Slot names are completed first, so the stored denormalized names stay complete
+     * Reads the event's index once, then one atomic multi-path update
+     */
+    private CompletableFuture<Void> writeWithIndex(long eventId, List<Team> saved, List<Long> deletedIds) {
+        return resolveSlotNames(saved).thenCompose(named -> getSlotIndex(eventId)).thenCompose(index -> {
+            Map<String, Object> updates = new HashMap<>();
+            for (Long id : deletedIds) {
+                for (String path : index.pathsOf(id)) {
+                    updates.put(path, null);
+                }
+                updates.put(COLLECTION + "/" + id, null);
+            }
+            for (Team team : saved) {
+                for (String path : index.pathsOf(team.getId())) {
+                    updates.put(path, null);
+                }
+            }
+            // Current entries after the removals, so unchanged slots are simply rewritten
+            for (Team team : saved) {
+                updates.putAll(TeamSlotIndex.slotPaths(team));
+                updates.put(COLLECTION + "/" + team.getId(), team);
+            }
+            return store.updatePaths(updates);
+        });
+    }
+    
+    // ==================== Slot Names ====================
+    
+    /**
+     * Batch join: fill slot1Name..slot4Name of the teams
+     * Names stored with the team are kept, all missing ones are resolved with a single
+     * read of the accounts - no read at all if every slot already has its name
+     */
+    public CompletableFuture<List<Team>> resolveSlotNames(List<Team> teams) {
+        Set<Long> missing = new HashSet<>();
+        for (Team team : teams) {
+            for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+                if (team.getSlotAccountId(slot) != null && team.getSlotName(slot) == null) {
+                    missing.add(team.getSlotAccountId(slot));
+                }
+            }
+        }
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(teams);
+        }
+        
+        return store.getAll(ACCOUNTS, Account.class).thenApply(accounts -> {
+            Map<Long, String> names = new HashMap<>();
+            for (Account account : accounts) {
+                if (missing.contains(account.getId())) {
+                    names.put(account.getId(), account.getName());
+                }
+            }
+            for (Team team : teams) {
+                for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+                    Long accountId = team.getSlotAccountId(slot);
+                    if (accountId != null && team.getSlotName(slot) == null) {
+                        team.setSlotName(slot, names.get(accountId));
+                    }
+                }
+            }
+            return teams;
+        });
     }
     
     /**
-     * Helper method for current timestamp in ISO 8601 format
+     * Update the stored slot names after an account was renamed
+     * Finds the account's slots in all events through the slot index: one read, one write
      */
-    private String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        return sdf.format(new Date());
+    public CompletableFuture<Void> syncAccountName(long accountId, String name) {
+        return store.getValue(TeamSlotIndex.COLLECTION, Object.class).thenCompose(node -> {
+            Map<String, Object> updates = new HashMap<>();
+            for (Map.Entry<Long, Integer> teamSlot : TeamSlotIndex.slotsOfAccount(node, accountId).entrySet()) {
+                updates.put(COLLECTION + "/" + teamSlot.getKey() + "/slot" + teamSlot.getValue() + "Name", name);
+            }
+            return updates.isEmpty() ? CompletableFuture.completedFuture(null) : store.updatePaths(updates);
+        });
     }
     
     /**
      * Check if Firebase is configured
      */
     public boolean isFirebaseConfigured() {
-        return firebase.isConfigured();
+        return store.isConfigured();
     }
 }
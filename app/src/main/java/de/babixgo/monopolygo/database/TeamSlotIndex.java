@@ -0,0 +1,226 @@
+package de.babixgo.monopolygo.database;
+
+import de.babixgo.monopolygo.SlotAssignmentEngine;
+import de.babixgo.monopolygo.models.Team;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reverse index of one event: account ID -> teams/slots holding the account
+ *
+ * Stored at team_slots/{eventId}/{accountId}/{teamId} = slot number and maintained by
+ * every TeamRepository write, so it never has to be rebuilt from the teams. A snapshot
+ * answers "is this account free in the event" in O(1) - used for spinner population
+ * and validation when a team is edited.
+ *
+ * An account is free while it holds fewer than CUSTOMERS_PER_ACCOUNT slots in the event
+ * (the same limit SlotAssignmentEngine and TeamCompositionSolver use).
+ */
+public class TeamSlotIndex {
+    public static final String COLLECTION = "team_slots";
+    public static final int CUSTOMERS_PER_ACCOUNT = SlotAssignmentEngine.CUSTOMERS_PER_ACCOUNT;
+
+    /**
+     * One slot occupied by an account
+     */
+    public static class Assignment {
+        private final long teamId;
+        private final int slot;
+
+        Assignment(long teamId, int slot) {
+            this.teamId = teamId;
+            this.slot = slot;
+        }
+
+        public long getTeamId() { return teamId; }
+        public int getSlot() { return slot; }
+    }
+
+    private final long eventId;
+    private final Map<Long, List<Assignment>> byAccount = new HashMap<>();
+
+    TeamSlotIndex(long eventId) {
+        this.eventId = eventId;
+    }
+
+    /**
+     * Index computed from the teams themselves (rebuild, tests)
+     */
+    public static TeamSlotIndex fromTeams(long eventId, List<Team> teams) {
+        TeamSlotIndex index = new TeamSlotIndex(eventId);
+        for (Team team : teams) {
+            if (team.getEventId() == eventId) {
+                index.add(team);
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Index from the stored team_slots/{eventId} node (null = no entries)
+     */
+    static TeamSlotIndex fromNode(long eventId, Object node) {
+        TeamSlotIndex index = new TeamSlotIndex(eventId);
+        for (Map.Entry<String, Object> account : children(node).entrySet()) {
+            for (Map.Entry<String, Object> team : children(account.getValue()).entrySet()) {
+                if (team.getValue() instanceof Number) {
+                    index.put(Long.parseLong(account.getKey()), Long.parseLong(team.getKey()),
+                        ((Number) team.getValue()).intValue());
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Free check on a single stored team_slots/{eventId}/{accountId} node
+     */
+    static boolean isFree(Object accountNode) {
+        return children(accountNode).size() < CUSTOMERS_PER_ACCOUNT;
+    }
+
+    /**
+     * Slots of one account in all events of the whole stored team_slots node
+     * @return teamId -> slot
+     */
+    static Map<Long, Integer> slotsOfAccount(Object rootNode, long accountId) {
+        Map<Long, Integer> slots = new HashMap<>();
+        for (Map.Entry<String, Object> event : children(rootNode).entrySet()) {
+            TeamSlotIndex index = fromNode(Long.parseLong(event.getKey()), event.getValue());
+            for (Assignment assignment : index.getAssignments(accountId)) {
+                slots.put(assignment.teamId, assignment.slot);
+            }
+        }
+        return slots;
+    }
+
+    public long getEventId() {
+        return eventId;
+    }
+
+    /**
+     * All slots held by the account in this event
+     */
+    public List<Assignment> getAssignments(long accountId) {
+        List<Assignment> assignments = byAccount.get(accountId);
+        return assignments != null ? Collections.unmodifiableList(assignments) : Collections.emptyList();
+    }
+
+    /**
+     * Number of teams of this event holding the account
+     */
+    public int getUsage(long accountId) {
+        List<Assignment> assignments = byAccount.get(accountId);
+        return assignments != null ? assignments.size() : 0;
+    }
+
+    /**
+     * True if the account can join one more team of this event
+     */
+    public boolean isAccountFree(long accountId) {
+        return getUsage(accountId) < CUSTOMERS_PER_ACCOUNT;
+    }
+
+    /**
+     * True if the account can be put into a slot of teamId
+     * Slots of teamId itself do not count (the team is being edited)
+     */
+    public boolean isAccountFree(long accountId, long teamId) {
+        List<Assignment> assignments = byAccount.get(accountId);
+        if (assignments == null) {
+            return true;
+        }
+        int usage = 0;
+        for (Assignment assignment : assignments) {
+            if (assignment.teamId != teamId) {
+                usage++;
+            }
+        }
+        return usage < CUSTOMERS_PER_ACCOUNT;
+    }
+
+    /**
+     * Index paths of a team's slots (team_slots/{eventId}/{accountId}/{teamId})
+     */
+    static Map<String, Integer> slotPaths(Team team) {
+        Map<String, Integer> paths = new HashMap<>();
+        for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+            Long accountId = team.getSlotAccountId(slot);
+            if (accountId != null) {
+                paths.put(COLLECTION + "/" + team.getEventId() + "/" + accountId + "/" + team.getId(), slot);
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * The whole team_slots/{eventId} node ({accountId: {teamId: slot}}), null if empty
+     * Written as one value, it replaces the stored node in a single update
+     */
+    Map<String, Object> toNode() {
+        if (byAccount.isEmpty()) {
+            return null;
+        }
+        Map<String, Object> node = new HashMap<>();
+        for (Map.Entry<Long, List<Assignment>> entry : byAccount.entrySet()) {
+            Map<String, Object> teams = new HashMap<>();
+            for (Assignment assignment : entry.getValue()) {
+                teams.put(String.valueOf(assignment.teamId), assignment.slot);
+            }
+            node.put(String.valueOf(entry.getKey()), teams);
+        }
+        return node;
+    }
+
+    /**
+     * Index paths currently pointing to teamId (to delete before a team is rewritten)
+     */
+    List<String> pathsOf(long teamId) {
+        List<String> paths = new ArrayList<>();
+        for (Map.Entry<Long, List<Assignment>> entry : byAccount.entrySet()) {
+            for (Assignment assignment : entry.getValue()) {
+                if (assignment.teamId == teamId) {
+                    paths.add(COLLECTION + "/" + eventId + "/" + entry.getKey() + "/" + teamId);
+                    break;
+                }
+            }
+        }
+        return paths;
+    }
+
+    private void add(Team team) {
+        for (int slot = 1; slot <= Team.SLOT_COUNT; slot++) {
+            Long accountId = team.getSlotAccountId(slot);
+            if (accountId != null) {
+                put(accountId, team.getId(), slot);
+            }
+        }
+    }
+
+    private void put(long accountId, long teamId, int slot) {
+        byAccount.computeIfAbsent(accountId, key -> new ArrayList<>(2)).add(new Assignment(teamId, slot));
+    }
+
+    /**
+     * Children of a raw node - Firebase returns nodes with small integer keys as lists
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> children(Object node) {
+        if (node instanceof Map) {
+            return (Map<String, Object>) node;
+        }
+        Map<String, Object> children = new HashMap<>();
+        if (node instanceof List) {
+            List<Object> list = (List<Object>) node;
+            for (int i = 0; i < list.size(); i++) {
+                if (list.get(i) != null) {
+                    children.put(String.valueOf(i), list.get(i));
+                }
+            }
+        }
+        return children;
+    }
+}
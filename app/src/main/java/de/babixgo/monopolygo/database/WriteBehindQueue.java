@@ -0,0 +1,481 @@
+package de.babixgo.monopolygo.database;
+
+import android.util.Log;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import de.babixgo.monopolygo.LogHelper;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind queue for high-frequency field updates
+ *
+ * Updates to the same entity path (e.g. "accounts/12") that arrive within
+ * FLUSH_DELAY_MS are merged into one field map. All pending entities are then
+ * written with a single multi-path update instead of one updateChildren per call.
+ *
+ * Pending fields are mirrored into an append-only journal file so that updates
+ * survive a process kill between enqueue and flush. The journal is replayed on
+ * attachJournal() and compacted after every flush. Journal file I/O runs on the
+ * scheduler thread in submission order, never on the caller's thread.
+ *
+ * A batch rejected for a permanent reason (rules denial, invalid path or value) is
+ * written again entity by entity, so one rejected path cannot block the others; the
+ * entities rejected on their own are dropped and their waiters fail. Anything that
+ * failed for another reason (offline, timeout) is kept and retried with exponential
+ * backoff - its waiters complete once the retry succeeds.
+ *
+ * While offline (or while older writes wait in the MutationJournal) a flush hands
+ * the merged batch to the MutationJournal instead of writing it directly.
+ *
+ * A full save of an entity supersedes its queued field updates (supersede()): they
+ * are dropped, also from a flush still in flight, so they can never land after the
+ * save and overwrite newer fields or move updatedAt backwards.
+ *
+ * WICHTIG: Singleton - alle Repositories teilen sich eine Queue
+ */
+public class WriteBehindQueue {
+    private static final String TAG = "WriteBehindQueue";
+    private static final long FLUSH_DELAY_MS = 750;
+    private static final long MAX_RETRY_DELAY_MS = 60_000;
+    private static WriteBehindQueue instance;
+
+    private final DataStore store;
+    private final MutationJournal journal;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+    // Nulls are field deletions and must survive the journal
+    private final Gson gson = new GsonBuilder().serializeNulls().create();
+
+    // Entity path → merged pending write (insertion order = first enqueue)
+    private final Map<String, PendingWrite> pending = new LinkedHashMap<>();
+    // Entity path → write taken by the running flush
+    private final Map<String, PendingWrite> inFlight = new HashMap<>();
+    private ScheduledFuture<?> scheduledFlush;
+    private File journalFile;
+    private long retryDelayMs = 0;      // 0 = last flush succeeded
+    private long retryNotBefore = 0;    // No scheduled flush before this time (backoff)
+
+    /**
+     * Merged fields of one entity plus everyone waiting for them
+     */
+    private static class PendingWrite {
+        final Map<String, Object> fields = new HashMap<>();
+        final List<CompletableFuture<Void>> waiters = new ArrayList<>();
+        boolean superseded;  // A full save replaced it - never retried
+    }
+
+    /**
+     * One journal line: entity path and the fields written to it
+     */
+    private static class JournalEntry {
+        String path;
+        Map<String, Object> fields;
+
+        JournalEntry(String path, Map<String, Object> fields) {
+            this.path = path;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Queue in front of any DataStore, offline writes go to the given journal
+     */
+    public WriteBehindQueue(DataStore store, MutationJournal journal) {
+        this.store = store;
+        this.journal = journal;
+    }
+
+    /**
+     * App-wide queue in front of Firebase
+     */
+    public static synchronized WriteBehindQueue getInstance() {
+        if (instance == null) {
+            instance = new WriteBehindQueue(FirebaseManager.getInstance(), MutationJournal.getInstance());
+        }
+        return instance;
+    }
+
+    /**
+     * Attach the durable journal and replay updates left over from a previous run
+     * Call once from the first Activity with context.getFilesDir(), on the io pool
+     */
+    public synchronized void attachJournal(File filesDir) {
+        if (journalFile != null) {
+            return;
+        }
+        journalFile = new File(filesDir, "write_behind.journal");
+
+        int replayed = 0;
+        if (journalFile.exists()) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(journalFile))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.trim().isEmpty()) {
+                        continue;
+                    }
+                    JournalEntry entry = gson.fromJson(line, JournalEntry.class);
+                    if (entry != null && entry.path != null && entry.fields != null) {
+                        merge(entry.path, MutationJournal.normalizeNumbers(entry.fields));
+                        replayed++;
+                    }
+                }
+            } catch (Exception e) {
+                // A torn last line after a crash is expected - keep what was read
+                Log.w(TAG, "Journal replay stopped early", e);
+            }
+        }
+
+        // Pending writes made before the journal was attached are persisted now
+        rewriteJournal();
+
+        if (replayed > 0 || !pending.isEmpty()) {
+            int replayedEntries = replayed;
+            int pendingEntities = pending.size();
+            LogHelper.d(TAG, () -> "Replayed " + replayedEntries + " journal entries, " + pendingEntities + " entities pending");
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Queue a field update for an entity path
+     *
+     * @param entityPath Path of the entity (e.g. "accounts/12")
+     * @param fields Field names to new values (null deletes the field)
+     * @return CompletableFuture that completes when the merged batch is written
+     */
+    public synchronized CompletableFuture<Void> enqueue(String entityPath, Map<String, Object> fields) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+
+        merge(entityPath, fields).waiters.add(future);
+        appendJournal(new JournalEntry(entityPath, new HashMap<>(fields)));
+        scheduleFlush();
+
+        return future;
+    }
+
+    /**
+     * Write all pending updates now (e.g. when the app goes to background)
+     */
+    public CompletableFuture<Void> flush() {
+        Map<String, PendingWrite> batch;
+        CompletableFuture<Void> write;
+        synchronized (this) {
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+            if (pending.isEmpty()) {
+                return CompletableFuture.completedFuture(null);
+            }
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+
+            // Offline or older journaled writes pending: hand over to the journal to keep order
+            if (!journal.isWriteThrough()) {
+                handOff(batch);
+                return CompletableFuture.completedFuture(null);
+            }
+
+            LogHelper.d(TAG, () -> "Flushing " + batch.size() + " entities");
+
+            // One multi-path update for all entities: "accounts/12/note" → value
+            // Issued under the lock, so a full save (supersede()) is either issued after it
+            // or has already removed the entity from the batch
+            inFlight.putAll(batch);
+            write = store.updatePaths(toPaths(batch));
+        }
+
+        return write
+            .handle((v, error) -> error)
+            .thenCompose(error -> {
+                if (error == null) {
+                    complete(batch);
+                    return CompletableFuture.completedFuture(false);
+                }
+                if (batch.size() == 1 || !isPermanent(error)) {
+                    return CompletableFuture.completedFuture(failed(batch, error));
+                }
+
+                // Find the rejected entities - the others go through on their own
+                Log.w(TAG, "Batch of " + batch.size() + " entities rejected, writing them one by one", error);
+                List<CompletableFuture<Boolean>> singles = new ArrayList<>();
+                for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+                    Map<String, PendingWrite> single = new LinkedHashMap<>();
+                    single.put(entry.getKey(), entry.getValue());
+                    CompletableFuture<Void> singleWrite;
+                    synchronized (WriteBehindQueue.this) {
+                        if (entry.getValue().superseded) {
+                            complete(single);
+                            continue;
+                        }
+                        singleWrite = store.updatePaths(toPaths(single));
+                    }
+                    singles.add(singleWrite
+                        .handle((v, singleError) -> {
+                            if (singleError == null) {
+                                complete(single);
+                                return false;
+                            }
+                            return failed(single, singleError);
+                        }));
+                }
+                return CompletableFuture.allOf(singles.toArray(new CompletableFuture[0]))
+                    .thenApply(v -> singles.stream().anyMatch(CompletableFuture::join));
+            })
+            .thenAccept(retry -> flushDone(batch, retry));
+    }
+
+    /**
+     * Drop the queued field updates of an entity that is about to be saved as a whole
+     * Call before issuing the save: a flush already in flight was issued earlier and
+     * lands first, a failed one is not retried.
+     *
+     * @return Future to complete with the save - the dropped updates' waiters follow it
+     */
+    public synchronized CompletableFuture<Void> supersede(String entityPath) {
+        CompletableFuture<Void> save = new CompletableFuture<>();
+        PendingWrite queued = pending.remove(entityPath);
+        if (queued != null) {
+            follow(save, queued.waiters);
+            rewriteJournal();
+            LogHelper.d(TAG, () -> "Full save of " + entityPath + " supersedes " + queued.fields.keySet());
+        }
+        PendingWrite flushing = inFlight.get(entityPath);
+        if (flushing != null) {
+            flushing.superseded = true;
+        }
+        return save;
+    }
+
+    private static void follow(CompletableFuture<Void> save, List<CompletableFuture<Void>> waiters) {
+        save.whenComplete((v, error) -> {
+            for (CompletableFuture<Void> waiter : waiters) {
+                if (error != null) {
+                    waiter.completeExceptionally(error);
+                } else {
+                    waiter.complete(null);
+                }
+            }
+        });
+    }
+
+    /**
+     * "entity/field" → value for all fields of a batch
+     */
+    private static Map<String, Object> toPaths(Map<String, PendingWrite> batch) {
+        Map<String, Object> paths = new HashMap<>();
+        for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+            for (Map.Entry<String, Object> field : entry.getValue().fields.entrySet()) {
+                paths.put(entry.getKey() + "/" + field.getKey(), field.getValue());
+            }
+        }
+        return paths;
+    }
+
+    private static void complete(Map<String, PendingWrite> batch) {
+        for (PendingWrite write : batch.values()) {
+            for (CompletableFuture<Void> waiter : write.waiters) {
+                waiter.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Drop a batch rejected for good (its waiters fail), keep anything else for a retry
+     *
+     * @return true if the batch was put back for a retry
+     */
+    private boolean failed(Map<String, PendingWrite> batch, Throwable error) {
+        if (!isPermanent(error)) {
+            Log.w(TAG, "Write of " + batch.keySet() + " failed, keeping it for retry: " + error.getMessage());
+            requeue(batch);
+            return true;
+        }
+
+        Log.e(TAG, "Write of " + batch.keySet() + " rejected, dropping the update", error);
+        for (PendingWrite write : batch.values()) {
+            for (CompletableFuture<Void> waiter : write.waiters) {
+                waiter.completeExceptionally(error);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compact the journal to the remaining entities and schedule the retry (with backoff)
+     */
+    private synchronized void flushDone(Map<String, PendingWrite> batch, boolean retry) {
+        for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+            inFlight.remove(entry.getKey(), entry.getValue());
+        }
+        rewriteJournal();
+        if (!retry) {
+            retryDelayMs = 0;
+            retryNotBefore = 0;
+            return;
+        }
+        retryDelayMs = retryDelayMs == 0 ? FLUSH_DELAY_MS : Math.min(retryDelayMs * 2, MAX_RETRY_DELAY_MS);
+        retryNotBefore = System.currentTimeMillis() + retryDelayMs;
+        LogHelper.d(TAG, () -> "Retrying " + pending.size() + " entities in " + retryDelayMs + " ms");
+        scheduleFlush();
+    }
+
+    /**
+     * Errors a retry cannot fix: rules denial, invalid path or value
+     * Anything else (offline, timeout, not configured) is retried
+     */
+    static boolean isPermanent(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof IllegalArgumentException) {
+                return true;
+            }
+            String message = cause.getMessage();
+            if (message != null && (message.contains("Permission denied") || message.contains("Invalid"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Move a batch into the MutationJournal - it owns durability from now on
+     * Called with the lock held, so a later full save is journaled after these updates
+     */
+    private void handOff(Map<String, PendingWrite> batch) {
+        for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+            String path = entry.getKey();
+            int split = path.lastIndexOf('/');
+            journal.update(path.substring(0, split), path.substring(split + 1), entry.getValue().fields, 0);
+        }
+        LogHelper.d(TAG, () -> "Handed " + batch.size() + " entities to the mutation journal");
+
+        rewriteJournal();
+        complete(batch);
+    }
+
+    /**
+     * Number of entities waiting to be written
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Merge fields into the pending write of an entity - later values win
+     */
+    private PendingWrite merge(String entityPath, Map<String, Object> fields) {
+        PendingWrite write = pending.get(entityPath);
+        if (write == null) {
+            write = new PendingWrite();
+            pending.put(entityPath, write);
+        }
+        write.fields.putAll(fields);
+        return write;
+    }
+
+    /**
+     * Put a failed batch back without overwriting newer values enqueued meanwhile
+     * Its waiters stay waiting for the retry
+     */
+    private synchronized void requeue(Map<String, PendingWrite> batch) {
+        for (Map.Entry<String, PendingWrite> entry : batch.entrySet()) {
+            if (entry.getValue().superseded) {
+                // Overwritten by a full save meanwhile - the retry would undo it
+                complete(Collections.singletonMap(entry.getKey(), entry.getValue()));
+                continue;
+            }
+            PendingWrite newer = pending.get(entry.getKey());
+            PendingWrite restored = new PendingWrite();
+            restored.fields.putAll(entry.getValue().fields);
+            restored.waiters.addAll(entry.getValue().waiters);
+            if (newer != null) {
+                restored.fields.putAll(newer.fields);
+                restored.waiters.addAll(newer.waiters);
+            }
+            pending.put(entry.getKey(), restored);
+        }
+    }
+
+    /**
+     * Flush after FLUSH_DELAY_MS, not before the backoff of a failed flush has passed
+     */
+    private void scheduleFlush() {
+        if (scheduledFlush == null || scheduledFlush.isDone()) {
+            long delay = Math.max(FLUSH_DELAY_MS, retryNotBefore - System.currentTimeMillis());
+            scheduledFlush = scheduler.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Append one entry on the scheduler thread - called with the lock held, so file
+     * operations run in the order of the state changes
+     */
+    private void appendJournal(JournalEntry entry) {
+        File file = journalFile;
+        if (file == null) {
+            return;
+        }
+        String line = gson.toJson(entry);
+        scheduler.execute(() -> {
+            try (Writer writer = new FileWriter(file, true)) {
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to append journal entry", e);
+            }
+        });
+    }
+
+    /**
+     * Compact the journal to exactly the current pending state (on the scheduler thread)
+     */
+    private void rewriteJournal() {
+        File file = journalFile;
+        if (file == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, PendingWrite> entry : pending.entrySet()) {
+            lines.add(gson.toJson(new JournalEntry(entry.getKey(), entry.getValue().fields)));
+        }
+
+        scheduler.execute(() -> {
+            if (lines.isEmpty()) {
+                file.delete();
+                return;
+            }
+            File tmp = new File(file.getPath() + ".tmp");
+            try (Writer writer = new FileWriter(tmp, false)) {
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.write('\n');
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Failed to compact journal", e);
+                return;
+            }
+            if (!tmp.renameTo(file)) {
+                Log.e(TAG, "Failed to replace journal file");
+            }
+        });
+    }
+}
@@ -16,17 +16,22 @@ import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 import de.babixgo.monopolygo.AccountManager;
+import de.babixgo.monopolygo.BackupRules;
 import de.babixgo.monopolygo.R;
 import de.babixgo.monopolygo.RootManager;
+import de.babixgo.monopolygo.SnapshotStore;
 import de.babixgo.monopolygo.activities.AccountDetailActivity;
 import de.babixgo.monopolygo.adapters.AccountListAdapter;
 import de.babixgo.monopolygo.database.AccountRepository;
 import de.babixgo.monopolygo.models.Account;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import de.babixgo.monopolygo.utils.AppExecutors;
+import de.babixgo.monopolygo.utils.DeviceIdCache;
+import de.babixgo.monopolygo.utils.DeviceIdExtractor;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class AccountListFragment extends Fragment {
     private static final String TAG = "AccountListFragment";
@@ -121,35 +126,28 @@ public class AccountListFragment extends Fragment {
     // ==================== BACKUP ACCOUNT ====================
     
     private void backupAccount(String accountName, String note) {
-        new Thread(() -> {
+        AppExecutors.swap().execute(() -> {
             try {
                 Log.d(TAG, "Starting backup for: " + accountName);
                 
                 // 1. MonopolyGo beenden
-                AccountManager.forceStopApp();
-                Thread.sleep(1000);
+                if (!AccountManager.stopAppAndWait()) {
+                    throw new IllegalStateException("MonopolyGo konnte nicht beendet werden");
+                }
                 
                 // 2. Backup-Verzeichnis erstellen
                 String backupDir = requireContext().getFilesDir().getAbsolutePath() + 
                                    "/backup/" + accountName + "/";
                 RootManager.runRootCommand("mkdir -p '" + backupDir + "'");
                 
-                // 3. Dateien kopieren
-                String monopolyGoData = "/data/data/com.scopely.monopolygo/";
-                
-                // DiskBasedCacheDirectory
-                boolean diskCopySuccess = RootManager.copyDirectory(
-                    monopolyGoData + "files/DiskBasedCacheDirectory/",
-                    backupDir + "DiskBasedCacheDirectory/"
-                );
-                Log.d(TAG, "DiskBasedCacheDirectory copy: " + diskCopySuccess);
-                
-                // shared_prefs
-                boolean prefsCopySuccess = RootManager.copyDirectory(
-                    monopolyGoData + "shared_prefs/",
-                    backupDir + "shared_prefs/"
-                );
-                Log.d(TAG, "shared_prefs copy: " + prefsCopySuccess);
+                // 3. Dateien nach BackupRules kopieren (Pfade wie unter /data/data, ohne Cache)
+                BackupRules.Selection selection = BackupRules.defaults(true).select();
+                if (!selection.isComplete()) {
+                    throw new IllegalStateException("Account-Datei nicht gefunden");
+                }
+                RootManager.runRootCommands(selection.copyCommands("cp", backupDir, true));
+                Log.d(TAG, "Copied " + selection.getEntries().size() + " files (" + 
+                           selection.totalBytes() + " bytes)");
                 
                 // settings_ssaid.xml
                 boolean ssaidCopySuccess = RootManager.copyFile(
@@ -158,25 +156,20 @@ public class AccountListFragment extends Fragment {
                 );
                 Log.d(TAG, "settings_ssaid.xml copy: " + ssaidCopySuccess);
                 
-                // 4. IDs extrahieren
-                String prefsFile = backupDir + "shared_prefs/com.scopely.monopolygo.v2.playerprefs.xml";
-                String xmlContent = RootManager.readFile(prefsFile);
-                
-                String userId = extractXmlValue(xmlContent, "Scopely.Attribution.UserId");
-                String gaid = extractXmlValue(xmlContent, "GoogleAdId");
-                String deviceToken = extractXmlValue(xmlContent, "LastOpenedDeviceToken");
-                String appSetId = extractXmlValue(xmlContent, "AppSetId");
+                // 4. IDs und SSAID extrahieren - aus den Originaldateien (gleicher Inhalt,
+                //    App ist gestoppt), damit unveränderte Dateien aus dem Cache kommen
+                DeviceIdExtractor.AccountIds ids = DeviceIdExtractor.extractAccountIds();
+                String userId = ids.userId;
+                String gaid = ids.gaid;
+                String deviceToken = ids.deviceToken;
+                String appSetId = ids.appSetId;
+                String ssaid = ids.ssaid;
                 
                 Log.d(TAG, "Extracted - UserID: " + userId + ", GAID: " + gaid + 
                            ", DeviceToken: " + deviceToken + ", AppSetID: " + appSetId);
-                
-                // 5. SSAID extrahieren
-                String ssaidContent = RootManager.readFile(backupDir + "settings_ssaid.xml");
-                String ssaid = extractSSAID(ssaidContent);
-                
                 Log.d(TAG, "Extracted SSAID: " + ssaid);
                 
-                // 6. Account-Objekt erstellen (OHNE Friend Link)
+                // 5. Account-Objekt erstellen (OHNE Friend Link)
                 Account account = new Account();
                 account.setName(accountName);
                 account.setUserId(userId);
@@ -187,12 +180,14 @@ public class AccountListFragment extends Fragment {
                 account.setNote(note);
                 account.setAccountStatus("active");
                 account.setSuspensionStatus("0"); // Default: Keine Suspension
-                account.setLastPlayed(getCurrentTimestamp());
+                long now = TimestampHelper.now();
+                account.setLastPlayed(TimestampHelper.formatIso(now));
+                account.setLastPlayedTimestamp(now);
                 
                 // WICHTIG: KEIN Friend Link generieren!
                 // Friend Link wird manuell später hinzugefügt
                 
-                // 7. In Firebase speichern
+                // 6. In Firebase speichern
                 repository.createAccount(account)
                     .thenRun(() -> {
                         if (getActivity() != null) {
@@ -226,7 +221,7 @@ public class AccountListFragment extends Fragment {
                     );
                 }
             }
-        }).start();
+        });
     }
 
     // ==================== ACCOUNT OPTIONS ====================
@@ -256,36 +251,47 @@ public class AccountListFragment extends Fragment {
             .setTitle("Account wiederherstellen")
             .setMessage("Möchtest du den Account '" + account.getName() + "' wiederherstellen?")
             .setPositiveButton("Ja", (dialog, which) -> {
-                new Thread(() -> {
+                AppExecutors.swap().execute(() -> {
                     try {
                         Log.d(TAG, "Restoring account: " + account.getName());
                         
                         // 1. MonopolyGo schließen
-                        AccountManager.forceStopApp();
-                        Thread.sleep(1000);
+                        if (!AccountManager.stopAppAndWait()) {
+                            throw new IllegalStateException("MonopolyGo konnte nicht beendet werden");
+                        }
+                        // The copies below overwrite files in place
+                        SnapshotStore.awaitInPlaceWriteSafe();
                         
-                        // 2. Dateien zurückkopieren
+                        // 2. Dateien zurückkopieren - dieselben BackupRules wie beim Backup
                         String backupDir = requireContext().getFilesDir().getAbsolutePath() + 
                                            "/backup/" + account.getName() + "/";
                         String monopolyGoData = "/data/data/com.scopely.monopolygo/";
                         
-                        // shared_prefs zurückkopieren
-                        boolean prefsRestored = RootManager.copyDirectory(
-                            backupDir + "shared_prefs/",
-                            monopolyGoData + "shared_prefs/"
-                        );
-                        Log.d(TAG, "shared_prefs restored: " + prefsRestored);
+                        // Ältere Backups ohne files/: Cache-Verzeichnis ins aktuelle Layout verschieben
+                        if (!new File(backupDir + "files/").exists()
+                                && new File(backupDir + "DiskBasedCacheDirectory/").exists()) {
+                            RootManager.runRootCommand("mkdir -p '" + backupDir + "files' && mv '"
+                                + backupDir + "DiskBasedCacheDirectory' '" + backupDir + "files/'");
+                        }
                         
-                        // DiskBasedCacheDirectory zurückkopieren
-                        boolean diskRestored = RootManager.copyDirectory(
-                            backupDir + "DiskBasedCacheDirectory/",
-                            monopolyGoData + "files/DiskBasedCacheDirectory/"
-                        );
-                        Log.d(TAG, "DiskBasedCacheDirectory restored: " + diskRestored);
+                        BackupRules.Selection selection = BackupRules.defaults(true).select(backupDir);
+                        if (!selection.isComplete()) {
+                            throw new IllegalStateException("Account-Datei im Backup nicht gefunden");
+                        }
+                        List<String> commands = new ArrayList<>(
+                            Arrays.asList(selection.copyCommands("cp", monopolyGoData, true)));
                         
-                        // Berechtigungen setzen
-                        RootManager.setPermissions(monopolyGoData + "shared_prefs/", "660");
-                        RootManager.setPermissions(monopolyGoData + "files/DiskBasedCacheDirectory/", "771");
+                        // Berechtigungen setzen (cp legt neue Dateien als root an)
+                        for (BackupRules.Entry entry : selection.getEntries()) {
+                            String target = AccountManager.escapeShellArg(monopolyGoData + entry.relativePath);
+                            commands.add("chmod 660 " + target);
+                            commands.add("chown $(stat -c %u:%g " + monopolyGoData + ") " + target);
+                        }
+                        RootManager.runRootCommands(commands.toArray(new String[0]));
+                        Log.d(TAG, "Restored " + selection.getEntries().size() + " files (" + 
+                                   selection.totalBytes() + " bytes)");
+                        
+                        DeviceIdCache.invalidate();
                         
                         // 3. Fragen ob App gestartet werden soll
                         if (getActivity() != null) {
@@ -294,7 +300,8 @@ public class AccountListFragment extends Fragment {
                                     .setTitle("Account wiederhergestellt")
                                     .setMessage("Möchtest du MonopolyGo jetzt starten?")
                                     .setPositiveButton("Ja", (d, w) -> {
-                                        AccountManager.startApp();
+                                        // Off the UI thread - waits until the process is up
+                                        AppExecutors.swap().execute(AccountManager::startAppAndWait);
                                     })
                                     .setNegativeButton("Nein", null)
                                     .show();
@@ -321,7 +328,7 @@ public class AccountListFragment extends Fragment {
                             );
                         }
                     }
-                }).start();
+                });
             })
             .setNegativeButton("Abbrechen", null)
             .show();
@@ -329,20 +336,6 @@ public class AccountListFragment extends Fragment {
 
     // ==================== HELPER METHODS ====================
     
-    private String extractXmlValue(String xmlContent, String key) {
-        String pattern = "<string name=\"" + key + "\">([^<]+)</string>";
-        Pattern regex = Pattern.compile(pattern);
-        Matcher matcher = regex.matcher(xmlContent);
-        return matcher.find() ? matcher.group(1) : null;
-    }
-
-    private String extractSSAID(String ssaidContent) {
-        String pattern = "com\\.scopely\\.monopolygo[^/]*/[^/]*/[^/]*/([0-9a-f]{16})";
-        Pattern regex = Pattern.compile(pattern);
-        Matcher matcher = regex.matcher(ssaidContent);
-        return matcher.find() ? matcher.group(1) : null;
-    }
-
     private void openAccountDetail(Account account) {
         Intent intent = new Intent(requireContext(), AccountDetailActivity.class);
         
@@ -355,14 +348,6 @@ public class AccountListFragment extends Fragment {
         startActivity(intent);
     }
     
-    /**
-     * Get current timestamp in ISO 8601 format
-     */
-    private String getCurrentTimestamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.getDefault());
-        return sdf.format(new Date());
-    }
-
     @Override
     public void onResume() {
         super.onResume();
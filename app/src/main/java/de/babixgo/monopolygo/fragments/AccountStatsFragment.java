@@ -0,0 +1,103 @@
+package de.babixgo.monopolygo.fragments;
+
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import de.babixgo.monopolygo.R;
+import de.babixgo.monopolygo.database.AccountStats;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Dashboard with the account statistics
+ * Reads the incrementally maintained counters of AccountStats - no account list is loaded
+ */
+public class AccountStatsFragment extends Fragment {
+    private static final int STALE_DAYS = 7;
+
+    private final AccountStats stats = AccountStats.getInstance();
+    // One pending UI refresh at a time - the initial sync fires one event per account
+    private final AtomicBoolean refreshPending = new AtomicBoolean(false);
+    private final Runnable statsListener = this::scheduleRefresh;
+
+    private TextView tvTotal, tvActive, tvOwn, tvCustomer, tvError;
+    private TextView tvSuspension0, tvSuspension3, tvSuspension7, tvSuspensionPerm, tvSuspensionOther;
+    private TextView tvStaleLabel, tvStale, tvNeverPlayed, tvSyncState;
+
+    @Nullable
+    @Override
+    public View onCreateView(@NonNull LayoutInflater inflater,
+                            @Nullable ViewGroup container,
+                            @Nullable Bundle savedInstanceState) {
+        View view = inflater.inflate(R.layout.fragment_account_stats, container, false);
+
+        tvTotal = view.findViewById(R.id.tv_stats_total);
+        tvActive = view.findViewById(R.id.tv_stats_active);
+        tvOwn = view.findViewById(R.id.tv_stats_own);
+        tvCustomer = view.findViewById(R.id.tv_stats_customer);
+        tvError = view.findViewById(R.id.tv_stats_error);
+        tvSuspension0 = view.findViewById(R.id.tv_stats_suspension_0);
+        tvSuspension3 = view.findViewById(R.id.tv_stats_suspension_3);
+        tvSuspension7 = view.findViewById(R.id.tv_stats_suspension_7);
+        tvSuspensionPerm = view.findViewById(R.id.tv_stats_suspension_perm);
+        tvSuspensionOther = view.findViewById(R.id.tv_stats_suspension_other);
+        tvStaleLabel = view.findViewById(R.id.tv_stats_stale_label);
+        tvStale = view.findViewById(R.id.tv_stats_stale);
+        tvNeverPlayed = view.findViewById(R.id.tv_stats_never_played);
+        tvSyncState = view.findViewById(R.id.tv_stats_sync_state);
+
+        return view;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        stats.addListener(statsListener);
+        refresh();
+    }
+
+    @Override
+    public void onPause() {
+        super.onPause();
+        stats.removeListener(statsListener);
+    }
+
+    private void scheduleRefresh() {
+        if (getActivity() != null && refreshPending.compareAndSet(false, true)) {
+            getActivity().runOnUiThread(() -> {
+                refreshPending.set(false);
+                if (isAdded()) {
+                    refresh();
+                }
+            });
+        }
+    }
+
+    private void refresh() {
+        AccountStats.Snapshot snapshot = stats.getSnapshot(STALE_DAYS);
+
+        tvTotal.setText(String.valueOf(snapshot.getTotal()));
+        tvActive.setText(String.valueOf(snapshot.getActive()));
+        tvOwn.setText(String.valueOf(snapshot.getOwn()));
+        tvCustomer.setText(String.valueOf(snapshot.getCustomer()));
+        tvError.setText(String.valueOf(snapshot.getError()));
+
+        tvSuspension0.setText(String.valueOf(snapshot.getSuspension("0")));
+        tvSuspension3.setText(String.valueOf(snapshot.getSuspension("3")));
+        tvSuspension7.setText(String.valueOf(snapshot.getSuspension("7")));
+        tvSuspensionPerm.setText(String.valueOf(snapshot.getSuspension("perm")));
+        tvSuspensionOther.setText(String.valueOf(snapshot.getSuspension(AccountStats.SUSPENSION_OTHER)));
+
+        tvStaleLabel.setText("Nicht gespielt seit " + STALE_DAYS + " Tagen");
+        tvStale.setText(String.valueOf(snapshot.getStale()));
+        tvNeverPlayed.setText(String.valueOf(snapshot.getNeverPlayed()));
+
+        tvSyncState.setText(snapshot.isSynced()
+            ? "Aktuell"
+            : "Stand der letzten Sitzung - wird synchronisiert...");
+    }
+}
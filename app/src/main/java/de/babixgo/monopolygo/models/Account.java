@@ -1,6 +1,7 @@
 package de.babixgo.monopolygo.models;
 
 import com.google.gson.annotations.SerializedName;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 
 /**
  * Account model for MonopolyGo accounts
@@ -69,15 +70,27 @@ public class Account {
     @SerializedName("last_played")
     private String lastPlayed;
     
+    @SerializedName("last_played_timestamp")
+    private long lastPlayedTimestamp; // Epoch millis, dual-read from lastPlayed (writers set both)
+    
     @SerializedName("created_at")
     private String createdAt;
     
+    @SerializedName("created_at_timestamp")
+    private long createdAtTimestamp; // Epoch millis, dual-read from createdAt (writers set both)
+    
     @SerializedName("updated_at")
     private String updatedAt;
     
+    @SerializedName("updated_at_timestamp")
+    private long updatedAtTimestamp; // Epoch millis, dual-read from updatedAt (writers set both)
+    
     @SerializedName("deleted_at")
     private String deletedAt;
     
+    @SerializedName("deleted_at_timestamp")
+    private long deletedAtTimestamp; // Epoch millis, dual-read from deletedAt (writers set both)
+    
     // Constructors
     public Account() {}
     
@@ -224,82 +237,78 @@ public class Account {
             return "Nie gespielt";
         }
         
-        try {
-            // Try parsing as ISO 8601 format first
-            java.text.SimpleDateFormat inputFormat = 
-                new java.text.SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", java.util.Locale.GERMAN);
-            java.text.SimpleDateFormat outputFormat = 
-                new java.text.SimpleDateFormat("dd.MM.yyyy, HH:mm", java.util.Locale.GERMAN);
-            
-            java.util.Date date = inputFormat.parse(lastPlayed);
-            return outputFormat.format(date);
-        } catch (Exception e) {
-            // Try parsing as Unix timestamp (milliseconds)
-            try {
-                long timestamp = Long.parseLong(lastPlayed);
-                java.text.SimpleDateFormat outputFormat = 
-                    new java.text.SimpleDateFormat("dd.MM.yyyy, HH:mm", java.util.Locale.GERMAN);
-                return outputFormat.format(new java.util.Date(timestamp));
-            } catch (Exception ex) {
-                // If all parsing fails, return the raw value
-                return lastPlayed;
-            }
+        // Numeric field first, then ISO 8601 text or legacy epoch string
+        long timestamp = getLastPlayedTimestamp();
+        if (timestamp == 0) {
+            // If all parsing fails, return the raw value
+            return lastPlayed;
         }
+        return TimestampHelper.formatDisplay(timestamp);
     }
     
     // Firebase-compatible timestamp helpers
     
     /**
      * Get created_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getCreatedAtTimestamp() {
-        try {
-            return Long.parseLong(createdAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(createdAtTimestamp, createdAt);
     }
     
     /**
-     * Set created_at from Unix timestamp (milliseconds)
+     * Set created_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setCreatedAtTimestamp(long timestamp) {
-        this.createdAt = String.valueOf(timestamp);
+        this.createdAtTimestamp = timestamp;
     }
     
     /**
      * Get updated_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getUpdatedAtTimestamp() {
-        try {
-            return Long.parseLong(updatedAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(updatedAtTimestamp, updatedAt);
     }
     
     /**
-     * Set updated_at from Unix timestamp (milliseconds)
+     * Set updated_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setUpdatedAtTimestamp(long timestamp) {
-        this.updatedAt = String.valueOf(timestamp);
+        this.updatedAtTimestamp = timestamp;
     }
     
     /**
      * Get last_played as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getLastPlayedTimestamp() {
-        try {
-            return Long.parseLong(lastPlayed);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(lastPlayedTimestamp, lastPlayed);
     }
     
     /**
-     * Set last_played from Unix timestamp (milliseconds)
+     * Set last_played as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setLastPlayedTimestamp(long timestamp) {
-        this.lastPlayed = String.valueOf(timestamp);
+        this.lastPlayedTimestamp = timestamp;
+    }
+    
+    /**
+     * Get deleted_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
+     */
+    public long getDeletedAtTimestamp() {
+        return TimestampHelper.resolve(deletedAtTimestamp, deletedAt);
+    }
+    
+    /**
+     * Set deleted_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
+     */
+    public void setDeletedAtTimestamp(long timestamp) {
+        this.deletedAtTimestamp = timestamp;
     }
 }
@@ -1,6 +1,7 @@
 package de.babixgo.monopolygo.models;
 
 import com.google.gson.annotations.SerializedName;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -21,9 +22,15 @@ public class Customer {
     @SerializedName("created_at")
     private String createdAt;
     
+    @SerializedName("created_at_timestamp")
+    private long createdAtTimestamp; // Epoch millis, dual-read from createdAt (writers set both)
+    
     @SerializedName("updated_at")
     private String updatedAt;
     
+    @SerializedName("updated_at_timestamp")
+    private long updatedAtTimestamp; // Epoch millis, dual-read from updatedAt (writers set both)
+    
     // Transient - not in DB, will be populated when loaded
     private transient List<CustomerAccount> accounts = new ArrayList<>();
     
@@ -126,37 +133,33 @@ public class Customer {
     
     /**
      * Get created_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getCreatedAtTimestamp() {
-        try {
-            return Long.parseLong(createdAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(createdAtTimestamp, createdAt);
     }
     
     /**
-     * Set created_at from Unix timestamp (milliseconds)
+     * Set created_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setCreatedAtTimestamp(long timestamp) {
-        this.createdAt = String.valueOf(timestamp);
+        this.createdAtTimestamp = timestamp;
     }
     
     /**
      * Get updated_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getUpdatedAtTimestamp() {
-        try {
-            return Long.parseLong(updatedAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(updatedAtTimestamp, updatedAt);
     }
     
     /**
-     * Set updated_at from Unix timestamp (milliseconds)
+     * Set updated_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setUpdatedAtTimestamp(long timestamp) {
-        this.updatedAt = String.valueOf(timestamp);
+        this.updatedAtTimestamp = timestamp;
     }
 }
@@ -1,6 +1,8 @@
 package de.babixgo.monopolygo.models;
 
 import com.google.gson.annotations.SerializedName;
+import de.babixgo.monopolygo.utils.LazyCredential;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
@@ -47,18 +49,29 @@ public class CustomerAccount {
     @SerializedName("backup_created_at")
     private String backupCreatedAt;
     
+    @SerializedName("backup_created_at_timestamp")
+    private long backupCreatedAtTimestamp; // Epoch millis, dual-read from backupCreatedAt (writers set both)
+    
     @SerializedName("credentials_username")
     private String credentialsUsername;
     
     @SerializedName("credentials_password")
     private String credentialsPassword; // Encrypted
     
+    private transient LazyCredential credentials; // Decrypted on demand, never persisted
+    
     @SerializedName("created_at")
     private String createdAt;
     
+    @SerializedName("created_at_timestamp")
+    private long createdAtTimestamp; // Epoch millis, dual-read from createdAt (writers set both)
+    
     @SerializedName("updated_at")
     private String updatedAt;
     
+    @SerializedName("updated_at_timestamp")
+    private long updatedAtTimestamp; // Epoch millis, dual-read from updatedAt (writers set both)
+    
     // Constructors
     public CustomerAccount() {}
     
@@ -99,8 +112,48 @@ public class CustomerAccount {
     public String getCredentialsUsername() { return credentialsUsername; }
     public void setCredentialsUsername(String credentialsUsername) { this.credentialsUsername = credentialsUsername; }
     
+    /**
+     * Password as stored: Base64 ciphertext, never the plain text
+     */
     public String getCredentialsPassword() { return credentialsPassword; }
-    public void setCredentialsPassword(String credentialsPassword) { this.credentialsPassword = credentialsPassword; }
+    
+    /**
+     * Set the stored (encrypted) password - used by Firebase when loading
+     */
+    public void setCredentialsPassword(String credentialsPassword) {
+        this.credentialsPassword = credentialsPassword;
+        this.credentials = null;
+    }
+    
+    /**
+     * Plain password, decrypted on first access and cached ("" if none)
+     * Only screens that show the password should call this
+     */
+    public String revealCredentialsPassword() {
+        return getCredentials().reveal();
+    }
+    
+    /**
+     * Set a new plain password - encrypted right away, plain text stays cached
+     */
+    public void updateCredentialsPassword(String plainPassword) {
+        credentials = LazyCredential.ofPlainText(plainPassword);
+        credentialsPassword = credentials.getCipherText();
+    }
+    
+    /**
+     * Check if a password is stored (no decryption)
+     */
+    public boolean hasCredentialsPassword() {
+        return credentialsPassword != null && !credentialsPassword.isEmpty();
+    }
+    
+    private LazyCredential getCredentials() {
+        if (credentials == null) {
+            credentials = LazyCredential.ofEncrypted(credentialsPassword);
+        }
+        return credentials;
+    }
     
     public String getCreatedAt() { return createdAt; }
     public void setCreatedAt(String createdAt) { this.createdAt = createdAt; }
@@ -167,55 +220,49 @@ public class CustomerAccount {
     
     /**
      * Get created_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getCreatedAtTimestamp() {
-        try {
-            return Long.parseLong(createdAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(createdAtTimestamp, createdAt);
     }
     
     /**
-     * Set created_at from Unix timestamp (milliseconds)
+     * Set created_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setCreatedAtTimestamp(long timestamp) {
-        this.createdAt = String.valueOf(timestamp);
+        this.createdAtTimestamp = timestamp;
     }
     
     /**
      * Get updated_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getUpdatedAtTimestamp() {
-        try {
-            return Long.parseLong(updatedAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(updatedAtTimestamp, updatedAt);
     }
     
     /**
-     * Set updated_at from Unix timestamp (milliseconds)
+     * Set updated_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setUpdatedAtTimestamp(long timestamp) {
-        this.updatedAt = String.valueOf(timestamp);
+        this.updatedAtTimestamp = timestamp;
     }
     
     /**
      * Get backup_created_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getBackupCreatedAtTimestamp() {
-        try {
-            return Long.parseLong(backupCreatedAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(backupCreatedAtTimestamp, backupCreatedAt);
     }
     
     /**
-     * Set backup_created_at from Unix timestamp (milliseconds)
+     * Set backup_created_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setBackupCreatedAtTimestamp(long timestamp) {
-        this.backupCreatedAt = String.valueOf(timestamp);
+        this.backupCreatedAtTimestamp = timestamp;
     }
 }
@@ -1,9 +1,7 @@
 package de.babixgo.monopolygo.models;
 
 import com.google.gson.annotations.SerializedName;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 
 /**
  * CustomerActivity model for tracking all customer-related activities
@@ -37,6 +35,9 @@ public class CustomerActivity {
     @SerializedName("created_at")
     private String createdAt;
     
+    @SerializedName("created_at_timestamp")
+    private long createdAtTimestamp; // Epoch millis, dual-read from createdAt (writers set both)
+    
     // Constructors
     public CustomerActivity() {}
     
@@ -82,16 +83,11 @@ public class CustomerActivity {
      * Format: "21.01.2026, 14:30"
      */
     public String getFormattedTimestamp() {
-        if (createdAt == null) return "";
-        
-        try {
-            SimpleDateFormat inputFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss", Locale.GERMAN);
-            SimpleDateFormat outputFormat = new SimpleDateFormat("dd.MM.yyyy, HH:mm", Locale.GERMAN);
-            Date date = inputFormat.parse(createdAt);
-            return outputFormat.format(date);
-        } catch (Exception e) {
-            return createdAt;
+        long timestamp = getCreatedAtTimestamp();
+        if (timestamp == 0) {
+            return createdAt != null ? createdAt : "";
         }
+        return TimestampHelper.formatDisplay(timestamp);
     }
     
     /**
@@ -127,19 +123,17 @@ public class CustomerActivity {
     
     /**
      * Get created_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getCreatedAtTimestamp() {
-        try {
-            return Long.parseLong(createdAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(createdAtTimestamp, createdAt);
     }
     
     /**
-     * Set created_at from Unix timestamp (milliseconds)
+     * Set created_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setCreatedAtTimestamp(long timestamp) {
-        this.createdAt = String.valueOf(timestamp);
+        this.createdAtTimestamp = timestamp;
     }
 }
@@ -1,6 +1,7 @@
 package de.babixgo.monopolygo.models;
 
 import com.google.gson.annotations.SerializedName;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 
 /**
  * Event model for Tycoon Racers events
@@ -16,15 +17,24 @@ public class Event {
     @SerializedName("start_date")
     private String startDate; // ISO 8601 format
     
+    @SerializedName("start_date_timestamp")
+    private long startDateTimestamp; // Epoch millis, dual-read from startDate (writers set both)
+    
     @SerializedName("end_date")
     private String endDate; // ISO 8601 format
     
     @SerializedName("created_at")
     private String createdAt;
     
+    @SerializedName("created_at_timestamp")
+    private long createdAtTimestamp; // Epoch millis, dual-read from createdAt (writers set both)
+    
     @SerializedName("updated_at")
     private String updatedAt;
     
+    @SerializedName("updated_at_timestamp")
+    private long updatedAtTimestamp; // Epoch millis, dual-read from updatedAt (writers set both)
+    
     // Constructors
     public Event() {}
     
@@ -78,37 +88,49 @@ public class Event {
     
     /**
      * Get created_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getCreatedAtTimestamp() {
-        try {
-            return Long.parseLong(createdAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(createdAtTimestamp, createdAt);
     }
     
     /**
-     * Set created_at from Unix timestamp (milliseconds)
+     * Set created_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setCreatedAtTimestamp(long timestamp) {
-        this.createdAt = String.valueOf(timestamp);
+        this.createdAtTimestamp = timestamp;
     }
     
     /**
      * Get updated_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getUpdatedAtTimestamp() {
-        try {
-            return Long.parseLong(updatedAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(updatedAtTimestamp, updatedAt);
     }
     
     /**
-     * Set updated_at from Unix timestamp (milliseconds)
+     * Set updated_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setUpdatedAtTimestamp(long timestamp) {
-        this.updatedAt = String.valueOf(timestamp);
+        this.updatedAtTimestamp = timestamp;
+    }
+    
+    /**
+     * Get start_date as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
+     */
+    public long getStartDateTimestamp() {
+        return TimestampHelper.resolve(startDateTimestamp, startDate);
+    }
+    
+    /**
+     * Set start_date as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
+     */
+    public void setStartDateTimestamp(long timestamp) {
+        this.startDateTimestamp = timestamp;
     }
 }
@@ -1,12 +1,15 @@
 package de.babixgo.monopolygo.models;
 
 import com.google.gson.annotations.SerializedName;
+import de.babixgo.monopolygo.utils.TimestampHelper;
 
 /**
  * Team model for event teams
  * Represents a team with 4 account slots in the Firebase Realtime Database
  */
 public class Team {
+    public static final int SLOT_COUNT = 4;
+    
     @SerializedName("id")
     private long id;
     
@@ -32,7 +35,7 @@ public class Team {
     @SerializedName("slot_4_account_id")
     private Long slot4AccountId;
     
-    // Account names for display (not stored in DB, filled from join)
+    // Account names for display - stored denormalized, resolved by TeamRepository.resolveSlotNames()
     private String slot1Name;
     private String slot2Name;
     private String slot3Name;
@@ -41,9 +44,15 @@ public class Team {
     @SerializedName("created_at")
     private String createdAt;
     
+    @SerializedName("created_at_timestamp")
+    private long createdAtTimestamp; // Epoch millis, dual-read from createdAt (writers set both)
+    
     @SerializedName("updated_at")
     private String updatedAt;
     
+    @SerializedName("updated_at_timestamp")
+    private long updatedAtTimestamp; // Epoch millis, dual-read from updatedAt (writers set both)
+    
     // Constructors
     public Team() {}
     
@@ -66,16 +75,82 @@ public class Team {
     public void setCustomerId(Long customerId) { this.customerId = customerId; }
     
     public Long getSlot1AccountId() { return slot1AccountId; }
-    public void setSlot1AccountId(Long slot1AccountId) { this.slot1AccountId = slot1AccountId; }
+    public void setSlot1AccountId(Long slot1AccountId) {
+        if (this.slot1AccountId != null && !this.slot1AccountId.equals(slot1AccountId)) {
+            this.slot1Name = null; // Name belonged to the previous account
+        }
+        this.slot1AccountId = slot1AccountId;
+    }
     
     public Long getSlot2AccountId() { return slot2AccountId; }
-    public void setSlot2AccountId(Long slot2AccountId) { this.slot2AccountId = slot2AccountId; }
+    public void setSlot2AccountId(Long slot2AccountId) {
+        if (this.slot2AccountId != null && !this.slot2AccountId.equals(slot2AccountId)) {
+            this.slot2Name = null; // Name belonged to the previous account
+        }
+        this.slot2AccountId = slot2AccountId;
+    }
     
     public Long getSlot3AccountId() { return slot3AccountId; }
-    public void setSlot3AccountId(Long slot3AccountId) { this.slot3AccountId = slot3AccountId; }
+    public void setSlot3AccountId(Long slot3AccountId) {
+        if (this.slot3AccountId != null && !this.slot3AccountId.equals(slot3AccountId)) {
+            this.slot3Name = null; // Name belonged to the previous account
+        }
+        this.slot3AccountId = slot3AccountId;
+    }
     
     public Long getSlot4AccountId() { return slot4AccountId; }
-    public void setSlot4AccountId(Long slot4AccountId) { this.slot4AccountId = slot4AccountId; }
+    public void setSlot4AccountId(Long slot4AccountId) {
+        if (this.slot4AccountId != null && !this.slot4AccountId.equals(slot4AccountId)) {
+            this.slot4Name = null; // Name belonged to the previous account
+        }
+        this.slot4AccountId = slot4AccountId;
+    }
+    
+    /**
+     * Account ID of slot 1-4 (null = empty)
+     */
+    public Long getSlotAccountId(int slot) {
+        switch (slot) {
+            case 1: return slot1AccountId;
+            case 2: return slot2AccountId;
+            case 3: return slot3AccountId;
+            case 4: return slot4AccountId;
+            default: throw new IllegalArgumentException("Invalid slot: " + slot);
+        }
+    }
+    
+    public void setSlotAccountId(int slot, Long accountId) {
+        switch (slot) {
+            case 1: setSlot1AccountId(accountId); break;
+            case 2: setSlot2AccountId(accountId); break;
+            case 3: setSlot3AccountId(accountId); break;
+            case 4: setSlot4AccountId(accountId); break;
+            default: throw new IllegalArgumentException("Invalid slot: " + slot);
+        }
+    }
+    
+    /**
+     * Account name of slot 1-4 (null = empty or not resolved yet)
+     */
+    public String getSlotName(int slot) {
+        switch (slot) {
+            case 1: return slot1Name;
+            case 2: return slot2Name;
+            case 3: return slot3Name;
+            case 4: return slot4Name;
+            default: throw new IllegalArgumentException("Invalid slot: " + slot);
+        }
+    }
+    
+    public void setSlotName(int slot, String name) {
+        switch (slot) {
+            case 1: slot1Name = name; break;
+            case 2: slot2Name = name; break;
+            case 3: slot3Name = name; break;
+            case 4: slot4Name = name; break;
+            default: throw new IllegalArgumentException("Invalid slot: " + slot);
+        }
+    }
     
     public String getSlot1Name() { return slot1Name; }
     public void setSlot1Name(String slot1Name) { this.slot1Name = slot1Name; }
@@ -99,37 +174,33 @@ public class Team {
     
     /**
      * Get created_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getCreatedAtTimestamp() {
-        try {
-            return Long.parseLong(createdAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(createdAtTimestamp, createdAt);
     }
     
     /**
-     * Set created_at from Unix timestamp (milliseconds)
+     * Set created_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setCreatedAtTimestamp(long timestamp) {
-        this.createdAt = String.valueOf(timestamp);
+        this.createdAtTimestamp = timestamp;
     }
     
     /**
      * Get updated_at as Unix timestamp (milliseconds)
+     * Falls back to parsing the ISO text for records written before the numeric field existed
      */
     public long getUpdatedAtTimestamp() {
-        try {
-            return Long.parseLong(updatedAt);
-        } catch (Exception e) {
-            return 0;
-        }
+        return TimestampHelper.resolve(updatedAtTimestamp, updatedAt);
     }
     
     /**
-     * Set updated_at from Unix timestamp (milliseconds)
+     * Set updated_at as Unix timestamp (milliseconds)
+     * Only the numeric field is written - the ISO text is set separately
      */
     public void setUpdatedAtTimestamp(long timestamp) {
-        this.updatedAt = String.valueOf(timestamp);
+        this.updatedAtTimestamp = timestamp;
     }
 }
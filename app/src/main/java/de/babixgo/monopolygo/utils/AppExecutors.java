@@ -0,0 +1,166 @@
+package de.babixgo.monopolygo.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * App-wide executors - nothing blocking runs on ForkJoinPool.commonPool or raw threads
+ *
+ * - io():   root shell, file copies, AdvertisingIdClient and other blocking calls
+ * - cpu():  compression, crypto, deserialization and repository continuations
+ * - swap(): everything that stops, replaces or starts the target app (backup, restore).
+ *           Single thread: two swaps can never interleave on the app data
+ * - main(): explicit hand-off to the UI thread
+ *
+ * CompletableFuture's *Async methods without executor use the common pool, which has
+ * only (cores - 1) threads - a few blocking root calls there stall every other async
+ * task of the process. Always pass one of these executors.
+ *
+ * Every pool reports queue depth, peak depth and the longest queue wait (stats()).
+ */
+public final class AppExecutors {
+    private static final int IO_THREADS = 4;
+    private static final int CPU_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static final MonitoredExecutor IO = new MonitoredExecutor("io", IO_THREADS, Thread.NORM_PRIORITY);
+    private static final MonitoredExecutor CPU = new MonitoredExecutor("cpu", CPU_THREADS, Thread.NORM_PRIORITY - 1);
+    private static final MonitoredExecutor SWAP = new MonitoredExecutor("swap", 1, Thread.NORM_PRIORITY);
+    private static volatile Executor mainExecutor;
+
+    private AppExecutors() {}
+
+    public static Executor io() {
+        return IO;
+    }
+
+    public static Executor cpu() {
+        return CPU;
+    }
+
+    public static Executor swap() {
+        return SWAP;
+    }
+
+    /**
+     * Main (UI) thread - created on first use, the JVM benchmarks never touch it
+     */
+    public static Executor main() {
+        if (mainExecutor == null) {
+            synchronized (AppExecutors.class) {
+                if (mainExecutor == null) {
+                    Handler handler = new Handler(Looper.getMainLooper());
+                    mainExecutor = handler::post;
+                }
+            }
+        }
+        return mainExecutor;
+    }
+
+    /**
+     * Snapshot of all pools (io, cpu, swap)
+     */
+    public static List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>();
+        stats.add(IO.stats());
+        stats.add(CPU.stats());
+        stats.add(SWAP.stats());
+        return stats;
+    }
+
+    /**
+     * Pool metrics at one point in time
+     */
+    public static class Stats {
+        public final String name;
+        public final int threads;
+        public final int active;
+        public final int queued;
+        public final int peakQueued;
+        public final long completed;
+        public final long maxWaitMillis;
+
+        Stats(String name, int threads, int active, int queued, int peakQueued, long completed, long maxWaitMillis) {
+            this.name = name;
+            this.threads = threads;
+            this.active = active;
+            this.queued = queued;
+            this.peakQueued = peakQueued;
+            this.completed = completed;
+            this.maxWaitMillis = maxWaitMillis;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + active + "/" + threads + " active, " + queued + " queued (peak " + peakQueued
+                + "), " + completed + " done, max wait " + maxWaitMillis + " ms";
+        }
+    }
+
+    /**
+     * Fixed-size pool that records queue depth and queue wait time
+     */
+    private static class MonitoredExecutor extends ThreadPoolExecutor {
+        private final String name;
+        private final AtomicInteger peakQueued = new AtomicInteger();
+        private final AtomicLong maxWaitMillis = new AtomicLong();
+
+        MonitoredExecutor(String name, int threads, int priority) {
+            super(threads, threads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), threadFactory(name, priority));
+            this.name = name;
+            allowCoreThreadTimeOut(true);
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            super.execute(new TimedTask(command));
+            peakQueued.accumulateAndGet(getQueue().size(), Math::max);
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable task) {
+            super.beforeExecute(thread, task);
+            if (task instanceof TimedTask) {
+                long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - ((TimedTask) task).enqueuedAt);
+                maxWaitMillis.accumulateAndGet(waited, Math::max);
+            }
+        }
+
+        Stats stats() {
+            return new Stats(name, getMaximumPoolSize(), getActiveCount(), getQueue().size(),
+                peakQueued.get(), getCompletedTaskCount(), maxWaitMillis.get());
+        }
+
+        private static ThreadFactory threadFactory(String name, int priority) {
+            AtomicInteger count = new AtomicInteger();
+            return runnable -> {
+                Thread thread = new Thread(runnable, "babix-" + name + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                thread.setPriority(priority);
+                return thread;
+            };
+        }
+    }
+
+    private static class TimedTask implements Runnable {
+        private final Runnable task;
+        private final long enqueuedAt = System.nanoTime();
+
+        TimedTask(Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package de.babixgo.monopolygo.utils;
+
+import android.util.Log;
+import com.google.gson.Gson;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Persistent cache of the identity values read from prefs files
+ *
+ * File entries are keyed by path and are only valid while mtime and size of the
+ * file are unchanged - a changed file is read again. Restores that write new prefs
+ * call invalidate() on top, as mtime has a resolution of one second.
+ * The GAID (Play Services lookup) is cached per boot, keyed by the kernel boot id.
+ *
+ * Without attach() the cache only lives in memory.
+ */
+public class DeviceIdCache {
+    private static final String TAG = "DeviceIdCache";
+    private static final String CACHE_FILE = "device_id_cache.json";
+    private static final String BOOT_ID_FILE = "/proc/sys/kernel/random/boot_id";
+
+    private static final Gson gson = new Gson();
+    private static Store store = new Store();
+    private static File cacheFile;
+    private static String bootId;
+
+    /**
+     * Cache contents as persisted
+     */
+    private static class Store {
+        String gaidBootId;
+        String gaid;
+        Map<String, FileEntry> files = new HashMap<>();
+    }
+
+    /**
+     * Values read from one file
+     */
+    private static class FileEntry {
+        long mtime;
+        long size;
+        List<String> keys;            // Keys the file was scanned for
+        Map<String, String> values;   // Keys found
+    }
+
+    /**
+     * Load the cache from the app files dir
+     */
+    public static synchronized void attach(File filesDir) {
+        if (cacheFile != null) {
+            return;
+        }
+        cacheFile = new File(filesDir, CACHE_FILE);
+        if (!cacheFile.exists()) {
+            return;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(cacheFile))) {
+            Store loaded = gson.fromJson(reader, Store.class);
+            if (loaded != null && loaded.files != null) {
+                // Entries cached before attach() are newer
+                loaded.files.putAll(store.files);
+                if (store.gaid != null) {
+                    loaded.gaid = store.gaid;
+                    loaded.gaidBootId = store.gaidBootId;
+                }
+                store = loaded;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not load " + cacheFile + ", starting empty", e);
+        }
+    }
+
+    // ==================== Files ====================
+
+    /**
+     * Cached values of path, null if the file changed or was not scanned for all keys
+     */
+    public static synchronized Map<String, String> get(String path, long mtime, long size, Set<String> keys) {
+        FileEntry entry = store.files.get(path);
+        if (entry == null || entry.mtime != mtime || entry.size != size || !entry.keys.containsAll(keys)) {
+            Tracer.count("idcache.miss");
+            return null;
+        }
+        Tracer.count("idcache.hit");
+        return new HashMap<>(entry.values);
+    }
+
+    public static synchronized void put(String path, long mtime, long size, Set<String> keys, Map<String, String> values) {
+        FileEntry entry = new FileEntry();
+        entry.mtime = mtime;
+        entry.size = size;
+        entry.keys = new ArrayList<>(keys);
+        entry.values = new HashMap<>(values);
+        store.files.put(path, entry);
+        save();
+    }
+
+    /**
+     * Drop all file entries - after a restore wrote new prefs
+     */
+    public static synchronized void invalidate() {
+        if (store.files.isEmpty()) {
+            return;
+        }
+        store.files.clear();
+        save();
+    }
+
+    // ==================== GAID ====================
+
+    /**
+     * GAID looked up since the last boot, null if none
+     */
+    public static synchronized String getGaid() {
+        String currentBoot = getBootId();
+        if (store.gaid == null || currentBoot == null || !currentBoot.equals(store.gaidBootId)) {
+            return null;
+        }
+        return store.gaid;
+    }
+
+    public static synchronized void putGaid(String gaid) {
+        String currentBoot = getBootId();
+        if (gaid == null || currentBoot == null) {
+            return;
+        }
+        store.gaid = gaid;
+        store.gaidBootId = currentBoot;
+        save();
+    }
+
+    private static String getBootId() {
+        if (bootId == null) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(BOOT_ID_FILE))) {
+                String line = reader.readLine();
+                bootId = line != null ? line.trim() : null;
+            } catch (IOException e) {
+                // No boot id - the GAID is not cached
+                Log.w(TAG, "Cannot read boot id: " + e.getMessage());
+            }
+        }
+        return bootId;
+    }
+
+    // ==================== Persistence ====================
+
+    private static void save() {
+        if (cacheFile == null) {
+            return;
+        }
+        File temp = new File(cacheFile.getPath() + ".tmp");
+        try (Writer writer = new FileWriter(temp)) {
+            gson.toJson(store, writer);
+        } catch (IOException e) {
+            Log.w(TAG, "Could not write " + temp, e);
+            return;
+        }
+        if (!temp.renameTo(cacheFile)) {
+            Log.w(TAG, "Could not replace " + cacheFile);
+        }
+    }
+}
@@ -2,9 +2,20 @@ package de.babixgo.monopolygo.utils;
 
 import android.content.Context;
 import android.provider.Settings;
+import android.util.Log;
 import com.google.android.gms.ads.identifier.AdvertisingIdClient;
 import de.babixgo.monopolygo.RootManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Extrahiert Device-IDs für Account-Tracking:
@@ -13,6 +24,8 @@ import java.util.concurrent.CompletableFuture;
  * - Device ID: Android ID
  */
 public class DeviceIdExtractor {
+    private static final String TAG = "DeviceIdExtractor";
+    private static final String PACKAGE_NAME = "com.scopely.monopolygo";
     
     /**
      * Container für alle Device-IDs
@@ -33,42 +46,43 @@ public class DeviceIdExtractor {
         }
     }
     
+    /**
+     * IDs aus einem Account-Backup (playerprefs + settings_ssaid)
+     */
+    public static class AccountIds {
+        public String userId;
+        public String gaid;
+        public String deviceToken;
+        public String appSetId;
+        public String ssaid;
+    }
+    
+    // playerprefs keys
+    private static final String KEY_USER_ID = "Scopely.Attribution.UserId";
+    private static final String KEY_GAID = "GoogleAdId";
+    private static final String KEY_DEVICE_TOKEN = "LastOpenedDeviceToken";
+    private static final String KEY_APP_SET_ID = "AppSetId";
+    
+    private static final String PREFS_DIR = "/data/data/" + PACKAGE_NAME + "/shared_prefs/";
+    private static final String PLAYER_PREFS_FILE = PREFS_DIR + "com.scopely.monopolygo.v2.playerprefs.xml";
+    private static final String SSAID_FILE = "/data/system/users/0/settings_ssaid.xml";
+    
+    // settings_ssaid.xml in binary form (ABX, Android 12+) - SSAID after the package name
+    private static final Pattern SSAID_FALLBACK =
+        Pattern.compile("com\\.scopely\\.monopolygo[^/]*/[^/]*/[^/]*/([0-9a-f]{16})");
+    
     /**
      * Extrahiert SSAID aus MonopolyGo App-Daten via Root
+     * Alle shared_prefs in einem Root-Befehl, ein Parser-Durchlauf pro Datei
      */
     public static String extractSSAID() {
-        try {
-            // Suche in shared_prefs nach android_id oder ssaid
-            String findCommand = "find /data/data/com.scopely.monopolygo/shared_prefs/ -name '*.xml' -type f";
-            String files = RootManager.runRootCommand(findCommand);
+        try (Tracer.Span span = Tracer.start("ids.ssaid")) {
+            Set<String> keys = new HashSet<>(Arrays.asList("android_id", "ssaid"));
             
-            if (files == null || files.contains("Error")) {
-                return null;
-            }
-            
-            // Durchsuche alle XML-Dateien nach SSAID
-            String[] fileList = files.split("\n");
-            for (String file : fileList) {
-                if (file.trim().isEmpty()) continue;
-                
-                // Validate file path to prevent command injection
-                String trimmedFile = file.trim();
-                if (!trimmedFile.startsWith("/data/data/com.scopely.monopolygo/") || 
-                    trimmedFile.contains(";") || trimmedFile.contains("|") || 
-                    trimmedFile.contains("&") || trimmedFile.contains("`")) {
-                    continue; // Skip suspicious file paths
-                }
-                
-                String content = RootManager.runRootCommand("cat \"" + trimmedFile + "\"");
-                if (content == null || content.contains("Error")) continue;
-                
-                // Suche nach android_id oder ssaid
-                String ssaid = extractValueFromXml(content, "android_id");
-                if (ssaid == null) {
-                    ssaid = extractValueFromXml(content, "ssaid");
-                }
-                
-                if (ssaid != null && !ssaid.isEmpty()) {
+            // Suche nach android_id oder ssaid - erste Datei mit Treffer gewinnt
+            for (Map<String, String> values : scanFiles(span, keys, PREFS_DIR + "*.xml").values()) {
+                String ssaid = values.containsKey("android_id") ? values.get("android_id") : values.get("ssaid");
+                if (ssaid != null) {
                     return ssaid;
                 }
             }
@@ -80,49 +94,142 @@ public class DeviceIdExtractor {
     }
     
     /**
-     * Hilfsmethode zum Extrahieren von Werten aus XML
+     * Extrahiert User-ID, GAID, Device-Token, App-Set-ID und SSAID der App-Daten
      */
-    private static String extractValueFromXml(String xml, String key) {
-        try {
-            // Escape key to prevent regex injection
-            String escapedKey = java.util.regex.Pattern.quote(key);
-            
-            // Pattern: <string name="key">value</string>
-            java.util.regex.Pattern pattern = java.util.regex.Pattern.compile(
-                "<string\\s+name=\"" + escapedKey + "\"\\s*>([^<]+)</string>");
-            java.util.regex.Matcher matcher = pattern.matcher(xml);
+    public static AccountIds extractAccountIds() {
+        return extractAccountIds(PLAYER_PREFS_FILE, SSAID_FILE);
+    }
+    
+    /**
+     * Extrahiert User-ID, GAID, Device-Token, App-Set-ID und SSAID
+     * Beide Dateien in einem stat und einem cat - unveränderte Dateien aus dem DeviceIdCache
+     *
+     * @param playerPrefsPath com.scopely.monopolygo.v2.playerprefs.xml
+     * @param ssaidPath settings_ssaid.xml
+     */
+    public static AccountIds extractAccountIds(String playerPrefsPath, String ssaidPath) {
+        AccountIds ids = new AccountIds();
+        try (Tracer.Span span = Tracer.start("ids.account")) {
+            Map<String, Set<String>> keysByPath = new LinkedHashMap<>();
+            keysByPath.put(playerPrefsPath,
+                new HashSet<>(Arrays.asList(KEY_USER_ID, KEY_GAID, KEY_DEVICE_TOKEN, KEY_APP_SET_ID)));
+            keysByPath.put(ssaidPath, Collections.singleton(PACKAGE_NAME));
+            Map<String, Map<String, String>> results = scanFiles(span, keysByPath);
             
-            if (matcher.find()) {
-                return matcher.group(1);
+            Map<String, String> prefs = results.get(playerPrefsPath);
+            if (prefs != null) {
+                ids.userId = prefs.get(KEY_USER_ID);
+                ids.gaid = prefs.get(KEY_GAID);
+                ids.deviceToken = prefs.get(KEY_DEVICE_TOKEN);
+                ids.appSetId = prefs.get(KEY_APP_SET_ID);
             }
             
-            // Alternative Pattern: <long name="key" value="12345" />
-            pattern = java.util.regex.Pattern.compile(
-                "<long\\s+name=\"" + escapedKey + "\"\\s+value=\"([^\"]+)\"");
-            matcher = pattern.matcher(xml);
-            
+            Map<String, String> ssaid = results.get(ssaidPath);
+            ids.ssaid = ssaid != null ? ssaid.get(PACKAGE_NAME) : null;
+        } catch (Exception e) {
+            Log.e(TAG, "ID extraction failed", e);
+        }
+        return ids;
+    }
+    
+    /**
+     * The same wanted keys in every file (globs allowed), in shell order
+     */
+    private static Map<String, Map<String, String>> scanFiles(Tracer.Span span, Set<String> keys, String... paths) {
+        Map<String, Set<String>> keysByPath = new LinkedHashMap<>();
+        for (String path : paths) {
+            keysByPath.put(path, keys);
+        }
+        return scanFiles(span, keysByPath);
+    }
+    
+    /**
+     * Wanted keys per file (globs with one '*' allowed), in shell order
+     * One stat for all files; files whose mtime and size are cached are not read,
+     * the others are read with one root command and scanned once each
+     */
+    private static Map<String, Map<String, String>> scanFiles(Tracer.Span span, Map<String, Set<String>> keysByPath) {
+        span.phase("stat");
+        Map<String, long[]> stats = PrefsXmlScanner.parseStat(
+            RootManager.runRootCommand(PrefsXmlScanner.statCommand(keysByPath.keySet().toArray(new String[0]))));
+        
+        Map<String, Map<String, String>> results = new LinkedHashMap<>();
+        List<String> misses = new ArrayList<>();
+        for (Map.Entry<String, long[]> stat : stats.entrySet()) {
+            Set<String> keys = keysFor(stat.getKey(), keysByPath);
+            Map<String, String> cached = DeviceIdCache.get(stat.getKey(), stat.getValue()[0], stat.getValue()[1], keys);
+            results.put(stat.getKey(), cached);
+            if (cached == null) {
+                misses.add(stat.getKey());
+            }
+        }
+        if (misses.isEmpty()) {
+            return results;
+        }
+        
+        span.phase("read");
+        Map<String, String> contents = PrefsXmlScanner.splitFiles(
+            RootManager.runRootCommand(PrefsXmlScanner.catCommand(misses.toArray(new String[0]))));
+        
+        span.phase("parse");
+        for (String path : misses) {
+            Set<String> keys = keysFor(path, keysByPath);
+            Map<String, String> values = scanContent(contents.get(path), keys);
+            long[] stat = stats.get(path);
+            DeviceIdCache.put(path, stat[0], stat[1], keys, values);
+            results.put(path, values);
+        }
+        return results;
+    }
+    
+    /**
+     * Keys of a stat'ed file: its own entry, else the glob it was expanded from
+     */
+    private static Set<String> keysFor(String path, Map<String, Set<String>> keysByPath) {
+        Set<String> keys = keysByPath.get(path);
+        if (keys != null) {
+            return keys;
+        }
+        for (Map.Entry<String, Set<String>> entry : keysByPath.entrySet()) {
+            String glob = entry.getKey();
+            int star = glob.indexOf('*');
+            if (star >= 0 && path.startsWith(glob.substring(0, star)) && path.endsWith(glob.substring(star + 1))) {
+                return entry.getValue();
+            }
+        }
+        return Collections.emptySet();
+    }
+    
+    private static Map<String, String> scanContent(String content, Set<String> keys) {
+        Map<String, String> values = PrefsXmlScanner.scan(content, keys);
+        if (content != null && keys.contains(PACKAGE_NAME) && !values.containsKey(PACKAGE_NAME)) {
+            Matcher matcher = SSAID_FALLBACK.matcher(content);
             if (matcher.find()) {
-                return matcher.group(1);
+                values.put(PACKAGE_NAME, matcher.group(1));
             }
-            
-            return null;
-        } catch (Exception e) {
-            return null;
         }
+        return values;
     }
     
     /**
-     * Extrahiert Google Advertising ID (async)
+     * Extrahiert Google Advertising ID (async, blockiert bis zu einigen Sekunden)
+     * Einmal pro Boot über die Play Services, danach aus dem DeviceIdCache
      */
     public static CompletableFuture<String> extractGAID(Context context) {
+        String cached = DeviceIdCache.getGaid();
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
         return CompletableFuture.supplyAsync(() -> {
             try {
                 AdvertisingIdClient.Info adInfo = AdvertisingIdClient.getAdvertisingIdInfo(context);
-                return adInfo.getId();
+                String gaid = adInfo.getId();
+                DeviceIdCache.putGaid(gaid);
+                return gaid;
             } catch (Exception e) {
                 return null;
             }
-        });
+        }, AppExecutors.io());
     }
     
     /**
@@ -141,8 +248,10 @@ public class DeviceIdExtractor {
     
     /**
      * Extrahiert alle Device-IDs (kombiniert)
+     * SSAID (Root) und GAID (Play Services) laufen parallel
      */
     public static CompletableFuture<DeviceIds> extractAllIds(Context context) {
+        CompletableFuture<String> gaid = extractGAID(context);
         return CompletableFuture.supplyAsync(() -> {
             // SSAID via Root (synchron)
             String ssaid = extractSSAID();
@@ -151,12 +260,9 @@ public class DeviceIdExtractor {
             String deviceId = extractDeviceId(context);
             
             return new DeviceIds(ssaid, null, deviceId);
-        }).thenCompose(partial -> 
-            // GAID (async) dann kombinieren
-            extractGAID(context).thenApply(gaid -> {
-                partial.gaid = gaid;
-                return partial;
-            })
-        );
+        }, AppExecutors.io()).thenCombine(gaid, (partial, id) -> {
+            partial.gaid = id;
+            return partial;
+        });
     }
 }
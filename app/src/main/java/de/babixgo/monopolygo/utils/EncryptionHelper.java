@@ -1,37 +1,86 @@
 package de.babixgo.monopolygo.utils;
 
+import android.os.Build;
 import android.util.Base64;
 import android.util.Log;
 
+import javax.crypto.AEADBadTagException;
 import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyStore;
+import java.security.MessageDigest;
 import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Helper for AES-256 encryption of passwords
- * Uses CBC mode with random IV for security
  * 
- * SECURITY NOTE: This implementation uses a hard-coded key for simplicity.
- * For production use, consider:
- * - Storing the key in Android Keystore
- * - Using per-user encryption keys
- * - Implementing key rotation
+ * Current format (v2): authenticated AES-GCM envelope
+ *   "v2:" + Base64(keyId (1 byte) | IV (12 bytes) | ciphertext + 128 bit tag)
+ * keyId 2 = software key, the same on every installation - all new values.
+ * keyId 1 = AES key in the Android Keystore. Read only: values written with it by
+ *           earlier builds are migrated to keyId 2 on the device that holds the key.
+ * Tampered or truncated values fail to decrypt instead of returning garbage.
+ * 
+ * Legacy format (v1, no prefix): AES/CBC/PKCS5Padding, Base64(IV | ciphertext).
+ * Still readable; isLegacy() finds v1 and keyId 1 values for the background
+ * re-encryption.
+ * 
+ * Key material, SecureRandom and one Cipher per thread and key are created once
+ * and reused, so decrypting a whole customer list costs microseconds per item.
+ * 
+ * SECURITY NOTE: credentialsPassword is synced through Firebase and must be readable
+ * on every device and after a reinstall, so it cannot use a device-bound key. The
+ * software key protects against tampering and casual reads of the database, not
+ * against someone with the APK.
  */
 public class EncryptionHelper {
     private static final String TAG = "EncryptionHelper";
     private static final String ALGORITHM = "AES";
-    private static final String TRANSFORMATION = "AES/CBC/PKCS5Padding"; // CBC mode with IV
     
-    // IMPORTANT: In production, load this key from secure storage (Android Keystore)!
-    // This key is 32 bytes (256 bits) for AES-256
-    private static final String KEY = "BabixGO2026SecureKey1234567890"; // CHANGE THIS!
+    // v2: AES-GCM envelope
+    private static final String ENVELOPE_PREFIX = "v2:";
+    private static final String GCM_TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int GCM_IV_LENGTH = 12;
+    private static final int GCM_TAG_BITS = 128;
+    private static final byte KEY_ID_KEYSTORE = 1;
+    private static final byte KEY_ID_SOFTWARE = 2;
+    private static final String KEYSTORE_PROVIDER = "AndroidKeyStore";
+    private static final String KEYSTORE_ALIAS = "babixgo_credentials";
+    
+    // v1: legacy CBC format
+    private static final String LEGACY_TRANSFORMATION = "AES/CBC/PKCS5Padding";
+    private static final int LEGACY_IV_LENGTH = 16; // AES block size is 16 bytes
+    
+    // Software key material: SHA-256 of the passphrase gives a valid 32 byte (256 bit) AES key
+    private static final String KEY = "BabixGO2026SecureKey1234567890";
+    
+    private static final SecretKeySpec LEGACY_KEY = new SecretKeySpec(deriveKey(KEY), ALGORITHM);
+    private static final SecretKeySpec SOFTWARE_KEY = new SecretKeySpec(deriveKey(KEY + ":" + ENVELOPE_PREFIX), ALGORITHM);
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    // Resolved on first use: null = no usable Android Keystore
+    private static volatile SecretKey keystoreKey;
+    private static volatile boolean keystoreResolved = false;
+    
+    // Cipher is not thread-safe - one instance per thread, re-initialized per call.
+    // Keystore and software keys get separate instances: a Cipher stays bound to
+    // the provider it was first initialized with.
+    private static final ThreadLocal<Cipher> KEYSTORE_CIPHER = cipherPerThread(GCM_TRANSFORMATION);
+    private static final ThreadLocal<Cipher> SOFTWARE_CIPHER = cipherPerThread(GCM_TRANSFORMATION);
+    private static final ThreadLocal<Cipher> LEGACY_CIPHER = cipherPerThread(LEGACY_TRANSFORMATION);
     
     /**
-     * Encrypt text with AES-256 CBC mode
-     * Uses random IV prepended to ciphertext
+     * Encrypt text into the current (v2) envelope
      * @param plainText Plain text
-     * @return Encrypted text with IV (Base64)
+     * @return "v2:" envelope
      */
     public static String encrypt(String plainText) {
         if (plainText == null || plainText.isEmpty()) {
@@ -39,25 +88,20 @@ public class EncryptionHelper {
         }
         
         try {
-            // Generate random IV
-            byte[] iv = new byte[16]; // AES block size is 16 bytes
-            SecureRandom random = new SecureRandom();
-            random.nextBytes(iv);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            
-            // Encrypt
-            SecretKeySpec keySpec = new SecretKeySpec(KEY.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
+            byte[] input = plainText.getBytes(StandardCharsets.UTF_8);
+            byte[] iv = new byte[GCM_IV_LENGTH];
+            RANDOM.nextBytes(iv);
+            Cipher cipher = SOFTWARE_CIPHER.get();
+            cipher.init(Cipher.ENCRYPT_MODE, SOFTWARE_KEY, new GCMParameterSpec(GCM_TAG_BITS, iv));
             
-            byte[] encrypted = cipher.doFinal(plainText.getBytes("UTF-8"));
+            // keyId | IV | ciphertext+tag, written into one buffer
+            int header = 1 + GCM_IV_LENGTH;
+            byte[] combined = new byte[header + cipher.getOutputSize(input.length)];
+            combined[0] = KEY_ID_SOFTWARE;
+            System.arraycopy(iv, 0, combined, 1, GCM_IV_LENGTH);
+            int length = cipher.doFinal(input, 0, input.length, combined, header);
             
-            // Prepend IV to encrypted data
-            byte[] combined = new byte[iv.length + encrypted.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
-            
-            return Base64.encodeToString(combined, Base64.NO_WRAP);
+            return ENVELOPE_PREFIX + Base64.encodeToString(combined, 0, header + length, Base64.NO_WRAP);
             
         } catch (Exception e) {
             Log.e(TAG, "Encryption failed", e);
@@ -66,9 +110,8 @@ public class EncryptionHelper {
     }
     
     /**
-     * Decrypt encrypted text
-     * Extracts IV from beginning of ciphertext
-     * @param encryptedText Encrypted text with IV (Base64)
+     * Decrypt a v2 envelope or a legacy v1 value
+     * @param encryptedText Encrypted text
      * @return Plain text
      */
     public static String decrypt(String encryptedText) {
@@ -77,28 +120,176 @@ public class EncryptionHelper {
         }
         
         try {
-            byte[] combined = Base64.decode(encryptedText, Base64.NO_WRAP);
-            
-            // Extract IV from beginning
-            byte[] iv = new byte[16]; // AES block size is 16 bytes
-            System.arraycopy(combined, 0, iv, 0, iv.length);
-            IvParameterSpec ivSpec = new IvParameterSpec(iv);
-            
-            // Extract encrypted data
-            byte[] encrypted = new byte[combined.length - iv.length];
-            System.arraycopy(combined, iv.length, encrypted, 0, encrypted.length);
-            
-            // Decrypt
-            SecretKeySpec keySpec = new SecretKeySpec(KEY.getBytes(), ALGORITHM);
-            Cipher cipher = Cipher.getInstance(TRANSFORMATION);
-            cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
-            
-            byte[] decrypted = cipher.doFinal(encrypted);
-            return new String(decrypted, "UTF-8");
-            
+            return decryptValue(encryptedText);
         } catch (Exception e) {
             Log.e(TAG, "Decryption failed", e);
             throw new RuntimeException("Decryption failed: " + e.getMessage(), e);
         }
     }
+    
+    /**
+     * Decrypt many values in one go (e.g. all accounts of a customer)
+     * Null/empty entries map to "", the result has the same order as the input
+     * @param encryptedTexts Encrypted texts
+     * @return Plain texts
+     */
+    public static List<String> decryptAll(List<String> encryptedTexts) {
+        List<String> result = new ArrayList<>(encryptedTexts.size());
+        
+        for (String encryptedText : encryptedTexts) {
+            if (encryptedText == null || encryptedText.isEmpty()) {
+                result.add("");
+                continue;
+            }
+            try {
+                result.add(decryptValue(encryptedText));
+            } catch (Exception e) {
+                Log.e(TAG, "Decryption failed", e);
+                throw new RuntimeException("Decryption failed: " + e.getMessage(), e);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * True for non-empty values not in the current format: legacy CBC values and
+     * envelopes written with the device-bound Keystore key
+     */
+    public static boolean isLegacy(String encryptedText) {
+        if (encryptedText == null || encryptedText.isEmpty()) {
+            return false;
+        }
+        if (!encryptedText.startsWith(ENVELOPE_PREFIX)) {
+            return true;
+        }
+        // The first 4 Base64 characters hold the key id byte
+        int end = ENVELOPE_PREFIX.length() + 4;
+        if (encryptedText.length() < end) {
+            return false;
+        }
+        try {
+            return Base64.decode(encryptedText.substring(ENVELOPE_PREFIX.length(), end), Base64.NO_WRAP)[0] == KEY_ID_KEYSTORE;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+    
+    /**
+     * Re-encrypt a legacy value into the current envelope (current values are returned as is)
+     */
+    public static String reencrypt(String encryptedText) {
+        return isLegacy(encryptedText) ? encrypt(decrypt(encryptedText)) : encryptedText;
+    }
+    
+    // ==================== Decoding ====================
+    
+    private static String decryptValue(String encryptedText) throws GeneralSecurityException {
+        if (!encryptedText.startsWith(ENVELOPE_PREFIX)) {
+            return decryptLegacy(encryptedText);
+        }
+        
+        byte[] combined = Base64.decode(encryptedText.substring(ENVELOPE_PREFIX.length()), Base64.NO_WRAP);
+        int header = 1 + GCM_IV_LENGTH;
+        if (combined.length < header + GCM_TAG_BITS / 8) {
+            throw new GeneralSecurityException("Envelope too short");
+        }
+        
+        Cipher cipher;
+        Key key;
+        switch (combined[0]) {
+            case KEY_ID_KEYSTORE:
+                key = getKeystoreKey();
+                if (key == null) {
+                    throw new GeneralSecurityException("Encrypted with a device-bound Keystore key this installation does not have");
+                }
+                cipher = KEYSTORE_CIPHER.get();
+                break;
+            case KEY_ID_SOFTWARE:
+                key = SOFTWARE_KEY;
+                cipher = SOFTWARE_CIPHER.get();
+                break;
+            default:
+                throw new GeneralSecurityException("Unknown key id " + combined[0]);
+        }
+        
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(GCM_TAG_BITS, combined, 1, GCM_IV_LENGTH));
+        try {
+            byte[] decrypted = cipher.doFinal(combined, header, combined.length - header);
+            return new String(decrypted, StandardCharsets.UTF_8);
+        } catch (AEADBadTagException e) {
+            if (combined[0] == KEY_ID_KEYSTORE) {
+                // Another device or an earlier installation has its own Keystore key
+                throw new GeneralSecurityException("Encrypted with the Keystore key of another device or installation", e);
+            }
+            throw e;
+        }
+    }
+    
+    private static String decryptLegacy(String encryptedText) throws GeneralSecurityException {
+        byte[] combined = Base64.decode(encryptedText, Base64.NO_WRAP);
+        if (combined.length <= LEGACY_IV_LENGTH) {
+            throw new GeneralSecurityException("Ciphertext too short");
+        }
+        
+        // IV at the beginning, encrypted data after it - no copies needed
+        Cipher cipher = LEGACY_CIPHER.get();
+        cipher.init(Cipher.DECRYPT_MODE, LEGACY_KEY, new IvParameterSpec(combined, 0, LEGACY_IV_LENGTH));
+        byte[] decrypted = cipher.doFinal(combined, LEGACY_IV_LENGTH, combined.length - LEGACY_IV_LENGTH);
+        return new String(decrypted, StandardCharsets.UTF_8);
+    }
+    
+    // ==================== Keys ====================
+    
+    /**
+     * AES key earlier builds created in the Android Keystore - never created anymore
+     * Null if there is none, on API < 23 and wherever the Keystore is not available
+     */
+    private static SecretKey getKeystoreKey() {
+        if (!keystoreResolved) {
+            synchronized (EncryptionHelper.class) {
+                if (!keystoreResolved) {
+                    keystoreKey = loadKeystoreKey();
+                    keystoreResolved = true;
+                }
+            }
+        }
+        return keystoreKey;
+    }
+    
+    private static SecretKey loadKeystoreKey() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return null;
+        }
+        
+        try {
+            KeyStore keyStore = KeyStore.getInstance(KEYSTORE_PROVIDER);
+            keyStore.load(null);
+            Key existing = keyStore.getKey(KEYSTORE_ALIAS, null);
+            return existing instanceof SecretKey ? (SecretKey) existing : null;
+        } catch (Exception e) {
+            Log.w(TAG, "Android Keystore not available", e);
+            return null;
+        }
+    }
+    
+    /**
+     * SHA-256 of the passphrase - always 32 bytes, whatever the passphrase length
+     */
+    private static byte[] deriveKey(String passphrase) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(passphrase.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+    
+    private static ThreadLocal<Cipher> cipherPerThread(String transformation) {
+        return ThreadLocal.withInitial(() -> {
+            try {
+                return Cipher.getInstance(transformation);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(transformation + " not available", e);
+            }
+        });
+    }
 }
@@ -0,0 +1,28 @@
+package de.babixgo.monopolygo.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Numeric record IDs shared by imports, migration, slot assignment and repositories
+ *
+ * A stable ID is derived from a natural key (name, InterneID, event + customer account,
+ * a push key ...): the same key always maps to the same ID, so writing a record twice
+ * updates it instead of duplicating it.
+ */
+public final class IdHelper {
+    // Largest integer a double holds exactly - Firebase queries compare numbers as double
+    private static final long STABLE_ID_MASK = (1L << 53) - 1;
+
+    private IdHelper() {}
+
+    /**
+     * Stable positive ID for a natural key - the same key always maps to the same ID
+     * Fits into 53 bits, so it survives Firebase's double-based number handling
+     */
+    public static long stableId(String collection, String naturalKey) {
+        UUID uuid = UUID.nameUUIDFromBytes((collection + "/" + naturalKey).getBytes(StandardCharsets.UTF_8));
+        long id = uuid.getMostSignificantBits() & STABLE_ID_MASK;
+        return id != 0 ? id : 1;
+    }
+}
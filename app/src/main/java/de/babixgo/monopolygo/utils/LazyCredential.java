@@ -0,0 +1,74 @@
+package de.babixgo.monopolygo.utils;
+
+/**
+ * Encrypted credential that is decrypted on first access only
+ *
+ * Models keep the ciphertext as their stored value; the plain text is produced
+ * by reveal() when a screen actually shows it and cached afterwards. Loading a
+ * list of accounts therefore does no crypto work, and plain passwords exist in
+ * memory only for credentials that were looked at.
+ */
+public final class LazyCredential {
+    private final String cipherText;
+    private volatile String plainText; // Cached after the first reveal()
+
+    private LazyCredential(String cipherText, String plainText) {
+        this.cipherText = cipherText;
+        this.plainText = plainText;
+    }
+
+    /**
+     * Wrap a stored ciphertext (nothing is decrypted yet)
+     */
+    public static LazyCredential ofEncrypted(String cipherText) {
+        return new LazyCredential(cipherText, null);
+    }
+
+    /**
+     * Encrypt a new plain value - the plain text stays cached for the editing screen
+     */
+    public static LazyCredential ofPlainText(String plainText) {
+        if (plainText == null || plainText.isEmpty()) {
+            return new LazyCredential(plainText, plainText);
+        }
+        return new LazyCredential(EncryptionHelper.encrypt(plainText), plainText);
+    }
+
+    /**
+     * Stored form (Base64 ciphertext with IV)
+     */
+    public String getCipherText() {
+        return cipherText;
+    }
+
+    /**
+     * Plain text, decrypted on the first call ("" if there is no credential)
+     * @throws RuntimeException if the ciphertext cannot be decrypted
+     */
+    public String reveal() {
+        String result = plainText;
+        if (result == null) {
+            result = EncryptionHelper.decrypt(cipherText);
+            plainText = result;
+        }
+        return result;
+    }
+
+    /**
+     * True once the plain text is held in memory
+     */
+    public boolean isRevealed() {
+        return plainText != null;
+    }
+
+    /**
+     * Drop the cached plain text (e.g. when the detail screen is closed)
+     */
+    public void forget() {
+        plainText = null;
+    }
+
+    public boolean isEmpty() {
+        return cipherText == null || cipherText.isEmpty();
+    }
+}
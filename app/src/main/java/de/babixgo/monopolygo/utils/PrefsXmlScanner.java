@@ -0,0 +1,157 @@
+package de.babixgo.monopolygo.utils;
+
+import android.util.Log;
+import android.util.Xml;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+/**
+ * Single-pass scanner for SharedPreferences-style XML files
+ *
+ * One streaming pull-parser pass per file collects every wanted key at once:
+ *   <string name="key">value</string>
+ *   <long name="key" value="123" />   (int, boolean, float alike)
+ *   <setting ... value="..." package="key" />   (settings_ssaid.xml, keyed by package)
+ * Parsing stops as soon as all keys are found. The first occurrence of a key wins.
+ */
+public class PrefsXmlScanner {
+    private static final String TAG = "PrefsXmlScanner";
+
+    /**
+     * Wanted keys of one XML document -> values (missing keys are absent)
+     */
+    public static Map<String, String> scan(String xml, Set<String> keys) {
+        Map<String, String> values = new HashMap<>();
+        if (xml == null || xml.isEmpty() || keys.isEmpty()) {
+            return values;
+        }
+
+        try {
+            XmlPullParser parser = Xml.newPullParser();
+            parser.setInput(new StringReader(xml));
+
+            int event = parser.getEventType();
+            while (event != XmlPullParser.END_DOCUMENT && values.size() < keys.size()) {
+                if (event == XmlPullParser.START_TAG) {
+                    readElement(parser, keys, values);
+                }
+                event = parser.next();
+            }
+        } catch (XmlPullParserException | IOException e) {
+            // Binary (ABX) or truncated file - keep what was found up to here
+            Log.w(TAG, "XML scan stopped: " + e.getMessage());
+        }
+        return values;
+    }
+
+    private static void readElement(XmlPullParser parser, Set<String> keys, Map<String, String> values)
+            throws XmlPullParserException, IOException {
+        String key = "setting".equals(parser.getName())
+            ? parser.getAttributeValue(null, "package")
+            : parser.getAttributeValue(null, "name");
+        if (key == null || !keys.contains(key) || values.containsKey(key)) {
+            return;
+        }
+
+        String value = parser.getAttributeValue(null, "value");
+        if (value == null && "string".equals(parser.getName())) {
+            // <string name="key">value</string> - text up to the end tag
+            value = parser.nextText();
+        }
+        if (value != null && !value.isEmpty()) {
+            values.put(key, value);
+        }
+    }
+
+    // ==================== Batched Root Read ====================
+
+    private static final String FILE_MARKER = "@@BABIX_FILE@@ ";
+
+    /**
+     * Shell snippet printing every given file (globs allowed) behind a marker line,
+     * for one root command over all candidate files
+     */
+    public static String catCommand(String... paths) {
+        StringBuilder command = new StringBuilder("for f in");
+        for (String path : paths) {
+            command.append(' ').append(quoteGlob(path));
+        }
+        command.append("; do [ -f \"$f\" ] && { echo \"").append(FILE_MARKER)
+            .append("$f\"; cat \"$f\"; echo; }; done; true");
+        return command.toString();
+    }
+
+    /**
+     * Shell snippet printing "mtime size path" for every given file (globs allowed)
+     */
+    public static String statCommand(String... paths) {
+        StringBuilder command = new StringBuilder("stat -c '%Y %s %n'");
+        for (String path : paths) {
+            command.append(' ').append(quoteGlob(path));
+        }
+        command.append(" 2>/dev/null; true");
+        return command.toString();
+    }
+
+    /**
+     * Parse the output of statCommand() into path -> {mtime, size}, in output order
+     */
+    public static Map<String, long[]> parseStat(String output) {
+        Map<String, long[]> stats = new LinkedHashMap<>();
+        for (String line : output.split("\n")) {
+            String[] parts = line.trim().split(" ", 3);
+            if (parts.length < 3) {
+                continue;
+            }
+            try {
+                stats.put(parts[2], new long[] {Long.parseLong(parts[0]), Long.parseLong(parts[1])});
+            } catch (NumberFormatException e) {
+                // Not a stat line
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Split the output of catCommand() into path -> content, in output order
+     */
+    public static Map<String, String> splitFiles(String output) {
+        Map<String, String> files = new LinkedHashMap<>();
+        String path = null;
+        StringBuilder content = new StringBuilder();
+        for (String line : output.split("\n", -1)) {
+            if (line.startsWith(FILE_MARKER)) {
+                if (path != null) {
+                    files.put(path, content.toString());
+                }
+                path = line.substring(FILE_MARKER.length()).trim();
+                content.setLength(0);
+            } else if (path != null) {
+                content.append(line).append('\n');
+            }
+        }
+        if (path != null) {
+            files.put(path, content.toString());
+        }
+        return files;
+    }
+
+    /**
+     * Single-quote a path for the shell, leaving a trailing "*.xml" style glob unquoted
+     */
+    private static String quoteGlob(String path) {
+        int slash = path.lastIndexOf('/');
+        String name = path.substring(slash + 1);
+        if (!name.contains("*")) {
+            return "'" + path.replace("'", "'\\''") + "'";
+        }
+        String dir = path.substring(0, slash + 1);
+        return "'" + dir.replace("'", "'\\''") + "'" + name.replaceAll("[^A-Za-z0-9*._-]", "");
+    }
+}
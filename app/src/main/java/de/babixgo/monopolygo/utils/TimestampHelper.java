@@ -0,0 +1,157 @@
+package de.babixgo.monopolygo.utils;
+
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Shared timestamp service for models and repositories
+ *
+ * Timestamps are stored twice in Firebase:
+ * - "createdAt" etc. as ISO 8601 text (yyyy-MM-dd'T'HH:mm:ss, local time) for display and old clients
+ * - "createdAtTimestamp" etc. as epoch milliseconds for server-side orderByChild/startAt/endAt
+ *
+ * Formatters are per thread and the last formatted second is cached, so the
+ * hot path (many writes within the same second) does not build a SimpleDateFormat
+ * or a new String per call.
+ */
+public final class TimestampHelper {
+    private static final String ISO_PATTERN = "yyyy-MM-dd'T'HH:mm:ss";
+    private static final String DATE_PATTERN = "yyyy-MM-dd";
+    private static final String DISPLAY_PATTERN = "dd.MM.yyyy, HH:mm";
+    private static final String DISPLAY_DATE_PATTERN = "dd.MM.yyyy";
+
+    private static final ThreadLocal<SimpleDateFormat> ISO_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(ISO_PATTERN, Locale.getDefault());
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(DATE_PATTERN, Locale.getDefault());
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> DISPLAY_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(DISPLAY_PATTERN, Locale.GERMAN);
+        }
+    };
+
+    private static final ThreadLocal<SimpleDateFormat> DISPLAY_DATE_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+        @Override
+        protected SimpleDateFormat initialValue() {
+            return new SimpleDateFormat(DISPLAY_DATE_PATTERN, Locale.GERMAN);
+        }
+    };
+
+    /**
+     * Last formatted ISO second - immutable so it can be swapped atomically
+     */
+    private static final class CachedSecond {
+        final long second;
+        final String iso;
+
+        CachedSecond(long second, String iso) {
+            this.second = second;
+            this.iso = iso;
+        }
+    }
+
+    private static volatile CachedSecond lastIso;
+
+    private TimestampHelper() {}
+
+    /**
+     * Current time as epoch milliseconds
+     */
+    public static long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * Current time as ISO 8601 text
+     */
+    public static String nowIso() {
+        return formatIso(now());
+    }
+
+    /**
+     * Format epoch milliseconds as ISO 8601 text
+     * Repeated calls within the same second return the cached String
+     */
+    public static String formatIso(long epochMillis) {
+        long second = epochMillis / 1000;
+        CachedSecond cached = lastIso;
+        if (cached != null && cached.second == second) {
+            return cached.iso;
+        }
+
+        String iso = ISO_FORMAT.get().format(new Date(epochMillis));
+        lastIso = new CachedSecond(second, iso);
+        return iso;
+    }
+
+    /**
+     * Format epoch milliseconds for UI: "21.01.2026, 14:30"
+     */
+    public static String formatDisplay(long epochMillis) {
+        return DISPLAY_FORMAT.get().format(new Date(epochMillis));
+    }
+
+    /**
+     * Format epoch milliseconds as date for UI: "21.01.2026"
+     */
+    public static String formatDisplayDate(long epochMillis) {
+        return DISPLAY_DATE_FORMAT.get().format(new Date(epochMillis));
+    }
+
+    /**
+     * Dual-read: convert a stored timestamp string to epoch milliseconds
+     * Accepts ISO 8601 date-time, plain dates (yyyy-MM-dd) and numeric epoch strings
+     * written by the old set*Timestamp helpers
+     *
+     * @return epoch milliseconds or 0 if empty/unparseable
+     */
+    public static long toEpochMillis(String value) {
+        if (value == null || value.isEmpty()) {
+            return 0;
+        }
+
+        if (isNumeric(value)) {
+            try {
+                return Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        // ParsePosition avoids the exception path for malformed values
+        SimpleDateFormat format = value.length() > DATE_PATTERN.length() ? ISO_FORMAT.get() : DATE_FORMAT.get();
+        ParsePosition position = new ParsePosition(0);
+        Date date = format.parse(value, position);
+        return date != null ? date.getTime() : 0;
+    }
+
+    /**
+     * Prefer the stored numeric value, fall back to parsing the ISO text
+     */
+    public static long resolve(long epochMillis, String isoValue) {
+        return epochMillis > 0 ? epochMillis : toEpochMillis(isoValue);
+    }
+
+    private static boolean isNumeric(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
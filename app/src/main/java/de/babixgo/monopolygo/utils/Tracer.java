@@ -0,0 +1,434 @@
+package de.babixgo.monopolygo.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lightweight in-process tracing: spans, latency histograms and counters
+ *
+ * Usage:
+ *   try (Tracer.Span span = Tracer.start("backup")) {
+ *       span.phase("copy");   // closes the previous phase, opens "backup.copy"
+ *       ...
+ *   }
+ *
+ * Every closed span is recorded in a histogram per name (log-linear buckets like
+ * HdrHistogram, ~3% relative error, microseconds up to several hours) and in a ring
+ * of the most recent spans. Spans opened on the same thread nest automatically.
+ * Recording is a few atomic increments - cheap enough for every root command.
+ *
+ * Shown in DiagnosticsActivity, exportable as JSON (toJson / exportJson).
+ */
+public final class Tracer {
+    private static final int RECENT_SPANS = 256;
+
+    private static final Map<String, Histogram> HISTOGRAMS = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> COUNTERS = new ConcurrentHashMap<>();
+    private static final AtomicReferenceArray<SpanRecord> RECENT = new AtomicReferenceArray<>(RECENT_SPANS);
+    private static final AtomicLong RECENT_INDEX = new AtomicLong();
+    private static final ThreadLocal<Span> CURRENT = new ThreadLocal<>();
+    private static final long STARTED_AT = System.currentTimeMillis();
+
+    private Tracer() {}
+
+    // ==================== Recording ====================
+
+    /**
+     * Open a span, child of the span currently open on this thread (if any)
+     */
+    public static Span start(String name) {
+        Span span = new Span(name, CURRENT.get());
+        CURRENT.set(span);
+        return span;
+    }
+
+    /**
+     * Record an operation timed elsewhere
+     */
+    public static void record(String name, long durationNanos, boolean failed) {
+        histogram(name).record(TimeUnit.NANOSECONDS.toMicros(durationNanos), failed);
+    }
+
+    public static void count(String name) {
+        count(name, 1);
+    }
+
+    public static void count(String name, long delta) {
+        COUNTERS.computeIfAbsent(name, key -> new AtomicLong()).addAndGet(delta);
+    }
+
+    /**
+     * Future that records its own latency from creation to complete/completeExceptionally
+     * For callback APIs (Firebase) that complete a future from another thread
+     */
+    public static <T> CompletableFuture<T> newFuture(String name) {
+        return new TimedFuture<>(name);
+    }
+
+    /**
+     * Clear all histograms, counters and recent spans
+     */
+    public static void reset() {
+        HISTOGRAMS.clear();
+        COUNTERS.clear();
+        for (int i = 0; i < RECENT_SPANS; i++) {
+            RECENT.set(i, null);
+        }
+    }
+
+    private static Histogram histogram(String name) {
+        Histogram histogram = HISTOGRAMS.get(name);
+        return histogram != null ? histogram : HISTOGRAMS.computeIfAbsent(name, key -> new Histogram());
+    }
+
+    // ==================== Snapshots ====================
+
+    /**
+     * All histograms, most total time first
+     */
+    public static List<Stats> stats() {
+        List<Stats> stats = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : HISTOGRAMS.entrySet()) {
+            Stats snapshot = entry.getValue().snapshot(entry.getKey());
+            if (snapshot.count > 0) {
+                stats.add(snapshot);
+            }
+        }
+        stats.sort(Comparator.comparingDouble((Stats s) -> s.totalMillis).reversed());
+        return stats;
+    }
+
+    public static Map<String, Long> counters() {
+        Map<String, Long> counters = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : COUNTERS.entrySet()) {
+            counters.put(entry.getKey(), entry.getValue().get());
+        }
+        return counters;
+    }
+
+    /**
+     * Most recent closed spans, oldest first
+     */
+    public static List<SpanRecord> recentSpans() {
+        List<SpanRecord> spans = new ArrayList<>();
+        long end = RECENT_INDEX.get();
+        for (long i = Math.max(0, end - RECENT_SPANS); i < end; i++) {
+            SpanRecord record = RECENT.get((int) (i % RECENT_SPANS));
+            if (record != null) {
+                spans.add(record);
+            }
+        }
+        spans.sort(Comparator.comparingLong(record -> record.startedAt));
+        return spans;
+    }
+
+    /**
+     * Human-readable table for the diagnostics screen
+     */
+    public static String summary() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.US, "%-28s %6s %8s %8s %8s %8s%n", "Operation", "n", "p50", "p90", "p99", "max"));
+        for (Stats s : stats()) {
+            text.append(String.format(Locale.US, "%-28s %6d %8.1f %8.1f %8.1f %8.1f%s%n",
+                s.name, s.count, s.p50Millis, s.p90Millis, s.p99Millis, s.maxMillis,
+                s.errors > 0 ? "  (" + s.errors + " err)" : ""));
+        }
+        Map<String, Long> counters = counters();
+        if (!counters.isEmpty()) {
+            text.append("\nZähler\n");
+            for (Map.Entry<String, Long> counter : counters.entrySet()) {
+                text.append(String.format(Locale.US, "%-28s %6d%n", counter.getKey(), counter.getValue()));
+            }
+        }
+        text.append("\nExecutors\n");
+        for (AppExecutors.Stats pool : AppExecutors.stats()) {
+            text.append(pool).append('\n');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Everything recorded since start/reset as JSON (times in milliseconds)
+     */
+    public static String toJson() {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("processStartedAt", STARTED_AT);
+        report.put("exportedAt", System.currentTimeMillis());
+        report.put("histograms", stats());
+        report.put("counters", counters());
+        report.put("executors", AppExecutors.stats());
+        report.put("recentSpans", recentSpans());
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        return gson.toJson(report);
+    }
+
+    /**
+     * Write toJson() to dir/diagnostics_{timestamp}.json
+     *
+     * @return The written file
+     */
+    public static File exportJson(File dir) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        File file = new File(dir, "diagnostics_" + System.currentTimeMillis() + ".json");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(toJson());
+        }
+        return file;
+    }
+
+    // ==================== Types ====================
+
+    /**
+     * Open span - close() records it, try-with-resources recommended
+     */
+    public static final class Span implements AutoCloseable {
+        private final String name;
+        private final Span parent;
+        private final long startNanos = System.nanoTime();
+        private final long startedAt = System.currentTimeMillis();
+        private Span phase;
+        private boolean failed;
+        private boolean closed;
+
+        private Span(String name, Span parent) {
+            this.name = name;
+            this.parent = parent;
+        }
+
+        /**
+         * Close the current phase and open the child span "{name}.{phase}"
+         */
+        public Span phase(String phaseName) {
+            closePhase();
+            phase = start(name + "." + phaseName);
+            return phase;
+        }
+
+        /**
+         * Mark the span (and its open phase) as failed - counted as error in the histogram
+         */
+        public void fail() {
+            failed = true;
+            if (phase != null) {
+                phase.fail();
+            }
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closePhase();
+            closed = true;
+            long duration = System.nanoTime() - startNanos;
+            record(name, duration, failed);
+
+            long index = RECENT_INDEX.getAndIncrement();
+            RECENT.set((int) (index % RECENT_SPANS), new SpanRecord(name, parent != null ? parent.name : null,
+                Thread.currentThread().getName(), startedAt, duration / 1e6, failed));
+
+            if (CURRENT.get() == this) {
+                CURRENT.set(parent);
+            }
+        }
+
+        private void closePhase() {
+            if (phase != null) {
+                phase.close();
+                phase = null;
+            }
+        }
+    }
+
+    /**
+     * One closed span
+     */
+    public static final class SpanRecord {
+        public final String name;
+        public final String parent;
+        public final String thread;
+        public final long startedAt;
+        public final double durationMillis;
+        public final boolean failed;
+
+        SpanRecord(String name, String parent, String thread, long startedAt, double durationMillis, boolean failed) {
+            this.name = name;
+            this.parent = parent;
+            this.thread = thread;
+            this.startedAt = startedAt;
+            this.durationMillis = durationMillis;
+            this.failed = failed;
+        }
+    }
+
+    /**
+     * Histogram values of one operation at one point in time
+     */
+    public static final class Stats {
+        public final String name;
+        public final long count;
+        public final long errors;
+        public final double totalMillis;
+        public final double meanMillis;
+        public final double p50Millis;
+        public final double p90Millis;
+        public final double p99Millis;
+        public final double maxMillis;
+
+        Stats(String name, long count, long errors, double totalMillis, double p50Millis,
+              double p90Millis, double p99Millis, double maxMillis) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.totalMillis = totalMillis;
+            this.meanMillis = count > 0 ? totalMillis / count : 0;
+            this.p50Millis = p50Millis;
+            this.p90Millis = p90Millis;
+            this.p99Millis = p99Millis;
+            this.maxMillis = maxMillis;
+        }
+    }
+
+    /**
+     * Log-linear histogram of microsecond values
+     *
+     * Values below SUB_BUCKETS are counted exactly, above that every power of two is
+     * split into SUB_BUCKETS linear buckets - the bucket width is at most 1/32 of the value.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int MAX_EXPONENT = 40;    // 2^40 µs ~ 12 days
+        private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+        private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long micros, boolean failed) {
+            long value = Math.max(0, Math.min(micros, MAX_VALUE));
+            counts.incrementAndGet(indexOf(value));
+            count.incrementAndGet();
+            total.addAndGet(value);
+            max.accumulateAndGet(value, Math::max);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        static int indexOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            int sub = (int) (value >>> shift) - SUB_BUCKETS;
+            return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+        }
+
+        static long lowerBound(int index) {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+            int sub = (index - SUB_BUCKETS) % SUB_BUCKETS;
+            return (long) (SUB_BUCKETS + sub) << shift;
+        }
+
+        static long upperBound(int index) {
+            return index + 1 < BUCKETS ? lowerBound(index + 1) - 1 : MAX_VALUE;
+        }
+
+        Stats snapshot(String name) {
+            long[] snapshot = new long[BUCKETS];
+            long n = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = counts.get(i);
+                n += snapshot[i];
+            }
+            long maxValue = max.get();
+            return new Stats(name, n, errors.get(), total.get() / 1000.0,
+                percentile(snapshot, n, 0.50, maxValue), percentile(snapshot, n, 0.90, maxValue),
+                percentile(snapshot, n, 0.99, maxValue), maxValue / 1000.0);
+        }
+
+        /**
+         * Value at quantile q in milliseconds - bucket midpoint, never above the recorded max
+         */
+        private static double percentile(long[] snapshot, long n, double q, long maxValue) {
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * n));
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    long mid = (lowerBound(i) + upperBound(i)) / 2;
+                    return Math.min(mid, maxValue) / 1000.0;
+                }
+            }
+            return maxValue / 1000.0;
+        }
+    }
+
+    /**
+     * Records creation-to-completion time before dependents run
+     */
+    private static final class TimedFuture<T> extends CompletableFuture<T> {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+
+        TimedFuture(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public boolean complete(T value) {
+            if (!isDone()) {
+                record(name, System.nanoTime() - startNanos, false);
+            }
+            return super.complete(value);
+        }
+
+        @Override
+        public boolean completeExceptionally(Throwable ex) {
+            if (!isDone()) {
+                record(name, System.nanoTime() - startNanos, true);
+            }
+            return super.completeExceptionally(ex);
+        }
+
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            // Dependent stages are plain futures - only this one is timed
+            return new CompletableFuture<>();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package de.babixgo.monopolygo.benchmark;
+
+import de.babixgo.monopolygo.AccountManager;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * AccountManager.readAccountInfos over an in-memory Accountinfos.csv
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class AccountCsvBenchmark {
+
+    @Param({"1000", "10000"})
+    public int rows;
+
+    private String csv;
+
+    @Setup
+    public void setUp() {
+        StringBuilder builder = new StringBuilder("InterneID,UserID,Datum,Shortlink,Notiz\n");
+        for (int i = 0; i < rows; i++) {
+            builder.append("Account").append(i).append(',')
+                .append(100000000L + i).append(',')
+                .append("2026-01-").append(String.format("%02d", i % 28 + 1)).append(',')
+                .append("https://mply.io/").append(Integer.toHexString(i * 7919)).append(',')
+                .append(i % 5 == 0 ? "\"Notiz, mit Komma\"" : "").append('\n');
+        }
+        csv = builder.toString();
+    }
+
+    @Benchmark
+    public List<AccountManager.AccountInfo> readAccountInfos() throws Exception {
+        return AccountManager.readAccountInfos(new StringReader(csv), true);
+    }
+}
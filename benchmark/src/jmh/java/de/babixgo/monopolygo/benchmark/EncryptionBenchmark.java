@@ -0,0 +1,58 @@
+package de.babixgo.monopolygo.benchmark;
+
+import de.babixgo.monopolygo.utils.EncryptionHelper;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Per-call cost of EncryptionHelper for a typical customer credential,
+ * and of decrypting the passwords of a large customer in one batch
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EncryptionBenchmark {
+
+    private static final String PLAIN_TEXT = "customer.login@example.com:S3cret-Passw0rd!";
+
+    private static final int BATCH_SIZE = 500;
+
+    private String cipherText;
+    private List<String> cipherTexts;
+
+    @Setup
+    public void setUp() {
+        cipherText = EncryptionHelper.encrypt(PLAIN_TEXT);
+        if (cipherText == null || !PLAIN_TEXT.equals(EncryptionHelper.decrypt(cipherText))) {
+            throw new IllegalStateException("EncryptionHelper round trip failed");
+        }
+
+        cipherTexts = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            cipherTexts.add(EncryptionHelper.encrypt(PLAIN_TEXT + i));
+        }
+    }
+
+    @Benchmark
+    public String encrypt() {
+        return EncryptionHelper.encrypt(PLAIN_TEXT);
+    }
+
+    @Benchmark
+    public String decrypt() {
+        return EncryptionHelper.decrypt(cipherText);
+    }
+
+    @Benchmark
+    public List<String> decryptAll() {
+        return EncryptionHelper.decryptAll(cipherTexts);
+    }
+}
@@ -0,0 +1,178 @@
+package de.babixgo.monopolygo.benchmark;
+
+import de.babixgo.monopolygo.database.AccountRepository;
+import de.babixgo.monopolygo.database.DataStore;
+import de.babixgo.monopolygo.database.EventRepository;
+import de.babixgo.monopolygo.database.InMemoryDataStore;
+import de.babixgo.monopolygo.database.TeamRepository;
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.models.Event;
+import de.babixgo.monopolygo.models.Team;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Repository filtering/sorting over synthetic collections
+ *
+ * "prebuilt" serves ready-made model lists (and ready-made results of the
+ * equalTo queries the repositories run), so only the repository's stream
+ * pipeline is measured. "mapped" reads from an InMemoryDataStore and includes
+ * the tree-to-object mapping every Firebase snapshot goes through.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RepositoryBenchmark {
+
+    @Param({"10000", "100000"})
+    public int entities;
+
+    @Param({"prebuilt", "mapped"})
+    public String source;
+
+    private AccountRepository accountRepository;
+    private EventRepository eventRepository;
+    private TeamRepository teamRepository;
+    private long eventId;
+
+    /**
+     * Store that hands out prebuilt lists instead of mapping stored data
+     * Queries are answered from results registered with putQuery() - the filtering
+     * is the backend's work, not the repository's
+     */
+    private static class PrebuiltDataStore extends InMemoryDataStore {
+        private final Map<String, List<?>> collections = new HashMap<>();
+        private final Map<String, List<?>> queries = new HashMap<>();
+
+        void putQuery(String collection, String field, Object value, List<?> result) {
+            queries.put(queryKey(collection, field, value), result);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<List<T>> getAll(String collection, Class<T> clazz) {
+            List<T> items = (List<T>) collections.getOrDefault(collection, Collections.emptyList());
+            return CompletableFuture.completedFuture(new ArrayList<>(items));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<List<T>> query(String collection, Class<T> clazz, QueryBuilder queryBuilder) {
+            String key = queryKey(collection, queryBuilder.getOrderByField(), queryBuilder.getEqualToValue());
+            List<T> items = (List<T>) queries.get(key);
+            if (items == null) {
+                // Fail instead of silently measuring an empty store
+                return CompletableFuture.failedFuture(new IllegalStateException("No prebuilt result for " + key));
+            }
+            return CompletableFuture.completedFuture(new ArrayList<>(items));
+        }
+
+        private static String queryKey(String collection, String field, Object value) {
+            return collection + "/" + field + "=" + value;
+        }
+    }
+
+    @Setup
+    public void setUp() throws Exception {
+        Random random = new Random(42);
+        List<Account> accounts = new ArrayList<>(entities);
+        List<Event> events = new ArrayList<>();
+        List<Team> teams = new ArrayList<>(entities);
+
+        for (int i = 0; i < entities; i++) {
+            Account account = new Account("Account " + Integer.toString(random.nextInt(entities * 10), 36), String.valueOf(100000000L + i));
+            account.setId(i + 1);
+            account.setAccountStatus(i % 3 == 0 ? "suspended" : "active");
+            if (i % 10 == 0) {
+                account.setDeletedAt("2026-01-01 12:00:00");
+            }
+            if (i % 4 == 0) {
+                account.setCustomerAccount(true);
+                account.setCustomerAccountId((long) i);
+            }
+            accounts.add(account);
+        }
+
+        // One event per 100 teams, 4 slots per team
+        int eventCount = Math.max(1, entities / 100);
+        for (int i = 0; i < eventCount; i++) {
+            Event event = new Event("Event " + i, "2026-01-01", "2026-01-05");
+            event.setId(i + 1);
+            events.add(event);
+        }
+        for (int i = 0; i < entities; i++) {
+            Team team = new Team();
+            team.setId(i + 1);
+            team.setEventId(random.nextInt(eventCount) + 1);
+            team.setName("Team " + Integer.toString(random.nextInt(entities * 10), 36));
+            team.setSlot1AccountId((long) random.nextInt(entities) + 1);
+            teams.add(team);
+        }
+        eventId = eventCount / 2 + 1;
+
+        DataStore store;
+        if ("prebuilt".equals(source)) {
+            PrebuiltDataStore prebuilt = new PrebuiltDataStore();
+            prebuilt.collections.put("accounts", accounts);
+            prebuilt.collections.put("events", events);
+            prebuilt.collections.put("teams", teams);
+            List<Team> eventTeams = new ArrayList<>();
+            for (Team team : teams) {
+                if (team.getEventId() == eventId) {
+                    eventTeams.add(team);
+                }
+            }
+            prebuilt.putQuery("teams", "eventId", eventId, eventTeams);
+            store = prebuilt;
+        } else {
+            store = new InMemoryDataStore();
+            for (Account account : accounts) {
+                store.save("accounts", account, String.valueOf(account.getId())).get();
+            }
+            for (Event event : events) {
+                store.save("events", event, String.valueOf(event.getId())).get();
+            }
+            for (Team team : teams) {
+                store.save("teams", team, String.valueOf(team.getId())).get();
+            }
+        }
+
+        accountRepository = new AccountRepository(store);
+        eventRepository = new EventRepository(store);
+        teamRepository = new TeamRepository(store);
+    }
+
+    @Benchmark
+    public List<Account> getAllAccounts() throws Exception {
+        return accountRepository.getAllAccounts().get();
+    }
+
+    @Benchmark
+    public List<Account> getNonCustomerAccounts() throws Exception {
+        return accountRepository.getNonCustomerAccounts().get();
+    }
+
+    @Benchmark
+    public List<Event> getAllEvents() throws Exception {
+        return eventRepository.getAllEvents().get();
+    }
+
+    @Benchmark
+    public List<Team> getTeamsByEventId() throws Exception {
+        return teamRepository.getTeamsByEventId(eventId).get();
+    }
+}
@@ -0,0 +1,88 @@
+package de.babixgo.monopolygo.benchmark;
+
+import de.babixgo.monopolygo.ZipManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * ZipManager round trip over a directory shaped like a game data backup:
+ * a few small XML/pref files and some larger binary files
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ZipBenchmark {
+
+    @Param({"10", "100"})
+    public int fileCount;
+
+    @Param({"4096", "262144"})
+    public int fileSize;
+
+    private Path workDir;
+    private File sourceDir;
+    private File archive;
+    private File extractDir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workDir = Files.createTempDirectory("zipbench");
+        sourceDir = new File(workDir.toFile(), "source");
+        archive = new File(workDir.toFile(), "backup.zip");
+        extractDir = new File(workDir.toFile(), "extract");
+
+        // Half random (incompressible), half repetitive text like shared_prefs XML
+        Random random = new Random(42);
+        for (int i = 0; i < fileCount; i++) {
+            File dir = new File(sourceDir, i % 2 == 0 ? "files" : "shared_prefs");
+            dir.mkdirs();
+            byte[] data = new byte[fileSize];
+            if (i % 2 == 0) {
+                random.nextBytes(data);
+            } else {
+                byte[] line = "<string name=\"key\">value</string>\n".getBytes();
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = line[j % line.length];
+                }
+            }
+            Files.write(new File(dir, "file" + i + ".dat").toPath(), data);
+        }
+
+        if (!ZipManager.zipDirectory(sourceDir.getPath(), archive.getPath())) {
+            throw new IllegalStateException("zipDirectory failed during setup");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(workDir)) {
+            paths.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+
+    @Benchmark
+    public boolean zipDirectory() {
+        return ZipManager.zipDirectory(sourceDir.getPath(), new File(workDir.toFile(), "out.zip").getPath());
+    }
+
+    @Benchmark
+    public boolean unzipArchive() {
+        return ZipManager.unzipArchive(archive.getPath(), extractDir.getPath());
+    }
+}
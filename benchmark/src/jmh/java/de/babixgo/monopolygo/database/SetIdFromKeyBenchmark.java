@@ -0,0 +1,53 @@
+package de.babixgo.monopolygo.database;
+
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.models.Event;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Key-to-id mapping done by FirebaseManager.setIdFromKey for every loaded item
+ * (same code path via BeanMapper.applyKey, which is package-private)
+ *
+ * Account takes the setFirebaseKey/setIdFromString path, Event the setId(long) path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SetIdFromKeyBenchmark {
+
+    private static final String NUMERIC_KEY = "1736935200123";
+    private static final String PUSH_KEY = "-NxK3fA9zQb7LmP2rT4v";
+
+    private final Account account = new Account();
+    private final Event event = new Event();
+
+    @Benchmark
+    public Account accountNumericKey() {
+        BeanMapper.applyKey(account, NUMERIC_KEY);
+        return account;
+    }
+
+    @Benchmark
+    public Account accountPushKey() {
+        BeanMapper.applyKey(account, PUSH_KEY);
+        return account;
+    }
+
+    @Benchmark
+    public Event eventNumericKey() {
+        BeanMapper.applyKey(event, NUMERIC_KEY);
+        return event;
+    }
+
+    @Benchmark
+    public Event eventPushKey() {
+        BeanMapper.applyKey(event, PUSH_KEY);
+        return event;
+    }
+}
@@ -0,0 +1,23 @@
+package android.os;
+
+/**
+ * JVM stand-in for android.os.Build - behaves like the newest supported device
+ */
+public final class Build {
+    private Build() {}
+
+    public static final class VERSION {
+        public static final int SDK_INT = 34;
+
+        private VERSION() {}
+    }
+
+    public static final class VERSION_CODES {
+        public static final int M = 23;
+        public static final int O = 26;
+        public static final int Q = 29;
+        public static final int R = 30;
+
+        private VERSION_CODES() {}
+    }
+}
@@ -0,0 +1,18 @@
+package android.os;
+
+import java.io.File;
+
+/**
+ * JVM stand-in for android.os.Environment
+ */
+public final class Environment {
+    private Environment() {}
+
+    public static boolean isExternalStorageManager() {
+        return true;
+    }
+
+    public static File getExternalStorageDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"));
+    }
+}
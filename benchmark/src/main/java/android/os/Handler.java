@@ -0,0 +1,13 @@
+package android.os;
+
+/**
+ * JVM stand-in for android.os.Handler - posted tasks run immediately on the caller
+ */
+public class Handler {
+    public Handler(Looper looper) {}
+
+    public boolean post(Runnable runnable) {
+        runnable.run();
+        return true;
+    }
+}
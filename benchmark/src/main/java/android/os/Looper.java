@@ -0,0 +1,14 @@
+package android.os;
+
+/**
+ * JVM stand-in for android.os.Looper - there is no main thread on the JVM
+ */
+public final class Looper {
+    private static final Looper MAIN = new Looper();
+
+    private Looper() {}
+
+    public static Looper getMainLooper() {
+        return MAIN;
+    }
+}
@@ -0,0 +1,33 @@
+package android.util;
+
+/**
+ * JVM stand-in for android.util.Base64 on top of java.util.Base64
+ */
+public final class Base64 {
+    public static final int DEFAULT = 0;
+    public static final int NO_PADDING = 1;
+    public static final int NO_WRAP = 2;
+    public static final int URL_SAFE = 8;
+
+    private Base64() {}
+
+    public static String encodeToString(byte[] input, int flags) {
+        return encodeToString(input, 0, input.length, flags);
+    }
+
+    public static String encodeToString(byte[] input, int offset, int len, int flags) {
+        java.util.Base64.Encoder encoder = (flags & URL_SAFE) != 0
+            ? java.util.Base64.getUrlEncoder()
+            : (flags & NO_WRAP) != 0 ? java.util.Base64.getEncoder() : java.util.Base64.getMimeEncoder();
+        if ((flags & NO_PADDING) != 0) {
+            encoder = encoder.withoutPadding();
+        }
+        return encoder.encodeToString(java.util.Arrays.copyOfRange(input, offset, offset + len));
+    }
+
+    public static byte[] decode(String input, int flags) {
+        return (flags & URL_SAFE) != 0
+            ? java.util.Base64.getUrlDecoder().decode(input)
+            : java.util.Base64.getMimeDecoder().decode(input);
+    }
+}
@@ -0,0 +1,35 @@
+package android.util;
+
+/**
+ * JVM stand-in for android.util.Log - benchmarks must not measure console output
+ * Errors and warnings go to stderr so failing benchmarks stay visible
+ */
+public final class Log {
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    private Log() {}
+
+    public static boolean isLoggable(String tag, int level) {
+        return level >= WARN;
+    }
+
+    public static int v(String tag, String msg) { return 0; }
+    public static int d(String tag, String msg) { return 0; }
+    public static int d(String tag, String msg, Throwable tr) { return 0; }
+    public static int i(String tag, String msg) { return 0; }
+
+    public static int w(String tag, String msg) { return print(tag, msg, null); }
+    public static int w(String tag, String msg, Throwable tr) { return print(tag, msg, tr); }
+    public static int w(String tag, Throwable tr) { return print(tag, "", tr); }
+    public static int e(String tag, String msg) { return print(tag, msg, null); }
+    public static int e(String tag, String msg, Throwable tr) { return print(tag, msg, tr); }
+
+    private static int print(String tag, String msg, Throwable tr) {
+        System.err.println(tag + ": " + msg + (tr != null ? " (" + tr + ")" : ""));
+        return 0;
+    }
+}
@@ -0,0 +1,74 @@
+package com.topjohnwu.superuser;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JVM stand-in for libsu - there is no root shell in benchmarks,
+ * every command fails without running anything
+ */
+public abstract class Shell {
+    public static final int FLAG_REDIRECT_STDERR = 1 << 3;
+    public static final int FLAG_MOUNT_MASTER = 1 << 2;
+    public static boolean enableVerboseLogging = false;
+
+    public abstract boolean isRoot();
+
+    public static Boolean isAppGrantedRoot() {
+        return Boolean.FALSE;
+    }
+
+    public static void setDefaultBuilder(Builder builder) {
+    }
+
+    public static Shell getShell() {
+        return new Shell() {
+            @Override
+            public boolean isRoot() {
+                return false;
+            }
+        };
+    }
+
+    public static Job cmd(String... commands) {
+        return new Job();
+    }
+
+    public static class Builder {
+        public static Builder create() {
+            return new Builder();
+        }
+
+        public Builder setFlags(int flags) {
+            return this;
+        }
+
+        public Builder setTimeout(long seconds) {
+            return this;
+        }
+    }
+
+    public static class Job {
+        public Result exec() {
+            return new Result();
+        }
+    }
+
+    public static class Result {
+        public List<String> getOut() {
+            return Collections.emptyList();
+        }
+
+        public List<String> getErr() {
+            return Collections.emptyList();
+        }
+
+        public int getCode() {
+            return 1;
+        }
+
+        public boolean isSuccess() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package de.babixgo.monopolygo.database;
+
+/**
+ * JVM stand-in for FirebaseManager: the app-wide singleton is an InMemoryDataStore,
+ * so repositories created with their no-arg constructors also work in benchmarks
+ */
+public class FirebaseManager extends InMemoryDataStore {
+    private static FirebaseManager instance;
+
+    private FirebaseManager() {}
+
+    public static synchronized FirebaseManager getInstance() {
+        if (instance == null) {
+            instance = new FirebaseManager();
+        }
+        return instance;
+    }
+}
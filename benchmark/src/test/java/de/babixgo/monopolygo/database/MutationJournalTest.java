@@ -0,0 +1,144 @@
+package de.babixgo.monopolygo.database;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import de.babixgo.monopolygo.models.Account;
+import de.babixgo.monopolygo.utils.TimestampHelper;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Offline journal → reconnect → replay, on an InMemoryDataStore that starts disconnected
+ */
+public class MutationJournalTest {
+    // Server state with a millisecond updatedAt, as written by current clients
+    private static final long SERVER_UPDATED_AT = 1_700_000_000_123L;
+    private static final long REPLAY_WAIT_MS = 5_000;
+
+    private OfflineDataStore store;
+    private MutationJournal journal;
+    private AccountRepository repository;
+
+    /**
+     * InMemoryDataStore whose connection state is switched by the test
+     */
+    private static final class OfflineDataStore extends InMemoryDataStore {
+        private ConnectionListener listener;
+
+        @Override
+        public void addConnectionListener(ConnectionListener listener) {
+            this.listener = listener;
+            listener.onConnectionChanged(false);
+        }
+
+        void connect() {
+            listener.onConnectionChanged(true);
+        }
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        store = new OfflineDataStore();
+        journal = new MutationJournal(store);
+        repository = new AccountRepository(store, journal, new WriteBehindQueue(store, journal));
+
+        Account account = new Account("Offline", "user-1");
+        account.setId(1);
+        account.setNote("server");
+        account.setUpdatedAt(TimestampHelper.formatIso(SERVER_UPDATED_AT));
+        account.setUpdatedAtTimestamp(SERVER_UPDATED_AT);
+        store.save("accounts", account, "1").get();
+    }
+
+    @Test
+    public void replayAppliesOfflineUpdateBasedOnMillisecondTimestamp() throws Exception {
+        Account account = repository.getAccountById(1).get();
+        assertEquals(SERVER_UPDATED_AT, account.getUpdatedAtTimestamp());
+
+        account.setNote("offline");
+        repository.updateAccount(account).get();
+        assertEquals(1, journal.getPendingCount());
+
+        store.connect();
+        awaitReplay();
+
+        assertEquals(0, journal.getConflictCount());
+        assertEquals("offline", serverAccount().getNote());
+    }
+
+    @Test
+    public void replayMovesConcurrentServerWriteToConflicts() throws Exception {
+        Account account = repository.getAccountById(1).get();
+        account.setNote("offline");
+        repository.updateAccount(account).get();
+
+        // Another device wrote the account one millisecond after our base
+        Map<String, Object> concurrent = new HashMap<>();
+        concurrent.put("note", "other device");
+        concurrent.put("updatedAtTimestamp", SERVER_UPDATED_AT + 1);
+        store.updateFields("accounts", "1", concurrent).get();
+
+        store.connect();
+        awaitReplay();
+
+        assertEquals(1, journal.getConflictCount());
+        assertEquals("other device", serverAccount().getNote());
+    }
+
+    @Test
+    public void replayAppliesUpdateWhoseBaseOnlyKnowsTheSecond() throws Exception {
+        // Loaded without the millisecond field - the base falls back to the ISO text
+        Account account = repository.getAccountById(1).get();
+        account.setUpdatedAtTimestamp(0);
+        assertEquals(SERVER_UPDATED_AT / 1000 * 1000, account.getUpdatedAtTimestamp());
+
+        account.setNote("offline");
+        repository.updateAccount(account).get();
+
+        store.connect();
+        awaitReplay();
+
+        assertEquals(0, journal.getConflictCount());
+        assertEquals("offline", serverAccount().getNote());
+    }
+
+    @Test
+    public void readsSeePendingOfflineWrites() throws Exception {
+        Account account = repository.getAccountById(1).get();
+        account.setNote("offline");
+        repository.updateAccount(account).get();
+
+        Account created = repository.createAccount(new Account("Neu", "user-2")).get();
+        assertNotEquals(0, created.getId());
+
+        List<Account> accounts = repository.getAllAccounts().get();
+        assertEquals(2, accounts.size());
+        assertEquals("offline", repository.getAccountById(1).get().getNote());
+        assertNotNull(repository.getAccountByName("Neu").get());
+
+        repository.deleteAccount(1).get();
+        assertEquals(1, repository.getAllAccounts().get().size());
+
+        // Nothing reached the server yet
+        assertEquals("server", serverAccount().getNote());
+    }
+
+    private Account serverAccount() throws Exception {
+        return store.getById("accounts", "1", Account.class).get();
+    }
+
+    private void awaitReplay() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REPLAY_WAIT_MS);
+        while (journal.getPendingCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue("Replay did not finish", journal.getPendingCount() == 0);
+    }
+}